@@ -0,0 +1,41 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler enabled and writes the
+ * results as JSON, so runs can be compared across commits. Takes the same
+ * arguments as the JMH launcher; for example, <code>RF2ImportBenchmark -p
+ * concepts=10000</code> runs only the RF2 phases on the smaller release.
+ * Results are written to <code>jmh-result.json</code> unless <code>-rff
+ * </code> is given.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options opts = new OptionsBuilder()
+            .parent(cmd)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(cmd.getResult().orElse("jmh-result.json"))
+            .build();
+        new Runner(opts).run();
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.model.ConceptComparator;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.IConcept;
+
+/**
+ * Compares ordering concepts of mixed types by type rank, as
+ * {@link ConceptComparator} does, with ordering them by the name of their
+ * class. The operands are those of the conjunctions built for each concept,
+ * which mix named concepts and existentials.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompareBenchmark {
+
+    /**
+     * Orders concepts of different classes by class name.
+     */
+    private static final Comparator<IConcept> CLASS_NAME =
+            new Comparator<IConcept>() {
+        @Override
+        public int compare(IConcept c1, IConcept c2) {
+            if(c1.getClass().equals(c2.getClass())) {
+                return c1.compareTo(c2);
+            } else {
+                return c1.getClass().toString().compareTo(
+                        c2.getClass().toString());
+            }
+        }
+    };
+
+    @Param({ "10000" })
+    public int concepts;
+
+    private List<IConcept[]> operands;
+    private IConcept[] all;
+
+    @Setup
+    public void setup() {
+        operands = new ArrayList<>();
+        List<IConcept> flat = new ArrayList<>();
+        for(IAxiom a : Fixtures.axioms(concepts)) {
+            IConcept rhs = ((ConceptInclusion) a).rhs();
+            IConcept[] cs = (rhs instanceof Conjunction) ?
+                    ((Conjunction) rhs).getConcepts() : new IConcept[] { rhs };
+            operands.add(cs);
+            flat.addAll(Arrays.asList(cs));
+        }
+        all = flat.toArray(new IConcept[flat.size()]);
+    }
+
+    @Benchmark
+    public IConcept[] sortByRank() {
+        IConcept[] res = all.clone();
+        Arrays.sort(res, ConceptComparator.INSTANCE);
+        return res;
+    }
+
+    @Benchmark
+    public IConcept[] sortByClassName() {
+        IConcept[] res = all.clone();
+        Arrays.sort(res, CLASS_NAME);
+        return res;
+    }
+
+    /**
+     * Builds a conjunction from the operands of each concept.
+     */
+    @Benchmark
+    public void conjunctions(Blackhole bh) {
+        for(IConcept[] cs : operands) {
+            bh.consume(new Conjunction(cs));
+        }
+    }
+
+    /**
+     * Sorts the operands of each concept the way conjunctions used to, with a
+     * sorted set ordered by class name.
+     */
+    @Benchmark
+    public void conjunctionsByClassName(Blackhole bh) {
+        for(IConcept[] cs : operands) {
+            SortedSet<IConcept> sorted = new TreeSet<>(CLASS_NAME);
+            sorted.addAll(Arrays.asList(cs));
+            bh.consume(sorted.toArray(new IConcept[sorted.size()]));
+        }
+    }
+
+}
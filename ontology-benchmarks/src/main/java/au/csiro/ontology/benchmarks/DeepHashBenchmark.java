@@ -0,0 +1,137 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.Datatype;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.Feature;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.IntegerLiteral;
+import au.csiro.ontology.model.Operator;
+import au.csiro.ontology.model.Role;
+
+/**
+ * Measures hashing and comparing deeply nested expressions, such as role
+ * groups of conjunctions of existentials, when they are put in hash sets as
+ * the importers and the reasoner indexes do.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepHashBenchmark {
+
+    @Param({ "10000" })
+    public int concepts;
+
+    @Param({ "1", "4", "8" })
+    public int depth;
+
+    private List<IAxiom> axioms;
+    private List<IAxiom> copies;
+
+    @Setup
+    public void setup() {
+        axioms = createAxioms();
+        copies = createAxioms();
+    }
+
+    /**
+     * Creates one axiom per concept whose right hand side nests a role
+     * group, a conjunction and an existential per level, with a datatype
+     * at the bottom.
+     */
+    private List<IAxiom> createAxioms() {
+        Random rnd = new Random(Fixtures.SEED);
+        Role<String> roleGroup = new Role<>("RoleGroup");
+        Feature<String> f = new Feature<>("value");
+        List<IAxiom> res = new ArrayList<>(concepts);
+        for(int i = 0; i < concepts; i++) {
+            IConcept c = new Datatype<>(f, Operator.EQUALS,
+                    new IntegerLiteral(rnd.nextInt(100)));
+            for(int d = 0; d < depth; d++) {
+                c = new Existential<>(roleGroup, new Conjunction(
+                        new IConcept[] {
+                    new Existential<>(new Role<>(Fixtures.roleId(d)), c),
+                    new Concept<>(Fixtures.conceptId(rnd.nextInt(concepts)))
+                }));
+            }
+            res.add(new ConceptInclusion(new Concept<>(Fixtures.conceptId(i)),
+                    c));
+        }
+        return res;
+    }
+
+    @Benchmark
+    public int hash() {
+        int res = 0;
+        for(IAxiom a : axioms) {
+            res += a.hashCode();
+        }
+        return res;
+    }
+
+    /**
+     * Compares each axiom with an equal but not identical copy.
+     */
+    @Benchmark
+    public int equalsCopy() {
+        int res = 0;
+        for(int i = 0; i < axioms.size(); i++) {
+            if(axioms.get(i).equals(copies.get(i))) res++;
+        }
+        return res;
+    }
+
+    /**
+     * Compares each axiom with the copy of the next one, which has the same
+     * shape but different leaves.
+     */
+    @Benchmark
+    public int equalsOther() {
+        int res = 0;
+        for(int i = 1; i < axioms.size(); i++) {
+            if(axioms.get(i).equals(copies.get(i - 1))) res++;
+        }
+        return res;
+    }
+
+    @Benchmark
+    public Set<IAxiom> hashSet() {
+        Set<IAxiom> res = new HashSet<>();
+        res.addAll(axioms);
+        res.addAll(copies);
+        return res;
+    }
+
+}
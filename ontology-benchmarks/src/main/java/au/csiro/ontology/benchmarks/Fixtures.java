@@ -0,0 +1,143 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import au.csiro.ontology.Node;
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.Role;
+
+/**
+ * Builds the synthetic data shared by the benchmarks. The data has the shape
+ * of a SNOMED stated form: every concept has one or two parents and a few
+ * role groups. The same seed always produces the same data.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class Fixtures {
+
+    public static final long SEED = 20120131L;
+
+    private static final int NUM_ROLES = 50;
+
+    /**
+     * Returns the id of the i-th concept. Concept 0 is the root.
+     *
+     * @param i
+     * @return
+     */
+    public static String conceptId(int i) {
+        return String.valueOf(100000000L + i);
+    }
+
+    /**
+     * Returns the id of the i-th role.
+     *
+     * @param i
+     * @return
+     */
+    public static String roleId(int i) {
+        return String.valueOf(200000000L + i);
+    }
+
+    /**
+     * Returns the parents of each concept. Parents always have a lower index
+     * so the result is a DAG rooted at concept 0.
+     *
+     * @param numConcepts
+     * @return
+     */
+    public static int[][] parents(int numConcepts) {
+        Random rnd = new Random(SEED);
+        int[][] res = new int[numConcepts][];
+        res[0] = new int[0];
+        for(int i = 1; i < numConcepts; i++) {
+            int p1 = rnd.nextInt(i);
+            if(i > 2 && rnd.nextInt(5) == 0) {
+                int p2 = rnd.nextInt(i);
+                res[i] = (p2 == p1) ? new int[] { p1 } : new int[] { p1, p2 };
+            } else {
+                res[i] = new int[] { p1 };
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Creates one concept inclusion per concept. The right hand side is a
+     * conjunction of the parents and up to three role groups with up to two
+     * existentials each.
+     *
+     * @param numConcepts
+     * @return
+     */
+    public static List<IAxiom> axioms(int numConcepts) {
+        Random rnd = new Random(SEED);
+        int[][] parents = parents(numConcepts);
+        Role<String> roleGroup = new Role<>("RoleGroup");
+        List<IAxiom> res = new ArrayList<>(numConcepts);
+        for(int i = 1; i < numConcepts; i++) {
+            List<IConcept> conjs = new ArrayList<>();
+            for(int p : parents[i]) {
+                conjs.add(new Concept<>(conceptId(p)));
+            }
+            int groups = rnd.nextInt(4);
+            for(int g = 0; g < groups; g++) {
+                int size = 1 + rnd.nextInt(2);
+                IConcept[] inner = new IConcept[size];
+                for(int j = 0; j < size; j++) {
+                    inner[j] = new Existential<>(
+                            new Role<>(roleId(rnd.nextInt(NUM_ROLES))),
+                            new Concept<>(conceptId(rnd.nextInt(numConcepts))));
+                }
+                conjs.add(new Existential<>(roleGroup, (size == 1) ?
+                        inner[0] : new Conjunction(inner)));
+            }
+            IConcept rhs = (conjs.size() == 1) ? conjs.get(0) :
+                new Conjunction(conjs);
+            res.add(new ConceptInclusion(new Concept<>(conceptId(i)), rhs));
+        }
+        return res;
+    }
+
+    /**
+     * Creates the taxonomy of the concepts returned by {@link #parents(int)}.
+     *
+     * @param numConcepts
+     * @return
+     */
+    public static Map<String, Node<String>> taxonomy(int numConcepts) {
+        int[][] parents = parents(numConcepts);
+        List<Node<String>> nodes = new ArrayList<>(numConcepts);
+        Map<String, Node<String>> res = new HashMap<>();
+        for(int i = 0; i < numConcepts; i++) {
+            Node<String> n = new Node<>();
+            n.getEquivalentConcepts().add(conceptId(i));
+            nodes.add(n);
+            res.put(conceptId(i), n);
+        }
+        for(int i = 1; i < numConcepts; i++) {
+            Node<String> n = nodes.get(i);
+            for(int p : parents[i]) {
+                Node<String> pn = nodes.get(p);
+                n.getParents().add(pn);
+                pn.getChildren().add(n);
+            }
+        }
+        return res;
+    }
+
+}
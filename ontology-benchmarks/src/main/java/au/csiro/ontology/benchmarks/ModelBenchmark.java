@@ -0,0 +1,124 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.Role;
+
+/**
+ * Measures the construction, hashing and comparison of model objects. These
+ * are on the hot path of every importer, which builds one conjunction and a
+ * handful of existentials per concept, and of the reasoner, which puts them
+ * in hash sets.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({ "10000" })
+    public int concepts;
+
+    private String[] ids;
+    private List<IAxiom> axioms;
+    private List<IAxiom> copies;
+
+    @Setup
+    public void setup() {
+        ids = new String[concepts];
+        for(int i = 0; i < concepts; i++) {
+            ids[i] = Fixtures.conceptId(i);
+        }
+        axioms = Fixtures.axioms(concepts);
+        copies = Fixtures.axioms(concepts);
+    }
+
+    /**
+     * Builds the kind of expression the RF2 importer builds for each concept.
+     */
+    @Benchmark
+    public void construct(Blackhole bh) {
+        Role<String> roleGroup = new Role<>("RoleGroup");
+        Role<String> r = new Role<>(Fixtures.roleId(0));
+        for(int i = 1; i < ids.length; i++) {
+            IConcept[] conjs = new IConcept[] {
+                new Concept<>(ids[i - 1]),
+                new Existential<>(roleGroup, new Existential<>(r,
+                        new Concept<>(ids[i >> 1])))
+            };
+            bh.consume(new ConceptInclusion(new Concept<>(ids[i]),
+                    new Conjunction(conjs)));
+        }
+    }
+
+    @Benchmark
+    public int hash() {
+        int res = 0;
+        for(IAxiom a : axioms) {
+            res += a.hashCode();
+        }
+        return res;
+    }
+
+    /**
+     * Compares each axiom with an equal but not identical copy, so no
+     * identity shortcut applies.
+     */
+    @Benchmark
+    public int equalsCopy() {
+        int res = 0;
+        for(int i = 0; i < axioms.size(); i++) {
+            if(axioms.get(i).equals(copies.get(i))) res++;
+        }
+        return res;
+    }
+
+    @Benchmark
+    public Set<IAxiom> hashSet() {
+        Set<IAxiom> res = new HashSet<>();
+        res.addAll(axioms);
+        res.addAll(copies);
+        return res;
+    }
+
+    @Benchmark
+    public List<IAxiom> sort() {
+        List<IAxiom> res = new ArrayList<>(axioms);
+        Collections.sort(res);
+        return res;
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.csiro.ontology.RoleHierarchy;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.IRoleInclusion;
+import au.csiro.ontology.axioms.RoleInclusion;
+import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.Role;
+
+/**
+ * Compares checking if a role is a sub-role of another with a
+ * {@link RoleHierarchy} and by searching the role inclusion axioms, as
+ * consumers of the imported axioms otherwise have to.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleHierarchyBenchmark {
+
+    @Param({ "60", "500" })
+    public int roles;
+
+    private List<IAxiom> axioms;
+    private IRole[][] pairs;
+    private RoleHierarchy hierarchy;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(Fixtures.SEED);
+        List<Role<String>> rs = new ArrayList<>();
+        for(int i = 0; i < roles; i++) {
+            rs.add(new Role<>(Fixtures.roleId(i)));
+        }
+        axioms = new ArrayList<>();
+        for(int i = 1; i < roles; i++) {
+            axioms.add(new RoleInclusion(rs.get(i), rs.get(rnd.nextInt(i))));
+        }
+        pairs = new IRole[1000][];
+        for(int i = 0; i < pairs.length; i++) {
+            pairs[i] = new IRole[] { rs.get(rnd.nextInt(roles)),
+                    rs.get(rnd.nextInt(roles)) };
+        }
+        hierarchy = new RoleHierarchy(axioms);
+    }
+
+    @Benchmark
+    public RoleHierarchy build() {
+        return new RoleHierarchy(axioms);
+    }
+
+    @Benchmark
+    public int isSubRoleOf() {
+        int res = 0;
+        for(IRole[] pair : pairs) {
+            if(hierarchy.isSubRoleOf(pair[0], pair[1])) res++;
+        }
+        return res;
+    }
+
+    /**
+     * Searches the role inclusions from the sub-role for every pair.
+     */
+    @Benchmark
+    public int scanAxioms() {
+        int res = 0;
+        for(IRole[] pair : pairs) {
+            Set<IRole> seen = new HashSet<>();
+            Deque<IRole> todo = new ArrayDeque<>();
+            todo.add(pair[0]);
+            while(!todo.isEmpty()) {
+                IRole r = todo.poll();
+                if(r.equals(pair[1])) {
+                    res++;
+                    break;
+                }
+                if(!seen.add(r)) continue;
+                for(IAxiom a : axioms) {
+                    IRoleInclusion ri = (IRoleInclusion) a;
+                    if(ri.lhs().length == 1 && ri.lhs()[0].equals(r)) {
+                        todo.add(ri.rhs());
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+}
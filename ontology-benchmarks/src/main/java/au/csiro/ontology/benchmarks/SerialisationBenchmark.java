@@ -0,0 +1,101 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.importer.IAxiomSink;
+import au.csiro.ontology.importer.owl.FunctionalSyntaxImporter;
+import au.csiro.ontology.importer.owl.FunctionalSyntaxWriter;
+import au.csiro.ontology.util.AxiomUtils;
+
+/**
+ * Measures the text formats axioms are written to and read from: the
+ * {@link AxiomUtils} serialisation and OWL functional syntax.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerialisationBenchmark {
+
+    private static final String NS = "http://snomed.info/id/";
+
+    @Param({ "10000" })
+    public int concepts;
+
+    private List<IAxiom> axioms;
+    private List<String> serialised;
+    private byte[] owl;
+
+    @Setup
+    public void setup() {
+        axioms = Fixtures.axioms(concepts);
+        serialised = new ArrayList<>(axioms.size());
+        for(IAxiom a : axioms) {
+            serialised.add(AxiomUtils.serialise(a));
+        }
+        owl = writeOwl();
+    }
+
+    @Benchmark
+    public void serialise(Blackhole bh) {
+        for(IAxiom a : axioms) {
+            bh.consume(AxiomUtils.serialise(a));
+        }
+    }
+
+    @Benchmark
+    public void deserialise(Blackhole bh) {
+        for(String s : serialised) {
+            bh.consume(AxiomUtils.deserialise(s));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeOwl() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new FunctionalSyntaxWriter(NS).write(axioms, "http://snomed.info/sct",
+                Channels.newChannel(bos));
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public void readOwl(final Blackhole bh) {
+        FunctionalSyntaxImporter fsi = new FunctionalSyntaxImporter(
+                new ByteArrayInputStream(owl));
+        fsi.importAxioms(new IAxiomSink() {
+            @Override
+            public void accept(IAxiom axiom) {
+                bh.consume(axiom);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.csiro.ontology.Node;
+import au.csiro.ontology.Ontology;
+import au.csiro.ontology.axioms.IAxiom;
+
+/**
+ * Measures the traversals clients run on a classified {@link Ontology}:
+ * visiting every node and computing the ancestors of a concept.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaxonomyBenchmark {
+
+    @Param({ "10000" })
+    public int concepts;
+
+    private Ontology<String> ont;
+
+    @Setup
+    public void setup() {
+        ont = new Ontology<>(Collections.<IAxiom>emptySet(),
+                Fixtures.taxonomy(concepts));
+    }
+
+    @Benchmark
+    public int iterate() {
+        int res = 0;
+        for(Iterator<Node<String>> it = ont.nodeIterator(); it.hasNext(); ) {
+            res += it.next().getChildren().size();
+        }
+        return res;
+    }
+
+    /**
+     * Computes the ancestors of the 100 deepest concepts.
+     */
+    @Benchmark
+    public int ancestors() {
+        int res = 0;
+        for(int i = concepts - 100; i < concepts; i++) {
+            Node<String> n = ont.getNode(Fixtures.conceptId(i));
+            Set<Node<String>> seen = new HashSet<>();
+            Deque<Node<String>> queue = new ArrayDeque<>();
+            queue.add(n);
+            while(!queue.isEmpty()) {
+                for(Node<String> p : queue.poll().getParents()) {
+                    if(seen.add(p)) queue.add(p);
+                }
+            }
+            res += seen.size();
+        }
+        return res;
+    }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.csiro.ontology.IOntology;
+import au.csiro.ontology.benchmarks.Fixtures;
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.input.Inputs;
+import au.csiro.ontology.importer.input.Inputs.ReleaseType;
+import au.csiro.ontology.importer.input.ModuleInfo;
+import au.csiro.ontology.importer.input.Version;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.INamedRole;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependency;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyGraph;
+import au.csiro.ontology.util.NullProgressMonitor;
+
+/**
+ * Measures each phase of {@link RF2Importer#getOntologyVersions} separately:
+ * reading the files, assembling the bundles, filtering them and transforming
+ * them into axioms. The benchmark lives in the importer's package so it can
+ * call the protected phase methods. The input is a release written by
+ * {@link RF2Generator} to a temporary directory or, with the {@code release}
+ * parameter, a release bundled on the classpath, e.g.
+ * {@code -p release=/config-rf2-test.xml} for the importer's test release.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx8g" })
+public class RF2ImportBenchmark {
+
+    @Param({ "10000", "300000" })
+    public int concepts;
+
+    @Param({ "1", "4" })
+    public int versions;
+
+    @Param({ "FULL" })
+    public ReleaseType releaseType;
+
+    /**
+     * Classpath resource with the input configuration of a bundled release.
+     * When set, the release is imported instead of a generated one and the
+     * other parameters are ignored.
+     */
+    @Param({ "" })
+    public String release;
+
+    private File dir;
+    private RF2Importer importer;
+    private Map<String, Set<Version>> toLoad;
+    private ModuleDependencyGraph graph;
+    private Map<String, Module> modules;
+    private Map<String, Map<String, ? extends VersionRows>> bundles;
+    private Map<String, Map<String, ? extends VersionRows>> filtered;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if(release.isEmpty()) {
+            dir = Files.createTempDirectory("rf2bench").toFile();
+            RF2Generator gen = new RF2Generator(Fixtures.SEED);
+            gen.setConcepts(concepts);
+            gen.setVersions(versions);
+            gen.generate(dir);
+            importer = new RF2Importer(gen.getInputs(dir, releaseType));
+            toLoad = importer.getModuleVersionsToLoad();
+            graph = importer.loadModuleDependencies().getDependencyGraph();
+            modules = importer.extractModules();
+        } else {
+            importer = new RF2Importer(loadRelease());
+            toLoad = importer.getModuleVersionsToLoad();
+            modules = importer.extractModules();
+            graph = getDependencyGraph(modules);
+        }
+        importer.mergeRows(modules);
+        filtered = importer.getBundles(toLoad, graph, modules);
+        importer.filterBundles(filtered);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        bundles = importer.getBundles(toLoad, graph, modules);
+        importer.clearIndexes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if(dir != null) delete(dir);
+    }
+
+    @Benchmark
+    public Map<String, Module> extract() {
+        Map<String, Module> res = importer.extractModules();
+        importer.mergeRows(res);
+        return res;
+    }
+
+    @Benchmark
+    public Map<String, Map<String, ? extends VersionRows>> bundle() {
+        return importer.getBundles(toLoad, graph, modules);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, ? extends VersionRows>> filter() {
+        importer.filterBundles(bundles);
+        return bundles;
+    }
+
+    @Benchmark
+    public Map<String, Map<String, IOntology<String>>> transform() {
+        return importer.transform(toLoad, filtered,
+                new HashMap<String, IConcept>(),
+                new HashMap<String, INamedRole<String>>());
+    }
+
+    /**
+     * Runs all the phases, including loading the module dependencies of a
+     * generated release.
+     */
+    @Benchmark
+    public Map<String, Map<String, IOntology<String>>> importAll() {
+        if(!release.isEmpty()) {
+            // Bundled releases have no module dependencies to load
+            Map<String, Map<String, ? extends VersionRows>> res =
+                    importer.getBundles(toLoad, graph, extract());
+            importer.filterBundles(res);
+            return importer.transform(toLoad, res,
+                    new HashMap<String, IConcept>(),
+                    new HashMap<String, INamedRole<String>>());
+        }
+        return importer.getOntologyVersions(new NullProgressMonitor());
+    }
+
+    /**
+     * Loads the configuration of the bundled release. The bundled
+     * configurations do not list the versions to load, so every version in
+     * the files is loaded, with the metadata of the generated releases.
+     */
+    private Inputs loadRelease() {
+        Inputs inputs;
+        try {
+            inputs = Inputs.load(getClass().getResourceAsStream(release));
+        } catch(JAXBException e) {
+            throw new ImportException("Unable to load "+release, e);
+        }
+        Map<String, Module> all = new RF2Importer(inputs).extractModules();
+        for(Module m : all.values()) {
+            ModuleInfo mi = new ModuleInfo(m.getId());
+            for(String version : m.getVersions().keySet()) {
+                Version v = new Version(version);
+                v.getMetadata().putAll(RF2Generator.getMetadata());
+                mi.getVersions().add(v);
+            }
+            inputs.getRf2Inputs().get(0).getModules().add(mi);
+        }
+        return inputs;
+    }
+
+    /**
+     * Returns a graph where every version of every module has no
+     * dependencies, for releases without a module dependency refset.
+     */
+    private static ModuleDependencyGraph getDependencyGraph(
+            Map<String, Module> modules) {
+        Map<String, Map<String, ModuleDependency>> deps = new HashMap<>();
+        for(Module m : modules.values()) {
+            Map<String, ModuleDependency> vMap = new HashMap<>();
+            for(String version : m.getVersions().keySet()) {
+                vMap.put(version, new ModuleDependency(m.getId(), version));
+            }
+            deps.put(m.getId(), vMap);
+        }
+        return new ModuleDependencyGraph(deps);
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                delete(child);
+            }
+        }
+        f.delete();
+    }
+
+}
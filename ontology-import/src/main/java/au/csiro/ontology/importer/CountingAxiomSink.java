@@ -0,0 +1,44 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import au.csiro.ontology.axioms.IAxiom;
+
+/**
+ * Passes axioms on to another sink and counts them.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class CountingAxiomSink implements IAxiomSink {
+
+    private final IAxiomSink sink;
+    private int count = 0;
+
+    /**
+     * Creates a new counting sink.
+     *
+     * @param sink The sink that receives the axioms.
+     */
+    public CountingAxiomSink(IAxiomSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(IAxiom axiom) {
+        sink.accept(axiom);
+        count++;
+    }
+
+    /**
+     * Returns the number of axioms received so far.
+     *
+     * @return
+     */
+    public int getCount() {
+        return count;
+    }
+
+}
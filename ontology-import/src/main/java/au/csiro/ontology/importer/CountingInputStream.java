@@ -0,0 +1,67 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes bytes on from another stream and counts them. Used to report the
+ * progress of readers that decode characters, where the length of the text
+ * read does not match the number of bytes in the input.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private long count = 0;
+
+    /**
+     * Creates a new counting stream.
+     *
+     * @param in The stream that provides the bytes.
+     */
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if(b >= 0) count++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if(n > 0) count += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     *
+     * @return
+     */
+    public long getCount() {
+        return count;
+    }
+
+}
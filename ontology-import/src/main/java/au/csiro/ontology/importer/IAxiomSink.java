@@ -0,0 +1,25 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import au.csiro.ontology.axioms.IAxiom;
+
+/**
+ * Receives the axioms produced by a streaming importer as soon as they are
+ * created, so the whole set of axioms never has to be held in memory.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public interface IAxiomSink {
+
+    /**
+     * Receives a single axiom.
+     *
+     * @param axiom
+     */
+    public void accept(IAxiom axiom);
+
+}
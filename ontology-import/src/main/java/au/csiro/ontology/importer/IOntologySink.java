@@ -0,0 +1,36 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+/**
+ * Receives the ontology versions produced by an {@link IStreamingImporter}.
+ * The axioms of each version are passed to {@link #accept} between the calls
+ * to {@link #startOntology(String, String)} and
+ * {@link #endOntology(String, String)} for that version. If the import fails
+ * the last version is not ended.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public interface IOntologySink extends IAxiomSink {
+
+    /**
+     * Called before the axioms of a version are sent.
+     *
+     * @param module The ontology URI or module id, as in the keys of
+     * {@link IImporter#getOntologyVersions}.
+     * @param version
+     */
+    public void startOntology(String module, String version);
+
+    /**
+     * Called after all the axioms of a version have been sent.
+     *
+     * @param module
+     * @param version
+     */
+    public void endOntology(String module, String version);
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import au.csiro.ontology.util.IProgressMonitor;
+
+/**
+ * An importer that can send the axioms of each ontology version to a sink as
+ * they are produced instead of returning them in a map, so they can be
+ * classified, written or sent somewhere else without holding all of them in
+ * memory.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public interface IStreamingImporter extends IImporter {
+
+    /**
+     * Imports the same ontology versions as
+     * {@link IImporter#getOntologyVersions(IProgressMonitor)} and sends them
+     * to a sink one at a time. The axioms are not collected, so unlike the
+     * ones in the returned ontologies they may contain duplicates.
+     *
+     * @param monitor
+     * @param sink
+     *
+     * @throws ImportException if a problem occurs when importing the ontology.
+     */
+    public void importOntologyVersions(IProgressMonitor monitor,
+            IOntologySink sink);
+
+}
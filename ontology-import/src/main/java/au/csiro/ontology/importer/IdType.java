@@ -0,0 +1,110 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import au.csiro.ontology.Factory;
+import au.csiro.ontology.IFactory;
+import au.csiro.ontology.LongFactory;
+import au.csiro.ontology.model.LongConcept;
+import au.csiro.ontology.model.LongRole;
+
+/**
+ * The type of the identifiers in the ontologies produced by the SNOMED
+ * importers. {@link #STRING} produces the same ontologies as
+ * {@link IImporter#getOntologyVersions}
+ * and {@link #LONG} produces ontologies of {@link LongConcept}s and
+ * {@link LongRole}s.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public abstract class IdType<T extends Comparable<T>> {
+
+    /**
+     * Identifiers as strings. The role group is named "RoleGroup".
+     */
+    public static final IdType<String> STRING = new IdType<String>(
+            new Factory<String>()) {
+        @Override
+        public String valueOf(long id) {
+            return Long.toString(id);
+        }
+
+        @Override
+        public String valueOf(String id) {
+            return id;
+        }
+
+        @Override
+        public String getRoleGroupId() {
+            return "RoleGroup";
+        }
+    };
+
+    /**
+     * Identifiers as longs. The role group is
+     * {@link LongRole#ROLE_GROUP_ID}.
+     */
+    public static final IdType<Long> LONG = new IdType<Long>(
+            new LongFactory()) {
+        @Override
+        public Long valueOf(long id) {
+            return id;
+        }
+
+        @Override
+        public Long valueOf(String id) {
+            try {
+                return Long.valueOf(id);
+            } catch(NumberFormatException e) {
+                throw new ImportException("Invalid numeric id " + id, e);
+            }
+        }
+
+        @Override
+        public Long getRoleGroupId() {
+            return LongRole.ROLE_GROUP_ID;
+        }
+    };
+
+    private final IFactory<T> factory;
+
+    private IdType(IFactory<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the factory used to create the named concepts and roles.
+     *
+     * @return
+     */
+    public IFactory<T> getFactory() {
+        return factory;
+    }
+
+    /**
+     * Converts a SNOMED identifier.
+     *
+     * @param id
+     * @return
+     */
+    public abstract T valueOf(long id);
+
+    /**
+     * Converts a SNOMED identifier read from a release file.
+     *
+     * @param id
+     * @return
+     */
+    public abstract T valueOf(String id);
+
+    /**
+     * Returns the identifier of the role used to group related expressions.
+     *
+     * @return
+     */
+    public abstract T getRoleGroupId();
+
+}
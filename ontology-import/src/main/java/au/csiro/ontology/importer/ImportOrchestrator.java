@@ -0,0 +1,293 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyManagerFactory;
+
+import au.csiro.ontology.IOntology;
+import au.csiro.ontology.importer.input.Input.InputType;
+import au.csiro.ontology.importer.input.Inputs;
+import au.csiro.ontology.importer.input.OWLInput;
+import au.csiro.ontology.importer.owl.OWLImporter;
+import au.csiro.ontology.importer.rf2.RF2Importer;
+import au.csiro.ontology.util.IProgressMonitor;
+import au.csiro.ontology.util.NullProgressMonitor;
+
+/**
+ * Imports all the inputs listed in an {@link Inputs} object concurrently. The
+ * files of the RF2 inputs (concepts, relationships and module dependencies)
+ * are read as independent tasks on a bounded thread pool and then joined
+ * into the usual per-version pipeline of the {@link RF2Importer}. Each OWL
+ * input is loaded and transformed as a separate task while the RF2 inputs are
+ * being processed.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class ImportOrchestrator implements IImporter {
+
+    // Logger
+    private final static Logger log = Logger.getLogger(
+            ImportOrchestrator.class);
+
+    private final Inputs inputs;
+    private final int numThreads;
+    private final OWLOntologyManagerFactory owlManagerFactory;
+    private final List<String> problems =
+            Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Creates a new orchestrator for RF2 inputs that uses one thread per
+     * available processor.
+     *
+     * @param inputs
+     */
+    public ImportOrchestrator(Inputs inputs) {
+        this(inputs, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Creates a new orchestrator.
+     *
+     * @param inputs The inputs to import.
+     * @param numThreads The maximum number of concurrent tasks.
+     * @param owlManagerFactory Factory used to create the
+     * {@link OWLOntologyManager}s that load the OWL inputs. Only required if
+     * there are OWL inputs.
+     */
+    public ImportOrchestrator(Inputs inputs, int numThreads,
+            OWLOntologyManagerFactory owlManagerFactory) {
+        if(numThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: "+
+                    numThreads);
+        }
+        this.inputs = inputs;
+        this.numThreads = numThreads;
+        this.owlManagerFactory = owlManagerFactory;
+    }
+
+    @Override
+    public Map<String, Map<String, IOntology<String>>> getOntologyVersions(
+            IProgressMonitor monitor) {
+        if(!inputs.getOwlInputs().isEmpty() && owlManagerFactory == null) {
+            throw new ImportException("An OWLOntologyManagerFactory is " +
+                    "required to import OWL inputs.");
+        }
+
+        problems.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                new ImportThreadFactory());
+        try {
+            // OWL inputs are independent so they start straight away
+            List<Future<Map<String, Map<String, IOntology<String>>>>> owl =
+                    new ArrayList<>();
+            for(final OWLInput input : inputs.getOwlInputs()) {
+                owl.add(executor.submit(
+                        new Callable<Map<String, Map<String,
+                            IOntology<String>>>>() {
+                    @Override
+                    public Map<String, Map<String, IOntology<String>>> call() {
+                        return importOwl(input);
+                    }
+                }));
+            }
+
+            // RF2 inputs are interdependent and are imported together; their
+            // file reads are scheduled on the same executor
+            Map<String, Map<String, IOntology<String>>> res = new HashMap<>();
+            if(!inputs.getRf2Inputs().isEmpty()) {
+                RF2Importer rf2i = new RF2Importer(inputs, executor);
+                merge(res, rf2i.getOntologyVersions(monitor));
+                problems.addAll(rf2i.getProblems());
+            }
+
+            for(Future<Map<String, Map<String, IOntology<String>>>> f : owl) {
+                merge(res, getResult(f));
+            }
+            return res;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads and transforms a single OWL input.
+     *
+     * @param input
+     * @return
+     */
+    protected Map<String, Map<String, IOntology<String>>> importOwl(
+            OWLInput input) {
+        String file = input.getOwlFile();
+        log.info("Importing OWL file "+file);
+        InputStream in = null;
+        if(input.getInputType().equals(InputType.EXTERNAL)) {
+            try {
+                in = new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                in = null;
+            }
+        } else if(input.getInputType().equals(InputType.CLASSPATH)) {
+            in = this.getClass().getResourceAsStream(file);
+        } else {
+            throw new RuntimeException("Unexpected input type "+
+                    input.getInputType());
+        }
+
+        if(in == null) {
+            throw new ImportException("Unable to load OWL file. Please " +
+                    "check your input configuration file. (input type = "+
+                    input.getInputType()+", file="+file+")");
+        }
+
+        OWLOntology ont;
+        try {
+            OWLOntologyManager manager =
+                    owlManagerFactory.buildOWLOntologyManager();
+            ont = manager.loadOntologyFromOntologyDocument(in);
+        } catch (OWLOntologyCreationException e) {
+            throw new ImportException("Problem loading OWL file "+file, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.warn("Problem closing OWL file "+file, e);
+            }
+        }
+
+        OWLImporter owli = new OWLImporter(ont);
+        Map<String, Map<String, IOntology<String>>> res =
+                owli.getOntologyVersions(new NullProgressMonitor());
+        problems.addAll(owli.getProblems());
+        return res;
+    }
+
+    private void merge(Map<String, Map<String, IOntology<String>>> target,
+            Map<String, Map<String, IOntology<String>>> source) {
+        for(String key : source.keySet()) {
+            Map<String, IOntology<String>> versions = target.get(key);
+            if(versions == null) {
+                target.put(key, source.get(key));
+            } else {
+                versions.putAll(source.get(key));
+            }
+        }
+    }
+
+    @Override
+    public List<String> getProblems() {
+        synchronized(problems) {
+            return new ArrayList<>(problems);
+        }
+    }
+
+    /**
+     * Runs a list of tasks and returns their results in the same order. If
+     * the executor is null the tasks are run sequentially in the current
+     * thread. If any task fails the remaining ones are cancelled and the
+     * failure is rethrown.
+     *
+     * @param executor
+     * @param tasks
+     * @return
+     */
+    public static <T> List<T> runAll(ExecutorService executor,
+            List<? extends Callable<T>> tasks) {
+        List<T> res = new ArrayList<>(tasks.size());
+        if(executor == null) {
+            for(Callable<T> task : tasks) {
+                try {
+                    res.add(task.call());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new ImportException("Problem while importing.", e);
+                }
+            }
+            return res;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for(Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for(Future<T> future : futures) {
+                res.add(getResult(future));
+            }
+        } finally {
+            for(Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Waits for the result of a task. Failures are rethrown as
+     * {@link ImportException}s unless they are already unchecked.
+     *
+     * @param future
+     * @return
+     */
+    public static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportException("Import interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ImportException("Problem while importing.", cause);
+        }
+    }
+
+    /**
+     * Creates named daemon threads so that an abandoned import does not keep
+     * the JVM alive.
+     */
+    private static class ImportThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger poolNumber = new AtomicInteger();
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final int pool = poolNumber.incrementAndGet();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "import-"+pool+"-"+
+                    threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
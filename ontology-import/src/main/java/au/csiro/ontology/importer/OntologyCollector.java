@@ -0,0 +1,91 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import au.csiro.ontology.IOntology;
+import au.csiro.ontology.Ontology;
+import au.csiro.ontology.VersionedOntologyStore;
+import au.csiro.ontology.axioms.IAxiom;
+
+/**
+ * Sink that collects the versions it receives into the map of ontologies
+ * returned by {@link IImporter#getOntologyVersions}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class OntologyCollector<T extends Comparable<T>> 
+        implements IOntologySink {
+
+    private final Map<String, Map<String, IOntology<T>>> res = new HashMap<>();
+
+    private final boolean shareVersions;
+
+    private Collection<IAxiom> axioms;
+
+    /**
+     * Creates a collector that stores each version in a separate 
+     * {@link Ontology}.
+     */
+    public OntologyCollector() {
+        this(false);
+    }
+
+    /**
+     * Creates a new collector.
+     *
+     * @param shareVersions If true, the versions of each module are stored in
+     * a {@link VersionedOntologyStore} in the order they are received.
+     */
+    public OntologyCollector(boolean shareVersions) {
+        this.shareVersions = shareVersions;
+    }
+
+    @Override
+    public void startOntology(String module, String version) {
+        axioms = new ArrayList<>();
+    }
+
+    @Override
+    public void accept(IAxiom axiom) {
+        axioms.add(axiom);
+    }
+
+    @Override
+    public void endOntology(String module, String version) {
+        Map<String, IOntology<T>> ontVersions = res.get(module);
+        if(ontVersions == null) {
+            if(shareVersions) {
+                ontVersions = new VersionedOntologyStore<T>();
+            } else {
+                ontVersions = new HashMap<>();
+            }
+            res.put(module, ontVersions);
+        }
+
+        if(shareVersions) {
+            ((VersionedOntologyStore<T>) ontVersions).addVersion(version, 
+                    axioms);
+        } else {
+            ontVersions.put(version, new Ontology<T>(axioms, null));
+        }
+        axioms = null;
+    }
+
+    /**
+     * Returns the ontologies collected so far, indexed by module and version.
+     *
+     * @return
+     */
+    public Map<String, Map<String, IOntology<T>>> getOntologyVersions() {
+        return res;
+    }
+
+}
@@ -5,11 +5,13 @@
 package au.csiro.ontology.importer.input;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlRootElement;
 
@@ -57,6 +59,20 @@ public class Inputs {
         return inputs;
     }
     
+    /**
+     * Saves this {@link Inputs} object as an XML file that can be read with
+     * {@link #load(InputStream)}. The stream is not closed.
+     * 
+     * @param out
+     * @throws JAXBException
+     */
+    public void save(OutputStream out) throws JAXBException {
+        JAXBContext context = JAXBContext.newInstance(Inputs.class);
+        Marshaller m = context.createMarshaller();
+        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        m.marshal(this, out);
+    }
+    
     /**
      * Constructor.
      * 
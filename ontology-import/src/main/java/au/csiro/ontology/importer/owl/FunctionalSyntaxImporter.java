@@ -0,0 +1,704 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.owl;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.DatatypeConverter;
+
+import au.csiro.ontology.IOntology;
+import au.csiro.ontology.Ontology;
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.RoleInclusion;
+import au.csiro.ontology.importer.CountingInputStream;
+import au.csiro.ontology.importer.IAxiomSink;
+import au.csiro.ontology.importer.IOntologySink;
+import au.csiro.ontology.importer.IStreamingImporter;
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.owl.FunctionalSyntaxTokenizer.TokenType;
+import au.csiro.ontology.model.BooleanLiteral;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.DateLiteral;
+import au.csiro.ontology.model.Datatype;
+import au.csiro.ontology.model.DoubleLiteral;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.Feature;
+import au.csiro.ontology.model.FloatLiteral;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.ILiteral;
+import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.IntegerLiteral;
+import au.csiro.ontology.model.LongLiteral;
+import au.csiro.ontology.model.Operator;
+import au.csiro.ontology.model.Role;
+import au.csiro.ontology.model.StringLiteral;
+import au.csiro.ontology.util.IProgressMonitor;
+import au.csiro.ontology.util.NullProgressMonitor;
+import au.csiro.ontology.util.ProgressTracker;
+import au.csiro.ontology.util.events.PhaseEvent;
+import au.csiro.ontology.util.events.PhaseEvents;
+import au.csiro.ontology.util.metrics.MetricName;
+import au.csiro.ontology.util.metrics.MetricsRegistry;
+import au.csiro.ontology.util.metrics.Timer;
+
+/**
+ * Imports an ontology in OWL functional syntax without building an OWL API
+ * object model. The document is tokenized incrementally and every axiom is
+ * translated and handed to an {@link IAxiomSink} as soon as it is parsed, so
+ * memory use does not depend on the size of the ontology.
+ *
+ * <p>
+ * Only the constructs supported by {@link OWLImporter} are translated, in the
+ * same way. Data property range axioms are ignored because checking literals
+ * against them requires reading the whole document first. Any other axiom is
+ * skipped and reported as a problem.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class FunctionalSyntaxImporter implements IStreamingImporter {
+
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+    private static final String RDF =
+            "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String PLAIN_LITERAL = RDF+"PlainLiteral";
+
+    private final InputStream in;
+    private final List<String> problems = new ArrayList<String>();
+
+    /**
+     * Prefixes declared in the document.
+     */
+    private final Map<String, String> prefixes = new HashMap<>();
+
+    /**
+     * Named concepts, roles and features indexed by IRI, so that repeated
+     * IRIs share the same instances.
+     */
+    private final Map<String, Concept<String>> concepts = new HashMap<>();
+    private final Map<String, Role<String>> roles = new HashMap<>();
+    private final Map<String, Feature<String>> features = new HashMap<>();
+
+    private FunctionalSyntaxTokenizer tokenizer;
+    private String ontologyIri;
+
+    /**
+     * Counts the bytes of the document read so far, and the ones already
+     * reported as progress.
+     */
+    private CountingInputStream counter;
+    private long bytesReported;
+
+    private ProgressTracker progress =
+            new ProgressTracker(new NullProgressMonitor(), -1, -1);
+
+    /**
+     * Creates a new importer for a document encoded in UTF-8. The stream is
+     * not closed by the importer.
+     *
+     * @param in
+     */
+    public FunctionalSyntaxImporter(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Parses the document and sends the translated axioms to a sink, in
+     * document order. Unsupported axioms are skipped and can be retrieved
+     * with {@link #getProblems()}.
+     *
+     * @param sink
+     * @throws ImportException if the document is not well formed.
+     */
+    public void importAxioms(IAxiomSink sink) {
+        counter = new CountingInputStream(in);
+        bytesReported = 0;
+        Reader reader = new InputStreamReader(counter, 
+                Charset.forName("UTF-8"));
+        tokenizer = new FunctionalSyntaxTokenizer(reader);
+        problems.clear();
+        prefixes.clear();
+        ontologyIri = null;
+
+        // Default prefixes
+        prefixes.put("owl:", "http://www.w3.org/2002/07/owl#");
+        prefixes.put("rdf:", RDF);
+        prefixes.put("rdfs:", "http://www.w3.org/2000/01/rdf-schema#");
+        prefixes.put("xsd:", XSD);
+
+        while(true) {
+            TokenType t = tokenizer.next();
+            if(t == TokenType.EOF) {
+                break;
+            } else if(t != TokenType.NAME) {
+                throw tokenizer.error("Unexpected "+tokenizer.describe());
+            }
+
+            String keyword = tokenizer.getText();
+            if("Prefix".equals(keyword)) {
+                tokenizer.expect(TokenType.OPEN);
+                tokenizer.expect(TokenType.NAME);
+                String prefix = tokenizer.getText();
+                tokenizer.expect(TokenType.EQUALS);
+                tokenizer.expect(TokenType.FULL_IRI);
+                prefixes.put(prefix, tokenizer.getText());
+                tokenizer.expect(TokenType.CLOSE);
+            } else if("Ontology".equals(keyword)) {
+                parseOntology(sink);
+            } else {
+                throw tokenizer.error("Unexpected "+tokenizer.describe());
+            }
+        }
+        // Bytes read after the last axiom
+        worked(0);
+    }
+
+    /**
+     * Parses the body of the ontology.
+     *
+     * @param sink
+     */
+    private void parseOntology(IAxiomSink sink) {
+        tokenizer.expect(TokenType.OPEN);
+
+        // Ontology IRI and version IRI
+        if(isIri(tokenizer.peek())) {
+            ontologyIri = getIri(tokenizer.next());
+            if(isIri(tokenizer.peek())) {
+                tokenizer.next();
+            }
+        }
+
+        while(true) {
+            TokenType t = tokenizer.next();
+            if(t == TokenType.CLOSE) {
+                return;
+            } else if(t != TokenType.NAME) {
+                throw tokenizer.error("Unexpected "+tokenizer.describe());
+            }
+            String keyword = tokenizer.getText();
+            int depth = tokenizer.getDepth();
+            tokenizer.expect(TokenType.OPEN);
+            if("Import".equals(keyword) || "Annotation".equals(keyword)) {
+                tokenizer.skipTo(depth);
+                continue;
+            }
+
+            try {
+                parseAxiom(keyword, sink);
+            } catch(UnsupportedOperationException e) {
+                problems.add(e.getMessage());
+            }
+            tokenizer.skipTo(depth);
+            worked(1);
+        }
+    }
+
+    /**
+     * Reports parsed axioms and the bytes read since the last report. Throws
+     * a {@link CancellationException} if the import has been cancelled.
+     *
+     * @param axioms
+     */
+    private void worked(int axioms) {
+        long read = counter.getCount();
+        progress.worked(axioms, read - bytesReported);
+        bytesReported = read;
+    }
+
+    /**
+     * Parses an axiom. The opening parenthesis has already been consumed.
+     *
+     * @param keyword
+     * @param sink
+     */
+    private void parseAxiom(String keyword, IAxiomSink sink) {
+        skipAnnotations();
+
+        switch(keyword) {
+            case "Declaration":
+                tokenizer.expect(TokenType.NAME);
+                String entityType = tokenizer.getText();
+                tokenizer.expect(TokenType.OPEN);
+                String iri = nextIri();
+                tokenizer.expect(TokenType.CLOSE);
+                if("Class".equals(entityType)) {
+                    sink.accept(new ConceptInclusion(getNamedConcept(iri),
+                            Concept.TOP));
+                }
+                break;
+            case "SubClassOf": {
+                IConcept sub = parseConcept();
+                IConcept sup = parseConcept();
+                sink.accept(new ConceptInclusion(sub, sup));
+                break;
+            }
+            case "EquivalentClasses": {
+                List<IConcept> exps = parseConcepts();
+                int size = exps.size();
+                for(int i = 0; i < size - 1; i++) {
+                    for(int j = i + 1; j < size; j++) {
+                        IConcept c1 = exps.get(i);
+                        IConcept c2 = exps.get(j);
+                        sink.accept(new ConceptInclusion(c1, c2));
+                        sink.accept(new ConceptInclusion(c2, c1));
+                    }
+                }
+                break;
+            }
+            case "DisjointClasses":
+                sink.accept(new ConceptInclusion(
+                        new Conjunction(parseConcepts()), Concept.BOTTOM));
+                break;
+            case "SubObjectPropertyOf":
+                if(tokenizer.peek() == TokenType.NAME &&
+                        "ObjectPropertyChain".equals(tokenizer.getText())) {
+                    tokenizer.next();
+                    tokenizer.expect(TokenType.OPEN);
+                    List<IRole> chain = new ArrayList<>();
+                    while(tokenizer.peek() != TokenType.CLOSE) {
+                        chain.add(parseRole());
+                    }
+                    tokenizer.expect(TokenType.CLOSE);
+                    Role<String> rhs = parseRole();
+                    if(chain.size() == 1 || chain.size() == 2) {
+                        sink.accept(new RoleInclusion(
+                                chain.toArray(new IRole[chain.size()]), rhs));
+                    } else {
+                        problems.add("Unable to import axiom at line "+
+                                tokenizer.getLine()+". RoleChains longer " +
+                                "than 2 not supported.");
+                    }
+                } else {
+                    Role<String> lhs = parseRole();
+                    Role<String> rhs = parseRole();
+                    sink.accept(new RoleInclusion(new IRole[] { lhs }, rhs));
+                }
+                break;
+            case "EquivalentObjectProperties": {
+                List<Role<String>> rs = new ArrayList<>();
+                while(tokenizer.peek() != TokenType.CLOSE) {
+                    rs.add(parseRole());
+                }
+                for(Role<String> r1 : rs) {
+                    for(Role<String> r2 : rs) {
+                        if(r1 != r2) {
+                            sink.accept(new RoleInclusion(r1, r2));
+                        }
+                    }
+                }
+                break;
+            }
+            case "ReflexiveObjectProperty":
+                sink.accept(new RoleInclusion(new IRole[] {}, parseRole()));
+                break;
+            case "TransitiveObjectProperty": {
+                Role<String> r = parseRole();
+                sink.accept(new RoleInclusion(new IRole[] { r, r }, r));
+                break;
+            }
+            case "AnnotationAssertion":
+            case "DataPropertyRange":
+                // Do nothing
+                break;
+            default:
+                throw new UnsupportedOperationException("The axiom "+keyword+
+                        " at line "+tokenizer.getLine()+
+                        " is not currently supported by Snorocket.");
+        }
+    }
+
+    /**
+     * Parses a class expression.
+     *
+     * @return
+     */
+    private IConcept parseConcept() {
+        TokenType t = tokenizer.next();
+        if(isIri(t)) {
+            String id = getIri(t);
+            if(OWLImporter.THING_IRI.equals(id)) {
+                return Concept.TOP;
+            } else if(OWLImporter.NOTHING_IRI.equals(id)) {
+                return Concept.BOTTOM;
+            } else {
+                return getNamedConcept(id);
+            }
+        } else if(t != TokenType.NAME) {
+            throw tokenizer.error("Expected a class expression but found "+
+                    tokenizer.describe());
+        }
+
+        String keyword = tokenizer.getText();
+        tokenizer.expect(TokenType.OPEN);
+        IConcept res;
+        switch(keyword) {
+            case "ObjectIntersectionOf":
+                res = new Conjunction(parseConcepts());
+                break;
+            case "ObjectSomeValuesFrom":
+                Role<String> r = parseRole();
+                res = new Existential<>(r, parseConcept());
+                break;
+            case "DataHasValue":
+                Feature<String> f = parseFeature();
+                res = new Datatype<>(f, Operator.EQUALS, parseLiteral());
+                break;
+            case "DataSomeValuesFrom":
+                res = parseDataSomeValuesFrom();
+                break;
+            default:
+                throw new UnsupportedOperationException("The class " +
+                        "expression "+keyword+" is not currently supported " +
+                        "by Snorocket.");
+        }
+        tokenizer.expect(TokenType.CLOSE);
+        return res;
+    }
+
+    /**
+     * Parses class expressions until a closing parenthesis is found. The
+     * parenthesis is not consumed.
+     *
+     * @return
+     */
+    private List<IConcept> parseConcepts() {
+        List<IConcept> res = new ArrayList<>();
+        while(tokenizer.peek() != TokenType.CLOSE) {
+            res.add(parseConcept());
+        }
+        return res;
+    }
+
+    /**
+     * Parses the arguments of a DataSomeValuesFrom expression. Only DataOneOf
+     * with a single literal and datatype restrictions are supported.
+     *
+     * @return
+     */
+    private IConcept parseDataSomeValuesFrom() {
+        Feature<String> f = parseFeature();
+        tokenizer.expect(TokenType.NAME);
+        String range = tokenizer.getText();
+        tokenizer.expect(TokenType.OPEN);
+
+        IConcept res;
+        if("DataOneOf".equals(range)) {
+            ILiteral l = parseLiteral();
+            if(tokenizer.peek() != TokenType.CLOSE) {
+                throw new UnsupportedOperationException("Expected only a " +
+                        "single literal in DataSomeValuesFrom at line "+
+                        tokenizer.getLine());
+            }
+            res = new Datatype<>(f, Operator.EQUALS, l);
+        } else if("DatatypeRestriction".equals(range)) {
+            nextIri();
+            List<Datatype<String>> conjuncts = new ArrayList<>();
+            while(tokenizer.peek() != TokenType.CLOSE) {
+                String facet = nextIri();
+                ILiteral l = parseLiteral();
+                Operator op;
+                if((XSD+"maxExclusive").equals(facet)) {
+                    op = Operator.LESS_THAN;
+                } else if((XSD+"maxInclusive").equals(facet)) {
+                    op = Operator.LESS_THAN_EQUALS;
+                } else if((XSD+"minExclusive").equals(facet)) {
+                    op = Operator.GREATER_THAN;
+                } else if((XSD+"minInclusive").equals(facet)) {
+                    op = Operator.GREATER_THAN_EQUALS;
+                } else {
+                    throw new UnsupportedOperationException(
+                            "Unsupported facet "+facet);
+                }
+                conjuncts.add(new Datatype<>(f, op, l));
+            }
+
+            // Create conjunctions with all restrictions
+            if(conjuncts.size() == 1) {
+                res = conjuncts.get(0);
+            } else {
+                res = new Conjunction(conjuncts);
+            }
+        } else {
+            throw new UnsupportedOperationException("Unsupported OWLDataRange "+
+                    range);
+        }
+        tokenizer.expect(TokenType.CLOSE);
+        return res;
+    }
+
+    /**
+     * Parses a literal and translates it in the same way as
+     * {@link OWLImporter}. Unsupported literals throw an
+     * {@link UnsupportedOperationException} so the axiom is skipped.
+     *
+     * @return
+     */
+    private ILiteral parseLiteral() {
+        tokenizer.expect(TokenType.LITERAL);
+        String literal = tokenizer.getText();
+        String dt = PLAIN_LITERAL;
+        if(tokenizer.peek() == TokenType.DATATYPE_MARK) {
+            tokenizer.next();
+            dt = nextIri();
+        } else if(tokenizer.peek() == TokenType.LANGUAGE_TAG) {
+            tokenizer.next();
+        }
+
+        if((XSD+"boolean").equals(dt)) {
+            return new BooleanLiteral(Boolean.parseBoolean(literal));
+        } else if((XSD+"double").equals(dt)) {
+            return new DoubleLiteral(Double.parseDouble(literal));
+        } else if((XSD+"float").equals(dt)) {
+            return new FloatLiteral(Float.parseFloat(literal));
+        } else if((XSD+"integer").equals(dt)) {
+            return new IntegerLiteral(Integer.parseInt(literal));
+        } else if(PLAIN_LITERAL.equals(dt)) {
+            return new StringLiteral(literal);
+        } else if((XSD+"long").equals(dt)) {
+            return new LongLiteral(Long.parseLong(literal));
+        } else if((XSD+"dateTime").equals(dt)) {
+            Calendar value = DatatypeConverter.parseDateTime(literal);
+            if(DateLiteral.hasTimeOfDay(value)) {
+                // Date literals only keep the date
+                throw new UnsupportedOperationException("Time of day in " +
+                        "literal \""+literal+"\"^^<"+dt+"> at line "+
+                        tokenizer.getLine()+" is not supported");
+            }
+            return new DateLiteral(value);
+        } else {
+            throw new UnsupportedOperationException("Unsupported literal \""+
+                    literal+"\"^^<"+dt+"> at line "+tokenizer.getLine());
+        }
+    }
+
+    private Role<String> parseRole() {
+        TokenType t = tokenizer.peek();
+        if(t == TokenType.NAME && !isIri(t)) {
+            throw new UnsupportedOperationException("The object property " +
+                    "expression "+tokenizer.getText()+" at line "+
+                    tokenizer.getLine()+
+                    " is not currently supported by Snorocket.");
+        }
+        String id = nextIri();
+        Role<String> res = roles.get(id);
+        if(res == null) {
+            res = new Role<>(id);
+            roles.put(id, res);
+        }
+        return res;
+    }
+
+    private Feature<String> parseFeature() {
+        String id = nextIri();
+        Feature<String> res = features.get(id);
+        if(res == null) {
+            res = new Feature<>(id);
+            features.put(id, res);
+        }
+        return res;
+    }
+
+    private Concept<String> getNamedConcept(String id) {
+        Concept<String> res = concepts.get(id);
+        if(res == null) {
+            res = new Concept<>(id);
+            concepts.put(id, res);
+        }
+        return res;
+    }
+
+    /**
+     * Skips the annotations at the start of an axiom.
+     */
+    private void skipAnnotations() {
+        while(tokenizer.peek() == TokenType.NAME &&
+                "Annotation".equals(tokenizer.getText())) {
+            int depth = tokenizer.getDepth();
+            tokenizer.next();
+            tokenizer.expect(TokenType.OPEN);
+            tokenizer.skipTo(depth);
+        }
+    }
+
+    /**
+     * Full IRIs and prefixed names are IRIs. Keywords never contain a colon.
+     *
+     * @param t
+     * @return
+     */
+    private boolean isIri(TokenType t) {
+        return t == TokenType.FULL_IRI ||
+                (t == TokenType.NAME && tokenizer.getText().indexOf(':') != -1);
+    }
+
+    private String nextIri() {
+        TokenType t = tokenizer.next();
+        if(!isIri(t)) {
+            throw tokenizer.error("Expected an IRI but found "+
+                    tokenizer.describe());
+        }
+        return getIri(t);
+    }
+
+    /**
+     * Returns the token that has just been consumed as a full IRI, expanding
+     * prefixed names.
+     *
+     * @param t The type of the token.
+     * @return
+     */
+    private String getIri(TokenType t) {
+        String text = tokenizer.getText();
+        if(t == TokenType.FULL_IRI) {
+            return text;
+        }
+        int idx = text.indexOf(':');
+        String ns = prefixes.get(text.substring(0, idx + 1));
+        if(ns == null) {
+            throw tokenizer.error("Undeclared prefix in "+text);
+        }
+        return ns+text.substring(idx + 1);
+    }
+
+    /**
+     * @return the IRI of the ontology or null if the ontology is anonymous or
+     * has not been parsed yet
+     */
+    public String getOntologyIri() {
+        return ontologyIri;
+    }
+
+    @Override
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Imports the document into a single ontology. The first key is the
+     * ontology IRI and the second key is the date of the import.
+     */
+    @Override
+    public Map<String, Map<String, IOntology<String>>> getOntologyVersions(
+            IProgressMonitor monitor) {
+        final Set<IAxiom> axioms = new HashSet<>();
+        final Map<String, Map<String, IOntology<String>>> res =
+                new HashMap<>();
+        importOntologyVersions(monitor, new IOntologySink() {
+            @Override
+            public void startOntology(String module, String version) {
+                Map<String, IOntology<String>> map = new HashMap<>();
+                map.put(version, new Ontology<String>(axioms, null));
+                res.put(module, map);
+            }
+
+            @Override
+            public void accept(IAxiom axiom) {
+                axioms.add(axiom);
+            }
+
+            @Override
+            public void endOntology(String module, String version) {
+                // Nothing to do
+            }
+        });
+        return res;
+    }
+
+    /**
+     * Parses the document and sends its axioms to the sink as a single
+     * version, dated today. The version is started when the ontology IRI has
+     * been read, and it is not ended if any axiom is not supported.
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public void importOntologyVersions(IProgressMonitor monitor,
+            final IOntologySink sink) {
+        MetricsRegistry metrics = MetricsRegistry.INSTANCE;
+        metrics.counter(new MetricName("import.runs", "importer",
+                "owl-functional")).increment();
+        Timer.Context total = metrics.timer(new MetricName("import.time",
+                "importer", "owl-functional")).time();
+        monitor.taskStarted("Loading axioms");
+        monitor.taskBusy();
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+        final String version = sdf.format(new Date());
+        PhaseEvent event = PhaseEvents.begin("owl-functional", "importAxioms");
+        final int[] count = new int[1];
+        progress = new ProgressTracker(monitor, -1, -1);
+        try {
+            importAxioms(new IAxiomSink() {
+                @Override
+                public void accept(IAxiom axiom) {
+                    // The IRI is known by the time the first axiom is parsed
+                    if(count[0]++ == 0) {
+                        sink.startOntology(getModule(), version);
+                    }
+                    sink.accept(axiom);
+                }
+            });
+        } catch(CancellationException e) {
+            clear();
+            monitor.taskEnded();
+            throw e;
+        }
+        progress.done();
+        String module = getModule();
+        if(count[0] == 0) {
+            sink.startOntology(module, version);
+        }
+        event.setModule(ontologyIri);
+        event.setAxioms(count[0]);
+        event.end();
+        monitor.taskEnded();
+
+        if(!problems.isEmpty()) {
+            throw new ImportException();
+        }
+        sink.endOntology(module, version);
+
+        metrics.gauge(new MetricName("import.axioms", "importer",
+                "owl-functional", "module", module, "version", version)).set(
+                        count[0]);
+        long elapsed = total.stop();
+        // Still recorded for the callers of the deprecated Statistics
+        au.csiro.ontology.util.Statistics.INSTANCE.setTime("owl loading",
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Releases the state kept while parsing.
+     */
+    private void clear() {
+        concepts.clear();
+        roles.clear();
+        features.clear();
+        prefixes.clear();
+        tokenizer = null;
+        counter = null;
+    }
+
+    private String getModule() {
+        return (ontologyIri != null) ? ontologyIri : "anonymous";
+    }
+
+}
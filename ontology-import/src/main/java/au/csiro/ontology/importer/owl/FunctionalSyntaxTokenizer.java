@@ -0,0 +1,244 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.owl;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import au.csiro.ontology.importer.ImportException;
+
+/**
+ * Splits an OWL functional syntax document into tokens. The input is read in
+ * fixed size chunks so only the current token is held in memory. Comments
+ * (from # to the end of the line) are skipped.
+ *
+ * @author Alejandro Metke
+ *
+ */
+class FunctionalSyntaxTokenizer {
+
+    enum TokenType {
+        OPEN, CLOSE, EQUALS, FULL_IRI, NAME, LITERAL, DATATYPE_MARK,
+        LANGUAGE_TAG, EOF
+    }
+
+    private final Reader reader;
+    private final char[] buf = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+
+    private int line = 1;
+    private int depth = 0;
+
+    private TokenType type;
+    private final StringBuilder text = new StringBuilder();
+    private boolean peeked = false;
+
+    /**
+     * Creates a new tokenizer.
+     *
+     * @param reader
+     */
+    public FunctionalSyntaxTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the type of the next token, without consuming it
+     */
+    public TokenType peek() {
+        if(!peeked) {
+            read();
+            peeked = true;
+        }
+        return type;
+    }
+
+    /**
+     * Consumes the next token.
+     *
+     * @return the type of the token
+     */
+    public TokenType next() {
+        if(!peeked) {
+            read();
+        }
+        peeked = false;
+        if(type == TokenType.OPEN) {
+            depth++;
+        } else if(type == TokenType.CLOSE) {
+            depth--;
+        }
+        return type;
+    }
+
+    /**
+     * Returns the text of the current token. For IRIs the angle brackets are
+     * removed and for literals the quotes are removed and the escape sequences
+     * are resolved.
+     *
+     * @return
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * @return the current line number
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the number of parentheses opened by the consumed tokens that
+     * have not been closed yet
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Consumes the next token and checks it has the expected type.
+     *
+     * @param expected
+     */
+    public void expect(TokenType expected) {
+        TokenType t = next();
+        if(t != expected) {
+            throw error("Expected "+expected+" but found "+describe());
+        }
+    }
+
+    /**
+     * Consumes tokens until the depth goes back to the specified value.
+     *
+     * @param target
+     */
+    public void skipTo(int target) {
+        while(depth > target) {
+            if(next() == TokenType.EOF) {
+                throw error("Unexpected end of file");
+            }
+        }
+    }
+
+    /**
+     * Creates an exception with the current line number.
+     *
+     * @param message
+     * @return
+     */
+    public ImportException error(String message) {
+        return new ImportException(message+" (line "+line+")");
+    }
+
+    /**
+     * @return a description of the current token for error messages
+     */
+    public String describe() {
+        return (type == TokenType.EOF) ? "end of file" :
+            type+" '"+text+"'";
+    }
+
+    private int peekChar() {
+        if(pos == limit) {
+            try {
+                limit = reader.read(buf, 0, buf.length);
+            } catch (IOException e) {
+                throw new ImportException("Problem reading OWL document.", e);
+            }
+            pos = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos];
+    }
+
+    private int readChar() {
+        int c = peekChar();
+        if(c != -1) {
+            pos++;
+            if(c == '\n') line++;
+        }
+        return c;
+    }
+
+    private void read() {
+        text.setLength(0);
+        int c = readChar();
+
+        // Skip white space and comments
+        while(true) {
+            if(c == '#') {
+                while(c != -1 && c != '\n') {
+                    c = readChar();
+                }
+            } else if(c != -1 && Character.isWhitespace(c)) {
+                c = readChar();
+            } else {
+                break;
+            }
+        }
+
+        switch(c) {
+            case -1:
+                type = TokenType.EOF;
+                break;
+            case '(':
+                type = TokenType.OPEN;
+                break;
+            case ')':
+                type = TokenType.CLOSE;
+                break;
+            case '=':
+                type = TokenType.EQUALS;
+                break;
+            case '<':
+                type = TokenType.FULL_IRI;
+                for(c = readChar(); c != '>'; c = readChar()) {
+                    if(c == -1) throw error("Unterminated IRI");
+                    text.append((char) c);
+                }
+                break;
+            case '"':
+                type = TokenType.LITERAL;
+                for(c = readChar(); c != '"'; c = readChar()) {
+                    if(c == '\\') {
+                        c = readChar();
+                    }
+                    if(c == -1) throw error("Unterminated literal");
+                    text.append((char) c);
+                }
+                break;
+            case '^':
+                if(readChar() != '^') throw error("Expected ^^");
+                type = TokenType.DATATYPE_MARK;
+                break;
+            case '@':
+                type = TokenType.LANGUAGE_TAG;
+                readName();
+                break;
+            default:
+                type = TokenType.NAME;
+                text.append((char) c);
+                readName();
+        }
+    }
+
+    private void readName() {
+        for(int c = peekChar(); c != -1; c = peekChar()) {
+            if(Character.isWhitespace(c) || c == '(' || c == ')' ||
+                    c == '=' || c == '<' || c == '"' || c == '#' ||
+                    c == '^' || c == '@') {
+                break;
+            }
+            text.append((char) readChar());
+        }
+    }
+
+}
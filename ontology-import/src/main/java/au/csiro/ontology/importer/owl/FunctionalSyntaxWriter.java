@@ -0,0 +1,653 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.owl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.log4j.Logger;
+
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.IConceptInclusion;
+import au.csiro.ontology.axioms.IRoleInclusion;
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.ImportOrchestrator;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.IBooleanLiteral;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.IConjunction;
+import au.csiro.ontology.model.IDatatype;
+import au.csiro.ontology.model.IDateLiteral;
+import au.csiro.ontology.model.IDoubleLiteral;
+import au.csiro.ontology.model.IExistential;
+import au.csiro.ontology.model.IFloatLiteral;
+import au.csiro.ontology.model.IIntegerLiteral;
+import au.csiro.ontology.model.ILiteral;
+import au.csiro.ontology.model.ILongLiteral;
+import au.csiro.ontology.model.INamedConcept;
+import au.csiro.ontology.model.INamedFeature;
+import au.csiro.ontology.model.INamedRole;
+import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.IStringLiteral;
+
+/**
+ * Writes axioms in OWL functional syntax. Axioms are rendered directly from
+ * the internal model, without going through the OWL API, and encoded into a
+ * reusable byte buffer that is written to an NIO channel.
+ *
+ * <p>
+ * Ids that are not IRIs, such as SNOMED CT ids, are written in a default
+ * namespace. IRIs are abbreviated with the registered prefixes and the
+ * abbreviations are cached. If an executor is supplied, large axiom
+ * collections are split into partitions that are written in parallel to
+ * temporary files and then concatenated in order, so the output is the same
+ * as when writing sequentially.
+ *
+ * <p>
+ * The output can be read back with {@link FunctionalSyntaxImporter}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class FunctionalSyntaxWriter {
+
+    // Logger
+    private final static Logger log = Logger.getLogger(
+            FunctionalSyntaxWriter.class);
+
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Collections smaller than this are always written sequentially.
+     */
+    private static final int MIN_PARTITION_SIZE = 10000;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Prefix names (including the colon) indexed by namespace.
+     */
+    private final Map<String, String> prefixes = new LinkedHashMap<>();
+    private final String defaultNamespace;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new writer that writes sequentially.
+     *
+     * @param defaultNamespace The namespace used for ids that are not IRIs.
+     */
+    public FunctionalSyntaxWriter(String defaultNamespace) {
+        this(defaultNamespace, null);
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param defaultNamespace The namespace used for ids that are not IRIs.
+     * @param executor Executor used to write partitions in parallel, or null
+     * to write sequentially.
+     */
+    public FunctionalSyntaxWriter(String defaultNamespace,
+            ExecutorService executor) {
+        this.defaultNamespace = defaultNamespace;
+        this.executor = executor;
+        prefixes.put(defaultNamespace, ":");
+        prefixes.put("http://www.w3.org/2002/07/owl#", "owl:");
+        prefixes.put("http://www.w3.org/1999/02/22-rdf-syntax-ns#", "rdf:");
+        prefixes.put("http://www.w3.org/2000/01/rdf-schema#", "rdfs:");
+        prefixes.put(XSD, "xsd:");
+    }
+
+    /**
+     * Registers a prefix used to abbreviate IRIs.
+     *
+     * @param name The prefix name, without the colon.
+     * @param namespace
+     */
+    public void addPrefix(String name, String namespace) {
+        prefixes.put(namespace, name+":");
+    }
+
+    /**
+     * Writes an ontology to a file.
+     *
+     * @param axioms
+     * @param ontologyIri
+     * @param file
+     */
+    public void write(Collection<? extends IAxiom> axioms, String ontologyIri,
+            File file) {
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            write(axioms, ontologyIri, fos.getChannel());
+        } catch (IOException e) {
+            throw new ImportException("Problem writing OWL file "+file, e);
+        }
+    }
+
+    /**
+     * Writes an ontology to a channel. The channel is not closed.
+     *
+     * @param axioms
+     * @param ontologyIri
+     * @param out
+     */
+    public void write(Collection<? extends IAxiom> axioms, String ontologyIri,
+            WritableByteChannel out) {
+        long start = System.currentTimeMillis();
+        try {
+            Renderer r = new Renderer(out);
+            for(Map.Entry<String, String> entry : prefixes.entrySet()) {
+                r.sb.append("Prefix(").append(entry.getValue()).append("=<")
+                    .append(entry.getKey()).append(">)\n");
+            }
+            r.sb.append("\nOntology(<").append(ontologyIri).append(">\n");
+            r.writeDeclarations(axioms);
+
+            List<List<IAxiom>> partitions = partition(axioms);
+            if(partitions.size() < 2) {
+                for(IAxiom axiom : axioms) {
+                    r.axiom(axiom);
+                }
+            } else {
+                r.write();
+                writeParallel(partitions, out);
+            }
+
+            r.sb.append(")\n");
+            r.close();
+        } catch (IOException e) {
+            throw new ImportException("Problem writing OWL ontology.", e);
+        }
+        log.info("Wrote "+axioms.size()+" axioms in "+
+                (System.currentTimeMillis() - start)+"ms");
+    }
+
+    /**
+     * Splits the axioms in partitions if there is an executor and there are
+     * enough axioms.
+     *
+     * @param axioms
+     * @return
+     */
+    private List<List<IAxiom>> partition(Collection<? extends IAxiom> axioms) {
+        List<List<IAxiom>> res = new ArrayList<>();
+        if(executor == null || axioms.size() <= MIN_PARTITION_SIZE) {
+            return res;
+        }
+
+        int numPartitions = Runtime.getRuntime().availableProcessors() * 2;
+        int partitionSize = Math.max(MIN_PARTITION_SIZE,
+                (axioms.size() + numPartitions - 1) / numPartitions);
+        List<IAxiom> current = null;
+        for(IAxiom axiom : axioms) {
+            if(current == null || current.size() == partitionSize) {
+                current = new ArrayList<>(partitionSize);
+                res.add(current);
+            }
+            current.add(axiom);
+        }
+        return res;
+    }
+
+    /**
+     * Writes each partition to a temporary file in parallel and then appends
+     * the files to the output in order.
+     *
+     * @param partitions
+     * @param out
+     * @throws IOException
+     */
+    private void writeParallel(List<List<IAxiom>> partitions,
+            WritableByteChannel out) throws IOException {
+        List<Callable<File>> tasks = new ArrayList<>();
+        for(final List<IAxiom> partition : partitions) {
+            tasks.add(new Callable<File>() {
+                @Override
+                public File call() throws IOException {
+                    File tmp = File.createTempFile("owl", ".part");
+                    try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                        Renderer r = new Renderer(fos.getChannel());
+                        for(IAxiom axiom : partition) {
+                            r.axiom(axiom);
+                        }
+                        r.close();
+                    }
+                    return tmp;
+                }
+            });
+        }
+
+        List<File> files = ImportOrchestrator.runAll(executor, tasks);
+        try {
+            for(File file : files) {
+                try (FileInputStream fis = new FileInputStream(file)) {
+                    FileChannel fc = fis.getChannel();
+                    long pos = 0;
+                    long size = fc.size();
+                    while(pos < size) {
+                        pos += fc.transferTo(pos, size - pos, out);
+                    }
+                }
+            }
+        } finally {
+            for(File file : files) {
+                if(!file.delete()) {
+                    log.warn("Unable to delete temporary file "+file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders axioms into a buffer and writes them to a channel. Instances
+     * cache the abbreviated IRIs and must not be shared between threads.
+     *
+     * @author Alejandro Metke
+     *
+     */
+    private class Renderer {
+
+        private final WritableByteChannel out;
+        private final StringBuilder sb = new StringBuilder();
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = UTF8.newEncoder();
+        private final Map<Object, String> iris = new HashMap<>();
+
+        public Renderer(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes the declarations of all the entities used in the axioms.
+         *
+         * @param axioms
+         * @throws IOException
+         */
+        public void writeDeclarations(Collection<? extends IAxiom> axioms)
+                throws IOException {
+            Set<Object> classes = new LinkedHashSet<>();
+            Set<Object> objectProperties = new LinkedHashSet<>();
+            Set<Object> dataProperties = new LinkedHashSet<>();
+            EntityCollector ec = new EntityCollector(classes, objectProperties,
+                    dataProperties);
+            for(IAxiom axiom : axioms) {
+                ec.axiom(axiom);
+            }
+            declare("Class", classes);
+            declare("ObjectProperty", objectProperties);
+            declare("DataProperty", dataProperties);
+        }
+
+        private void declare(String type, Set<Object> ids) throws IOException {
+            for(Object id : ids) {
+                sb.append("Declaration(").append(type).append('(');
+                iri(id);
+                sb.append("))\n");
+                if(sb.length() > BUFFER_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Renders an axiom in a single line.
+         *
+         * @param axiom
+         * @throws IOException
+         */
+        public void axiom(IAxiom axiom) throws IOException {
+            if(axiom instanceof IConceptInclusion) {
+                IConceptInclusion ci = (IConceptInclusion) axiom;
+                sb.append("SubClassOf(");
+                concept(ci.lhs());
+                sb.append(' ');
+                concept(ci.rhs());
+                sb.append(")\n");
+            } else if(axiom instanceof IRoleInclusion) {
+                IRoleInclusion ri = (IRoleInclusion) axiom;
+                IRole[] lhs = ri.lhs();
+                IRole rhs = ri.rhs();
+                if(lhs.length == 0) {
+                    sb.append("ReflexiveObjectProperty(");
+                    role(rhs);
+                } else if(lhs.length == 1) {
+                    sb.append("SubObjectPropertyOf(");
+                    role(lhs[0]);
+                    sb.append(' ');
+                    role(rhs);
+                } else if(lhs.length == 2 && lhs[0].equals(rhs) &&
+                        lhs[1].equals(rhs)) {
+                    sb.append("TransitiveObjectProperty(");
+                    role(rhs);
+                } else {
+                    sb.append("SubObjectPropertyOf(ObjectPropertyChain(");
+                    for(int i = 0; i < lhs.length; i++) {
+                        if(i > 0) sb.append(' ');
+                        role(lhs[i]);
+                    }
+                    sb.append(") ");
+                    role(rhs);
+                }
+                sb.append(")\n");
+            } else {
+                throw new ImportException("Unsupported axiom type "+
+                        axiom.getClass().getName());
+            }
+
+            if(sb.length() > BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void concept(IConcept c) {
+            if(c == Concept.TOP) {
+                sb.append("owl:Thing");
+            } else if(c == Concept.BOTTOM) {
+                sb.append("owl:Nothing");
+            } else if(c instanceof INamedConcept) {
+                iri(((INamedConcept<?>) c).getId());
+            } else if(c instanceof IConjunction) {
+                sb.append("ObjectIntersectionOf(");
+                IConcept[] concepts = ((IConjunction) c).getConcepts();
+                for(int i = 0; i < concepts.length; i++) {
+                    if(i > 0) sb.append(' ');
+                    concept(concepts[i]);
+                }
+                sb.append(')');
+            } else if(c instanceof IExistential) {
+                IExistential<?> e = (IExistential<?>) c;
+                sb.append("ObjectSomeValuesFrom(");
+                role(e.getRole());
+                sb.append(' ');
+                concept(e.getConcept());
+                sb.append(')');
+            } else if(c instanceof IDatatype) {
+                datatype((IDatatype<?>) c);
+            } else {
+                throw new ImportException("Unsupported concept type "+
+                        c.getClass().getName());
+            }
+        }
+
+        private void datatype(IDatatype<?> d) {
+            ILiteral l = d.getLiteral();
+            String facet;
+            switch(d.getOperator()) {
+                case EQUALS:
+                    sb.append("DataHasValue(");
+                    iri(d.getFeature().getId());
+                    sb.append(' ');
+                    literal(l);
+                    sb.append(')');
+                    return;
+                case LESS_THAN:
+                    facet = "xsd:maxExclusive";
+                    break;
+                case LESS_THAN_EQUALS:
+                    facet = "xsd:maxInclusive";
+                    break;
+                case GREATER_THAN:
+                    facet = "xsd:minExclusive";
+                    break;
+                case GREATER_THAN_EQUALS:
+                    facet = "xsd:minInclusive";
+                    break;
+                default:
+                    throw new ImportException("Unsupported operator "+
+                            d.getOperator());
+            }
+            sb.append("DataSomeValuesFrom(");
+            iri(d.getFeature().getId());
+            sb.append(" DatatypeRestriction(").append(datatypeOf(l))
+                .append(' ').append(facet).append(' ');
+            literal(l);
+            sb.append("))");
+        }
+
+        private void role(IRole r) {
+            if(!(r instanceof INamedRole)) {
+                throw new ImportException("Unsupported role type "+
+                        r.getClass().getName());
+            }
+            iri(((INamedRole<?>) r).getId());
+        }
+
+        private void literal(ILiteral l) {
+            String value;
+            if(l instanceof IIntegerLiteral) {
+                value = String.valueOf(((IIntegerLiteral) l).getValue());
+            } else if(l instanceof ILongLiteral) {
+                value = String.valueOf(((ILongLiteral) l).getValue());
+            } else if(l instanceof IFloatLiteral) {
+                value = String.valueOf(((IFloatLiteral) l).getValue());
+            } else if(l instanceof IDoubleLiteral) {
+                value = String.valueOf(((IDoubleLiteral) l).getValue());
+            } else if(l instanceof IBooleanLiteral) {
+                value = String.valueOf(((IBooleanLiteral) l).getValue());
+            } else if(l instanceof IDateLiteral) {
+                value = DatatypeConverter.printDateTime(
+                        ((IDateLiteral) l).getValue());
+            } else if(l instanceof IStringLiteral) {
+                value = ((IStringLiteral) l).getValue();
+            } else {
+                throw new ImportException("Unsupported literal type "+
+                        (l == null ? null : l.getClass().getName()));
+            }
+
+            sb.append('"');
+            for(int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if(c == '"' || c == '\\') sb.append('\\');
+                sb.append(c);
+            }
+            sb.append('"');
+            if(!(l instanceof IStringLiteral)) {
+                sb.append("^^").append(datatypeOf(l));
+            }
+        }
+
+        private String datatypeOf(ILiteral l) {
+            if(l instanceof IIntegerLiteral) {
+                return "xsd:integer";
+            } else if(l instanceof ILongLiteral) {
+                return "xsd:long";
+            } else if(l instanceof IFloatLiteral) {
+                return "xsd:float";
+            } else if(l instanceof IDoubleLiteral) {
+                return "xsd:double";
+            } else if(l instanceof IBooleanLiteral) {
+                return "xsd:boolean";
+            } else if(l instanceof IDateLiteral) {
+                return "xsd:dateTime";
+            } else {
+                return "rdf:PlainLiteral";
+            }
+        }
+
+        /**
+         * Appends an id as an abbreviated or full IRI.
+         *
+         * @param id
+         */
+        private void iri(Object id) {
+            String res = iris.get(id);
+            if(res == null) {
+                res = abbreviate(id.toString());
+                iris.put(id, res);
+            }
+            sb.append(res);
+        }
+
+        private String abbreviate(String id) {
+            if(id.startsWith("<") && id.endsWith(">")) {
+                id = id.substring(1, id.length() - 1);
+            }
+            if(id.indexOf(':') == -1) {
+                id = defaultNamespace+id;
+            }
+
+            // Use the longest namespace that leaves a valid local name
+            String best = null;
+            for(String ns : prefixes.keySet()) {
+                if(id.startsWith(ns) && (best == null ||
+                        ns.length() > best.length()) &&
+                        isLocalName(id, ns.length())) {
+                    best = ns;
+                }
+            }
+            if(best == null) {
+                return "<"+id+">";
+            }
+            return prefixes.get(best)+id.substring(best.length());
+        }
+
+        private boolean isLocalName(String iri, int start) {
+            if(start == iri.length()) {
+                return true;
+            } else if(iri.charAt(start) == '-' || iri.charAt(start) == '.' ||
+                    iri.charAt(iri.length() - 1) == '.') {
+                return false;
+            }
+            for(int i = start; i < iri.length(); i++) {
+                char c = iri.charAt(i);
+                if(!Character.isLetterOrDigit(c) && c != '_' && c != '-' &&
+                        c != '.') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Encodes the rendered text and writes it to the channel.
+         *
+         * @throws IOException
+         */
+        public void flush() throws IOException {
+            CharBuffer cb = CharBuffer.wrap(sb);
+            while(true) {
+                CoderResult cr = encoder.encode(cb, buf, false);
+                if(cr.isOverflow()) {
+                    drain();
+                } else if(cr.isUnderflow()) {
+                    break;
+                } else {
+                    cr.throwException();
+                }
+            }
+            sb.setLength(0);
+        }
+
+        /**
+         * Writes all the text rendered so far to the channel.
+         *
+         * @throws IOException
+         */
+        public void write() throws IOException {
+            flush();
+            drain();
+        }
+
+        /**
+         * Writes any pending output. The channel is not closed and the
+         * renderer cannot be used afterwards.
+         *
+         * @throws IOException
+         */
+        public void close() throws IOException {
+            flush();
+            encoder.encode(CharBuffer.allocate(0), buf, true);
+            encoder.flush(buf);
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            while(buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+    }
+
+    /**
+     * Collects the ids of the entities used in axioms.
+     */
+    private static class EntityCollector {
+
+        private final Set<Object> classes;
+        private final Set<Object> objectProperties;
+        private final Set<Object> dataProperties;
+
+        public EntityCollector(Set<Object> classes,
+                Set<Object> objectProperties, Set<Object> dataProperties) {
+            this.classes = classes;
+            this.objectProperties = objectProperties;
+            this.dataProperties = dataProperties;
+        }
+
+        public void axiom(IAxiom axiom) {
+            if(axiom instanceof IConceptInclusion) {
+                IConceptInclusion ci = (IConceptInclusion) axiom;
+                concept(ci.lhs());
+                concept(ci.rhs());
+            } else if(axiom instanceof IRoleInclusion) {
+                IRoleInclusion ri = (IRoleInclusion) axiom;
+                for(IRole r : ri.lhs()) {
+                    role(r);
+                }
+                role(ri.rhs());
+            }
+        }
+
+        private void concept(IConcept c) {
+            if(c == Concept.TOP || c == Concept.BOTTOM) {
+                return;
+            } else if(c instanceof INamedConcept) {
+                classes.add(((INamedConcept<?>) c).getId());
+            } else if(c instanceof IConjunction) {
+                for(IConcept cc : ((IConjunction) c).getConcepts()) {
+                    concept(cc);
+                }
+            } else if(c instanceof IExistential) {
+                IExistential<?> e = (IExistential<?>) c;
+                role(e.getRole());
+                concept(e.getConcept());
+            } else if(c instanceof IDatatype) {
+                INamedFeature<?> f = ((IDatatype<?>) c).getFeature();
+                dataProperties.add(f.getId());
+            }
+        }
+
+        private void role(IRole r) {
+            if(r instanceof INamedRole) {
+                objectProperties.add(((INamedRole<?>) r).getId());
+            }
+        }
+    }
+
+}
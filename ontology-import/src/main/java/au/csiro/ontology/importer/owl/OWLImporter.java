@@ -6,14 +6,20 @@ package au.csiro.ontology.importer.owl;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -68,8 +74,12 @@ import au.csiro.ontology.Ontology;
 import au.csiro.ontology.axioms.ConceptInclusion;
 import au.csiro.ontology.axioms.IAxiom;
 import au.csiro.ontology.axioms.RoleInclusion;
-import au.csiro.ontology.importer.IImporter;
+import au.csiro.ontology.importer.CountingAxiomSink;
+import au.csiro.ontology.importer.IAxiomSink;
+import au.csiro.ontology.importer.IOntologySink;
+import au.csiro.ontology.importer.IStreamingImporter;
 import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.ImportOrchestrator;
 import au.csiro.ontology.model.BooleanLiteral;
 import au.csiro.ontology.model.Concept;
 import au.csiro.ontology.model.Conjunction;
@@ -88,7 +98,12 @@ import au.csiro.ontology.model.Operator;
 import au.csiro.ontology.model.Role;
 import au.csiro.ontology.model.StringLiteral;
 import au.csiro.ontology.util.IProgressMonitor;
-import au.csiro.ontology.util.Statistics;
+import au.csiro.ontology.util.ProgressTracker;
+import au.csiro.ontology.util.events.PhaseEvent;
+import au.csiro.ontology.util.events.PhaseEvents;
+import au.csiro.ontology.util.metrics.MetricName;
+import au.csiro.ontology.util.metrics.MetricsRegistry;
+import au.csiro.ontology.util.metrics.Timer;
 
 /**
  * Imports axioms in OWL format into the internal representation used by
@@ -97,16 +112,65 @@ import au.csiro.ontology.util.Statistics;
  * @author Alejandro Metke
  * 
  */
-public class OWLImporter implements IImporter {
+public class OWLImporter implements IStreamingImporter {
     
     public static final String THING_IRI = "http://www.w3.org/2002/07/owl#Thing";
     public static final String NOTHING_IRI = "http://www.w3.org/2002/07/owl#Nothing";
     
-    private final Set<OWLDataPropertyRangeAxiom> dprAxioms = 
-            new HashSet<OWLDataPropertyRangeAxiom>();
-    private final Map<OWL2Datatype, Set<OWL2Datatype>> types = new HashMap<>();
+    /**
+     * The datatypes whose values are compatible with each datatype, e.g.
+     * xsd:int values are compatible with xsd:long.
+     */
+    private static final Map<OWL2Datatype, EnumSet<OWL2Datatype>> types = 
+            createCompatibleTypes();
+    
+    /**
+     * Data property range axioms indexed by property. The index is built 
+     * before the axioms are translated and is only read afterwards, so it is
+     * shared by the translation workers.
+     */
+    private final Map<OWLDataProperty, DataPropertyRanges> dprAxioms;
     private final List<String> problems = new ArrayList<String>();
     
+    /**
+     * Named concepts, roles and features indexed by IRI, so that repeated
+     * IRIs share the same instances. These are not synchronized - every
+     * translation worker has its own.
+     */
+    private final Map<String, Concept<String>> concepts = new HashMap<>();
+    private final Map<String, Role<String>> roles = new HashMap<>();
+    private final Map<String, Feature<String>> features = new HashMap<>();
+    
+    /**
+     * Visitor used to translate class expressions. Created lazily and reused
+     * for all the axioms translated by this importer.
+     */
+    private ConceptVisitor visitor;
+    
+    /**
+     * Axiom lists smaller than this are always translated sequentially.
+     */
+    private static final int MIN_PARTITION_SIZE = 1000;
+    
+    private static final MetricName RUNS = 
+            new MetricName("import.runs", "importer", "owl");
+    private static final MetricName TIME = 
+            new MetricName("import.time", "importer", "owl");
+    private static final MetricName PHASE_TIME = 
+            new MetricName("import.phase.time", "importer", "owl");
+    private static final MetricName PROBLEMS = 
+            new MetricName("import.problems", "importer", "owl");
+    private static final MetricName ROWS = 
+            new MetricName("import.rows", "importer", "owl");
+    private static final MetricName AXIOMS = 
+            new MetricName("import.axioms", "importer", "owl");
+    
+    /**
+     * Executor used to translate axioms in parallel, or null to translate
+     * them sequentially.
+     */
+    private ExecutorService executor;
+    
     private OWLOntology ontology;
     private List<OWLAxiom> axioms;
     
@@ -120,172 +184,134 @@ public class OWLImporter implements IImporter {
         this.axioms = axioms;
     }
     
+    /**
+     * Creates an importer that translates the axioms of an ontology in 
+     * parallel using the supplied executor. The results are the same as in
+     * sequential mode.
+     * 
+     * @param ontology
+     * @param executor
+     */
+    public OWLImporter(OWLOntology ontology, ExecutorService executor) {
+        this(ontology);
+        this.executor = executor;
+    }
+    
+    /**
+     * Creates an importer that translates a list of axioms in parallel using
+     * the supplied executor. The results are the same as in sequential mode.
+     * 
+     * @param axioms
+     * @param executor
+     */
+    public OWLImporter(List<OWLAxiom> axioms, ExecutorService executor) {
+        this(axioms);
+        this.executor = executor;
+    }
+    
+    /**
+     * Creates a worker that translates a partition of the axioms of another
+     * importer. The worker shares the read-only state of the parent and keeps
+     * its own list of problems, so workers can run concurrently.
+     * 
+     * @param parent
+     */
+    private OWLImporter(OWLImporter parent) {
+        this.dprAxioms = parent.dprAxioms;
+    }
+    
     /**
      * Private constructor.
      */
     private OWLImporter() {
-        Set<OWL2Datatype> set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_BYTE);
-        types.put(OWL2Datatype.XSD_BYTE, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_SHORT);
-        set.addAll(types.get(OWL2Datatype.XSD_BYTE));
-        types.put(OWL2Datatype.XSD_SHORT, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_INT);
-        set.addAll(types.get(OWL2Datatype.XSD_SHORT));
-        types.put(OWL2Datatype.XSD_INT, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_LONG);
-        set.addAll(types.get(OWL2Datatype.XSD_INT));
-        types.put(OWL2Datatype.XSD_LONG, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_UNSIGNED_BYTE);
-        types.put(OWL2Datatype.XSD_UNSIGNED_BYTE, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_UNSIGNED_SHORT);
-        set.addAll(types.get(OWL2Datatype.XSD_UNSIGNED_BYTE));
-        types.put(OWL2Datatype.XSD_UNSIGNED_SHORT, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_UNSIGNED_INT);
-        set.addAll(types.get(OWL2Datatype.XSD_UNSIGNED_SHORT));
-        types.put(OWL2Datatype.XSD_UNSIGNED_INT, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_UNSIGNED_LONG);
-        set.addAll(types.get(OWL2Datatype.XSD_UNSIGNED_INT));
-        types.put(OWL2Datatype.XSD_UNSIGNED_LONG, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_POSITIVE_INTEGER);
-        types.put(OWL2Datatype.XSD_POSITIVE_INTEGER, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NON_NEGATIVE_INTEGER);
-        set.addAll(types.get(OWL2Datatype.XSD_POSITIVE_INTEGER));
-        set.addAll(types.get(OWL2Datatype.XSD_UNSIGNED_LONG));
-        types.put(OWL2Datatype.XSD_NON_NEGATIVE_INTEGER, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NEGATIVE_INTEGER);
-        types.put(OWL2Datatype.XSD_NEGATIVE_INTEGER, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NON_POSITIVE_INTEGER);
-        set.addAll(types.get(OWL2Datatype.XSD_NEGATIVE_INTEGER));
-        types.put(OWL2Datatype.XSD_NON_POSITIVE_INTEGER, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_INTEGER);
-        set.addAll(types.get(OWL2Datatype.XSD_NON_POSITIVE_INTEGER));
-        set.addAll(types.get(OWL2Datatype.XSD_NON_NEGATIVE_INTEGER));
-        set.addAll(types.get(OWL2Datatype.XSD_LONG));
-        types.put(OWL2Datatype.XSD_INTEGER, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_DECIMAL);
-        set.addAll(types.get(OWL2Datatype.XSD_INTEGER));
-        types.put(OWL2Datatype.XSD_DECIMAL, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_DOUBLE);
-        types.put(OWL2Datatype.XSD_DOUBLE, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_FLOAT);
-        types.put(OWL2Datatype.XSD_FLOAT, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NCNAME);
-        types.put(OWL2Datatype.XSD_NCNAME, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NAME);
-        set.addAll(types.get(OWL2Datatype.XSD_NCNAME));
-        types.put(OWL2Datatype.XSD_NAME, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NMTOKEN);
-        types.put(OWL2Datatype.XSD_NMTOKEN, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_LANGUAGE);
-        types.put(OWL2Datatype.XSD_LANGUAGE, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_TOKEN);
-        set.addAll(types.get(OWL2Datatype.XSD_LANGUAGE));
-        set.addAll(types.get(OWL2Datatype.XSD_NMTOKEN));
-        set.addAll(types.get(OWL2Datatype.XSD_NAME));
-        types.put(OWL2Datatype.XSD_TOKEN, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_NORMALIZED_STRING);
-        set.addAll(types.get(OWL2Datatype.XSD_TOKEN));
-        types.put(OWL2Datatype.XSD_NORMALIZED_STRING, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_STRING);
-        set.addAll(types.get(OWL2Datatype.XSD_NORMALIZED_STRING));
-        types.put(OWL2Datatype.XSD_STRING, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_BOOLEAN);
-        types.put(OWL2Datatype.XSD_BOOLEAN, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_HEX_BINARY);
-        types.put(OWL2Datatype.XSD_HEX_BINARY, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_BASE_64_BINARY);
-        types.put(OWL2Datatype.XSD_BASE_64_BINARY, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_ANY_URI);
-        types.put(OWL2Datatype.XSD_ANY_URI, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_DATE_TIME);
-        types.put(OWL2Datatype.XSD_DATE_TIME, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.XSD_DATE_TIME_STAMP);
-        types.put(OWL2Datatype.XSD_DATE_TIME_STAMP, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.OWL_RATIONAL);
-        types.put(OWL2Datatype.OWL_RATIONAL, set);
-
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.OWL_REAL);
-        types.put(OWL2Datatype.OWL_REAL, set);
+        dprAxioms = new HashMap<>();
+    }
+    
+    /**
+     * Builds the table of compatible datatypes.
+     * 
+     * @return
+     */
+    private static Map<OWL2Datatype, EnumSet<OWL2Datatype>> 
+            createCompatibleTypes() {
+        Map<OWL2Datatype, EnumSet<OWL2Datatype>> res = 
+                new EnumMap<>(OWL2Datatype.class);
+        addType(res, OWL2Datatype.XSD_BYTE);
+        addType(res, OWL2Datatype.XSD_SHORT, OWL2Datatype.XSD_BYTE);
+        addType(res, OWL2Datatype.XSD_INT, OWL2Datatype.XSD_SHORT);
+        addType(res, OWL2Datatype.XSD_LONG, OWL2Datatype.XSD_INT);
+        addType(res, OWL2Datatype.XSD_UNSIGNED_BYTE);
+        addType(res, OWL2Datatype.XSD_UNSIGNED_SHORT,
+                OWL2Datatype.XSD_UNSIGNED_BYTE);
+        addType(res, OWL2Datatype.XSD_UNSIGNED_INT,
+                OWL2Datatype.XSD_UNSIGNED_SHORT);
+        addType(res, OWL2Datatype.XSD_UNSIGNED_LONG,
+                OWL2Datatype.XSD_UNSIGNED_INT);
+        addType(res, OWL2Datatype.XSD_POSITIVE_INTEGER);
+        addType(res, OWL2Datatype.XSD_NON_NEGATIVE_INTEGER,
+                OWL2Datatype.XSD_POSITIVE_INTEGER,
+                OWL2Datatype.XSD_UNSIGNED_LONG);
+        addType(res, OWL2Datatype.XSD_NEGATIVE_INTEGER);
+        addType(res, OWL2Datatype.XSD_NON_POSITIVE_INTEGER,
+                OWL2Datatype.XSD_NEGATIVE_INTEGER);
+        addType(res, OWL2Datatype.XSD_INTEGER,
+                OWL2Datatype.XSD_NON_POSITIVE_INTEGER,
+                OWL2Datatype.XSD_NON_NEGATIVE_INTEGER, OWL2Datatype.XSD_LONG);
+        addType(res, OWL2Datatype.XSD_DECIMAL, OWL2Datatype.XSD_INTEGER);
+        addType(res, OWL2Datatype.XSD_DOUBLE);
+        addType(res, OWL2Datatype.XSD_FLOAT);
+        addType(res, OWL2Datatype.XSD_NCNAME);
+        addType(res, OWL2Datatype.XSD_NAME, OWL2Datatype.XSD_NCNAME);
+        addType(res, OWL2Datatype.XSD_NMTOKEN);
+        addType(res, OWL2Datatype.XSD_LANGUAGE);
+        addType(res, OWL2Datatype.XSD_TOKEN,
+                OWL2Datatype.XSD_LANGUAGE, OWL2Datatype.XSD_NMTOKEN,
+                OWL2Datatype.XSD_NAME);
+        addType(res, OWL2Datatype.XSD_NORMALIZED_STRING,
+                OWL2Datatype.XSD_TOKEN);
+        addType(res, OWL2Datatype.XSD_STRING,
+                OWL2Datatype.XSD_NORMALIZED_STRING);
+        addType(res, OWL2Datatype.XSD_BOOLEAN);
+        addType(res, OWL2Datatype.XSD_HEX_BINARY);
+        addType(res, OWL2Datatype.XSD_BASE_64_BINARY);
+        addType(res, OWL2Datatype.XSD_ANY_URI);
+        addType(res, OWL2Datatype.XSD_DATE_TIME);
+        addType(res, OWL2Datatype.XSD_DATE_TIME_STAMP);
+        addType(res, OWL2Datatype.OWL_RATIONAL);
+        addType(res, OWL2Datatype.OWL_REAL);
 
         try {
-            set = new HashSet<OWL2Datatype>();
-            set.add(OWL2Datatype.RDF_PLAIN_LITERAL);
-            types.put(OWL2Datatype.RDF_PLAIN_LITERAL, set);
+            addType(res, OWL2Datatype.RDF_PLAIN_LITERAL);
         } catch (NoSuchFieldError e) {
             // ignore - this is thrown when working with older versions of the OWL API
         }
 
         try {
-            set = new HashSet<OWL2Datatype>();
-            set.add(OWL2Datatype.RDFS_LITERAL);
-            types.put(OWL2Datatype.RDFS_LITERAL, set);
+            addType(res, OWL2Datatype.RDFS_LITERAL);
         } catch (NoSuchFieldError e) {
             // ignore - this is thrown when working with older versions of the OWL API
         }
 
-        set = new HashSet<OWL2Datatype>();
-        set.add(OWL2Datatype.RDF_XML_LITERAL);
-        types.put(OWL2Datatype.RDF_XML_LITERAL, set);
+        addType(res, OWL2Datatype.RDF_XML_LITERAL);
+        return res;
+    }
+    
+    /**
+     * Adds a datatype to the compatibility table. The datatype is compatible
+     * with itself and with all the datatypes compatible with its subtypes,
+     * which must already be in the table.
+     * 
+     * @param res
+     * @param type
+     * @param subtypes
+     */
+    private static void addType(Map<OWL2Datatype, EnumSet<OWL2Datatype>> res, 
+            OWL2Datatype type, OWL2Datatype... subtypes) {
+        EnumSet<OWL2Datatype> set = EnumSet.of(type);
+        for(OWL2Datatype subtype : subtypes) {
+            set.addAll(res.get(subtype));
+        }
+        res.put(type, set);
     }
 
     private IAxiom transformOWLSubPropertyChainOfAxiom(
@@ -296,10 +322,10 @@ public class OWLImporter implements IImporter {
         int size = sub.size();
         IRole[] lhss = new IRole[size];
         for (int i = 0; i < size; i++) {
-            lhss[i] = new Role<>(sub.get(i).asOWLObjectProperty().toStringID());
+            lhss[i] = getRole(sub.get(i));
         }
 
-        Role<String> rhs = new Role<>(sup.asOWLObjectProperty().toStringID());
+        Role<String> rhs = getRole(sup);
 
         if (lhss.length == 1 || lhss.length == 2) {
             return new RoleInclusion(lhss, rhs);
@@ -315,8 +341,8 @@ public class OWLImporter implements IImporter {
         OWLObjectPropertyExpression sub = a.getSubProperty();
         OWLObjectPropertyExpression sup = a.getSuperProperty();
 
-        Role<String> lhs = new Role<>(sub.asOWLObjectProperty().toStringID());
-        Role<String> rhs = new Role<>(sup.asOWLObjectProperty().toStringID());
+        Role<String> lhs = getRole(sub);
+        Role<String> rhs = getRole(sup);
 
         return new RoleInclusion(new Role[]{lhs}, rhs);
     }
@@ -324,14 +350,13 @@ public class OWLImporter implements IImporter {
     private IAxiom transformOWLReflexiveObjectPropertyAxiom(
             OWLReflexiveObjectPropertyAxiom a) {
         OWLObjectPropertyExpression exp = a.getProperty();
-        return new RoleInclusion(new Role[] {}, 
-                new Role<>(exp.asOWLObjectProperty().toStringID()));
+        return new RoleInclusion(new Role[] {}, getRole(exp));
     }
 
     private IAxiom transformOWLTransitiveObjectPropertyAxiom(
             OWLTransitiveObjectPropertyAxiom a) {
         OWLObjectPropertyExpression exp = a.getProperty();
-        Role<String> r = new Role<>(exp.asOWLObjectProperty().toStringID());
+        Role<String> r = getRole(exp);
         return new RoleInclusion(new Role[] { r, r }, r);
     }
 
@@ -403,76 +428,56 @@ public class OWLImporter implements IImporter {
             OWLObjectPropertyExpression sub = ax.getSubProperty();
             OWLObjectPropertyExpression sup = ax.getSuperProperty();
 
-            axioms.add(new RoleInclusion(new Role<>(sub.asOWLObjectProperty()
-                    .toStringID()), new Role<>(sup.asOWLObjectProperty()
-                    .toStringID())));
+            axioms.add(new RoleInclusion(getRole(sub), getRole(sup)));
         }
         return axioms;
     }
 
-    private Set<IAxiom> transform(List<OWLAxiom> axioms, 
-            IProgressMonitor monitor) {
+    /**
+     * Translates the axioms and sends the results to a sink.
+     * 
+     * @param axioms
+     * @param monitor
+     * @param sink
+     * @return The number of axioms sent.
+     * @throws ImportException if any of the axioms is not supported, after
+     * sending the supported ones.
+     */
+    private int transform(List<OWLAxiom> axioms, IProgressMonitor monitor, 
+            IAxiomSink sink) {
         monitor.taskStarted("Loading axioms");
-        final Set<IAxiom> res = new HashSet<>();
+        CountingAxiomSink res = new CountingAxiomSink(sink);
         int totalAxioms = axioms.size();
-        int workDone = 0;
-
-        for (OWLAxiom axiom : axioms) {
-            if (axiom instanceof OWLDeclarationAxiom) {
-                OWLDeclarationAxiom a = (OWLDeclarationAxiom)axiom;
-                OWLEntity ent = a.getEntity();
-                if (ent.isOWLClass()) {
-                    res.add(new ConceptInclusion(
-                            new Concept<>(ent.asOWLClass().toStringID()), 
-                            Concept.TOP));
-                } else if (ent.isOWLObjectProperty()) {
-                    // Do nothing for now.
-                } else if (ent.isOWLDataProperty()) {
-                    // Do nothing for now.
+        MetricsRegistry metrics = MetricsRegistry.INSTANCE;
+        Timer.Context phase = metrics.timer(
+                PHASE_TIME.tag("phase", "index")).time();
+        indexDataPropertyRanges(axioms);
+        phase.stop();
+        
+        phase = metrics.timer(PHASE_TIME.tag("phase", "translate")).time();
+        PhaseEvent event = PhaseEvents.begin("owl", "transform");
+        event.setRows(totalAxioms);
+        ProgressTracker progress = new ProgressTracker(monitor, totalAxioms, 
+                -1, ProgressTracker.DEFAULT_INTERVAL, true);
+        try {
+            if(executor == null || totalAxioms <= MIN_PARTITION_SIZE) {
+                for (OWLAxiom axiom : axioms) {
+                    transform(axiom, res);
+                    progress.worked(1, 0);
                 }
-            } else if (axiom instanceof OWLSubPropertyChainOfAxiom) {
-                OWLSubPropertyChainOfAxiom a = (OWLSubPropertyChainOfAxiom) axiom;
-                IAxiom ax = transformOWLSubPropertyChainOfAxiom(a);
-                if(ax != null) res.add(ax);
-                monitor.step(workDone, totalAxioms);
-            } else if (axiom instanceof OWLSubObjectPropertyOfAxiom) {
-                OWLSubObjectPropertyOfAxiom a = (OWLSubObjectPropertyOfAxiom) axiom;
-                res.add(transformOWLSubObjectPropertyOfAxiom(a));
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLReflexiveObjectPropertyAxiom) {
-                OWLReflexiveObjectPropertyAxiom a = (OWLReflexiveObjectPropertyAxiom) axiom;
-                res.add(transformOWLReflexiveObjectPropertyAxiom(a));
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLTransitiveObjectPropertyAxiom) {
-                OWLTransitiveObjectPropertyAxiom a = (OWLTransitiveObjectPropertyAxiom) axiom;
-                res.add(transformOWLTransitiveObjectPropertyAxiom(a));
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLSubClassOfAxiom) {
-                OWLSubClassOfAxiom a = (OWLSubClassOfAxiom) axiom;
-                IAxiom ax = transformOWLSubClassOfAxiom(a);
-                if(ax != null) res.add(ax);
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLEquivalentClassesAxiom) {
-                OWLEquivalentClassesAxiom a = (OWLEquivalentClassesAxiom) axiom;
-                res.addAll(transformOWLEquivalentClassesAxiom(a));
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLDisjointClassesAxiom) {
-                OWLDisjointClassesAxiom a = (OWLDisjointClassesAxiom) axiom;
-                IAxiom ax = transformOWLDisjointClassesAxiom(a);
-                if(ax != null) res.add(ax);
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLEquivalentObjectPropertiesAxiom) {
-                OWLEquivalentObjectPropertiesAxiom a = (OWLEquivalentObjectPropertiesAxiom) axiom;
-                res.addAll(transformOWLEquivalentObjectPropertiesAxiom(a));
-                monitor.step(++workDone, totalAxioms);
-            } else if (axiom instanceof OWLAnnotationAssertionAxiom) {
-                // Do nothing
-                monitor.step(++workDone, totalAxioms);
             } else {
-                problems.add("The axiom " + axiom.toString() + 
-                    " is not currently supported by Snorocket.");
+                transformParallel(axioms, res, progress);
             }
+        } catch(CancellationException e) {
+            clear();
+            monitor.taskEnded();
+            throw e;
         }
+        progress.done();
+        event.setAxioms(res.getCount());
+        event.end();
+        phase.stop();
+        metrics.counter(PROBLEMS).add(problems.size());
 
         // TODO: deal with other axioms types even if Snorocket does not
         // currently support them
@@ -483,10 +488,132 @@ public class OWLImporter implements IImporter {
             throw new ImportException();
         }
         
-        return res;
+        return res.getCount();
+    }
+    
+    /**
+     * Translates a single axiom and sends the results to a sink.
+     * 
+     * @param axiom
+     * @param res
+     */
+    private void transform(OWLAxiom axiom, IAxiomSink res) {
+        if (axiom instanceof OWLDeclarationAxiom) {
+            OWLDeclarationAxiom a = (OWLDeclarationAxiom)axiom;
+            OWLEntity ent = a.getEntity();
+            if (ent.isOWLClass()) {
+                res.accept(new ConceptInclusion(
+                        getNamedConcept(ent.asOWLClass().toStringID()), 
+                        Concept.TOP));
+            } else if (ent.isOWLObjectProperty()) {
+                // Do nothing for now.
+            } else if (ent.isOWLDataProperty()) {
+                // Do nothing for now.
+            }
+        } else if (axiom instanceof OWLSubPropertyChainOfAxiom) {
+            OWLSubPropertyChainOfAxiom a = (OWLSubPropertyChainOfAxiom) axiom;
+            IAxiom ax = transformOWLSubPropertyChainOfAxiom(a);
+            if(ax != null) res.accept(ax);
+        } else if (axiom instanceof OWLSubObjectPropertyOfAxiom) {
+            OWLSubObjectPropertyOfAxiom a = (OWLSubObjectPropertyOfAxiom) axiom;
+            res.accept(transformOWLSubObjectPropertyOfAxiom(a));
+        } else if (axiom instanceof OWLReflexiveObjectPropertyAxiom) {
+            OWLReflexiveObjectPropertyAxiom a = (OWLReflexiveObjectPropertyAxiom) axiom;
+            res.accept(transformOWLReflexiveObjectPropertyAxiom(a));
+        } else if (axiom instanceof OWLTransitiveObjectPropertyAxiom) {
+            OWLTransitiveObjectPropertyAxiom a = (OWLTransitiveObjectPropertyAxiom) axiom;
+            res.accept(transformOWLTransitiveObjectPropertyAxiom(a));
+        } else if (axiom instanceof OWLSubClassOfAxiom) {
+            OWLSubClassOfAxiom a = (OWLSubClassOfAxiom) axiom;
+            IAxiom ax = transformOWLSubClassOfAxiom(a);
+            if(ax != null) res.accept(ax);
+        } else if (axiom instanceof OWLEquivalentClassesAxiom) {
+            OWLEquivalentClassesAxiom a = (OWLEquivalentClassesAxiom) axiom;
+            for(IAxiom ax : transformOWLEquivalentClassesAxiom(a)) {
+                res.accept(ax);
+            }
+        } else if (axiom instanceof OWLDisjointClassesAxiom) {
+            OWLDisjointClassesAxiom a = (OWLDisjointClassesAxiom) axiom;
+            IAxiom ax = transformOWLDisjointClassesAxiom(a);
+            if(ax != null) res.accept(ax);
+        } else if (axiom instanceof OWLEquivalentObjectPropertiesAxiom) {
+            OWLEquivalentObjectPropertiesAxiom a = (OWLEquivalentObjectPropertiesAxiom) axiom;
+            for(IAxiom ax : transformOWLEquivalentObjectPropertiesAxiom(a)) {
+                res.accept(ax);
+            }
+        } else if (axiom instanceof OWLAnnotationAssertionAxiom) {
+            // Do nothing
+        } else if (axiom instanceof OWLDataPropertyRangeAxiom) {
+            // Indexed before translation and used to check literals
+        } else {
+            problems.add("The axiom " + axiom.toString() + 
+                " is not currently supported by Snorocket.");
+        }
+    }
+    
+    /**
+     * Translates the axioms in contiguous partitions on the executor. Each
+     * partition is translated by its own worker importer and the results and
+     * problems are merged in partition order, so the output is the same as
+     * when translating sequentially.
+     * 
+     * @param axioms
+     * @param res
+     * @param progress
+     */
+    private void transformParallel(List<OWLAxiom> axioms, IAxiomSink res, 
+            final ProgressTracker progress) {
+        int totalAxioms = axioms.size();
+        int numPartitions = Runtime.getRuntime().availableProcessors() * 4;
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, 
+                (totalAxioms + numPartitions - 1) / numPartitions);
+        
+        List<OWLImporter> workers = new ArrayList<>();
+        List<List<IAxiom>> results = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for(int start = 0; start < totalAxioms; start += partitionSize) {
+            final List<OWLAxiom> partition = axioms.subList(start, 
+                    Math.min(start + partitionSize, totalAxioms));
+            final List<IAxiom> partitionRes = 
+                    new ArrayList<>(partition.size());
+            final OWLImporter worker = new OWLImporter(this);
+            workers.add(worker);
+            results.add(partitionRes);
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    IAxiomSink sink = new IAxiomSink() {
+                        @Override
+                        public void accept(IAxiom axiom) {
+                            partitionRes.add(axiom);
+                        }
+                    };
+                    for(OWLAxiom axiom : partition) {
+                        worker.transform(axiom, sink);
+                        progress.worked(1, 0);
+                    }
+                }
+            }));
+        }
+        
+        try {
+            for(int i = 0; i < futures.size(); i++) {
+                ImportOrchestrator.getResult(futures.get(i));
+                for(IAxiom axiom : results.get(i)) {
+                    res.accept(axiom);
+                }
+                results.set(i, null);
+                problems.addAll(workers.get(i).problems);
+            }
+        } finally {
+            for(Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
     }
 
-    private Set<IAxiom> transform(OWLOntology ont, IProgressMonitor monitor) {
+    private int transform(OWLOntology ont, IProgressMonitor monitor, 
+            IAxiomSink sink) {
         /*
         OWL2ELProfile profile = new OWL2ELProfile();
         OWLProfileReport report = profile.checkOntology(ont);
@@ -504,8 +631,8 @@ public class OWLImporter implements IImporter {
         }
         */
         
-        return transform(Collections.list(
-                Collections.enumeration(ont.getAxioms())), monitor);
+        return transform(new ArrayList<OWLAxiom>(ont.getAxioms()), monitor, 
+                sink);
     }
 
     /**
@@ -536,7 +663,12 @@ public class OWLImporter implements IImporter {
                 res = new LongLiteral(Long.parseLong(literal));
                 break;
             case XSD_DATE_TIME:
-                res = new DateLiteral(DatatypeConverter.parseDateTime(literal));
+                Calendar value = DatatypeConverter.parseDateTime(literal);
+                if(DateLiteral.hasTimeOfDay(value)) {
+                    // Date literals only keep the date
+                    problems.add("Time of day dropped from literal " + l);
+                }
+                res = new DateLiteral(value);
                 break;
             default:
                 problems.add("Unsupported literal " + l);
@@ -546,54 +678,157 @@ public class OWLImporter implements IImporter {
         return res;
     }
 
+    /**
+     * Returns the datatypes whose values are compatible with a datatype, or
+     * null if the datatype is not in the compatibility table, e.g. a custom
+     * datatype. Values of unknown datatypes are not checked.
+     * 
+     * @param type
+     * @return
+     */
+    private static EnumSet<OWL2Datatype> getCompatibleTypes(OWLDatatype type) {
+        return type.isBuiltIn() ? types.get(type.getBuiltInDatatype()) : null;
+    }
+    
     /**
      * Determines if the datatype specified in a property is compatible with an
-     * actual datatype.
+     * actual datatype. Unknown datatypes are compatible with any datatype.
      * 
      * @param propertyType
      * @param actualType
      * @return
      */
-    private boolean compatibleTypes(OWLDatatype propertyType,
+    private static boolean compatibleTypes(OWLDatatype propertyType,
             OWLDatatype actualType) {
-        OWL2Datatype pt = propertyType.getBuiltInDatatype();
-        OWL2Datatype at = actualType.getBuiltInDatatype();
-        Set<OWL2Datatype> compatible = types.get(pt);
-        boolean res = false;
-        if (compatible != null && compatible.contains(at)) {
-            res = true;
+        Set<OWL2Datatype> compatible = getCompatibleTypes(propertyType);
+        if(compatible == null || getCompatibleTypes(actualType) == null) {
+            return true;
         }
-        return res;
+        return compatible.contains(actualType.getBuiltInDatatype());
     }
     
-    private void checkInconsistentProperty(OWLDataProperty dp, 
-            OWLDatatype type) {
-        for (OWLDataPropertyRangeAxiom a : dprAxioms) {
+    /**
+     * Indexes the data property range axioms by property. Must be called 
+     * before the axioms are translated.
+     * 
+     * @param axioms
+     */
+    private void indexDataPropertyRanges(List<OWLAxiom> axioms) {
+        dprAxioms.clear();
+        for(OWLAxiom axiom : axioms) {
+            if(!(axiom instanceof OWLDataPropertyRangeAxiom)) continue;
+            OWLDataPropertyRangeAxiom a = (OWLDataPropertyRangeAxiom) axiom;
             OWLDataPropertyExpression pe = a.getProperty();
-            OWLDataRange r = a.getRange();
-            // TODO: check DataOneOf
-            // TODO: check OWLDataIntersectionOf
-            OWLDatatype otype = r.asOWLDatatype();
-
-            if (!pe.isAnonymous()) {
-                OWLDataProperty odp = pe.asOWLDataProperty();
-
-                if (dp.equals(odp)) {
-                    boolean compatible = compatibleTypes(otype, type);
-                    if (!compatible) {
-                        // throw new InconsistentOntologyException();
-                        problems.add("The literal value restriction "
-                                + dp + " is inconsistent with the data "
-                                + "property range axiom " + a);
-                    }
-                }
-            } else {
+            if(pe.isAnonymous()) {
                 problems.add("Found anonymous data property "
                         + "expression in data property range axiom: "
                         + pe);
+                continue;
             }
+            // TODO: check DataOneOf
+            // TODO: check OWLDataIntersectionOf
+            if(!a.getRange().isDatatype()) continue;
+            OWLDataProperty dp = pe.asOWLDataProperty();
+            DataPropertyRanges ranges = dprAxioms.get(dp);
+            if(ranges == null) {
+                ranges = new DataPropertyRanges();
+                dprAxioms.put(dp, ranges);
+            }
+            ranges.add(a);
         }
     }
+    
+    private void checkInconsistentProperty(OWLDataProperty dp, 
+            OWLDatatype type) {
+        DataPropertyRanges ranges = dprAxioms.get(dp);
+        if(ranges == null || getCompatibleTypes(type) == null || 
+                ranges.compatible.contains(type.getBuiltInDatatype())) {
+            return;
+        }
+        
+        // Report every range axiom the value is inconsistent with
+        for(OWLDataPropertyRangeAxiom a : ranges.axioms) {
+            OWLDatatype otype = a.getRange().asOWLDatatype();
+            if (!compatibleTypes(otype, type)) {
+                // throw new InconsistentOntologyException();
+                problems.add("The literal value restriction "
+                        + dp + " is inconsistent with the data "
+                        + "property range axiom " + a);
+            }
+        }
+    }
+    
+    /**
+     * The range axioms of a data property and the datatypes compatible with
+     * all of them. Ranges with unknown datatypes do not restrict the
+     * compatible datatypes.
+     * 
+     * @author Alejandro Metke
+     *
+     */
+    private static class DataPropertyRanges {
+        
+        private final List<OWLDataPropertyRangeAxiom> axioms = 
+                new ArrayList<>();
+        private final EnumSet<OWL2Datatype> compatible = 
+                EnumSet.allOf(OWL2Datatype.class);
+        
+        private void add(OWLDataPropertyRangeAxiom a) {
+            axioms.add(a);
+            EnumSet<OWL2Datatype> set = 
+                    getCompatibleTypes(a.getRange().asOWLDatatype());
+            if(set != null) {
+                compatible.retainAll(set);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared concept for a named class.
+     * 
+     * @param id
+     * @return
+     */
+    private Concept<String> getNamedConcept(String id) {
+        Concept<String> res = concepts.get(id);
+        if(res == null) {
+            res = new Concept<>(id);
+            concepts.put(id, res);
+        }
+        return res;
+    }
+    
+    /**
+     * Returns the shared role for a named object property.
+     * 
+     * @param pe
+     * @return
+     */
+    private Role<String> getRole(OWLObjectPropertyExpression pe) {
+        String id = pe.asOWLObjectProperty().toStringID();
+        Role<String> res = roles.get(id);
+        if(res == null) {
+            res = new Role<>(id);
+            roles.put(id, res);
+        }
+        return res;
+    }
+    
+    /**
+     * Returns the shared feature for a named data property.
+     * 
+     * @param dp
+     * @return
+     */
+    private Feature<String> getFeature(OWLDataProperty dp) {
+        String id = dp.toStringID();
+        Feature<String> res = features.get(id);
+        if(res == null) {
+            res = new Feature<>(id);
+            features.put(id, res);
+        }
+        return res;
+    }
 
     /**
      * 
@@ -601,219 +836,252 @@ public class OWLImporter implements IImporter {
      * @return
      */
     private IConcept getConcept(OWLClassExpression desc) {
-        final Stack<IConcept> stack = new Stack<IConcept>();
-        desc.accept(new OWLClassExpressionVisitor() {
-
-            private void unimplemented(OWLClassExpression e) {
-                String message = "The class expression "+
-                        e.getClassExpressionType().getName()+
-                        " is not currently supported by Snorocket.";
-                throw new UnsupportedOperationException(message);
+        if(visitor == null) {
+            visitor = new ConceptVisitor();
+        }
+        return visitor.getConcept(desc);
+    }
+    
+    /**
+     * Translates class expressions into concepts. The intermediate results
+     * are kept in an array-backed stack that is reused between calls, so an
+     * instance must not be shared between threads.
+     * 
+     * @author Alejandro Metke
+     *
+     */
+    private class ConceptVisitor implements OWLClassExpressionVisitor {
+        
+        private IConcept[] stack = new IConcept[16];
+        private int size = 0;
+        
+        /**
+         * Translates a class expression.
+         * 
+         * @param desc
+         * @return
+         */
+        public IConcept getConcept(OWLClassExpression desc) {
+            try {
+                desc.accept(this);
+                if (size != 1) {
+                    throw new RuntimeException("Stack size should be 1 but is "
+                            + size);
+                }
+                return pop();
+            } finally {
+                // Discard partial results if the translation failed
+                while(size > 0) {
+                    pop();
+                }
             }
+        }
 
-            private IConcept pop() {
-                return stack.pop();
-            }
+        private void unimplemented(OWLClassExpression e) {
+            String message = "The class expression "+
+                    e.getClassExpressionType().getName()+
+                    " is not currently supported by Snorocket.";
+            throw new UnsupportedOperationException(message);
+        }
 
-            private void push(IConcept concept) {
-                stack.push(concept);
-            }
+        private IConcept pop() {
+            IConcept res = stack[--size];
+            stack[size] = null;
+            return res;
+        }
 
-            public void visit(OWLDataMaxCardinality e) {
-                unimplemented(e);
+        private void push(IConcept concept) {
+            if(size == stack.length) {
+                stack = Arrays.copyOf(stack, size << 1);
             }
+            stack[size++] = concept;
+        }
 
-            public void visit(OWLDataExactCardinality e) {
-                unimplemented(e);
-            }
+        public void visit(OWLDataMaxCardinality e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLDataMinCardinality e) {
-                unimplemented(e);
-            }
+        public void visit(OWLDataExactCardinality e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLDataHasValue e) {
-                OWLDataPropertyExpression dpe = e.getProperty();
-                // TODO: consider the case where dpe is anonymous
-                OWLDataProperty dp = dpe.asOWLDataProperty();
-                OWLLiteral l = e.getValue();
-                OWLDatatype type = l.getDatatype();
+        public void visit(OWLDataMinCardinality e) {
+            unimplemented(e);
+        }
 
-                checkInconsistentProperty(dp, type);
+        public void visit(OWLDataHasValue e) {
+            OWLDataPropertyExpression dpe = e.getProperty();
+            // TODO: consider the case where dpe is anonymous
+            OWLDataProperty dp = dpe.asOWLDataProperty();
+            OWLLiteral l = e.getValue();
+            OWLDatatype type = l.getDatatype();
 
-                Feature<String> f = new Feature<>(dp.toStringID());
-                push(new Datatype<>(f, Operator.EQUALS, getLiteral(l)));
-            }
+            checkInconsistentProperty(dp, type);
 
-            public void visit(OWLDataAllValuesFrom e) {
-                unimplemented(e);
-            }
+            Feature<String> f = getFeature(dp);
+            push(new Datatype<>(f, Operator.EQUALS, getLiteral(l)));
+        }
+
+        public void visit(OWLDataAllValuesFrom e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLDataSomeValuesFrom e) {
-                OWLDataProperty dp = e.getProperty().asOWLDataProperty();
-                OWLDataRange range = e.getFiller();
+        public void visit(OWLDataSomeValuesFrom e) {
+            OWLDataProperty dp = e.getProperty().asOWLDataProperty();
+            OWLDataRange range = e.getFiller();
+            
+            /* 
+             * An OWLDataRange can be one of the following: 
+             * Datatype | DataIntersectionOf | DataUnionOf |
+             * DataComplementOf | DataOneOf | DatatypeRestriction
+             * 
+             * We initially support only DataOneOf.
+             */
+            if(range instanceof OWLDataOneOf) {
+                OWLDataOneOf doo = (OWLDataOneOf)range;
+                Set<OWLLiteral> values = doo.getValues();
+                if(values.size() != 1) {
+                    problems.add("Expected only a single literal in "+e);
+                    return;
+                }
+                OWLLiteral l = (OWLLiteral)values.toArray()[0];
+                OWLDatatype type = l.getDatatype();
+                checkInconsistentProperty(dp, type);
                 
-                /* 
-                 * An OWLDataRange can be one of the following: 
-                 * Datatype | DataIntersectionOf | DataUnionOf |
-                 * DataComplementOf | DataOneOf | DatatypeRestriction
-                 * 
-                 * We initially support only DataOneOf.
-                 */
-                if(range instanceof OWLDataOneOf) {
-                    OWLDataOneOf doo = (OWLDataOneOf)range;
-                    Set<OWLLiteral> values = doo.getValues();
-                    if(values.size() != 1) {
-                        problems.add("Expected only a single literal in "+e);
-                        return;
-                    }
-                    OWLLiteral l = (OWLLiteral)values.toArray()[0];
-                    OWLDatatype type = l.getDatatype();
-                    checkInconsistentProperty(dp, type);
-                    
-                    Feature<String> f = new Feature<>(dp.toStringID());
-                    push(new Datatype<>(f, Operator.EQUALS, getLiteral(l)));
-                } else if(range instanceof OWLDatatypeRestriction) {
-                    Feature<String> f = new Feature<>(dp.toStringID());
-                    
-                    OWLDatatypeRestriction dtr = (OWLDatatypeRestriction)range;
-                    Set<OWLFacetRestriction> frs = dtr.getFacetRestrictions();
-                    
-                    List<Datatype<String>> conjuncts = new ArrayList<>();
-                    for(OWLFacetRestriction fr : frs) {
-                        OWLLiteral l = fr.getFacetValue();
-                        checkInconsistentProperty(dp, l.getDatatype()); 
-                        OWLFacet facet = fr.getFacet();
-                        
-                        switch(facet) {
-                            case MAX_EXCLUSIVE:
-                                conjuncts.add(new Datatype<>(f, 
-                                        Operator.LESS_THAN, 
-                                        getLiteral(l)));
-                                break;
-                            case MAX_INCLUSIVE:
-                                conjuncts.add(new Datatype<>(f, 
-                                        Operator.LESS_THAN_EQUALS, 
-                                        getLiteral(l)));
-                                break;
-                            case MIN_EXCLUSIVE:
-                                conjuncts.add(new Datatype<>(f, 
-                                        Operator.GREATER_THAN, 
-                                        getLiteral(l)));
-                                break;
-                            case MIN_INCLUSIVE:
-                                conjuncts.add(new Datatype<>(f, 
-                                        Operator.GREATER_THAN_EQUALS, 
-                                        getLiteral(l)));
-                                break;
-                            default:
-                                throw new RuntimeException(
-                                        "Unsupported facet "+facet);  
-                        }
-                    }
+                Feature<String> f = getFeature(dp);
+                push(new Datatype<>(f, Operator.EQUALS, getLiteral(l)));
+            } else if(range instanceof OWLDatatypeRestriction) {
+                Feature<String> f = getFeature(dp);
+                
+                OWLDatatypeRestriction dtr = (OWLDatatypeRestriction)range;
+                Set<OWLFacetRestriction> frs = dtr.getFacetRestrictions();
+                
+                List<Datatype<String>> conjuncts = new ArrayList<>();
+                for(OWLFacetRestriction fr : frs) {
+                    OWLLiteral l = fr.getFacetValue();
+                    checkInconsistentProperty(dp, l.getDatatype()); 
+                    OWLFacet facet = fr.getFacet();
                     
-                    // Create conjunctions with all restrictions
-                    if(conjuncts.size() == 1) {
-                        push(conjuncts.get(0));
-                    } else {
-                        push(new Conjunction(conjuncts));
+                    switch(facet) {
+                        case MAX_EXCLUSIVE:
+                            conjuncts.add(new Datatype<>(f, 
+                                    Operator.LESS_THAN, 
+                                    getLiteral(l)));
+                            break;
+                        case MAX_INCLUSIVE:
+                            conjuncts.add(new Datatype<>(f, 
+                                    Operator.LESS_THAN_EQUALS, 
+                                    getLiteral(l)));
+                            break;
+                        case MIN_EXCLUSIVE:
+                            conjuncts.add(new Datatype<>(f, 
+                                    Operator.GREATER_THAN, 
+                                    getLiteral(l)));
+                            break;
+                        case MIN_INCLUSIVE:
+                            conjuncts.add(new Datatype<>(f, 
+                                    Operator.GREATER_THAN_EQUALS, 
+                                    getLiteral(l)));
+                            break;
+                        default:
+                            throw new RuntimeException(
+                                    "Unsupported facet "+facet);  
                     }
-                } else {
-                    throw new RuntimeException("Unsupporter OWLDataRange: "+
-                            range.getClass().getName());
                 }
-            }
-
-            public void visit(OWLObjectOneOf e) {
-                // TODO: implement to support EL profile
-                unimplemented(e);
-            }
-
-            public void visit(OWLObjectHasSelf e) {
-                // TODO: implement to support EL profile
-                
-                // There is no model object to support this.
-                
-                /*
-                 * A self-restriction ObjectHasSelf( OPE ) consists of an object
-                 * property expression OPE, and it contains all those 
-                 * individuals that are connected by OPE to themselves.
-                 */
                 
-                /*Role<String> r = new Role<>(
-                        e.getProperty().asOWLObjectProperty().toStringID());*/
-
-                unimplemented(e);
+                // Create conjunctions with all restrictions
+                if(conjuncts.size() == 1) {
+                    push(conjuncts.get(0));
+                } else {
+                    push(new Conjunction(conjuncts));
+                }
+            } else {
+                throw new RuntimeException("Unsupporter OWLDataRange: "+
+                        range.getClass().getName());
             }
+        }
 
-            public void visit(OWLObjectMaxCardinality e) {
-                unimplemented(e);
-            }
+        public void visit(OWLObjectOneOf e) {
+            // TODO: implement to support EL profile
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectExactCardinality e) {
-                unimplemented(e);
-            }
+        public void visit(OWLObjectHasSelf e) {
+            // TODO: implement to support EL profile
+            
+            // There is no model object to support this.
+            
+            /*
+             * A self-restriction ObjectHasSelf( OPE ) consists of an object
+             * property expression OPE, and it contains all those 
+             * individuals that are connected by OPE to themselves.
+             */
+            
+            /*Role<String> r = new Role<>(
+                    e.getProperty().asOWLObjectProperty().toStringID());*/
+
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectMinCardinality e) {
-                unimplemented(e);
-            }
+        public void visit(OWLObjectMaxCardinality e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectHasValue e) {
-                // TODO: implement to support EL profile
-                
-                // We do not support individuals
-                unimplemented(e);
-            }
+        public void visit(OWLObjectExactCardinality e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectAllValuesFrom e) {
-                unimplemented(e);
-            }
+        public void visit(OWLObjectMinCardinality e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectSomeValuesFrom e) {
-                Role<String> r = new Role<>(e.getProperty().asOWLObjectProperty()
-                        .toStringID());
-                e.getFiller().accept(this);
-                push(new Existential<>(r, pop()));
-            }
+        public void visit(OWLObjectHasValue e) {
+            // TODO: implement to support EL profile
+            
+            // We do not support individuals
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectComplementOf e) {
-                unimplemented(e);
-            }
+        public void visit(OWLObjectAllValuesFrom e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLObjectUnionOf e) {
-                unimplemented(e);
-            }
+        public void visit(OWLObjectSomeValuesFrom e) {
+            Role<String> r = getRole(e.getProperty());
+            e.getFiller().accept(this);
+            push(new Existential<>(r, pop()));
+        }
 
-            public void visit(OWLObjectIntersectionOf e) {
-                List<IConcept> items = new ArrayList<IConcept>();
-                
-                for (OWLClassExpression desc : e.getOperands()) {
-                    desc.accept(this);
-                    items.add(pop());
-                }
+        public void visit(OWLObjectComplementOf e) {
+            unimplemented(e);
+        }
 
-                Conjunction conj = new Conjunction(items);
-                push(conj);
-            }
+        public void visit(OWLObjectUnionOf e) {
+            unimplemented(e);
+        }
 
-            public void visit(OWLClass e) {
-                String id = e.toStringID();
-                if (("<"+THING_IRI+">").equals(id) || THING_IRI.equals(id))
-                    push(Concept.TOP);
-                else if (("<"+NOTHING_IRI+">").equals(id)
-                        || NOTHING_IRI.equals(id))
-                    push(Concept.BOTTOM);
-                else
-                    push(new Concept<>(id));
+        public void visit(OWLObjectIntersectionOf e) {
+            List<IConcept> items = new ArrayList<IConcept>();
+            
+            for (OWLClassExpression desc : e.getOperands()) {
+                desc.accept(this);
+                items.add(pop());
             }
 
-        });
-
-        if (stack.size() != 1) {
-            throw new RuntimeException("Stack size should be 1 but is "
-                    + stack.size());
+            Conjunction conj = new Conjunction(items);
+            push(conj);
         }
 
-        return stack.pop();
+        public void visit(OWLClass e) {
+            String id = e.toStringID();
+            if (("<"+THING_IRI+">").equals(id) || THING_IRI.equals(id))
+                push(Concept.TOP);
+            else if (("<"+NOTHING_IRI+">").equals(id)
+                    || NOTHING_IRI.equals(id))
+                push(Concept.BOTTOM);
+            else
+                push(getNamedConcept(id));
+        }
     }
 
     /**
@@ -822,6 +1090,9 @@ public class OWLImporter implements IImporter {
     public void clear() {
         dprAxioms.clear();
         problems.clear();
+        concepts.clear();
+        roles.clear();
+        features.clear();
     }
 
     /**
@@ -835,31 +1106,72 @@ public class OWLImporter implements IImporter {
     @Override
     public Map<String, Map<String, IOntology<String>>> getOntologyVersions(
             IProgressMonitor monitor) {
+        final Set<IAxiom> ont = new HashSet<>();
+        final Map<String, Map<String, IOntology<String>>> res = 
+                new HashMap<>();
+        importOntologyVersions(monitor, new IOntologySink() {
+            @Override
+            public void startOntology(String module, String version) {
+                Map<String, IOntology<String>> map = new HashMap<>();
+                map.put(version, new Ontology<String>(ont, null));
+                res.put(module, map);
+            }
+            
+            @Override
+            public void accept(IAxiom axiom) {
+                ont.add(axiom);
+            }
+            
+            @Override
+            public void endOntology(String module, String version) {
+                // Nothing to do
+            }
+        });
+        return res;
+    }
+    
+    /**
+     * Translates the OWL ontology, or the list of OWL axioms, into a single 
+     * version and sends its axioms to the sink. The OWL axioms are already 
+     * in memory but the translated ones are not collected.
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public void importOntologyVersions(IProgressMonitor monitor, 
+            IOntologySink sink) {
         
-        long start = System.currentTimeMillis();
+        MetricsRegistry metrics = MetricsRegistry.INSTANCE;
+        metrics.counter(RUNS).increment();
+        Timer.Context total = metrics.timer(TIME).time();
         
-        Set<IAxiom> ont = null;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+        String version = sdf.format(new Date());
+        int numOwlAxioms;
+        int numAxioms;
         String url = null;
         if(ontology != null) {
-            ont = transform(ontology, monitor);
+            numOwlAxioms = ontology.getAxiomCount();
             url = ontology.getOntologyID().toString();
+            sink.startOntology(url, version);
+            numAxioms = transform(ontology, monitor, sink);
         } else if(axioms != null) {
-            ont = transform(axioms, monitor);
+            numOwlAxioms = axioms.size();
             url = "incremental";
+            sink.startOntology(url, version);
+            numAxioms = transform(axioms, monitor, sink);
         } else {
             throw new IllegalArgumentException("No OWL ontology to transform.");
         }
+        sink.endOntology(url, version);
         
-        Ontology<String> o = new Ontology<>(ont, null);
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-        Map<String, Map<String, IOntology<String>>> res = new HashMap<>();
-        Map<String, IOntology<String>> map = new HashMap<>();
-        map.put(sdf.format(new Date()), o);
-        res.put(url, map);
-        
-        Statistics.INSTANCE.setTime("owl loading", 
-                System.currentTimeMillis() - start);
-        return res;
+        metrics.gauge(ROWS.tag("module", url).tag("version", version)).set(
+                numOwlAxioms);
+        metrics.gauge(AXIOMS.tag("module", url).tag("version", version)).set(
+                numAxioms);
+        long elapsed = total.stop();
+        // Still recorded for the callers of the deprecated Statistics
+        au.csiro.ontology.util.Statistics.INSTANCE.setTime("owl loading",
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
     }
 
 }
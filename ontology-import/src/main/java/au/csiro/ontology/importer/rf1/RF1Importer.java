@@ -1,46 +1,86 @@
 /**
  * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
- * All rights reserved. Use is subject to license terms and conditions. 
+ * All rights reserved. Use is subject to license terms and conditions.
  */
 package au.csiro.ontology.importer.rf1;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
+import au.csiro.ontology.IFactory;
 import au.csiro.ontology.IOntology;
 import au.csiro.ontology.Ontology;
-import au.csiro.ontology.axioms.ConceptInclusion;
 import au.csiro.ontology.axioms.IAxiom;
-import au.csiro.ontology.axioms.RoleInclusion;
 import au.csiro.ontology.importer.IImporter;
-import au.csiro.ontology.model.Concept;
-import au.csiro.ontology.model.Conjunction;
-import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.importer.IdType;
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.rf2.RF2LineReader;
 import au.csiro.ontology.model.IConcept;
-import au.csiro.ontology.model.Role;
+import au.csiro.ontology.model.INamedRole;
+import au.csiro.ontology.model.IRole;
 import au.csiro.ontology.util.IProgressMonitor;
+import au.csiro.ontology.util.LongIntHashMap;
+import au.csiro.ontology.util.NullProgressMonitor;
+import au.csiro.ontology.util.ProgressTracker;
 import au.csiro.ontology.util.SnomedMetadata;
-import au.csiro.ontology.util.Statistics;
+import au.csiro.ontology.util.SnomedVersionMetadata;
+import au.csiro.ontology.util.events.PhaseEvent;
+import au.csiro.ontology.util.events.PhaseEvents;
+import au.csiro.ontology.util.metrics.MetricName;
+import au.csiro.ontology.util.metrics.MetricsRegistry;
+import au.csiro.ontology.util.metrics.Timer;
 
 /**
- * Transforms the native RF1 files used in SNOMED into the internal 
- * representation. Because of the limitations of the RF1 format, this importer 
+ * Transforms the native RF1 files used in SNOMED into the internal
+ * representation. Because of the limitations of the RF1 format, this importer
  * does not handle versions.
- * 
+ *
+ * <p>
+ * The files are parsed directly from bytes with an {@link RF2LineReader} and
+ * each row is added to primitive indexes as soon as it is read, so the rows
+ * themselves are never kept in memory. Every identifier is mapped to a dense
+ * node number and relationships are stored as packed int rows, which are
+ * grouped by source and destination once both files have been read.
+ *
  * @author Alejandro Metke
- * 
+ *
  */
 public class RF1Importer implements IImporter {
 
+    /**
+     * Status of nodes that are not current concepts.
+     */
+    private static final byte NOT_CURRENT = 0;
+    private static final byte PRIMITIVE = 1;
+    private static final byte DEFINED = 2;
+
+    /**
+     * Value in {@link #roleParent} for nodes that are not roles.
+     */
+    private static final int NOT_ROLE = -2;
+
+    /**
+     * Value in {@link #roleParent} for roles without a parent role.
+     */
+    private static final int NO_PARENT = -1;
+
+    /**
+     * Number of ints used to store each relationship: source, type,
+     * destination and group.
+     */
+    private static final int REL_SIZE = 4;
+
+    private static final int INITIAL_SIZE = 1 << 16;
+
     protected final InputStream conceptsFile;
     protected final InputStream relationshipsFile;
     protected final String version;
@@ -50,442 +90,597 @@ public class RF1Importer implements IImporter {
      * SNOMED into a DL model.
      */
     protected SnomedMetadata metadata = SnomedMetadata.INSTANCE;
-    
+
     protected final List<String> problems = new ArrayList<>();
-    protected final Map<String, String> primitive = new HashMap<>();
-    protected final Map<String, Set<String>> parents = new HashMap<>();
-    protected final Map<String, Set<String>> children = new HashMap<>();
-    protected final Map<String, List<String[]>> rels = new HashMap<>();
-    protected final Map<String, Map<String, String>> roles = new HashMap<>();
+
+    /**
+     * Tracks the rows processed and checks if the import has been cancelled.
+     */
+    protected ProgressTracker progress =
+            new ProgressTracker(new NullProgressMonitor(), -1, -1);
+
+    /**
+     * Maps SNOMED identifiers to node numbers.
+     */
+    protected final LongIntHashMap index =
+            new LongIntHashMap(INITIAL_SIZE, -1);
+
+    /**
+     * The SNOMED identifier of each node.
+     */
+    protected long[] ids = new long[INITIAL_SIZE];
+
+    /**
+     * The definition status of each node.
+     */
+    protected byte[] status = new byte[INITIAL_SIZE];
+    protected int numNodes;
+
+    /**
+     * Active defining relationships, {@link #REL_SIZE} ints per row.
+     */
+    protected int[] rels = new int[INITIAL_SIZE * REL_SIZE];
+    protected int numRels;
+
+    /**
+     * The named concepts and roles of each node, created once per node.
+     */
+    private IConcept[] concepts;
+    private INamedRole<?>[] roles;
 
     /**
      * Creates a new {@link RF1Importer}.
-     * 
+     *
      * @param conceptsFile
-     * @param descriptionsFile
      * @param relationshipsFile
      * @param version The version of this ontology.
      */
-    public RF1Importer(InputStream conceptsFile, InputStream relationshipsFile, 
+    public RF1Importer(InputStream conceptsFile, InputStream relationshipsFile,
             String version) {
         this.conceptsFile = conceptsFile;
         this.relationshipsFile = relationshipsFile;
         this.version = version;
     }
-    
+
     @Override
     public Map<String, Map<String, IOntology<String>>> getOntologyVersions(
             IProgressMonitor monitor) {
-        
-        long start = System.currentTimeMillis();
-        
-        monitor.taskStarted("Loading axioms");
-        
-        Map<String, Map<String, IOntology<String>>> res = new HashMap<>();
+        return getOntologyVersions(monitor, IdType.STRING);
+    }
 
-        // Extract the version rows
-        VersionRows vr = extractVersionRows();
-        
-        // Transform the group of rows
-        String version = vr.getVersionName();
+    /**
+     * Imports the ontology with the specified type of identifiers. With
+     * {@link IdType#LONG} the concepts and roles are created straight from
+     * the numeric identifiers without going through strings.
+     *
+     * @param monitor
+     * @param idType
+     * @return
+     */
+    @SuppressWarnings("deprecation")
+    public <T extends Comparable<T>> Map<String, Map<String, IOntology<T>>> 
+            getOntologyVersions(IProgressMonitor monitor, IdType<T> idType) {
 
         // If no meta-data is available for this version then we skip it
         if (!metadata.hasVersionMetadata(version))
             return null;
 
-        Collection<IAxiom> axioms = new ArrayList<>();
+        MetricsRegistry metrics = MetricsRegistry.INSTANCE;
+        metrics.counter(new MetricName("import.runs", "importer", "rf1"))
+                .increment();
+        Timer.Context total = metrics.timer(new MetricName("import.time",
+                "importer", "rf1")).time();
+        monitor.taskStarted("Loading axioms");
+
+        final long isAId = metadata.getVersionMetadata(version).getIsAId();
+        progress = new ProgressTracker(monitor, -1, -1);
+        try {
+            readConcepts();
+            readRelationships(isAId);
+        } catch(CancellationException e) {
+            clear();
+            monitor.taskEnded();
+            throw e;
+        }
+
+        PhaseEvent event = PhaseEvents.begin("rf1", "transform");
+        event.setVersion(version);
+        progress = new ProgressTracker(monitor, numNodes, -1);
+        Collection<IAxiom> axioms;
+        try {
+            axioms = transform(isAId, idType);
+        } catch(CancellationException e) {
+            clear();
+            monitor.taskEnded();
+            throw e;
+        }
+        progress.done();
+        event.setRows(numRels / REL_SIZE);
+        event.setAxioms(axioms.size());
+        event.end();
+
+        Map<String, Map<String, IOntology<T>>> res = new HashMap<>();
+        Map<String, IOntology<T>> map = new HashMap<>();
+        map.put(version, new Ontology<T>(axioms, null));
+        res.put("snomed", map);
 
-        // Process concept rows
-        for (ConceptRow cr : vr.getConceptRows()) {
-            if (!"CONCEPTID".equals(cr.getConceptId()) && 
-                    "0".equals(cr.getConceptStatus())) {
-                primitive.put(cr.getConceptId(), cr.getIsPrimitive());
+        MetricName name = new MetricName("import.axioms", "importer", "rf1",
+                "module", "snomed", "version", version);
+        metrics.gauge(name).set(axioms.size());
+        metrics.gauge(new MetricName("import.rows", "importer", "rf1",
+                "module", "snomed", "version", version, "table",
+                "relationships")).set(numRels / REL_SIZE);
+
+        monitor.taskEnded();
+        long elapsed = total.stop();
+        // Still recorded for the callers of the deprecated Statistics
+        au.csiro.ontology.util.Statistics.INSTANCE.setTime("rf1 loading",
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return res;
+    }
+
+    /**
+     * Reads the concepts file and records the definition status of the
+     * current concepts.
+     */
+    protected void readConcepts() {
+        PhaseEvent event = PhaseEvents.begin("rf1", "readConcepts");
+        event.setVersion(version);
+        try (RF2LineReader lr = new RF2LineReader(conceptsFile)) {
+            lr.next(); // Skip header
+            long bytesRead = lr.getBytesRead();
+            while(lr.next()) {
+                progress.worked(1, lr.getBytesRead() - bytesRead);
+                bytesRead = lr.getBytesRead();
+                // 0 == conceptId
+                // 1 == conceptStatus
+                // 2 == fullySpecifiedName
+                // 3 == ctv3Id
+                // 4 == snomedId
+                // 5 == isPrimitive
+                if(lr.getFieldCount() < 6) {
+                    throw new ImportException("Concepts: Mis-formatted " +
+                            "line, expected at least 6 tab-separated " +
+                            "fields, got: " + lr.getLine());
+                }
+                if(!lr.fieldEquals(1, "0")) continue;
+
+                int node = getNode(lr.getLong(0));
+                status[node] = lr.fieldEquals(5, "0") ? DEFINED : PRIMITIVE;
             }
+            event.setRows(lr.getLineNumber() - 1);
+            event.setBytesRead(lr.getBytesRead());
+            event.end();
+        } catch (NumberFormatException e) {
+            throw new ImportException("Concepts: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ImportException("Problem while loading concepts.", e);
         }
+    }
 
-        // Process relationship rows
-        for (RelationshipRow rr : vr.getRelationshipRows()) {
+    /**
+     * Reads the relationships file and keeps the defining relationships.
+     *
+     * @param isAId
+     */
+    protected void readRelationships(long isAId) {
+        PhaseEvent event = PhaseEvents.begin("rf1", "readRelationships");
+        event.setVersion(version);
+        try (RF2LineReader lr = new RF2LineReader(relationshipsFile)) {
+            lr.next(); // Skip header
+            long bytesRead = lr.getBytesRead();
+            while(lr.next()) {
+                progress.worked(1, lr.getBytesRead() - bytesRead);
+                bytesRead = lr.getBytesRead();
+                // 0 == relationshipId
+                // 1 == conceptId1
+                // 2 == relationshipType
+                // 3 == conceptId2
+                // 4 == characteristicType
+                // 5 == refinability
+                // 6 == relationshipGroup
+                if(lr.getFieldCount() < 7) {
+                    throw new ImportException("Relationships: Mis-formatted " +
+                            "line, expected 7 tab-separated fields, got: " +
+                            lr.getLine());
+                }
+                if(!lr.fieldEquals(4, "0")) continue;
 
-            // only process active concepts and defining relationships
-            if (!"RELATIONSHIPID".equals(rr.getRelationshipId())
-                    && "0".equals(rr.getCharacteristicType())) {
-                if (metadata.getIsAId(version).equals(rr.getRelationshipType())) {
-                    populateParent(rr.getConceptId1(), rr.getConceptId2());
-                    populateChildren(rr.getConceptId2(), rr.getConceptId1());
-                } else {
-                    // Populate relationships
-                    populateRels(rr.getConceptId1(), 
-                            rr.getRelationshipType(), rr.getConceptId2(), 
-                            rr.getRelationshipGroup());
+                if(numRels == rels.length) {
+                    rels = Arrays.copyOf(rels, rels.length << 1);
                 }
+                rels[numRels++] = getNode(lr.getLong(1));
+                rels[numRels++] = getNode(lr.getLong(2));
+                rels[numRels++] = getNode(lr.getLong(3));
+                rels[numRels++] = lr.getInt(6);
             }
+            event.setRows(lr.getLineNumber() - 1);
+            event.setBytesRead(lr.getBytesRead());
+            event.end();
+        } catch (NumberFormatException e) {
+            throw new ImportException("Relationships: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ImportException(
+                    "Problem while loading relationships.", e);
         }
-        
-        Set<String> conceptModelChildren = children.get(
-                metadata.getConceptModelAttId(version));
-        if (conceptModelChildren != null)
-            populateRoles(conceptModelChildren, "");
+    }
+
+    /**
+     * Returns the node of an identifier, adding it if required.
+     *
+     * @param id
+     * @return
+     */
+    protected int getNode(long id) {
+        int node = index.get(id);
+        if(node < 0) {
+            node = numNodes++;
+            if(node == ids.length) {
+                ids = Arrays.copyOf(ids, node << 1);
+                status = Arrays.copyOf(status, node << 1);
+            }
+            ids[node] = id;
+            index.put(id, node);
+        }
+        return node;
+    }
+
+    /**
+     * Builds the axioms from the indexes.
+     *
+     * @param isAId
+     * @param idType
+     * @return
+     */
+    protected <T extends Comparable<T>> Collection<IAxiom> transform(
+            long isAId, IdType<T> idType) {
+        final int isA = getNode(isAId);
+        final IFactory<T> factory = idType.getFactory();
+        SnomedVersionMetadata md = metadata.getVersionMetadata(version);
+
+        // The targets of the right identities might not be in the release
+        // files, so their nodes are added before the arrays are sized
+        for(int r = 0, n = numNodes; r < n; r++) {
+            long rightId = md.getRightIdentity(ids[r]);
+            if(rightId != -1) {
+                getNode(rightId);
+            }
+        }
+
+        concepts = new IConcept[numNodes];
+        roles = new INamedRole[numNodes];
+        INamedRole<T> roleGroup = factory.createRole(idType.getRoleGroupId());
+
+        // Group the relationships by source and the is-a relationships by
+        // destination
+        int[] outStart = new int[numNodes + 1];
+        int[] out = groupRels(0, -1, outStart);
+        int[] inStart = new int[numNodes + 1];
+        int[] in = groupRels(2, isA, inStart);
+
+        int[] roleParent = new int[numNodes];
+        Arrays.fill(roleParent, NOT_ROLE);
+        int cma = index.get(md.getConceptModelAttId());
+        if(cma >= 0) {
+            populateRoles(cma, NO_PARENT, in, inStart, roleParent);
+        }
+
+        BitSet neverGrouped = toNodes(md.getNeverGroupedIds());
+
+        Collection<IAxiom> axioms = new ArrayList<>();
 
         // Add the role axioms
-        for (String r1 : roles.keySet()) {
-            String parentRole = roles.get(r1).get("parentrole");
+        for(int r = 0; r < numNodes; r++) {
+            if(roleParent[r] == NOT_ROLE) continue;
 
-            if (!"".equals(parentRole)) {
-                axioms.add(new RoleInclusion(
-                        new Role<String>(r1), 
-                        new Role<String>(parentRole)));
+            if(roleParent[r] != NO_PARENT) {
+                axioms.add(factory.createRoleInclusion(
+                        new IRole[] { getRole(r, idType) },
+                        getRole(roleParent[r], idType)));
             }
 
-            String rightId = roles.get(r1).get("rightID");
-            if (!"".equals(rightId)) {
-                axioms.add(new RoleInclusion(new Role[] { 
-                        new Role<String>(r1), new Role<String>(rightId) }, 
-                        new Role<String>(r1)));
+            long rightId = md.getRightIdentity(ids[r]);
+            if(rightId != -1) {
+                INamedRole<T> role = getRole(r, idType);
+                axioms.add(factory.createRoleInclusion(new IRole[] { role,
+                        getRole(index.get(rightId), idType) }, role));
             }
         }
 
         // Add concept axioms
-        for (String c1 : primitive.keySet()) {
-            if (roles.get(c1) != null)
+        int[] prs = new int[16];
+        int[] rvs = new int[16];
+        List<IConcept> conjs = new ArrayList<>();
+        List<IConcept> innerConjs = new ArrayList<>();
+        for(int c = 0; c < numNodes; c++) {
+            progress.worked(1, 0);
+            if(status[c] == NOT_CURRENT || roleParent[c] != NOT_ROLE)
                 continue;
-            Set<String> prs = parents.get(c1);
-            int numParents = (prs != null) ? prs.size() : 0;
 
-            List<String[]> relsVal = rels.get(c1);
-            int numRels = 0;
-            if (relsVal != null)
-                numRels = 1;
+            int from = outStart[c];
+            int to = outStart[c + 1];
+            if(to - from > prs.length) {
+                prs = new int[to - from];
+                rvs = new int[to - from];
+            }
+            int numParents = 0;
+            int numRvs = 0;
+            for(int i = from; i < to; i++) {
+                int row = out[i];
+                if(rels[row + 1] == isA) {
+                    prs[numParents++] = rels[row + 2];
+                } else {
+                    rvs[numRvs++] = row;
+                }
+            }
 
-            int numElems = numParents + numRels;
+            // Parents are a set
+            Arrays.sort(prs, 0, numParents);
+            int numDistinct = 0;
+            for(int i = 0; i < numParents; i++) {
+                if(i == 0 || prs[i] != prs[i - 1]) {
+                    prs[numDistinct++] = prs[i];
+                }
+            }
+            numParents = numDistinct;
+
+            int numElems = numParents + (numRvs > 0 ? 1 : 0);
 
             if (numElems == 0) {
                 // do nothing
-            } else if (numElems == 1 && (prs != null && !prs.isEmpty())) {
-                axioms.add(new ConceptInclusion(new Concept<String>(c1), 
-                        new Concept<String>(prs.iterator().next())));
+            } else if (numElems == 1 && numParents > 0) {
+                axioms.add(factory.createConceptInclusion(
+                        getConcept(c, idType), getConcept(prs[0], idType)));
             } else {
-                List<IConcept> conjs = new ArrayList<>();
-                
-                if(prs != null) {
-                    for (String pr : prs) {
-                        conjs.add(new Concept<String>(pr));
-                    }
+                conjs.clear();
+                for(int i = 0; i < numParents; i++) {
+                    conjs.add(getConcept(prs[i], idType));
                 }
 
-                if (relsVal != null) {
-                    for (Set<RoleValuePair> rvs : groupRoles(relsVal)) {
-                        if (rvs.size() > 1) {
-                            List<IConcept> innerConjs = new ArrayList<>();
-                            for (RoleValuePair rv : rvs) {
-                                Role<String> role = new Role<>(rv.role);
-                                Concept<String> filler = new Concept<>(
-                                        rv.value);
-                                Existential<String> exis = 
-                                        new Existential<>(role, filler);
-                                innerConjs.add(exis);
-                            }
-                            // Wrap with a role group
-                            conjs.add(new Existential<String>(
-                                    new Role<String>("RoleGroup"), 
-                                    new Conjunction(innerConjs)));
+                sortByGroup(rvs, numRvs);
+                int i = 0;
+                while(i < numRvs) {
+                    int group = rels[rvs[i] + 3];
+                    int j = i + 1;
+                    if(group != 0) {
+                        while(j < numRvs && rels[rvs[j] + 3] == group) j++;
+                    }
+
+                    if(countDistinct(rvs, i, j) > 1) {
+                        innerConjs.clear();
+                        for(int k = i; k < j; k++) {
+                            innerConjs.add(getExistential(rvs[k], idType));
+                        }
+                        // Wrap with a role group
+                        conjs.add(factory.createExistential(roleGroup,
+                                factory.createConjunction(innerConjs.toArray(
+                                        new IConcept[innerConjs.size()]))));
+                    } else {
+                        IConcept exis = getExistential(rvs[i], idType);
+                        if(neverGrouped.get(rels[rvs[i] + 1])) {
+                            // Does not need a role group
+                            conjs.add(exis);
                         } else {
-                            RoleValuePair first = rvs.iterator().next();
-                            Role<String> role = new Role<>(first.role);
-                            Concept<String> filler = new Concept<>(first.value);
-                            Existential<String> exis = new Existential<>(role, 
-                                    filler);
-                            if (metadata.getNeverGroupedIds(
-                                    version).contains(first.role)) {
-                                // Does not need a role group
-                                conjs.add(exis);
-                            } else {
-                                // Needs a role group
-                                conjs.add(new Existential<>(
-                                        new Role<>("RoleGroup"), exis));
-                            }
+                            // Needs a role group
+                            conjs.add(factory.createExistential(roleGroup,
+                                    exis));
                         }
                     }
+                    i = j;
                 }
 
-                axioms.add(new ConceptInclusion(new Concept<>(c1), 
-                        new Conjunction(conjs)));
+                IConcept conj = factory.createConjunction(
+                        conjs.toArray(new IConcept[conjs.size()]));
+                axioms.add(factory.createConceptInclusion(
+                        getConcept(c, idType), conj));
 
-                if (primitive.get(c1).equals("0")) {
-                    axioms.add(new ConceptInclusion(new Conjunction(conjs),
-                            new Concept<>(c1)));
+                if (status[c] == DEFINED) {
+                    axioms.add(factory.createConceptInclusion(conj,
+                            getConcept(c, idType)));
                 }
             }
         }
-        
-        Map<String, IOntology<String>> map = new HashMap<>();
-        map.put(vr.getVersionName(), new Ontology<String>(axioms, null));
-        res.put("snomed", map);
-        
-        Statistics.INSTANCE.setTime("rf1 loading", 
-                System.currentTimeMillis() - start);
-        return res;
+
+        return axioms;
     }
 
-    protected void populateParent(String src, String tgt) {
-        Set<String> prs = parents.get(src);
-        if (prs == null) {
-            prs = new TreeSet<>();
-            parents.put(src, prs);
+    /**
+     * Groups the relationship rows by one of their columns using a counting
+     * sort. Returns the offsets of the rows and fills <code>start</code> with
+     * the position of the first row of each node.
+     *
+     * @param column The column to group by.
+     * @param type Only rows of this type are included, or all of them if it
+     * is negative.
+     * @param start
+     * @return
+     */
+    private int[] groupRels(int column, int type, int[] start) {
+        for(int row = 0; row < numRels; row += REL_SIZE) {
+            if(type < 0 || rels[row + 1] == type) {
+                start[rels[row + column] + 1]++;
+            }
+        }
+        for(int i = 0; i < numNodes; i++) {
+            start[i + 1] += start[i];
         }
-        prs.add(tgt);
+        int[] res = new int[start[numNodes]];
+        int[] pos = Arrays.copyOf(start, numNodes);
+        for(int row = 0; row < numRels; row += REL_SIZE) {
+            if(type < 0 || rels[row + 1] == type) {
+                res[pos[rels[row + column]]++] = row;
+            }
+        }
+        return res;
     }
 
-    protected void populateChildren(String src, String tgt) {
-        Set<String> prs = children.get(src);
-        if (prs == null) {
-            prs = new TreeSet<>();
-            children.put(src, prs);
+    /**
+     * Records the parent of every role that descends from a node. Children
+     * are visited in the same order as their identifiers in text form.
+     *
+     * @param node
+     * @param parentRole
+     * @param in
+     * @param inStart
+     * @param roleParent
+     */
+    private void populateRoles(int node, int parentRole, int[] in,
+            int[] inStart, int[] roleParent) {
+        int from = inStart[node];
+        int to = inStart[node + 1];
+        String[] cs = new String[to - from];
+        for(int i = from; i < to; i++) {
+            cs[i - from] = Long.toString(ids[rels[in[i]]]);
+        }
+        Arrays.sort(cs);
+        for(int i = 0; i < cs.length; i++) {
+            if(i > 0 && cs[i].equals(cs[i - 1])) continue;
+            int role = index.get(Long.parseLong(cs[i]));
+            populateRoles(role, role, in, inStart, roleParent);
+            roleParent[role] = parentRole;
         }
-        prs.add(tgt);
     }
 
-    protected void populateRels(String src, String role, String tgt, String group) {
-        List<String[]> val = rels.get(src);
-        if (val == null) {
-            val = new ArrayList<>();
-            rels.put(src, val);
+    private BitSet toNodes(long[] ids) {
+        BitSet res = new BitSet(numNodes);
+        for(long id : ids) {
+            int node = index.get(id);
+            if(node >= 0) res.set(node);
         }
-        val.add(new String[] { role, tgt, group });
+        return res;
     }
 
-    protected void populateRoles(Set<String> roles, String parentSCTID) {
-        for (String role : roles) {
-            Set<String> cs = children.get(role);
-            if (cs != null) {
-                populateRoles(cs, role);
-            }
-            String ri = metadata.getRightIdentities(version).get(role);
-            if (ri != null) {
-                populateRoleDef(role, ri, parentSCTID);
-            } else {
-                populateRoleDef(role, "", parentSCTID);
+    /**
+     * Sorts relationship rows by group using an insertion sort, since
+     * concepts only have a few relationships.
+     */
+    private void sortByGroup(int[] rows, int len) {
+        for(int i = 1; i < len; i++) {
+            int row = rows[i];
+            int group = rels[row + 3];
+            int j = i - 1;
+            while(j >= 0 && rels[rows[j] + 3] > group) {
+                rows[j + 1] = rows[j];
+                j--;
             }
+            rows[j + 1] = row;
         }
     }
 
-    protected void populateRoleDef(String code, String rightId, String parentRole) {
-        Map<String, String> vals = roles.get(code);
-        if (vals == null) {
-            vals = new HashMap<>();
-            roles.put(code, vals);
+    /**
+     * Counts the distinct role-value pairs in a range of relationship rows.
+     */
+    private int countDistinct(int[] rows, int from, int to) {
+        int res = 0;
+        for(int i = from; i < to; i++) {
+            boolean seen = false;
+            for(int j = from; j < i && !seen; j++) {
+                seen = rels[rows[i] + 1] == rels[rows[j] + 1] &&
+                        rels[rows[i] + 2] == rels[rows[j] + 2];
+            }
+            if(!seen) res++;
         }
-        vals.put("rightID", rightId);
-        vals.put("parentrole", parentRole);
+        return res;
     }
 
-    protected Set<Set<RoleValuePair>> groupRoles(List<String[]> groups) {
-        Map<String, Set<RoleValuePair>> roleGroups = new HashMap<>();
+    private <T extends Comparable<T>> IConcept getExistential(int row,
+            IdType<T> idType) {
+        return idType.getFactory().createExistential(
+                getRole(rels[row + 1], idType),
+                getConcept(rels[row + 2], idType));
+    }
 
-        for (String[] group : groups) {
-            String roleGroup = group[2];
-            Set<RoleValuePair> lrvp = roleGroups.get(roleGroup);
-            if (lrvp == null) {
-                lrvp = new HashSet<>();
-                roleGroups.put(group[2], lrvp);
-            }
-            lrvp.add(new RoleValuePair(group[0], group[1]));
+    private IConcept getConcept(int node, IdType<?> idType) {
+        IConcept c = concepts[node];
+        if(c == null) {
+            c = createConcept(ids[node], idType);
+            concepts[node] = c;
         }
+        return c;
+    }
 
-        Set<Set<RoleValuePair>> res = new HashSet<>();
-        for (String roleGroup : roleGroups.keySet()) {
-            Set<RoleValuePair> val = roleGroups.get(roleGroup);
+    private static <T extends Comparable<T>> IConcept createConcept(long id,
+            IdType<T> idType) {
+        return idType.getFactory().createConcept(idType.valueOf(id));
+    }
 
-            // 0 indicates not grouped
-            if ("0".equals(roleGroup)) {
-                for (RoleValuePair rvp : val) {
-                    Set<RoleValuePair> sin = new HashSet<>();
-                    sin.add(rvp);
-                    res.add(sin);
-                }
-            } else {
-                Set<RoleValuePair> item = new HashSet<>();
-                for (RoleValuePair trvp : val) {
-                    item.add(trvp);
-                }
-                res.add(item);
-            }
+    @SuppressWarnings("unchecked")
+    private <T extends Comparable<T>> INamedRole<T> getRole(int node,
+            IdType<T> idType) {
+        if(node >= roles.length) {
+            // Right identities may add nodes after the caches are created
+            concepts = Arrays.copyOf(concepts, numNodes);
+            roles = Arrays.copyOf(roles, numNodes);
         }
-        return res;
+        INamedRole<T> r = (INamedRole<T>) roles[node];
+        if(r == null) {
+            r = idType.getFactory().createRole(idType.valueOf(ids[node]));
+            roles[node] = r;
+        }
+        return r;
     }
 
     public void clear() {
         problems.clear();
-        primitive.clear();
-        parents.clear();
-        children.clear();
-        rels.clear();
-        roles.clear();
+        index.clear();
+        numNodes = 0;
+        numRels = 0;
+        Arrays.fill(status, NOT_CURRENT);
+        concepts = null;
+        roles = null;
     }
-    
+
     @Override
     public List<String> getProblems() {
         return problems;
     }
 
-    protected class RoleValuePair {
-        String role;
-        String value;
-
-        RoleValuePair(String role, String value) {
-            this.role = role;
-            this.value = value;
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getOuterType().hashCode();
-            result = prime * result + ((role == null) ? 0 : role.hashCode());
-            result = prime * result + ((value == null) ? 0 : value.hashCode());
-            return result;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            RoleValuePair other = (RoleValuePair) obj;
-            if (!getOuterType().equals(other.getOuterType()))
-                return false;
-            if (role == null) {
-                if (other.role != null)
-                    return false;
-            } else if (!role.equals(other.role))
-                return false;
-            if (value == null) {
-                if (other.value != null)
-                    return false;
-            } else if (!value.equals(other.value))
-                return false;
-            return true;
-        }
-
-        private RF1Importer getOuterType() {
-            return RF1Importer.this;
-        }
-    }
-
     public boolean usesConcreteDomains() {
         return false;
     }
-    
+
     /**
-     * Processes the raw RF1 files and generates a {@link VersionRows}.
+     * Processes the raw RF1 files and generates a {@link VersionRows}. This
+     * materialises every row and consumes the input streams, so it is not
+     * used by {@link #getOntologyVersions(IProgressMonitor)}.
      */
-    @SuppressWarnings("resource")
     public VersionRows extractVersionRows() {
-        // Read all the concepts from the raw data
-        List<ConceptRow> crs = new ArrayList<>();
-        
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(conceptsFile))) {
-            String line = br.readLine(); // Skip first line
-
-            while (null != (line = br.readLine())) {
-                line = new String(line.getBytes(), "UTF8");
-                if (line.trim().length() < 1) {
-                    continue;
-                }
-                int idx1 = line.indexOf('\t');
-                int idx2 = line.indexOf('\t', idx1 + 1);
-                int idx3 = line.indexOf('\t', idx2 + 1);
-                int idx4 = line.indexOf('\t', idx3 + 1);
-                int idx5 = line.indexOf('\t', idx4 + 1);
-
-                // 0..idx1 == conceptId
-                // idx1+1..idx2 == conceptStatus
-                // idx2+1..idx3 == fullySpecifiedName
-                // idx3+1..idx4 == ctv3Id
-                // idx4+1..idx5 == snomedId
-                // idx5+1..end == isPrimitive
-
-                if (idx1 < 0 || idx2 < 0 || idx3 < 0 || idx4 < 0 || idx5 < 0) {
-                    br.close();
-                    throw new RuntimeException(
-                            "Concepts: Mis-formatted "
-                                    + "line, expected at least 6 tab-separated fields, "
-                                    + "got: " + line);
-                }
-
-                final String conceptId = line.substring(0, idx1);
-                final String conceptStatus = line.substring(idx1 + 1, idx2);
-                final String fullySpecifiedName = line.substring(idx2 + 1, idx3);
-                final String ctv3Id = line.substring(idx3 + 1, idx4);
-                final String snomedId = line.substring(idx4 + 1, idx5);
-                final String isPrimitive = line.substring(idx5 + 1);
+        VersionRows vr = new VersionRows(version);
 
-                crs.add(new ConceptRow(conceptId, conceptStatus, 
-                        fullySpecifiedName, ctv3Id, snomedId, isPrimitive));
+        try (RF2LineReader lr = new RF2LineReader(conceptsFile)) {
+            lr.next(); // Skip header
+            while(lr.next()) {
+                if(lr.getFieldCount() < 6) {
+                    throw new ImportException("Concepts: Mis-formatted " +
+                            "line, expected at least 6 tab-separated " +
+                            "fields, got: " + lr.getLine());
+                }
+                vr.getConceptRows().add(new ConceptRow(lr.getString(0),
+                        lr.getString(1), lr.getString(2), lr.getString(3),
+                        lr.getString(4), lr.getString(5)));
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new ImportException("Problem while loading concepts.", e);
         }
 
-        // Read all the relationships from the raw data
-        List<RelationshipRow> rrs = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(relationshipsFile))) {
-            String line = br.readLine(); // Skip first line
-            while (null != (line = br.readLine())) {
-                if (line.trim().length() < 1) {
-                    continue;
+        try (RF2LineReader lr = new RF2LineReader(relationshipsFile)) {
+            lr.next(); // Skip header
+            while(lr.next()) {
+                if(lr.getFieldCount() < 7) {
+                    throw new ImportException("Relationships: Mis-formatted " +
+                            "line, expected 7 tab-separated fields, got: " +
+                            lr.getLine());
                 }
-                int idx1 = line.indexOf('\t');
-                int idx2 = line.indexOf('\t', idx1 + 1);
-                int idx3 = line.indexOf('\t', idx2 + 1);
-                int idx4 = line.indexOf('\t', idx3 + 1);
-                int idx5 = line.indexOf('\t', idx4 + 1);
-                int idx6 = line.indexOf('\t', idx5 + 1);
-
-                // 0..idx1 == relationshipId
-                // idx1+1..idx2 == conceptId1
-                // idx2+1..idx3 == relationshipType
-                // idx3+1..idx4 == conceptId2
-                // idx4+1..idx5 == characteristicType
-                // idx5+1..idx6 == refinability
-                // idx6+1..end == relationshipGroup
-
-                if (idx1 < 0 || idx2 < 0 || idx3 < 0 || idx4 < 0 || idx5 < 0
-                        || idx6 < 0) {
-                    br.close();
-                    throw new RuntimeException("Concepts: Mis-formatted "
-                            + "line, expected 7 tab-separated fields, "
-                            + "got: " + line);
-                }
-
-                final String relationshipId = line.substring(0, idx1);
-                final String conceptId1 = line.substring(idx1 + 1, idx2);
-                final String relationshipType = line.substring(idx2 + 1, idx3);
-                final String conceptId2 = line.substring(idx3 + 1, idx4);
-                final String characteristicType = line.substring(idx4 + 1, idx5);
-                final String refinability = line.substring(idx5 + 1, idx6);
-                final String relationshipGroup = line.substring(idx6 + 1);
-
-                rrs.add(new RelationshipRow(relationshipId, conceptId1, 
-                        relationshipType, conceptId2, characteristicType, 
-                        refinability, relationshipGroup));
+                vr.getRelationshipRows().add(new RelationshipRow(
+                        lr.getString(0), lr.getString(1), lr.getString(2),
+                        lr.getString(3), lr.getString(4), lr.getString(5),
+                        lr.getString(6)));
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new ImportException(
+                    "Problem while loading relationships.", e);
         }
 
-        // In this case we know we are dealing with a single version so we need
-        // to generate a single version row
-        
-        VersionRows vr = new VersionRows(version);
-        vr.getConceptRows().addAll(crs);
-        vr.getRelationshipRows().addAll(rrs);
-
         return vr;
     }
 
@@ -0,0 +1,235 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The rows of a bundle, i.e. a module and all its dependencies. Instead of
+ * copying the rows of every module, a bundle is a read-only view over the
+ * {@link VersionRows} of its modules, which are shared by all the bundles that
+ * include them. Filtering a bundle with {@link #retainRows(BitSet, BitSet)}
+ * only records the positions of the rows that are kept, so the rows are still
+ * not copied.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class BundleRows extends VersionRows {
+
+    /**
+     * The rows of the modules in this bundle.
+     */
+    protected final List<VersionRows> parts = new ArrayList<>();
+
+    /**
+     * The positions of the concept rows that are kept, or null if the bundle
+     * has not been filtered.
+     */
+    protected BitSet retainedConcepts;
+
+    /**
+     * The positions of the relationship rows that are kept, or null if the
+     * bundle has not been filtered.
+     */
+    protected BitSet retainedRelationships;
+
+    /**
+     * Builds a new empty bundle.
+     */
+    public BundleRows() {
+
+    }
+
+    /**
+     * @return the rows of the modules in this bundle
+     */
+    public List<VersionRows> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    @Override
+    public List<ConceptRow> getConceptRows() {
+        return new ConcatList<ConceptRow>(retainedConcepts) {
+            @Override
+            protected List<ConceptRow> getList(VersionRows vr) {
+                return vr.getConceptRows();
+            }
+        };
+    }
+
+    @Override
+    public List<RelationshipRow> getRelationshipRows() {
+        return new ConcatList<RelationshipRow>(retainedRelationships) {
+            @Override
+            protected List<RelationshipRow> getList(VersionRows vr) {
+                return vr.getRelationshipRows();
+            }
+        };
+    }
+
+    /**
+     * Adds the rows of a module to this bundle without copying them.
+     *
+     * @param other
+     * @throws IllegalStateException If the bundle has already been filtered.
+     */
+    @Override
+    public void merge(VersionRows other) {
+        if(retainedConcepts != null) {
+            throw new IllegalStateException("The bundle has been filtered");
+        }
+        parts.add(other);
+    }
+
+    /**
+     * Keeps only the rows at the specified positions. The rows of the modules
+     * are not modified.
+     *
+     * @param concepts
+     * @param relationships
+     */
+    @Override
+    public void retainRows(BitSet concepts, BitSet relationships) {
+        if(retainedConcepts != null) {
+            // Positions are relative to the rows that are currently kept
+            concepts = compose(retainedConcepts, concepts);
+            relationships = compose(retainedRelationships, relationships);
+        }
+        retainedConcepts = concepts;
+        retainedRelationships = relationships;
+    }
+
+    /**
+     * Returns the positions in the parts of the rows selected by a filter
+     * over the rows already kept.
+     */
+    private static BitSet compose(BitSet retained, BitSet filter) {
+        BitSet res = new BitSet();
+        int pos = 0;
+        for(int i = retained.nextSetBit(0); i >= 0;
+                i = retained.nextSetBit(i + 1)) {
+            if(filter.get(pos++)) {
+                res.set(i);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Read-only concatenation of the lists of the parts. If a filter is set
+     * only the rows at the positions in the filter are included and random
+     * access takes linear time.
+     */
+    private abstract class ConcatList<T> extends AbstractList<T> {
+
+        private final BitSet filter;
+
+        ConcatList(BitSet filter) {
+            this.filter = filter;
+        }
+
+        protected abstract List<T> getList(VersionRows vr);
+
+        @Override
+        public T get(int index) {
+            if(index < 0) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            int i = index;
+            if(filter != null) {
+                i = filter.nextSetBit(0);
+                for(int j = 0; j < index && i >= 0; j++) {
+                    i = filter.nextSetBit(i + 1);
+                }
+                if(i < 0) {
+                    throw new IndexOutOfBoundsException(
+                            String.valueOf(index));
+                }
+            }
+            for(VersionRows vr : parts) {
+                List<T> l = getList(vr);
+                if(i < l.size()) {
+                    return l.get(i);
+                }
+                i -= l.size();
+            }
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        @Override
+        public int size() {
+            if(filter != null) {
+                return filter.cardinality();
+            }
+            int res = 0;
+            for(VersionRows vr : parts) {
+                res += getList(vr).size();
+            }
+            return res;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int part = 0;
+                private Iterator<T> it = Collections.<T>emptyList().iterator();
+
+                /**
+                 * Position of the next row of it.
+                 */
+                private int pos = 0;
+
+                /**
+                 * Position of the next row to return.
+                 */
+                private int next = (filter != null) ? filter.nextSetBit(0) : 0;
+
+                @Override
+                public boolean hasNext() {
+                    if(next < 0) {
+                        return false;
+                    }
+                    while(true) {
+                        while(!it.hasNext()) {
+                            if(part == parts.size()) {
+                                return false;
+                            }
+                            it = getList(parts.get(part++)).iterator();
+                        }
+                        if(pos == next) {
+                            return true;
+                        }
+                        it.next();
+                        pos++;
+                    }
+                }
+
+                @Override
+                public T next() {
+                    if(!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    pos++;
+                    next = (filter != null) ? filter.nextSetBit(next + 1) :
+                        next + 1;
+                    return it.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+}
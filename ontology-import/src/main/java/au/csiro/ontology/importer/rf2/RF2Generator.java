@@ -0,0 +1,928 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import javax.xml.bind.JAXBException;
+
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.input.Input.InputType;
+import au.csiro.ontology.importer.input.Inputs;
+import au.csiro.ontology.importer.input.Inputs.ReleaseType;
+import au.csiro.ontology.importer.input.ModuleInfo;
+import au.csiro.ontology.importer.input.RF2Input;
+import au.csiro.ontology.importer.input.Version;
+import au.csiro.ontology.importer.rf2.RF2Writer.Output;
+
+/**
+ * Generates synthetic RF2 releases with the shape of SNOMED CT, to load test
+ * the importers without the licensed release files. The same seed and
+ * settings always produce the same files.
+ *
+ * <p>
+ * A release has a model module with the root, the metadata concepts and the
+ * attributes, a core module and optionally several extension modules that
+ * depend on the core. The concepts of each module form a hierarchy built
+ * breadth first with the configured fan-out, up to the configured depth;
+ * some concepts have a second parent. Each concept also has a number of role
+ * groups drawn from the configured distribution. The first version contains
+ * most of the concepts and every later version adds new concepts, changes
+ * the definition status of some and replaces some of their attributes.
+ *
+ * <p>
+ * {@link #generate(File)} writes full and snapshot concept, stated
+ * relationship and module dependency files and the matching {@link Inputs}
+ * configuration. Rows are streamed to the files, so releases with millions
+ * of concepts only need a few arrays of memory.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class RF2Generator {
+
+    public static final String MODEL_MODULE = "900000000000012004";
+    public static final String CORE_MODULE = "900000000000207008";
+
+    private static final long ROOT = 138875005L;
+    private static final long MODEL_COMPONENT = 900000000000441003L;
+    private static final long ATTRIBUTE = 246061005L;
+    private static final long CONCEPT_MODEL_ATT = 410662002L;
+    private static final long IS_A = 116680003L;
+    private static final long PRIMITIVE = 900000000000074008L;
+    private static final long DEFINED = 900000000000073002L;
+    private static final long STATED = 900000000000010007L;
+    private static final long SOME = 900000000000451002L;
+    private static final long MODULE_DEPENDENCY_REFSET = 900000000000534007L;
+
+    /**
+     * Attributes that are never grouped.
+     */
+    private static final long[] UNGROUPED_ROLES = { 123005000L, 127489000L,
+        272741003L, 411116001L };
+
+    /**
+     * Attributes used in role groups.
+     */
+    private static final long[] GROUPED_ROLES = { 363698007L, 116676008L,
+        246075003L, 363704007L, 260686004L, 405815000L, 47429007L, 42752001L,
+        255234002L, 363701004L, 246454002L, 263502005L };
+
+    /**
+     * Attributes that are not direct children of the concept model attribute,
+     * with their parents.
+     */
+    private static final long[][] SUB_ROLES = { { 42752001L, 47429007L },
+        { 255234002L, 47429007L } };
+
+    private static final long[] METADATA = { PRIMITIVE, DEFINED, STATED, SOME,
+        MODULE_DEPENDENCY_REFSET, Long.parseLong(MODEL_MODULE),
+        Long.parseLong(CORE_MODULE) };
+
+    private static final byte[] MODULE_DEPENDENCY_HEADER = RF2Writer.ascii(
+            "id\teffectiveTime\tactive\tmoduleId\trefsetId\t" +
+            "referencedComponentId\tsourceEffectiveTime\ttargetEffectiveTime");
+
+    /**
+     * Fraction of the concepts of each module in the first version.
+     */
+    private static final double FIRST_VERSION_RATIO = 0.8;
+
+    /**
+     * Probability that a concept has an ungrouped attribute.
+     */
+    private static final double UNGROUPED_RATIO = 0.1;
+
+    /**
+     * Probability that a concept with attributes is fully defined.
+     */
+    private static final double DEFINED_RATIO = 0.3;
+
+    private static final int MAX_TRIES = 8;
+
+    private final long seed;
+
+    private int concepts = 10000;
+    private int depth = 12;
+    private double fanOut = 6;
+    private double multipleParentRatio = 0.25;
+    private double[] groupDistribution = { 0.3, 0.4, 0.2, 0.1 };
+    private double[] groupSizeDistribution = { 0.6, 0.3, 0.1 };
+    private int versions = 1;
+    private int extensionModules = 0;
+    private double extensionRatio = 0.1;
+    private double changeRate = 0.02;
+
+    // State of a generation run
+    private Random rnd;
+    private long[] ids;
+    private byte[] depths;
+    private byte[] conceptVersions;
+    private int[] moduleStart;
+    private String[] moduleIds;
+    private byte[][] effectiveTimeBytes;
+    private long[] relItems;
+    private int bfsParent;
+    private int bfsQuota;
+
+    private Output fullConcepts;
+    private Output snapshotConcepts;
+    private Output fullRels;
+    private Output snapshotRels;
+
+    /**
+     * Creates a new generator.
+     *
+     * @param seed
+     */
+    public RF2Generator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of concepts in the core and extension modules,
+     * excluding the model module. The default is 10,000.
+     *
+     * @param concepts
+     */
+    public void setConcepts(int concepts) {
+        if(concepts < 1) {
+            throw new IllegalArgumentException("Invalid number of concepts "+
+                    concepts);
+        }
+        this.concepts = concepts;
+    }
+
+    /**
+     * Sets the maximum depth of the hierarchy. The default is 12.
+     *
+     * @param depth
+     */
+    public void setDepth(int depth) {
+        if(depth < 1 || depth > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid depth "+depth);
+        }
+        this.depth = depth;
+    }
+
+    /**
+     * Sets the mean number of children of a concept above the maximum depth.
+     * The default is 6.
+     *
+     * @param fanOut
+     */
+    public void setFanOut(double fanOut) {
+        if(fanOut <= 0) {
+            throw new IllegalArgumentException("Invalid fan-out "+fanOut);
+        }
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Sets the probability that a concept has a second parent. The default is
+     * 0.25.
+     *
+     * @param multipleParentRatio
+     */
+    public void setMultipleParentRatio(double multipleParentRatio) {
+        this.multipleParentRatio = multipleParentRatio;
+    }
+
+    /**
+     * Sets the probabilities of a concept having 0, 1, 2... role groups. The
+     * default is { 0.3, 0.4, 0.2, 0.1 }.
+     *
+     * @param groupDistribution
+     */
+    public void setGroupDistribution(double[] groupDistribution) {
+        this.groupDistribution = checkDistribution(groupDistribution);
+    }
+
+    /**
+     * Sets the probabilities of a role group having 1, 2, 3... attributes.
+     * The default is { 0.6, 0.3, 0.1 }.
+     *
+     * @param groupSizeDistribution
+     */
+    public void setGroupSizeDistribution(double[] groupSizeDistribution) {
+        this.groupSizeDistribution = checkDistribution(groupSizeDistribution);
+    }
+
+    /**
+     * Sets the number of versions, released every six months from 20020131.
+     * The default is 1.
+     *
+     * @param versions
+     */
+    public void setVersions(int versions) {
+        if(versions < 1 || versions > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid number of versions "+
+                    versions);
+        }
+        this.versions = versions;
+    }
+
+    /**
+     * Sets the number of extension modules. The default is 0.
+     *
+     * @param extensionModules
+     */
+    public void setExtensionModules(int extensionModules) {
+        if(extensionModules < 0) {
+            throw new IllegalArgumentException("Invalid number of extension " +
+                    "modules "+extensionModules);
+        }
+        this.extensionModules = extensionModules;
+    }
+
+    /**
+     * Sets the fraction of the concepts that belong to extension modules, if
+     * there are any. The default is 0.1.
+     *
+     * @param extensionRatio
+     */
+    public void setExtensionRatio(double extensionRatio) {
+        this.extensionRatio = extensionRatio;
+    }
+
+    /**
+     * Sets the probability that a concept or an attribute changes in each
+     * version after the one it was added in. The default is 0.02.
+     *
+     * @param changeRate
+     */
+    public void setChangeRate(double changeRate) {
+        this.changeRate = changeRate;
+    }
+
+    /**
+     * Returns the effective times of the versions.
+     *
+     * @return
+     */
+    public List<String> getVersionIds() {
+        List<String> res = new ArrayList<>();
+        for(int v = 0; v < versions; v++) {
+            res.add(effectiveTime(v));
+        }
+        return res;
+    }
+
+    /**
+     * Returns the ids of the core and extension modules.
+     *
+     * @return
+     */
+    public List<String> getModuleIds() {
+        List<String> res = new ArrayList<>();
+        res.add(CORE_MODULE);
+        for(int m = 0; m < extensionModules; m++) {
+            res.add(String.valueOf(sctid(1, namespace(m), "10")));
+        }
+        return res;
+    }
+
+    /**
+     * Writes a release to a directory. The full files are written to the
+     * Full subdirectory and the snapshot files to the Snapshot subdirectory.
+     * The configurations returned by {@link #getInputs(File, ReleaseType)}
+     * are saved as config-full.xml and config-snapshot.xml.
+     *
+     * @param dir
+     * @return The configuration to import the full release.
+     */
+    public Inputs generate(File dir) {
+        File full = new File(dir, "Full");
+        File snapshot = new File(dir, "Snapshot");
+        full.mkdirs();
+        snapshot.mkdirs();
+        String suffix = "_INT_"+effectiveTime(versions - 1)+".txt";
+        try (FileChannel fcc = RF2Writer.open(new File(full,
+                    "sct2_Concept_Full"+suffix));
+                FileChannel scc = RF2Writer.open(new File(snapshot,
+                    "sct2_Concept_Snapshot"+suffix));
+                FileChannel frc = RF2Writer.open(new File(full,
+                    "sct2_StatedRelationship_Full"+suffix));
+                FileChannel src = RF2Writer.open(new File(snapshot,
+                    "sct2_StatedRelationship_Snapshot"+suffix));
+                FileChannel fmc = RF2Writer.open(new File(full,
+                    "der2_ssRefset_ModuleDependencyFull"+suffix));
+                FileChannel smc = RF2Writer.open(new File(snapshot,
+                    "der2_ssRefset_ModuleDependencySnapshot"+suffix))) {
+            try (Output fco = new Output(fcc); Output sco = new Output(scc);
+                    Output fro = new Output(frc); Output sro = new Output(src)) {
+                fullConcepts = fco;
+                snapshotConcepts = sco;
+                fullRels = fro;
+                snapshotRels = sro;
+                writeComponents();
+            } finally {
+                fullConcepts = null;
+                snapshotConcepts = null;
+                fullRels = null;
+                snapshotRels = null;
+                ids = null;
+                depths = null;
+                conceptVersions = null;
+            }
+            try (Output fmo = new Output(fmc); Output smo = new Output(smc)) {
+                writeModuleDependencies(fmo, smo);
+            }
+        } catch (IOException e) {
+            throw new ImportException("Problem writing RF2 release to "+dir, e);
+        }
+
+        Inputs res = getInputs(dir, ReleaseType.FULL);
+        save(res, new File(dir, "config-full.xml"));
+        save(getInputs(dir, ReleaseType.SNAPSHOT),
+                new File(dir, "config-snapshot.xml"));
+        return res;
+    }
+
+    /**
+     * Returns the configuration to import a release written by
+     * {@link #generate(File)}. The full configuration loads every version of
+     * the core and extension modules and the snapshot configuration loads the
+     * last version.
+     *
+     * @param dir
+     * @param releaseType FULL or SNAPSHOT.
+     * @return
+     */
+    public Inputs getInputs(File dir, ReleaseType releaseType) {
+        String type;
+        if(ReleaseType.FULL.equals(releaseType)) {
+            type = "Full";
+        } else if(ReleaseType.SNAPSHOT.equals(releaseType)) {
+            type = "Snapshot";
+        } else {
+            throw new IllegalArgumentException("Unsupported release type "+
+                    releaseType);
+        }
+        File base = new File(dir, type);
+        String suffix = "_INT_"+effectiveTime(versions - 1)+".txt";
+
+        RF2Input in = new RF2Input();
+        in.setInputType(InputType.EXTERNAL);
+        in.setReleaseType(releaseType);
+        in.setConceptsFile(new File(base, "sct2_Concept_"+type+suffix)
+            .getAbsolutePath());
+        in.setStatedRelationshipsFile(new File(base,
+                "sct2_StatedRelationship_"+type+suffix).getAbsolutePath());
+        in.getModuleDependenciesRefsetFiles().add(new File(base,
+                "der2_ssRefset_ModuleDependency"+type+suffix)
+            .getAbsolutePath());
+
+        List<String> toLoad = ReleaseType.FULL.equals(releaseType) ?
+                getVersionIds() :
+                    Collections.singletonList(effectiveTime(versions - 1));
+        for(String moduleId : getModuleIds()) {
+            ModuleInfo mi = new ModuleInfo(moduleId);
+            for(String version : toLoad) {
+                Version v = new Version(version);
+                v.getMetadata().putAll(getMetadata());
+                mi.getVersions().add(v);
+            }
+            in.getModules().add(mi);
+        }
+
+        Inputs res = new Inputs();
+        res.getRf2Inputs().add(in);
+        return res;
+    }
+
+    /**
+     * Returns the metadata of every version.
+     *
+     * @return
+     */
+    public static Map<String, String> getMetadata() {
+        Map<String, String> md = new HashMap<>();
+        md.put("conceptModelAttId", String.valueOf(CONCEPT_MODEL_ATT));
+        md.put("isAId", String.valueOf(IS_A));
+        md.put("coreModuleId", CORE_MODULE);
+        md.put("metadataModuleId", MODEL_MODULE);
+        md.put("conceptDefinedId", String.valueOf(DEFINED));
+        md.put("someId", String.valueOf(SOME));
+        md.put("neverGroupedIds", "123005000,127489000,272741003,411116001");
+        md.put("rightIdentityIds", "363701004,127489000");
+        md.put("roleGroupId", "roleGroup");
+        return md;
+    }
+
+    private void writeComponents() throws IOException {
+        rnd = new Random(seed);
+        fullConcepts.put(RF2Writer.CONCEPT_HEADER);
+        fullConcepts.newLine();
+        snapshotConcepts.put(RF2Writer.CONCEPT_HEADER);
+        snapshotConcepts.newLine();
+        fullRels.put(RF2Writer.RELATIONSHIP_HEADER);
+        fullRels.newLine();
+        snapshotRels.put(RF2Writer.RELATIONSHIP_HEADER);
+        snapshotRels.newLine();
+
+        effectiveTimeBytes = new byte[versions][];
+        for(int v = 0; v < versions; v++) {
+            effectiveTimeBytes[v] = RF2Writer.ascii(effectiveTime(v));
+        }
+        moduleIds = getModuleIds().toArray(new String[0]);
+        relItems = new long[moduleIds.length];
+        Arrays.fill(relItems, 1);
+
+        writeModelModule();
+
+        // Index 0 is the root and the concepts of each module follow
+        int numExt = (extensionModules == 0) ? 0 :
+            (int) Math.round(concepts * extensionRatio);
+        moduleStart = new int[moduleIds.length + 1];
+        moduleStart[0] = 1;
+        moduleStart[1] = 1 + concepts - numExt;
+        for(int m = 0; m < extensionModules; m++) {
+            moduleStart[m + 2] = moduleStart[m + 1] +
+                    numExt / extensionModules +
+                    ((m < numExt % extensionModules) ? 1 : 0);
+        }
+
+        int total = concepts + 1;
+        ids = new long[total];
+        depths = new byte[total];
+        conceptVersions = new byte[total];
+        ids[0] = ROOT;
+        for(int m = 0; m < moduleIds.length; m++) {
+            int start = moduleStart[m];
+            int size = moduleStart[m + 1] - start;
+            int first = (versions == 1) ? size :
+                (int) Math.ceil(size * FIRST_VERSION_RATIO);
+            long ns = (m == 0) ? -1 : namespace(m - 1);
+            for(int j = 0; j < size; j++) {
+                int i = start + j;
+                ids[i] = (m == 0) ? sctid(100000 + j, "00") :
+                    sctid(100 + j, ns, "10");
+                conceptVersions[i] = (byte) ((j < first) ? 0 : 1 + (long) (j -
+                        first) * (versions - 1) / (size - first));
+            }
+        }
+
+        for(int m = 0; m < moduleIds.length; m++) {
+            bfsParent = -1;
+            bfsQuota = 0;
+            for(int i = moduleStart[m]; i < moduleStart[m + 1]; i++) {
+                writeConcept(m, i);
+            }
+        }
+    }
+
+    /**
+     * Writes the root, the metadata concepts and the attribute hierarchy,
+     * all in the first version.
+     *
+     * @throws IOException
+     */
+    private void writeModelModule() throws IOException {
+        long module = Long.parseLong(MODEL_MODULE);
+        writeConceptRow(ROOT, 0, true, module, PRIMITIVE);
+        writeConceptRow(MODEL_COMPONENT, 0, true, module, PRIMITIVE);
+        writeModelIsA(MODEL_COMPONENT, ROOT);
+        for(long id : METADATA) {
+            writeConceptRow(id, 0, true, module, PRIMITIVE);
+            writeModelIsA(id, MODEL_COMPONENT);
+        }
+        writeConceptRow(ATTRIBUTE, 0, true, module, PRIMITIVE);
+        writeModelIsA(ATTRIBUTE, ROOT);
+        writeConceptRow(CONCEPT_MODEL_ATT, 0, true, module, PRIMITIVE);
+        writeModelIsA(CONCEPT_MODEL_ATT, ATTRIBUTE);
+        writeConceptRow(IS_A, 0, true, module, PRIMITIVE);
+        writeModelIsA(IS_A, CONCEPT_MODEL_ATT);
+        for(long[] roles : new long[][] { UNGROUPED_ROLES, GROUPED_ROLES }) {
+            for(long role : roles) {
+                long parent = CONCEPT_MODEL_ATT;
+                for(long[] sub : SUB_ROLES) {
+                    if(sub[0] == role) parent = sub[1];
+                }
+                writeConceptRow(role, 0, true, module, PRIMITIVE);
+                writeModelIsA(role, parent);
+            }
+        }
+    }
+
+    private void writeModelIsA(long src, long dst) throws IOException {
+        // The model module shares the core namespace
+        long id = sctid(relItems[0]++, "02");
+        writeRelationshipRow(id, 0, true, Long.parseLong(MODEL_MODULE), src,
+                dst, 0, IS_A, true);
+    }
+
+    /**
+     * Writes all the rows of a concept and its relationships.
+     *
+     * @param m
+     * @param i
+     * @throws IOException
+     */
+    private void writeConcept(int m, int i) throws IOException {
+        long module = Long.parseLong(moduleIds[m]);
+        int v0 = conceptVersions[i];
+
+        // Parents
+        int p1 = (m == 0) ? nextBfsParent(i) : randomConcept(m, i, v0, true);
+        depths[i] = (byte) (depths[p1] + 1);
+        int p2 = -1;
+        if(rnd.nextDouble() < multipleParentRatio) {
+            p2 = randomConcept(m, i, v0, true);
+            if(p2 == p1) p2 = -1;
+        }
+
+        // Definition status, possibly changed in later versions
+        int groups = sample(groupDistribution);
+        boolean ungrouped = rnd.nextDouble() < UNGROUPED_RATIO;
+        boolean defined = (groups > 0 || ungrouped) &&
+                rnd.nextDouble() < DEFINED_RATIO;
+        int last = v0;
+        boolean lastDefined = defined;
+        writeFullConcept(ids[i], v0, module, defined);
+        for(int v = v0 + 1; v < versions; v++) {
+            if(rnd.nextDouble() < changeRate) {
+                lastDefined = !lastDefined;
+                last = v;
+                writeFullConcept(ids[i], v, module, lastDefined);
+            }
+        }
+        writeConceptRow(snapshotConcepts, ids[i], last, true, module,
+                lastDefined ? DEFINED : PRIMITIVE);
+
+        // Relationships
+        writeRelationship(m, i, v0, ids[p1], 0, IS_A, false);
+        if(p2 != -1) {
+            writeRelationship(m, i, v0, ids[p2], 0, IS_A, false);
+        }
+        if(ungrouped) {
+            long type = UNGROUPED_ROLES[rnd.nextInt(UNGROUPED_ROLES.length)];
+            writeRelationship(m, i, v0, ids[randomConcept(m, i, v0, false)],
+                    0, type, true);
+        }
+        for(int g = 1; g <= groups; g++) {
+            int size = 1 + sample(groupSizeDistribution);
+            for(int j = 0; j < size; j++) {
+                long type = GROUPED_ROLES[rnd.nextInt(GROUPED_ROLES.length)];
+                writeRelationship(m, i, v0, ids[randomConcept(m, i, v0,
+                        false)], g, type, true);
+            }
+        }
+    }
+
+    /**
+     * Writes a relationship added in version v0. If it can change, it may be
+     * inactivated in a later version and replaced by a relationship with a
+     * different destination.
+     *
+     * @throws IOException
+     */
+    private void writeRelationship(int m, int i, int v0, long dst, int group,
+            long type, boolean canChange) throws IOException {
+        long module = Long.parseLong(moduleIds[m]);
+        long id = relationshipId(m);
+        writeRelationshipRow(id, v0, true, module, ids[i], dst, group, type,
+                false);
+        if(canChange) {
+            for(int v = v0 + 1; v < versions; v++) {
+                if(rnd.nextDouble() < changeRate) {
+                    writeRelationshipRow(id, v, false, module, ids[i], dst,
+                            group, type, true);
+                    long newDst = ids[randomConcept(m, i, v, false)];
+                    writeRelationshipRow(relationshipId(m), v, true, module,
+                            ids[i], newDst, group, type, true);
+                    return;
+                }
+            }
+        }
+        writeRelationshipRow(snapshotRels, id, v0, true, module, ids[i], dst,
+                group, type);
+    }
+
+    /**
+     * Returns the next parent in a breadth first traversal of the core
+     * module. Each parent gets a random number of children with the
+     * configured mean, unless it is at the maximum depth. If there are no
+     * parents left a random one is chosen.
+     *
+     * @param i
+     * @return
+     */
+    private int nextBfsParent(int i) {
+        while(bfsQuota == 0 && bfsParent + 1 < i) {
+            bfsParent++;
+            bfsQuota = (depths[bfsParent] < depth) ? geometric(fanOut) : 0;
+        }
+        if(bfsQuota > 0) {
+            bfsQuota--;
+            return bfsParent;
+        }
+        return randomConcept(0, i, conceptVersions[i], true);
+    }
+
+    /**
+     * Returns a random concept that can be referenced by concept i of module
+     * m in version v: one of the previous concepts of the module or, for
+     * extension modules, a core concept that exists in that version. Parents
+     * must be above the maximum depth.
+     *
+     * @param m
+     * @param i
+     * @param v
+     * @param parent
+     * @return
+     */
+    private int randomConcept(int m, int i, int v, boolean parent) {
+        for(int t = 0; t < MAX_TRIES; t++) {
+            int lo = moduleStart[m];
+            int hi = i;
+            if(m > 0 && (hi == lo || rnd.nextBoolean())) {
+                lo = moduleStart[0];
+                hi = moduleStart[1];
+            }
+            if(hi == lo) break;
+            int res = lo + rnd.nextInt(hi - lo);
+            if(conceptVersions[res] <= v &&
+                    (!parent || depths[res] < depth)) {
+                return res;
+            }
+        }
+        return 0;
+    }
+
+    private long relationshipId(int m) {
+        return (m == 0) ? sctid(relItems[0]++, "02") :
+            sctid(relItems[m]++, namespace(m - 1), "12");
+    }
+
+    private void writeFullConcept(long id, int v, long module,
+            boolean defined) throws IOException {
+        writeConceptRow(fullConcepts, id, v, true, module,
+                defined ? DEFINED : PRIMITIVE);
+    }
+
+    /**
+     * Writes a row to the full and the snapshot concepts files.
+     */
+    private void writeConceptRow(long id, int v, boolean active, long module,
+            long status) throws IOException {
+        writeConceptRow(fullConcepts, id, v, active, module, status);
+        writeConceptRow(snapshotConcepts, id, v, active, module, status);
+    }
+
+    private void writeConceptRow(Output o, long id, int v, boolean active,
+            long module, long status) throws IOException {
+        o.put(id);
+        o.tab();
+        o.put(effectiveTimeBytes[v]);
+        o.tab();
+        o.put(active ? 1 : 0);
+        o.tab();
+        o.put(module);
+        o.tab();
+        o.put(status);
+        o.newLine();
+    }
+
+    /**
+     * Writes a row to the full relationships file and, if snapshot is true,
+     * to the snapshot relationships file.
+     */
+    private void writeRelationshipRow(long id, int v, boolean active,
+            long module, long src, long dst, int group, long type,
+            boolean snapshot) throws IOException {
+        writeRelationshipRow(fullRels, id, v, active, module, src, dst, group,
+                type);
+        if(snapshot) {
+            writeRelationshipRow(snapshotRels, id, v, active, module, src, dst,
+                    group, type);
+        }
+    }
+
+    private void writeRelationshipRow(Output o, long id, int v,
+            boolean active, long module, long src, long dst, int group,
+            long type) throws IOException {
+        o.put(id);
+        o.tab();
+        o.put(effectiveTimeBytes[v]);
+        o.tab();
+        o.put(active ? 1 : 0);
+        o.tab();
+        o.put(module);
+        o.tab();
+        o.put(src);
+        o.tab();
+        o.put(dst);
+        o.tab();
+        o.put(group);
+        o.tab();
+        o.put(type);
+        o.tab();
+        o.put(STATED);
+        o.tab();
+        o.put(SOME);
+        o.newLine();
+    }
+
+    /**
+     * Writes the dependencies of the core module on the model module and of
+     * the extension modules on both, for every version.
+     *
+     * @param full
+     * @param snapshot
+     * @throws IOException
+     */
+    private void writeModuleDependencies(Output full, Output snapshot)
+            throws IOException {
+        full.put(MODULE_DEPENDENCY_HEADER);
+        full.newLine();
+        snapshot.put(MODULE_DEPENDENCY_HEADER);
+        snapshot.newLine();
+        for(String moduleId : getModuleIds()) {
+            List<String> targets = new ArrayList<>();
+            targets.add(MODEL_MODULE);
+            if(!CORE_MODULE.equals(moduleId)) targets.add(CORE_MODULE);
+            for(String target : targets) {
+                String id = UUID.nameUUIDFromBytes((moduleId+"/"+target)
+                        .getBytes(StandardCharsets.US_ASCII)).toString();
+                for(int v = 0; v < versions; v++) {
+                    String et = effectiveTime(v);
+                    writeModuleDependencyRow(full, id, et, moduleId, target);
+                    if(v == versions - 1) {
+                        writeModuleDependencyRow(snapshot, id, et, moduleId,
+                                target);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeModuleDependencyRow(Output o, String id, String et,
+            String moduleId, String target) throws IOException {
+        o.put(id);
+        o.tab();
+        o.put(et);
+        o.tab();
+        o.put(1);
+        o.tab();
+        o.put(moduleId);
+        o.tab();
+        o.put(MODULE_DEPENDENCY_REFSET);
+        o.tab();
+        o.put(target);
+        o.tab();
+        o.put(et);
+        o.tab();
+        o.put(et);
+        o.newLine();
+    }
+
+    /**
+     * Returns a sample of a geometric distribution with the given mean.
+     *
+     * @param mean
+     * @return
+     */
+    private int geometric(double mean) {
+        double p = mean / (1 + mean);
+        return (int) (Math.log(1 - rnd.nextDouble()) / Math.log(p));
+    }
+
+    /**
+     * Returns an index sampled from a discrete distribution.
+     *
+     * @param dist
+     * @return
+     */
+    private int sample(double[] dist) {
+        double r = rnd.nextDouble();
+        for(int i = 0; i < dist.length - 1; i++) {
+            r -= dist[i];
+            if(r < 0) return i;
+        }
+        return dist.length - 1;
+    }
+
+    private static double[] checkDistribution(double[] dist) {
+        double sum = 0;
+        for(double d : dist) {
+            if(d < 0) {
+                throw new IllegalArgumentException("Negative probability "+d);
+            }
+            sum += d;
+        }
+        if(dist.length == 0 || Math.abs(sum - 1) > 1e-6) {
+            throw new IllegalArgumentException("Probabilities must add up " +
+                    "to 1");
+        }
+        return dist.clone();
+    }
+
+    private static String effectiveTime(int v) {
+        return (2002 + v / 2) + ((v % 2 == 0) ? "0131" : "0731");
+    }
+
+    private static long namespace(int m) {
+        return 1000000 + m;
+    }
+
+    /**
+     * Builds an SCTID in the international namespace.
+     *
+     * @param item
+     * @param partition
+     * @return
+     */
+    static long sctid(long item, String partition) {
+        return withCheckDigit(item + partition);
+    }
+
+    /**
+     * Builds an SCTID in an extension namespace.
+     *
+     * @param item
+     * @param namespace
+     * @param partition
+     * @return
+     */
+    static long sctid(long item, long namespace, String partition) {
+        return withCheckDigit(item + String.valueOf(namespace) + partition);
+    }
+
+    private static final int[][] VERHOEFF_D = {
+        { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, { 1, 2, 3, 4, 0, 6, 7, 8, 9, 5 },
+        { 2, 3, 4, 0, 1, 7, 8, 9, 5, 6 }, { 3, 4, 0, 1, 2, 8, 9, 5, 6, 7 },
+        { 4, 0, 1, 2, 3, 9, 5, 6, 7, 8 }, { 5, 9, 8, 7, 6, 0, 4, 3, 2, 1 },
+        { 6, 5, 9, 8, 7, 1, 0, 4, 3, 2 }, { 7, 6, 5, 9, 8, 2, 1, 0, 4, 3 },
+        { 8, 7, 6, 5, 9, 3, 2, 1, 0, 4 }, { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 } };
+
+    private static final int[][] VERHOEFF_P = {
+        { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, { 1, 5, 7, 6, 2, 8, 3, 0, 9, 4 },
+        { 5, 8, 0, 3, 7, 9, 6, 1, 4, 2 }, { 8, 9, 1, 6, 0, 4, 3, 5, 2, 7 },
+        { 9, 4, 5, 3, 1, 2, 6, 8, 7, 0 }, { 4, 2, 8, 6, 5, 7, 3, 9, 0, 1 },
+        { 2, 7, 9, 3, 8, 0, 6, 4, 1, 5 }, { 7, 0, 4, 6, 9, 1, 3, 2, 5, 8 } };
+
+    private static final int[] VERHOEFF_INV = { 0, 4, 3, 2, 1, 5, 6, 7, 8, 9 };
+
+    /**
+     * Appends the Verhoeff check digit used by SCTIDs.
+     *
+     * @param digits
+     * @return
+     */
+    private static long withCheckDigit(String digits) {
+        int c = 0;
+        int len = digits.length();
+        for(int i = 0; i < len; i++) {
+            int d = digits.charAt(len - 1 - i) - '0';
+            c = VERHOEFF_D[c][VERHOEFF_P[(i + 1) % 8][d]];
+        }
+        return Long.parseLong(digits + VERHOEFF_INV[c]);
+    }
+
+    private static void save(Inputs inputs, File file) {
+        try (OutputStream out = new FileOutputStream(file)) {
+            inputs.save(out);
+        } catch (IOException | JAXBException e) {
+            throw new ImportException("Problem writing file "+file, e);
+        }
+    }
+
+    /**
+     * Writes a release. Usage: RF2Generator dir [concepts] [versions]
+     * [extensionModules] [seed]
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        if(args.length < 1) {
+            System.err.println("Usage: RF2Generator dir [concepts] " +
+                    "[versions] [extensionModules] [seed]");
+            return;
+        }
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 0;
+        RF2Generator gen = new RF2Generator(seed);
+        if(args.length > 1) gen.setConcepts(Integer.parseInt(args[1]));
+        if(args.length > 2) gen.setVersions(Integer.parseInt(args[2]));
+        if(args.length > 3) {
+            gen.setExtensionModules(Integer.parseInt(args[3]));
+        }
+        gen.generate(new File(args[0]));
+    }
+
+}
@@ -5,54 +5,76 @@
 package au.csiro.ontology.importer.rf2;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
 
 import org.apache.log4j.Logger;
 
 import au.csiro.ontology.IOntology;
-import au.csiro.ontology.Ontology;
+import au.csiro.ontology.VersionedOntologyStore;
 import au.csiro.ontology.axioms.ConceptInclusion;
-import au.csiro.ontology.axioms.IAxiom;
 import au.csiro.ontology.axioms.RoleInclusion;
-import au.csiro.ontology.importer.IImporter;
+import au.csiro.ontology.importer.CountingAxiomSink;
+import au.csiro.ontology.importer.CountingInputStream;
+import au.csiro.ontology.importer.IOntologySink;
+import au.csiro.ontology.importer.IStreamingImporter;
+import au.csiro.ontology.importer.ImportOrchestrator;
+import au.csiro.ontology.importer.IdType;
 import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.OntologyCollector;
 import au.csiro.ontology.importer.input.Input.InputType;
 import au.csiro.ontology.importer.input.Inputs;
 import au.csiro.ontology.importer.input.ModuleInfo;
 import au.csiro.ontology.importer.input.RF2Input;
 import au.csiro.ontology.importer.input.Version;
-import au.csiro.ontology.model.Concept;
 import au.csiro.ontology.model.Conjunction;
 import au.csiro.ontology.model.Existential;
 import au.csiro.ontology.model.IConcept;
 import au.csiro.ontology.model.IExistential;
 import au.csiro.ontology.model.INamedRole;
 import au.csiro.ontology.model.IRole;
-import au.csiro.ontology.model.Role;
+import au.csiro.ontology.snomed.refset.rf2.ColumnarRefset;
 import au.csiro.ontology.snomed.refset.rf2.IModuleDependencyRefset;
 import au.csiro.ontology.snomed.refset.rf2.ModuleDependency;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyGraph;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyRefset;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyRow;
+import au.csiro.ontology.snomed.refset.rf2.RefsetMembership;
+import au.csiro.ontology.snomed.refset.rf2.RefsetStore;
 import au.csiro.ontology.util.IProgressMonitor;
-import au.csiro.ontology.util.Statistics;
+import au.csiro.ontology.util.NullProgressMonitor;
+import au.csiro.ontology.util.ProgressTracker;
+import au.csiro.ontology.util.SnomedVersionMetadata;
+import au.csiro.ontology.util.events.PhaseEvent;
+import au.csiro.ontology.util.events.PhaseEvents;
+import au.csiro.ontology.util.metrics.MetricName;
+import au.csiro.ontology.util.metrics.MetricsRegistry;
+import au.csiro.ontology.util.metrics.Timer;
 
 /**
  * Imports ontologies specified in RF2 format into the internal representation.
@@ -60,14 +82,45 @@ import au.csiro.ontology.util.Statistics;
  * @author Alejandro Metke
  * 
  */
-public class RF2Importer implements IImporter {
+public class RF2Importer implements IStreamingImporter {
     
     private final static Logger log = Logger.getLogger(RF2Importer.class);
     
+    private static final MetricName RUNS = 
+            new MetricName("import.runs", "importer", "rf2");
+    private static final MetricName TIME = 
+            new MetricName("import.time", "importer", "rf2");
+    private static final MetricName PHASE_TIME = 
+            new MetricName("import.phase.time", "importer", "rf2");
+    private static final MetricName ROWS = 
+            new MetricName("import.rows", "importer", "rf2");
+    private static final MetricName AXIOMS = 
+            new MetricName("import.axioms", "importer", "rf2");
+    
+    private static final Comparator<Version> VERSION_ORDER = 
+            new Comparator<Version>() {
+        @Override
+        public int compare(Version v1, Version v2) {
+            return v1.getId().compareTo(v2.getId());
+        }
+    };
+    
     /**
      * The object that contains the information about the input files to use.
      */
     protected final Inputs inputs;
+    
+    /**
+     * Executor used to read the input files concurrently, or null to read 
+     * them sequentially.
+     */
+    protected final ExecutorService executor;
+    
+    /**
+     * Indicates if the versions of each module should be stored in a 
+     * {@link VersionedOntologyStore} that shares the common axioms.
+     */
+    protected boolean shareVersions = false;
 
     protected final List<String> problems = new ArrayList<>();
     protected final Map<String, String> primitive = new HashMap<>();
@@ -75,6 +128,14 @@ public class RF2Importer implements IImporter {
     protected final Map<String, Set<String>> children = new HashMap<>();
     protected final Map<String, List<String[]>> rels = new HashMap<>();
     protected final Map<String, Map<String, String>> roles = new HashMap<>();
+    
+    /**
+     * Tracks the work done in the current step of 
+     * {@link #getOntologyVersions(IProgressMonitor)} and checks if the import
+     * has been cancelled.
+     */
+    protected volatile ProgressTracker progress = 
+            new ProgressTracker(new NullProgressMonitor(), -1, -1);
 
     /**
      * Imports a set of ontologies.
@@ -85,6 +146,7 @@ public class RF2Importer implements IImporter {
     public RF2Importer(InputStream inputsStream) {
         try {
             inputs = Inputs.load(inputsStream);
+            executor = null;
         } catch (JAXBException e) {
             log.error("Malformed input file.", e);
             throw new ImportException("Malformed input file.", e);
@@ -99,6 +161,7 @@ public class RF2Importer implements IImporter {
         try {
             inputs = Inputs.load(
                     this.getClass().getResourceAsStream("/config.xml"));
+            executor = null;
         } catch (JAXBException e) {
             log.error("Malformed input file.", e);
             throw new ImportException("Malformed input file.", e);
@@ -111,7 +174,31 @@ public class RF2Importer implements IImporter {
      * @param inputs
      */
     public RF2Importer(Inputs inputs) {
+        this(inputs, null);
+    }
+    
+    /**
+     * Imports a set of ontologies using the supplied configuration object. 
+     * The input files are read as independent tasks on the supplied executor.
+     * 
+     * @param inputs
+     * @param executor The executor, or null to read the files sequentially.
+     */
+    public RF2Importer(Inputs inputs, ExecutorService executor) {
         this.inputs = inputs;
+        this.executor = executor;
+    }
+    
+    /**
+     * Sets if the versions of each module should share the axioms they have 
+     * in common. When set, the map of versions of each module is a 
+     * {@link VersionedOntologyStore}, the versions are added in order of 
+     * their ids and the stated axioms of the ontologies are read-only sets.
+     * 
+     * @param shareVersions
+     */
+    public void setShareVersions(boolean shareVersions) {
+        this.shareVersions = shareVersions;
     }
     
     /**
@@ -121,39 +208,141 @@ public class RF2Importer implements IImporter {
      * @return
      */
     protected IModuleDependencyRefset loadModuleDependencies() {
-        Set<InputStream> iss = new HashSet<>();
+        return loadModuleDependencies(executor);
+    }
+    
+    /**
+     * Loads all the module dependency information from all RF2 inputs, 
+     * reading the files on the specified executor.
+     * 
+     * @param executor The executor, or null to read the files sequentially.
+     * Must be null when called from a task running on {@link #executor}, 
+     * because waiting for tasks queued on the same pool can deadlock it.
+     * @return
+     */
+    private IModuleDependencyRefset loadModuleDependencies(
+            ExecutorService executor) {
+        PhaseEvent event = PhaseEvents.begin("rf2", "loadModuleDependencies");
+        List<Callable<List<ModuleDependencyRow>>> tasks = new ArrayList<>();
         for(RF2Input input : inputs.getRf2Inputs()) {
-            InputType inputType = input.getInputType();
-            for(String md : input.getModuleDependenciesRefsetFiles()) {
-                InputStream is = null;
-                if(inputType.equals(InputType.EXTERNAL)) {
-                    try {
-                        is = new FileInputStream(md);
-                    } catch (FileNotFoundException e) {
-                        is = null;
+            final InputType inputType = input.getInputType();
+            for(final String md : input.getModuleDependenciesRefsetFiles()) {
+                tasks.add(new Callable<List<ModuleDependencyRow>>() {
+                    @Override
+                    public List<ModuleDependencyRow> call() {
+                        InputStream is = getInputStream(inputType, md);
+                        if(is == null) {
+                            throw new ImportException("Unable to load " +
+                                "module dependencias. Please check your " +
+                                "input configuration file. (input type = "+
+                                inputType+", file="+md+")");
+                        }
+                        return RefsetImporter.readModuleDependencyRows(is);
                     }
-                } else if(inputType.equals(InputType.CLASSPATH)) {
-                    is = this.getClass().getResourceAsStream(md);
-                } else {
-                    throw new RuntimeException("Unexpected input type "+
-                            inputType);
-                }
-                
-                if(is == null) {
-                    throw new ImportException("Unable to load module " +
-                        "dependencias. Please check your input configuration " +
-                        "file. (input type = "+inputType+", file="+md+")");
-                }
-                
-                iss.add(is);
+                });
             }
         }
         
-        IModuleDependencyRefset res = 
-                RefsetImporter.importModuleDependencyRefset(iss);
+        Set<ModuleDependencyRow> members = new HashSet<>();
+        for(List<ModuleDependencyRow> rows : 
+            ImportOrchestrator.runAll(executor, tasks)) {
+            members.addAll(rows);
+        }
+        
+        IModuleDependencyRefset res = new ModuleDependencyRefset(members);
+        event.setRows(members.size());
+        event.end();
         return res;
     }
     
+    /**
+     * Loads all the reference sets listed in the RF2 inputs, except for the
+     * module dependency reference sets, into a {@link RefsetStore} indexed by
+     * refset id and referenced component id.
+     * 
+     * @param latestOnly If true only the latest version of each member is 
+     * kept.
+     * @return
+     */
+    public RefsetStore loadRefsets(boolean latestOnly) {
+        Map<Long, ColumnarRefset.Builder> builders = new HashMap<>();
+        for(RF2Input input : inputs.getRf2Inputs()) {
+            List<String> files = new ArrayList<>();
+            files.addAll(input.getRefsetDescriptorRefsetFiles());
+            files.addAll(input.getDescriptionFormatRefsetFiles());
+            files.addAll(input.getLanguageRefsetFiles());
+            files.addAll(input.getSimpleRefsetFiles());
+            files.addAll(input.getOrderedRefsetFiles());
+            files.addAll(input.getAttributeValueRefsetFiles());
+            files.addAll(input.getSimpleMapRefsetFiles());
+            files.addAll(input.getComplexMapRefsetFiles());
+            files.addAll(input.getQuerySpecificationRefsetFiles());
+            files.addAll(input.getAnnotationRefsetFiles());
+            files.addAll(input.getAssociationRefsetFiles());
+            loadRefsetFiles(input.getInputType(), files, latestOnly, builders);
+        }
+        return RefsetImporter.buildStore(builders);
+    }
+    
+    /**
+     * Loads the simple reference sets listed in the RF2 inputs and indexes
+     * their current members in a {@link RefsetMembership}.
+     * 
+     * @return
+     */
+    public RefsetMembership loadSimpleRefsetMembership() {
+        Map<Long, ColumnarRefset.Builder> builders = new HashMap<>();
+        for(RF2Input input : inputs.getRf2Inputs()) {
+            loadRefsetFiles(input.getInputType(), 
+                    input.getSimpleRefsetFiles(), true, builders);
+        }
+        return new RefsetMembership(
+                RefsetImporter.buildStore(builders));
+    }
+    
+    /**
+     * Reads a list of reference set files into the supplied builders.
+     * 
+     * @param inputType
+     * @param files
+     * @param latestOnly
+     * @param builders
+     */
+    protected void loadRefsetFiles(InputType inputType, 
+            Collection<String> files, boolean latestOnly, 
+            Map<Long, ColumnarRefset.Builder> builders) {
+        for(String file : files) {
+            InputStream is = getInputStream(inputType, file);
+            if(is == null) {
+                throw new ImportException("Unable to load reference set. " +
+                    "Please check your input configuration file. " +
+                    "(input type = "+inputType+", file="+file+")");
+            }
+            RefsetImporter.importRefset(file, is, latestOnly, builders);
+        }
+    }
+    
+    /**
+     * Opens an input file. Returns null if the file cannot be found.
+     * 
+     * @param inputType
+     * @param file
+     * @return
+     */
+    protected InputStream getInputStream(InputType inputType, String file) {
+        if(inputType.equals(InputType.EXTERNAL)) {
+            try {
+                return new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+        } else if(inputType.equals(InputType.CLASSPATH)) {
+            return this.getClass().getResourceAsStream(file);
+        } else {
+            throw new RuntimeException("Unexpected input type "+inputType);
+        }
+    }
+    
     /**
      * Determines which modules and versions should be loaded based on the
      * {@link Inputs} object. Returns a {@link Map} with the module ids as keys 
@@ -183,69 +372,51 @@ public class RF2Importer implements IImporter {
     /**
      * Assembles bundles based on the module dependency information. Returns a
      * {@link Map} of {@link Map}s indexed by module id and version, containing
-     * a {@link Set} of {@link VersionRows} of all the modules in the bundle.
+     * a {@link BundleRows} view over the {@link VersionRows} of all the modules
+     * in the bundle. The modules in each bundle are looked up in the 
+     * precomputed closures of the {@link ModuleDependencyGraph} and their rows
+     * are shared, not copied.
      * 
      * @param toLoad
-     * @param deps
+     * @param graph
      * @param modules
      * @return
      */
     protected Map<String, Map<String, ? extends VersionRows>> getBundles(
-            Map<String, Set<Version>> toLoad, 
-            Map<String, Map<String, ModuleDependency>> deps, 
+            Map<String, Set<Version>> toLoad, ModuleDependencyGraph graph, 
             Map<String, Module> modules) {
-        Map<String, Map<String, Set<VersionRows>>> bundles = new HashMap<>();
+        Map<String, Map<String, ? extends VersionRows>> res = new HashMap<>();
         
         for(String moduleId : toLoad.keySet()) {
-            Map<String, Set<VersionRows>> vMap = bundles.get(moduleId);
-            if (vMap == null) {
-                vMap = new HashMap<>();
-                bundles.put(moduleId, vMap);
-            }
+            Map<String, BundleRows> vMap = new HashMap<>();
+            res.put(moduleId, vMap);
             
             for(Version v : toLoad.get(moduleId)) {
-                log.info("Importing module "+moduleId+" ("+v.getId()+")");
-                ModuleDependency mod = deps.get(moduleId).get(v.getId());
+                String version = v.getId();
+                log.info("Importing module "+moduleId+" ("+version+")");
+                int node = graph.getNode(moduleId, version);
+                if(node == -1) {
+                    throw new ImportException("No module dependency " +
+                            "information for module "+moduleId+" ("+version+
+                            ")");
+                }
                 
-                Set<VersionRows> bundle = new HashSet<>();
-
-                // Add the root module to the bundle
-                String version = mod.getVersion();
-                VersionRows vr = getVersionRows(modules, mod, version);
-                bundle.add(vr);
-
-                // Add all the dependencies to the bundle
-                Queue<ModuleDependency> depends = new LinkedList<>();
-                depends.addAll(mod.getDependencies());
-
-                while (!depends.isEmpty()) {
-                    ModuleDependency depend = depends.poll();
-                    vr = getVersionRows(modules, depend, version);
-                    
-                    bundle.add(vr);
-                    depends.addAll(depend.getDependencies());
+                BundleRows bundle = new BundleRows();
+                Set<VersionRows> added = Collections.newSetFromMap(
+                        new IdentityHashMap<VersionRows, Boolean>());
+                for(int i = 0; i < graph.getClosureSize(node); i++) {
+                    progress.checkCancelled();
+                    int dep = graph.getClosureNode(node, i);
+                    VersionRows vr = getVersionRows(modules, 
+                            graph.getModuleId(dep), graph.getVersion(dep));
+                    if(added.add(vr)) {
+                        bundle.merge(vr);
+                    }
                 }
-
-                // Add the bundle to the bundles map
                 vMap.put(version, bundle);
             }
         }
         
-        Map<String, Map<String, ? extends VersionRows>> res = new HashMap<>();
-        
-        for(String modId : bundles.keySet()) {
-            Map<String, VersionRows> val = new HashMap<>();
-            res.put(modId, val);
-            Map<String, Set<VersionRows>> dateVerMap = bundles.get(modId);
-            for(String date : dateVerMap.keySet()) {
-                VersionRows vr = new VersionRows();
-                for(VersionRows vrs : dateVerMap.get(date)) {
-                    vr.merge(vrs);
-                }
-                val.put(date, vr);
-            }
-        }
-        
         return res;
     }
     
@@ -253,27 +424,87 @@ public class RF2Importer implements IImporter {
             Map<String, Set<Version>> toLoad, 
             Map<String, Map<String, ? extends VersionRows>> bundles, 
             Map<String, IConcept> ci, Map<String, INamedRole<String>> ri) {
-        Map<String, Map<String, IOntology<String>>> res = new HashMap<>();
+        return transform(toLoad, bundles, IdType.STRING, ci, ri);
+    }
+    
+    /**
+     * Transforms the filtered bundles into axioms, creating the named 
+     * concepts and roles with the specified type of identifiers.
+     * 
+     * @param toLoad
+     * @param bundles
+     * @param idType
+     * @param ci Index of the concepts created so far, keyed by SNOMED id.
+     * @param ri Index of the roles created so far, keyed by SNOMED id.
+     * @return
+     */
+    protected <T extends Comparable<T>> Map<String, Map<String, IOntology<T>>> 
+            transform(Map<String, Set<Version>> toLoad, 
+            Map<String, Map<String, ? extends VersionRows>> bundles, 
+            IdType<T> idType, Map<String, IConcept> ci, 
+            Map<String, INamedRole<T>> ri) {
+        OntologyCollector<T> res = new OntologyCollector<>(shareVersions);
+        transform(toLoad, bundles, idType, ci, ri, res);
+        return res.getOntologyVersions();
+    }
+    
+    /**
+     * Transforms the filtered bundles into axioms and sends them to a sink. 
+     * The versions of each module are sent in order of their ids and the 
+     * axioms of a version are sent as they are created.
+     * 
+     * @param toLoad
+     * @param bundles
+     * @param idType
+     * @param ci Index of the concepts created so far, keyed by SNOMED id.
+     * @param ri Index of the roles created so far, keyed by SNOMED id.
+     * @param sink
+     */
+    protected <T extends Comparable<T>> void transform(
+            Map<String, Set<Version>> toLoad, 
+            Map<String, Map<String, ? extends VersionRows>> bundles, 
+            IdType<T> idType, Map<String, IConcept> ci, 
+            Map<String, INamedRole<T>> ri, IOntologySink sink) {
+        INamedRole<T> roleGroup = getRoleGroup(idType, ri);
         
         // Transform each set of modules
         for(String modId : toLoad.keySet()) {
-            for(Version v : toLoad.get(modId)) {
+            // Version ids are dates so this sends them chronologically
+            List<Version> versions = new ArrayList<>(toLoad.get(modId));
+            Collections.sort(versions, VERSION_ORDER);
+            
+            for(Version v : versions) {
                 String version = v.getId();
-                Map<String, String> metadata = v.getMetadata();
-                String conceptDefinedId = metadata.get("conceptDefinedId");
-                String someId = metadata.get("someId");
-                String isAId = metadata.get("isAId");
-                String conceptModelAttId = metadata.get("conceptModelAttId");
-                String neverGroupedIds = metadata.get("neverGroupedIds");
-                String rightIdentityIds = metadata.get("rightIdentityIds");
+                PhaseEvent event = PhaseEvents.begin("rf2", "transform");
+                event.setModule(modId);
+                event.setVersion(version);
+                SnomedVersionMetadata md;
+                try {
+                    md = SnomedVersionMetadata.parse(v.getMetadata());
+                } catch (IllegalArgumentException e) {
+                    throw new ImportException("Invalid meta-data for module " 
+                            + modId + " version " + version, e);
+                }
+                String conceptDefinedId = 
+                        Long.toString(md.getConceptDefinedId());
+                String someId = Long.toString(md.getSomeId());
+                String isAId = Long.toString(md.getIsAId());
+                String conceptModelAttId = 
+                        Long.toString(md.getConceptModelAttId());
                 
                 // TODO: if version don't match the root module's version then
                 // this will throw a NullPoinerException. Can this be smarter?
                 VersionRows vr = bundles.get(modId).get(version);
-                Collection<IAxiom> axioms = new ArrayList<>();
+                CountingAxiomSink axioms = new CountingAxiomSink(sink);
+                sink.startOntology(modId, version);
+                
+                // Each bundle is a complete snapshot so nothing indexed for
+                // the previous version should leak into this one
+                clearIndexes();
 
                 // Process concept rows
                 for (ConceptRow cr : vr.getConceptRows()) {
+                    progress.worked(1, 0);
                     if ("1".equals(cr.getActive())) {
                         if (!conceptDefinedId.equals(
                                 cr.getDefinitionStatusId())) {
@@ -286,6 +517,7 @@ public class RF2Importer implements IImporter {
 
                 // Process relationship rows
                 for (RelationshipRow rr : vr.getRelationshipRows()) {
+                    progress.worked(1, 0);
                     if (!someId.equals(rr.getModifierId())) {
                         throw new RuntimeException("Only existentials are "
                                 + "supported.");
@@ -307,30 +539,30 @@ public class RF2Importer implements IImporter {
                     }
                 }
 
-                populateRoles(children.get(conceptModelAttId), "", 
-                        rightIdentityIds);
+                populateRoles(children.get(conceptModelAttId), "", md);
 
                 // Add role axioms
                 for (String r1 : roles.keySet()) {
                     String parentRole = roles.get(r1).get("parentrole");
 
                     if (!"".equals(parentRole)) {
-                        IRole lhs = getRole(r1, ri);
-                        IRole rhs = getRole(parentRole, ri);
-                        axioms.add(new RoleInclusion(new IRole[] { lhs }, rhs));
+                        IRole lhs = getRole(r1, idType, ri);
+                        IRole rhs = getRole(parentRole, idType, ri);
+                        axioms.accept(new RoleInclusion(new IRole[] { lhs }, rhs));
                     }
 
                     String rightId = roles.get(r1).get("rightID");
                     if (!"".equals(rightId)) {
-                        IRole lhs1 = getRole(r1, ri);
-                        IRole lhs2 = getRole(rightId, ri);
-                        axioms.add(new RoleInclusion(
+                        IRole lhs1 = getRole(r1, idType, ri);
+                        IRole lhs2 = getRole(rightId, idType, ri);
+                        axioms.accept(new RoleInclusion(
                                 new IRole[] { lhs1, lhs2 }, lhs1));
                     }
                 }
 
                 // Add concept axioms
                 for (String c1 : primitive.keySet()) {
+                    progress.worked(1, 0);
                     if (roles.get(c1) != null)
                         continue;
                     Set<String> prs = parents.get(c1);
@@ -346,14 +578,15 @@ public class RF2Importer implements IImporter {
                     if (numElems == 0) {
                         // do nothing
                     } else if (numElems == 1) {
-                        IConcept lhs = getConcept(c1, ci);
-                        IConcept rhs = getConcept(prs.iterator().next(), ci);
-                        axioms.add(new ConceptInclusion(lhs, rhs));
+                        IConcept lhs = getConcept(c1, idType, ci);
+                        IConcept rhs = getConcept(prs.iterator().next(), 
+                                idType, ci);
+                        axioms.accept(new ConceptInclusion(lhs, rhs));
                     } else {
                         List<IConcept> conjs = new ArrayList<>();
 
                         for (String pr : prs) {
-                            conjs.add(getConcept(pr, ci));
+                            conjs.add(getConcept(pr, idType, ci));
                         }
 
                         if (relsVal != null) {
@@ -363,35 +596,34 @@ public class RF2Importer implements IImporter {
                                             .size()];
                                     int j = 0;
                                     for (RoleValuePair rv : rvs) {
-                                        INamedRole<String> role = getRole(
-                                                rv.role, ri);
+                                        INamedRole<T> role = getRole(
+                                                rv.role, idType, ri);
                                         IConcept filler = getConcept(rv.value,
-                                                ci);
-                                        Existential<String> exis = 
-                                                new Existential<String>(
+                                                idType, ci);
+                                        Existential<T> exis = 
+                                                new Existential<T>(
                                                 role, filler);
                                         innerConjs[j++] = exis;
                                     }
                                     // Wrap with a role group
-                                    conjs.add(new Existential<String>(getRole(
-                                            "RoleGroup", ri), new Conjunction(
-                                            innerConjs)));
+                                    conjs.add(new Existential<T>(roleGroup,
+                                            new Conjunction(innerConjs)));
                                 } else {
                                     RoleValuePair first = rvs.iterator().next();
-                                    INamedRole<String> role = getRole(
-                                            first.role, ri);
+                                    INamedRole<T> role = getRole(
+                                            first.role, idType, ri);
                                     IConcept filler = getConcept(first.value,
-                                            ci);
-                                    IExistential<String> exis = 
+                                            idType, ci);
+                                    IExistential<T> exis = 
                                             new Existential<>(
                                             role, filler);
-                                    if (neverGroupedIds.contains(first.role)) {
+                                    if (md.isNeverGrouped(first.role)) {
                                         // Does not need a role group
                                         conjs.add(exis);
                                     } else {
                                         // Needs a role group
-                                        conjs.add(new Existential<String>(
-                                            getRole("RoleGroup", ri), exis));
+                                        conjs.add(new Existential<T>(
+                                            roleGroup, exis));
                                     }
                                 }
                             }
@@ -402,27 +634,26 @@ public class RF2Importer implements IImporter {
                             conjsArr[j] = conjs.get(j);
                         }
 
-                        axioms.add(new ConceptInclusion(getConcept(c1, ci),
+                        axioms.accept(new ConceptInclusion(
+                                getConcept(c1, idType, ci), 
                                 new Conjunction(conjsArr)));
 
                         if (primitive.get(c1).equals("0")) {
-                            axioms.add(new ConceptInclusion(new Conjunction(
-                                    conjsArr), getConcept(c1, ci)));
+                            axioms.accept(new ConceptInclusion(new Conjunction(
+                                    conjsArr), getConcept(c1, idType, ci)));
                         }
                     }
                 }
                 
-                Map<String, IOntology<String>> ontVersions = res.get(modId);
-                if(ontVersions == null) {
-                    ontVersions = new HashMap<>();
-                    res.put(modId, ontVersions);
-                }
-                
-                ontVersions.put(version, new Ontology<String>(axioms, null));
+                sink.endOntology(modId, version);
+                MetricsRegistry.INSTANCE.gauge(AXIOMS.tag("module", modId)
+                        .tag("version", version)).set(axioms.getCount());
+                event.setRows(vr.getConceptRows().size() + 
+                        vr.getRelationshipRows().size());
+                event.setAxioms(axioms.getCount());
+                event.end();
             }
         }
-
-        return res;
     }
     
     /**
@@ -436,7 +667,7 @@ public class RF2Importer implements IImporter {
     protected VersionRows getRowsForBundle(String moduleId, String version, 
             Map<String, Map<String, Set<VersionRows>>> bundles) {
         Set<VersionRows> rows = bundles.get(moduleId).get(version);
-        VersionRows vr = new VersionRows();
+        VersionRows vr = new BundleRows();
         for (VersionRows row : rows) {
             vr.merge(row);
         }
@@ -461,37 +692,120 @@ public class RF2Importer implements IImporter {
                         "reference set for RF2 input files.");
         }
         
-        Map<String, Map<String, ModuleDependency>> deps = 
-                md.getModuleDependencies();
         Map<String, Set<Version>> toLoad = getModuleVersionsToLoad();
         Map<String, Map<String, ? extends VersionRows>> bundles = 
-                getBundles(toLoad, deps, modules);
+                getBundles(toLoad, md.getDependencyGraph(), modules);
         
         return bundles.get(rootModuleId).get(version);
     }
 
+    /**
+     * Imports all the module versions in the inputs. The import can be 
+     * cancelled through the monitor, in which case a 
+     * {@link CancellationException} is thrown and the partial state is
+     * released.
+     */
     @Override
     public Map<String, Map<String, IOntology<String>>> getOntologyVersions(
             IProgressMonitor monitor) {
+        return getOntologyVersions(monitor, IdType.STRING);
+    }
+    
+    /**
+     * Imports all the module versions in the inputs with the specified type 
+     * of identifiers. With {@link IdType#LONG} the ontologies contain 
+     * {@link au.csiro.ontology.model.LongConcept}s and 
+     * {@link au.csiro.ontology.model.LongRole}s.
+     * 
+     * @param monitor
+     * @param idType
+     * @return
+     */
+    public <T extends Comparable<T>> Map<String, Map<String, IOntology<T>>> 
+            getOntologyVersions(IProgressMonitor monitor, IdType<T> idType) {
+        OntologyCollector<T> res = new OntologyCollector<>(shareVersions);
+        importOntologyVersions(monitor, idType, res);
+        return res.getOntologyVersions();
+    }
+    
+    /**
+     * Imports all the module versions in the inputs and sends the axioms of 
+     * each one to the sink as they are created. The rows of all the versions
+     * are still loaded before the first axiom is sent.
+     */
+    @Override
+    public void importOntologyVersions(IProgressMonitor monitor, 
+            IOntologySink sink) {
+        importOntologyVersions(monitor, IdType.STRING, sink);
+    }
+    
+    /**
+     * Imports all the module versions in the inputs with the specified type 
+     * of identifiers and sends the axioms of each one to the sink as they are
+     * created.
+     * 
+     * @param monitor
+     * @param idType
+     * @param sink
+     */
+    public <T extends Comparable<T>> void importOntologyVersions(
+            IProgressMonitor monitor, IdType<T> idType, IOntologySink sink) {
+        try {
+            importVersions(monitor, idType, sink);
+        } catch(CancellationException e) {
+            clearIndexes();
+            monitor.taskEnded();
+            throw e;
+        }
+    }
+    
+    @SuppressWarnings("deprecation")
+    private <T extends Comparable<T>> void importVersions(
+            IProgressMonitor monitor, IdType<T> idType, IOntologySink sink) {
         
-        long start = System.currentTimeMillis();
+        MetricsRegistry metrics = MetricsRegistry.INSTANCE;
+        metrics.counter(RUNS).increment();
+        Timer.Context total = metrics.timer(TIME).time();
         monitor.taskStarted("Importing ontologies");
         
         Map<String, IConcept> ci = new HashMap<>();
-        Map<String, INamedRole<String>> ri = new HashMap<>();
+        Map<String, INamedRole<T>> ri = new HashMap<>();
         // No need for feature index because plain RF2 does not support concrete
         // domains
 
+        // The module dependencies are loaded while the modules are extracted
+        Future<IModuleDependencyRefset> mdFuture = null;
+        if(executor != null) {
+            mdFuture = executor.submit(new Callable<IModuleDependencyRefset>() {
+                @Override
+                public IModuleDependencyRefset call() {
+                    // Already on the executor, so the files are read here
+                    return loadModuleDependencies(null);
+                }
+            });
+        }
+        
         // 1. Extract the modules - this is just the collection of raw data from
         // the RF2 tables
         log.info("Extracting modules");
+        Timer.Context phase = startPhase("extract");
+        PhaseEvent event = PhaseEvents.begin("rf2", "extractModules");
+        progress = new ProgressTracker(monitor, -1, getInputBytes());
         Map<String, Module> modules = extractModules();
+        progress.done();
+        event.setRows(recordRowCounts(modules));
         mergeRows(modules);
+        event.end();
+        phase.stop();
         monitor.step(1, 6);
         
         // 2. Load module dependencies
         log.info("Loading module dependencies");
-        IModuleDependencyRefset md = loadModuleDependencies();
+        phase = startPhase("dependencies");
+        IModuleDependencyRefset md = (mdFuture != null) ? 
+                ImportOrchestrator.getResult(mdFuture) : 
+                    loadModuleDependencies();
+        phase.stop();
         monitor.step(2, 6);
         
         if(md == null) {
@@ -499,39 +813,137 @@ public class RF2Importer implements IImporter {
                         "reference set for RF2 input files.");
         }
         
-        // Each map entry contains a map of modules indexed by version
-        Map<String, Map<String, ModuleDependency>> deps = md.getModuleDependencies();
+        // Dependency graph with the precomputed closure of each module version
+        ModuleDependencyGraph graph = md.getDependencyGraph();
         
         // 3. Determine which modules and versions must be loaded
         log.info("Determining which root modules and versions to load");
+        phase = startPhase("select");
         Map<String, Set<Version>> toLoad = getModuleVersionsToLoad();
+        phase.stop();
         monitor.step(3, 6);
         
         // 4. Assemble the bundles based on the module dependencies
         log.info("Assembling bundles based on module dependencies");
+        phase = startPhase("bundle");
+        event = PhaseEvents.begin("rf2", "getBundles");
+        progress = new ProgressTracker(monitor, -1, -1);
         Map<String, Map<String, ? extends VersionRows>> bundles = 
-                getBundles(toLoad, deps, modules);
+                getBundles(toLoad, graph, modules);
+        event.end();
+        phase.stop();
         monitor.step(4, 6);
         
         // 5. Up to this point we have the raw bundled data - we need to keep 
         // only the latest version of each entity
         log.info("Filtering bundles");
+        phase = startPhase("filter");
+        event = PhaseEvents.begin("rf2", "filterBundles");
+        progress = new ProgressTracker(monitor, countRows(bundles), -1);
         filterBundles(bundles);
+        progress.done();
+        event.end();
+        phase.stop();
         monitor.step(5, 6);
         
         // 6. Transform into axioms
         log.info("Transforming into axioms");
-        Map<String, Map<String, IOntology<String>>> res = transform(toLoad, 
-                bundles, ci, ri);
+        phase = startPhase("transform");
+        // Concept rows are visited twice, once to index and once to build 
+        // the concept axioms
+        progress = new ProgressTracker(monitor, countRows(bundles) * 2, -1);
+        transform(toLoad, bundles, idType, ci, ri, sink);
+        progress.done();
+        phase.stop();
         monitor.step(6, 6);
         
-        Statistics.INSTANCE.setTime("rf2 loading", 
-                System.currentTimeMillis() - start);
+        long elapsed = total.stop();
+        // Still recorded for the callers of the deprecated Statistics
+        au.csiro.ontology.util.Statistics.INSTANCE.setTime("rf2 loading",
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+    
+    /**
+     * Returns the total size of the concepts and relationships files, or -1
+     * if it cannot be determined.
+     * 
+     * @return
+     */
+    private long getInputBytes() {
+        long res = 0;
+        for(RF2Input input : inputs.getRf2Inputs()) {
+            if(!InputType.EXTERNAL.equals(input.getInputType())) return -1;
+            res += new File(input.getConceptsFile()).length();
+            res += new File(input.getStatedRelationshipsFile()).length();
+        }
+        return res;
+    }
+    
+    private long countRows(
+            Map<String, Map<String, ? extends VersionRows>> bundles) {
+        long res = 0;
+        for(Map<String, ? extends VersionRows> vMap : bundles.values()) {
+            for(VersionRows vr : vMap.values()) {
+                res += vr.getConceptRows().size() + 
+                        vr.getRelationshipRows().size();
+            }
+        }
+        return res;
+    }
+    
+    /**
+     * Releases the indexes used to build the axioms.
+     */
+    protected void clearIndexes() {
+        primitive.clear();
+        parents.clear();
+        children.clear();
+        rels.clear();
+        roles.clear();
+    }
+    
+    /**
+     * Starts timing a step of {@link #getOntologyVersions(IProgressMonitor)}.
+     * 
+     * @param name
+     * @return
+     */
+    private Timer.Context startPhase(String name) {
+        return MetricsRegistry.INSTANCE.timer(
+                PHASE_TIME.tag("phase", name)).time();
+    }
+    
+    /**
+     * Records the number of rows read for each module and version and returns
+     * the total.
+     * 
+     * @param modules
+     * @return
+     */
+    private long recordRowCounts(Map<String, Module> modules) {
+        long res = 0;
+        MetricsRegistry metrics = MetricsRegistry.INSTANCE;
+        for(Module m : modules.values()) {
+            for(Map.Entry<String, VersionRows> e : 
+                m.getVersions().entrySet()) {
+                MetricName name = ROWS.tag("module", m.getId()).tag(
+                        "version", e.getKey());
+                VersionRows vr = e.getValue();
+                metrics.gauge(name.tag("table", "concepts")).set(
+                        vr.getConceptRows().size());
+                metrics.gauge(name.tag("table", "relationships")).set(
+                        vr.getRelationshipRows().size());
+                res += vr.getConceptRows().size() + 
+                        vr.getRelationshipRows().size();
+            }
+        }
         return res;
     }
     
     /**
-     * Removes all previous versions of the same entity in a bundle.
+     * Removes all previous versions of the same entity in a bundle. Only the
+     * positions of the latest rows are kept, so the rows of the modules shared
+     * by several bundles are neither modified nor copied.
      * 
      * @param bundles
      */
@@ -541,8 +953,12 @@ public class RF2Importer implements IImporter {
             Map<String, ? extends VersionRows> dateVerMap = bundles.get(modId);
             for(String date : dateVerMap.keySet()) {
                 VersionRows vr = dateVerMap.get(date);
+                progress.worked(vr.getConceptRows().size() + 
+                        vr.getRelationshipRows().size(), 0);
+                progress.checkCancelled();
                 
                 Map<String, Object[]> map = new HashMap<>();
+                int pos = 0;
                 for(ConceptRow cr : vr.getConceptRows()) {
                     String id = cr.getId();
                     String et = cr.getEffectiveTime();
@@ -555,22 +971,23 @@ public class RF2Importer implements IImporter {
                         String currDate = (String)obj[0];
                         if(et.compareTo(currDate) > 0) {
                             obj[0] = et;
-                            obj[1] = cr;
+                            obj[1] = pos;
                         }
                     } else {
                         obj[0] = et;
-                        obj[1] = cr;
+                        obj[1] = pos;
                     }
+                    pos++;
                 }
                 
-                vr.getConceptRows().clear();
-                for(String key : map.keySet()) {
-                    Object[] val = map.get(key);
-                    vr.getConceptRows().add((ConceptRow)val[1]);
+                BitSet conceptRows = new BitSet(pos);
+                for(Object[] val : map.values()) {
+                    conceptRows.set((Integer)val[1]);
                 }
                 
                 map.clear();
                 
+                pos = 0;
                 for(RelationshipRow cr : vr.getRelationshipRows()) {
                     String id = cr.getId();
                     String et = cr.getEffectiveTime();
@@ -583,51 +1000,51 @@ public class RF2Importer implements IImporter {
                         String currDate = (String)obj[0];
                         if(et.compareTo(currDate) > 0) {
                             obj[0] = et;
-                            obj[1] = cr;
+                            obj[1] = pos;
                         }
                     } else {
                         obj[0] = et;
-                        obj[1] = cr;
+                        obj[1] = pos;
                     }
+                    pos++;
                 }
                 
-                vr.getRelationshipRows().clear();
-                for(String key : map.keySet()) {
-                    Object[] val = map.get(key);
-                    vr.getRelationshipRows().add((RelationshipRow)val[1]);
+                BitSet relationshipRows = new BitSet(pos);
+                for(Object[] val : map.values()) {
+                    relationshipRows.set((Integer)val[1]);
                 }
                 map.clear();
+                
+                vr.retainRows(conceptRows, relationshipRows);
             }
         }
     }
     
     protected VersionRows getVersionRows(Map<String, Module> modules, 
             ModuleDependency module, String version) {
-        VersionRows vr = modules.get(module.getId()).getVersions()
-                .get(module.getVersion());
+        return getVersionRows(modules, module.getId(), module.getVersion());
+    }
+    
+    /**
+     * Returns the rows of a version of a module. If the module has no rows for
+     * that version the rows of the previous version are returned.
+     * 
+     * @param modules
+     * @param moduleId
+     * @param moduleVersion
+     * @return
+     */
+    protected VersionRows getVersionRows(Map<String, Module> modules, 
+            String moduleId, String moduleVersion) {
+        SortedMap<String, VersionRows> m = modules.get(moduleId).getVersions();
+        VersionRows vr = m.get(moduleVersion);
         if(vr == null) {
             // vr might be null when using this importer if the
             // only changes in the dependency are in the 
             // descriptions, because the descriptions are not
             // loaded. In this case we need to find the previous
             // version.
-            Map<String, VersionRows> m = modules.get(
-                    module.getId()).getVersions();
-            Set<String> keys = m.keySet();
-            String[] keysArr = keys.toArray(
-                    new String[keys.size()]);
-            Arrays.sort(keysArr);
-            
-            // Find previous version in sorted array
-            int index = Arrays.binarySearch(keysArr, 0, 
-                    keysArr.length, module.getVersion());
-            assert(index < 0);
-            // x = (-(insertion point) - 1)
-            // x + 1 = -insertionPoint
-            // -x - 1 = insertionPoint
-            index = (index * -1) - 1;
-            vr = modules.get(module.getId()).getVersions()
-                    .get(keysArr[index - 1]);
+            vr = m.get(m.headMap(moduleVersion).lastKey());
             assert(vr != null);
         }
         return vr;
@@ -697,182 +1114,241 @@ public class RF2Importer implements IImporter {
      * indexed by module id.
      */
     protected Map<String, Module> extractModules() {
+        // Each file is read into its own map of modules
+        List<Callable<Map<String, Module>>> tasks = new ArrayList<>();
+        for(RF2Input input : inputs.getRf2Inputs()) {
+            final InputType inputType = input.getInputType();
+            final String conceptsFile = input.getConceptsFile();
+            final String relationshipsFile = 
+                    input.getStatedRelationshipsFile();
+            tasks.add(new Callable<Map<String, Module>>() {
+                @Override
+                public Map<String, Module> call() {
+                    return readConcepts(inputType, conceptsFile);
+                }
+            });
+            tasks.add(new Callable<Map<String, Module>>() {
+                @Override
+                public Map<String, Module> call() {
+                    return readRelationships(inputType, relationshipsFile);
+                }
+            });
+        }
         
         // Map of module ids to modules
         Map<String, Module> moduleMap = new HashMap<>();
+        for(Map<String, Module> modules : 
+            ImportOrchestrator.runAll(executor, tasks)) {
+            mergeModules(moduleMap, modules);
+        }
         
-        for(RF2Input input : inputs.getRf2Inputs()) {
-            String conceptsFile = input.getConceptsFile();
-            InputType inputType = input.getInputType();
-            InputStream in = null;
-            if(inputType.equals(InputType.EXTERNAL)) {
-                try {
-                    in = new FileInputStream(conceptsFile);
-                } catch (FileNotFoundException e) {
-                    in = null;
-                }
-            } else if(inputType.equals(InputType.CLASSPATH)) {
-                in = this.getClass().getResourceAsStream(conceptsFile);
-            } else {
-                throw new RuntimeException("Unexpected input type "+inputType);
+        return moduleMap;
+    }
+    
+    /**
+     * Adds the rows of a map of modules to another map of modules.
+     * 
+     * @param target
+     * @param source
+     */
+    protected void mergeModules(Map<String, Module> target, 
+            Map<String, Module> source) {
+        for(String moduleId : source.keySet()) {
+            Module m = target.get(moduleId);
+            if(m == null) {
+                target.put(moduleId, source.get(moduleId));
+                continue;
             }
-            
-            if(in == null) {
-                throw new ImportException("Unable to load concepts file. " +
-                        "Please check your input configuration file. " +
-                        "(input type = "+inputType+", file="+conceptsFile+")");
+            Map<String, VersionRows> vMap = m.getVersions();
+            Map<String, VersionRows> other = 
+                    source.get(moduleId).getVersions();
+            for(String version : other.keySet()) {
+                VersionRows vr = vMap.get(version);
+                if(vr == null) {
+                    vMap.put(version, other.get(version));
+                } else {
+                    vr.merge(other.get(version));
+                }
             }
-            
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(in))) {
-                String line = br.readLine(); // Skip first line
-    
-                while (null != (line = br.readLine())) {
-                    line = new String(line.getBytes(), "UTF8");
-                    if (line.trim().length() < 1) {
-                        continue;
-                    }
-                    int idx1 = line.indexOf('\t');
-                    int idx2 = line.indexOf('\t', idx1 + 1);
-                    int idx3 = line.indexOf('\t', idx2 + 1);
-                    int idx4 = line.indexOf('\t', idx3 + 1);
-    
-                    // 0..idx1 == id
-                    // idx1+1..idx2 == effectiveTime
-                    // idx2+1..idx3 == active
-                    // idx3+1..idx4 == moduleId
-                    // idx4+1..end == definitionStatusId
-    
-                    if (idx1 < 0 || idx2 < 0 || idx3 < 0 || idx4 < 0) {
-                        br.close();
-                        throw new RuntimeException(
-                            "Concepts: Mis-formatted "
-                            + "line, expected at least 5 tab-separated fields, "
-                            + "got: " + line);
-                    }
-    
-                    final String id = line.substring(0, idx1);
-                    final String effectiveTime = line.substring(idx1 + 1, idx2);
-                    final String active = line.substring(idx2 + 1, idx3);
-                    final String moduleId = line.substring(idx3 + 1, idx4);
-                    final String definitionStatusId = line.substring(idx4 + 1);
+        }
+    }
     
-                    ConceptRow cr = new ConceptRow(id, effectiveTime, active, 
-                            moduleId, definitionStatusId);
-                    
-                    Module m = moduleMap.get(moduleId);
-                    if(m == null) {
-                        m = new Module(moduleId);
-                        moduleMap.put(moduleId, m);
-                    }
-                    Map<String, VersionRows> vMap = m.getVersions();
-                    VersionRows vr = vMap.get(effectiveTime);
-                    if(vr == null) {
-                        vr = new VersionRows();
-                        vMap.put(effectiveTime, vr);
-                    }
-                    vr.getConceptRows().add(cr);
+    /**
+     * Reads an RF2 concepts file and returns its rows grouped by module and
+     * version.
+     * 
+     * @param inputType
+     * @param conceptsFile
+     * @return
+     */
+    protected Map<String, Module> readConcepts(InputType inputType, 
+            String conceptsFile) {
+        Map<String, Module> moduleMap = new HashMap<>();
+        InputStream in = getInputStream(inputType, conceptsFile);
+        if(in == null) {
+            throw new ImportException("Unable to load concepts file. " +
+                    "Please check your input configuration file. " +
+                    "(input type = "+inputType+", file="+conceptsFile+")");
+        }
+        
+        CountingInputStream counter = new CountingInputStream(in);
+        long bytes = 0;
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(counter))) {
+            String line = br.readLine(); // Skip first line
+
+            while (null != (line = br.readLine())) {
+                long read = counter.getCount();
+                progress.worked(1, read - bytes);
+                bytes = read;
+                line = new String(line.getBytes(), "UTF8");
+                if (line.trim().length() < 1) {
+                    continue;
                 }
-            } catch (IOException e) {
-                log.error(e);
-                throw new ImportException("Problem while loading concepts.", e);
-            } 
-            
-            // Load relationships
-            String relationshipsFile = input.getStatedRelationshipsFile();
-            if(inputType.equals(InputType.EXTERNAL)) {
-                try {
-                    in = new FileInputStream(relationshipsFile);
-                } catch (FileNotFoundException e) {
-                    in = null;
+                int idx1 = line.indexOf('\t');
+                int idx2 = line.indexOf('\t', idx1 + 1);
+                int idx3 = line.indexOf('\t', idx2 + 1);
+                int idx4 = line.indexOf('\t', idx3 + 1);
+
+                // 0..idx1 == id
+                // idx1+1..idx2 == effectiveTime
+                // idx2+1..idx3 == active
+                // idx3+1..idx4 == moduleId
+                // idx4+1..end == definitionStatusId
+
+                if (idx1 < 0 || idx2 < 0 || idx3 < 0 || idx4 < 0) {
+                    br.close();
+                    throw new RuntimeException(
+                        "Concepts: Mis-formatted "
+                        + "line, expected at least 5 tab-separated fields, "
+                        + "got: " + line);
                 }
-            } else if(inputType.equals(InputType.CLASSPATH)) {
-                in = this.getClass().getResourceAsStream(relationshipsFile);
-            } else {
-                throw new RuntimeException("Unexpected input type "+inputType);
-            }
-            
-            if(in == null) {
-                throw new ImportException("Unable to load realtionships " +
-                        "file. Please check your input configuration file. " +
-                        "(input type = "+inputType+
-                        ", file="+relationshipsFile+")");
+
+                final String id = line.substring(0, idx1);
+                final String effectiveTime = line.substring(idx1 + 1, idx2);
+                final String active = line.substring(idx2 + 1, idx3);
+                final String moduleId = line.substring(idx3 + 1, idx4);
+                final String definitionStatusId = line.substring(idx4 + 1);
+
+                ConceptRow cr = new ConceptRow(id, effectiveTime, active, 
+                        moduleId, definitionStatusId);
+                
+                Module m = moduleMap.get(moduleId);
+                if(m == null) {
+                    m = new Module(moduleId);
+                    moduleMap.put(moduleId, m);
+                }
+                Map<String, VersionRows> vMap = m.getVersions();
+                VersionRows vr = vMap.get(effectiveTime);
+                if(vr == null) {
+                    vr = new VersionRows();
+                    vMap.put(effectiveTime, vr);
+                }
+                vr.getConceptRows().add(cr);
             }
-            
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(in))) {
-                String line = br.readLine(); // Skip first line
-                while (null != (line = br.readLine())) {
-                    if (line.trim().length() < 1) {
-                        continue;
-                    }
-                    int idx1 = line.indexOf('\t');
-                    int idx2 = line.indexOf('\t', idx1 + 1);
-                    int idx3 = line.indexOf('\t', idx2 + 1);
-                    int idx4 = line.indexOf('\t', idx3 + 1);
-                    int idx5 = line.indexOf('\t', idx4 + 1);
-                    int idx6 = line.indexOf('\t', idx5 + 1);
-                    int idx7 = line.indexOf('\t', idx6 + 1);
-                    int idx8 = line.indexOf('\t', idx7 + 1);
-                    int idx9 = line.indexOf('\t', idx8 + 1);
-    
-                    // 0..idx1 == id
-                    // idx1+1..idx2 == effectiveTime
-                    // idx2+1..idx3 == active
-                    // idx3+1..idx4 == moduleId
-                    // idx4+1..idx5 == sourceId
-                    // idx5+1..idx6 == destinationId
-                    // idx6+1..idx7 == relationshipGroup
-                    // idx7+1..idx8 == typeId
-                    // idx8+1..idx9 == characteristicTypeId
-                    // idx9+1..end == modifierId
-    
-                    if (idx1 < 0 || idx2 < 0 || idx3 < 0 || idx4 < 0 || idx5 < 0
-                            || idx6 < 0 || idx7 < 0 || idx8 < 0 || idx9 < 0) {
-                        br.close();
-                        throw new RuntimeException("Concepts: Mis-formatted "
-                                + "line, expected 10 tab-separated fields, "
-                                + "got: " + line);
-                    }
+        } catch (IOException e) {
+            log.error(e);
+            throw new ImportException("Problem while loading concepts.", e);
+        }
+        return moduleMap;
+    }
     
-                    final String id = line.substring(0, idx1);
-                    final String effectiveTime = line.substring(idx1 + 1, idx2);
-                    final String active = line.substring(idx2 + 1, idx3);
-                    final String moduleId = line.substring(idx3 + 1, idx4);
-                    final String sourceId = line.substring(idx4 + 1, idx5);
-                    final String destinationId = line.substring(idx5 + 1, idx6);
-                    final String relationshipGroup = line.substring(idx6 + 1, 
-                            idx7);
-                    final String typeId = line.substring(idx7 + 1, idx8);
-                    final String characteristicTypeId = line.substring(idx8 + 1,
-                            idx9);
-                    final String modifierId = line.substring(idx9 + 1);
-                    
-                    RelationshipRow rr = new RelationshipRow(id, effectiveTime, 
-                            active, moduleId, sourceId, destinationId, 
-                            relationshipGroup, typeId, characteristicTypeId, 
-                            modifierId);
-                    
-                    Module m = moduleMap.get(moduleId);
-                    if(m == null) {
-                        m = new Module(moduleId);
-                        moduleMap.put(moduleId, m);
-                    }
-                    Map<String, VersionRows> vMap = m.getVersions();
-                    VersionRows vr = vMap.get(effectiveTime);
-                    if(vr == null) {
-                        vr = new VersionRows();
-                        vMap.put(effectiveTime, vr);
-                    }
-                    vr.getRelationshipRows().add(rr);
-                }
-            } catch (IOException e) {
-                log.error(e);
-                throw new ImportException(
-                        "Problem while loading Relationships.", e);
-            } 
+    /**
+     * Reads an RF2 stated relationships file and returns its rows grouped by
+     * module and version.
+     * 
+     * @param inputType
+     * @param relationshipsFile
+     * @return
+     */
+    protected Map<String, Module> readRelationships(InputType inputType, 
+            String relationshipsFile) {
+        Map<String, Module> moduleMap = new HashMap<>();
+        InputStream in = getInputStream(inputType, relationshipsFile);
+        if(in == null) {
+            throw new ImportException("Unable to load realtionships " +
+                    "file. Please check your input configuration file. " +
+                    "(input type = "+inputType+
+                    ", file="+relationshipsFile+")");
         }
         
+        CountingInputStream counter = new CountingInputStream(in);
+        long bytes = 0;
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(counter))) {
+            String line = br.readLine(); // Skip first line
+            while (null != (line = br.readLine())) {
+                long read = counter.getCount();
+                progress.worked(1, read - bytes);
+                bytes = read;
+                if (line.trim().length() < 1) {
+                    continue;
+                }
+                int idx1 = line.indexOf('\t');
+                int idx2 = line.indexOf('\t', idx1 + 1);
+                int idx3 = line.indexOf('\t', idx2 + 1);
+                int idx4 = line.indexOf('\t', idx3 + 1);
+                int idx5 = line.indexOf('\t', idx4 + 1);
+                int idx6 = line.indexOf('\t', idx5 + 1);
+                int idx7 = line.indexOf('\t', idx6 + 1);
+                int idx8 = line.indexOf('\t', idx7 + 1);
+                int idx9 = line.indexOf('\t', idx8 + 1);
+
+                // 0..idx1 == id
+                // idx1+1..idx2 == effectiveTime
+                // idx2+1..idx3 == active
+                // idx3+1..idx4 == moduleId
+                // idx4+1..idx5 == sourceId
+                // idx5+1..idx6 == destinationId
+                // idx6+1..idx7 == relationshipGroup
+                // idx7+1..idx8 == typeId
+                // idx8+1..idx9 == characteristicTypeId
+                // idx9+1..end == modifierId
+
+                if (idx1 < 0 || idx2 < 0 || idx3 < 0 || idx4 < 0 || idx5 < 0
+                        || idx6 < 0 || idx7 < 0 || idx8 < 0 || idx9 < 0) {
+                    br.close();
+                    throw new RuntimeException("Concepts: Mis-formatted "
+                            + "line, expected 10 tab-separated fields, "
+                            + "got: " + line);
+                }
+
+                final String id = line.substring(0, idx1);
+                final String effectiveTime = line.substring(idx1 + 1, idx2);
+                final String active = line.substring(idx2 + 1, idx3);
+                final String moduleId = line.substring(idx3 + 1, idx4);
+                final String sourceId = line.substring(idx4 + 1, idx5);
+                final String destinationId = line.substring(idx5 + 1, idx6);
+                final String relationshipGroup = line.substring(idx6 + 1, 
+                        idx7);
+                final String typeId = line.substring(idx7 + 1, idx8);
+                final String characteristicTypeId = line.substring(idx8 + 1,
+                        idx9);
+                final String modifierId = line.substring(idx9 + 1);
+                
+                RelationshipRow rr = new RelationshipRow(id, effectiveTime, 
+                        active, moduleId, sourceId, destinationId, 
+                        relationshipGroup, typeId, characteristicTypeId, 
+                        modifierId);
+                
+                Module m = moduleMap.get(moduleId);
+                if(m == null) {
+                    m = new Module(moduleId);
+                    moduleMap.put(moduleId, m);
+                }
+                Map<String, VersionRows> vMap = m.getVersions();
+                VersionRows vr = vMap.get(effectiveTime);
+                if(vr == null) {
+                    vr = new VersionRows();
+                    vMap.put(effectiveTime, vr);
+                }
+                vr.getRelationshipRows().add(rr);
+            }
+        } catch (IOException e) {
+            log.error(e);
+            throw new ImportException(
+                    "Problem while loading Relationships.", e);
+        }
         return moduleMap;
     }
     
@@ -933,25 +1409,40 @@ public class RF2Importer implements IImporter {
         return prev;
     }
 
-    protected IConcept getConcept(String id, Map<String, IConcept> ci) {
+    protected <T extends Comparable<T>> IConcept getConcept(String id, 
+            IdType<T> idType, Map<String, IConcept> ci) {
         IConcept c = ci.get(id);
         if (c == null) {
-            c = new Concept<String>(id);
+            c = idType.getFactory().createConcept(idType.valueOf(id));
             ci.put(id, c);
         }
         return c;
     }
 
-    protected INamedRole<String> getRole(String id,
-            Map<String, INamedRole<String>> ri) {
-        INamedRole<String> r = ri.get(id);
+    protected <T extends Comparable<T>> INamedRole<T> getRole(String id,
+            IdType<T> idType, Map<String, INamedRole<T>> ri) {
+        INamedRole<T> r = ri.get(id);
         if (r == null) {
-            r = new Role<String>(id);
+            r = idType.getFactory().createRole(idType.valueOf(id));
             ri.put(id, r);
         }
         return r;
     }
 
+    /**
+     * Returns the role used to group related expressions. It is indexed as
+     * "RoleGroup" because it does not have a SNOMED id in the release files.
+     */
+    protected <T extends Comparable<T>> INamedRole<T> getRoleGroup(
+            IdType<T> idType, Map<String, INamedRole<T>> ri) {
+        INamedRole<T> r = ri.get("RoleGroup");
+        if (r == null) {
+            r = idType.getFactory().createRole(idType.getRoleGroupId());
+            ri.put("RoleGroup", r);
+        }
+        return r;
+    }
+
     protected void populateParent(String src, String tgt) {
         Set<String> prs = parents.get(src);
         if (prs == null) {
@@ -981,15 +1472,14 @@ public class RF2Importer implements IImporter {
     }
 
     protected void populateRoles(Set<String> roles, String parentSCTID, 
-            String rightIdentityIds) {
+            SnomedVersionMetadata md) {
         if(roles == null) return;
         for (String role : roles) {
             Set<String> cs = children.get(role);
             if (cs != null) {
-                populateRoles(cs, role, rightIdentityIds);
+                populateRoles(cs, role, md);
             }
-            String[] ris = rightIdentityIds.split("[,]");
-            String ri = (ris[0].equals(role)) ? ris[1] : null;
+            String ri = md.getRightIdentity(role);
             if (ri != null) {
                 populateRoleDef(role, ri, parentSCTID);
             } else {
@@ -0,0 +1,381 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads tab-separated RF2 files directly from bytes. Each call to
+ * {@link #next()} moves to the next non-empty line and records the offsets of
+ * its fields so that identifiers, dates and flags can be parsed without
+ * creating intermediate {@link String}s.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class RF2LineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private byte[] buf;
+
+    /**
+     * Start of unread data in the buffer.
+     */
+    private int pos;
+
+    /**
+     * End of valid data in the buffer.
+     */
+    private int limit;
+
+    private boolean eof;
+    private boolean firstLine = true;
+
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int numFields;
+    private int lineStart;
+    private int lineEnd;
+
+    private long lineNumber;
+    private long bytesRead;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param in
+     */
+    public RF2LineReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new reader with the specified initial buffer size.
+     *
+     * @param in
+     * @param bufferSize
+     */
+    public RF2LineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Moves to the next non-empty line. Returns false when the end of the
+     * stream is reached.
+     *
+     * @return
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        while(true) {
+            int nl = findNewLine();
+            if(nl < 0) {
+                return false;
+            }
+            lineNumber++;
+            int start = pos;
+            int end = nl;
+            pos = nl + 1;
+            if(end > start && buf[end - 1] == '\r') end--;
+            if(firstLine) {
+                firstLine = false;
+                // Skip UTF-8 byte order mark
+                if(end - start >= 3 && buf[start] == (byte) 0xEF &&
+                        buf[start + 1] == (byte) 0xBB &&
+                        buf[start + 2] == (byte) 0xBF) {
+                    start += 3;
+                }
+            }
+            if(isBlank(start, end)) continue;
+            split(start, end);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the index of the next '\n' in the buffer, refilling it as
+     * required. If the stream ends without a final new line, a virtual one is
+     * placed at the end of the data.
+     */
+    private int findNewLine() throws IOException {
+        int scan = pos;
+        while(true) {
+            for(int i = scan; i < limit; i++) {
+                if(buf[i] == '\n') return i;
+            }
+            if(eof) {
+                if(pos < limit) {
+                    // Last line without new line
+                    ensureCapacity(limit + 1);
+                    buf[limit] = '\n';
+                    return limit++;
+                }
+                return -1;
+            }
+            scan = limit - pos;
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        // Move remaining bytes to the start of the buffer
+        int remaining = limit - pos;
+        if(pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+            pos = 0;
+            limit = remaining;
+        }
+        if(limit == buf.length) {
+            // Line longer than the buffer
+            buf = Arrays.copyOf(buf, buf.length << 1);
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if(n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+            bytesRead += n;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length << 1));
+        }
+    }
+
+    private boolean isBlank(int start, int end) {
+        for(int i = start; i < end; i++) {
+            byte b = buf[i];
+            if(b != ' ' && b != '\t') return false;
+        }
+        return true;
+    }
+
+    private void split(int start, int end) {
+        lineStart = start;
+        lineEnd = end;
+        numFields = 0;
+        int fs = start;
+        for(int i = start; i < end; i++) {
+            if(buf[i] == '\t') {
+                addField(fs, i);
+                fs = i + 1;
+            }
+        }
+        addField(fs, end);
+    }
+
+    private void addField(int start, int end) {
+        if(numFields == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, numFields << 1);
+            fieldEnd = Arrays.copyOf(fieldEnd, numFields << 1);
+        }
+        fieldStart[numFields] = start;
+        fieldEnd[numFields] = end;
+        numFields++;
+    }
+
+    /**
+     * @return the number of fields in the current line
+     */
+    public int getFieldCount() {
+        return numFields;
+    }
+
+    /**
+     * @return the number of the current line, starting at 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the number of bytes read from the underlying stream so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the value of a field as a {@link String}.
+     *
+     * @param field
+     * @return
+     */
+    public String getString(int field) {
+        int s = fieldStart[field];
+        return new String(buf, s, fieldEnd[field] - s, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns true if a field is empty.
+     *
+     * @param field
+     * @return
+     */
+    public boolean isEmpty(int field) {
+        return fieldEnd[field] == fieldStart[field];
+    }
+
+    /**
+     * Returns true if a field contains exactly the specified ASCII value.
+     *
+     * @param field
+     * @param value
+     * @return
+     */
+    public boolean fieldEquals(int field, String value) {
+        int s = fieldStart[field];
+        int len = fieldEnd[field] - s;
+        if(len != value.length()) return false;
+        for(int i = 0; i < len; i++) {
+            if(buf[s + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a field that contains a non-negative decimal number, such as a
+     * SNOMED identifier.
+     *
+     * @param field
+     * @return
+     */
+    public long getLong(int field) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        if(s == e) {
+            throw new NumberFormatException("Empty numeric field in line "+
+                    lineNumber);
+        }
+        long res = 0;
+        for(int i = s; i < e; i++) {
+            int d = buf[i] - '0';
+            if(d < 0 || d > 9) {
+                throw new NumberFormatException("Invalid number "+
+                        getString(field)+" in line "+lineNumber);
+            }
+            res = res * 10 + d;
+        }
+        return res;
+    }
+
+    /**
+     * Parses a field that contains a decimal integer, such as an effective
+     * time, a group or a flag.
+     *
+     * @param field
+     * @return
+     */
+    public int getInt(int field) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        boolean negative = false;
+        if(s < e && buf[s] == '-') {
+            negative = true;
+            s++;
+        }
+        if(s == e) {
+            throw new NumberFormatException("Empty numeric field in line "+
+                    lineNumber);
+        }
+        int res = 0;
+        for(int i = s; i < e; i++) {
+            int d = buf[i] - '0';
+            if(d < 0 || d > 9) {
+                throw new NumberFormatException("Invalid number "+
+                        getString(field)+" in line "+lineNumber);
+            }
+            res = res * 10 + d;
+        }
+        return negative ? -res : res;
+    }
+
+    /**
+     * Returns true if a field contains the single character '1'.
+     *
+     * @param field
+     * @return
+     */
+    public boolean isOne(int field) {
+        int s = fieldStart[field];
+        return fieldEnd[field] - s == 1 && buf[s] == '1';
+    }
+
+    /**
+     * Returns true if a field looks like a UUID (32 hexadecimal digits and
+     * four dashes).
+     *
+     * @param field
+     * @return
+     */
+    public boolean isUuid(int field) {
+        return fieldEnd[field] - fieldStart[field] == 36;
+    }
+
+    /**
+     * Returns the most significant bits of a UUID field.
+     *
+     * @param field
+     * @return
+     */
+    public long getUuidMsb(int field) {
+        return parseHex(fieldStart[field], fieldStart[field] + 18);
+    }
+
+    /**
+     * Returns the least significant bits of a UUID field.
+     *
+     * @param field
+     * @return
+     */
+    public long getUuidLsb(int field) {
+        return parseHex(fieldStart[field] + 19, fieldStart[field] + 36);
+    }
+
+    private long parseHex(int s, int e) {
+        long res = 0;
+        for(int i = s; i < e; i++) {
+            byte b = buf[i];
+            int d;
+            if(b >= '0' && b <= '9') {
+                d = b - '0';
+            } else if(b >= 'a' && b <= 'f') {
+                d = b - 'a' + 10;
+            } else if(b >= 'A' && b <= 'F') {
+                d = b - 'A' + 10;
+            } else if(b == '-') {
+                continue;
+            } else {
+                throw new NumberFormatException("Invalid UUID in line "+
+                        lineNumber);
+            }
+            res = (res << 4) | d;
+        }
+        return res;
+    }
+
+    /**
+     * @return the current line as a {@link String}, for error messages
+     */
+    public String getLine() {
+        return new String(buf, lineStart, lineEnd - lineStart,
+                StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
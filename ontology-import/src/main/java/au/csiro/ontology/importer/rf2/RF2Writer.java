@@ -0,0 +1,545 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.importer.ImportOrchestrator;
+import au.csiro.ontology.snomed.refset.rf2.ColumnarRefset;
+
+/**
+ * Writes RF2 files for concepts, relationships and reference sets. Rows are
+ * encoded directly into pooled byte buffers that are written through
+ * {@link FileChannel}s, without formatting intermediate strings.
+ *
+ * <p>
+ * Rows can optionally be sorted by id (and then by effective time) so the
+ * output is deterministic. If an executor is supplied, large tables are
+ * sorted as several runs in parallel that are then merged while writing.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class RF2Writer {
+
+    static final byte[] CONCEPT_HEADER = ascii("id\teffectiveTime\t" +
+            "active\tmoduleId\tdefinitionStatusId");
+    static final byte[] RELATIONSHIP_HEADER = ascii("id\t" +
+            "effectiveTime\tactive\tmoduleId\tsourceId\tdestinationId\t" +
+            "relationshipGroup\ttypeId\tcharacteristicTypeId\tmodifierId");
+    private static final byte[] REFSET_HEADER = ascii("id\teffectiveTime\t" +
+            "active\tmoduleId\trefsetId\treferencedComponentId");
+
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    /**
+     * Tables smaller than twice this size are sorted in a single run.
+     */
+    private static final int MIN_RUN_SIZE = 100000;
+
+    /**
+     * Buffers shared by all the writers.
+     */
+    private static final ConcurrentLinkedQueue<ByteBuffer> pool =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * Orders concept rows by id and then by effective time.
+     */
+    public static final Comparator<ConceptRow> CONCEPT_ORDER =
+            new Comparator<ConceptRow>() {
+        @Override
+        public int compare(ConceptRow r1, ConceptRow r2) {
+            int res = compareIds(r1.getId(), r2.getId());
+            if(res != 0) return res;
+            return r1.getEffectiveTime().compareTo(r2.getEffectiveTime());
+        }
+    };
+
+    /**
+     * Orders relationship rows by id and then by effective time.
+     */
+    public static final Comparator<RelationshipRow> RELATIONSHIP_ORDER =
+            new Comparator<RelationshipRow>() {
+        @Override
+        public int compare(RelationshipRow r1, RelationshipRow r2) {
+            int res = compareIds(r1.getId(), r2.getId());
+            if(res != 0) return res;
+            return r1.getEffectiveTime().compareTo(r2.getEffectiveTime());
+        }
+    };
+
+    private final boolean sorted;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a writer that sorts the rows sequentially.
+     */
+    public RF2Writer() {
+        this(true, null);
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param sorted If true the rows are sorted by id. Otherwise they are
+     * written in the order they are supplied.
+     * @param executor Executor used to sort large tables in parallel, or null
+     * to sort sequentially.
+     */
+    public RF2Writer(boolean sorted, ExecutorService executor) {
+        this.sorted = sorted;
+        this.executor = executor;
+    }
+
+    /**
+     * Writes the latest version of each concept and relationship in a set of
+     * rows, such as the ones returned by
+     * {@link RF2Importer#getSnapshot(String, String)}, as snapshot files.
+     *
+     * @param rows
+     * @param conceptsFile
+     * @param relationshipsFile
+     */
+    public void writeSnapshot(VersionRows rows, File conceptsFile,
+            File relationshipsFile) {
+        writeConcepts(latestConcepts(rows.getConceptRows()), conceptsFile);
+        writeRelationships(latestRelationships(rows.getRelationshipRows()),
+                relationshipsFile);
+    }
+
+    /**
+     * Returns the row with the latest effective time for each concept id.
+     *
+     * @param rows
+     * @return
+     */
+    public static List<ConceptRow> latestConcepts(
+            Collection<ConceptRow> rows) {
+        Map<String, ConceptRow> latest = new HashMap<>();
+        for(ConceptRow row : rows) {
+            ConceptRow prev = latest.get(row.getId());
+            if(prev == null || prev.getEffectiveTime().compareTo(
+                    row.getEffectiveTime()) < 0) {
+                latest.put(row.getId(), row);
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Returns the row with the latest effective time for each relationship
+     * id.
+     *
+     * @param rows
+     * @return
+     */
+    public static List<RelationshipRow> latestRelationships(
+            Collection<RelationshipRow> rows) {
+        Map<String, RelationshipRow> latest = new HashMap<>();
+        for(RelationshipRow row : rows) {
+            RelationshipRow prev = latest.get(row.getId());
+            if(prev == null || prev.getEffectiveTime().compareTo(
+                    row.getEffectiveTime()) < 0) {
+                latest.put(row.getId(), row);
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    public void writeConcepts(Collection<ConceptRow> rows, File file) {
+        try (FileChannel fc = open(file)) {
+            writeConcepts(rows, fc);
+        } catch (IOException e) {
+            throw new ImportException("Problem writing file "+file, e);
+        }
+    }
+
+    /**
+     * Writes concept rows to a channel, including the header. The channel is
+     * not closed.
+     *
+     * @param rows
+     * @param out
+     * @throws IOException
+     */
+    public void writeConcepts(Collection<ConceptRow> rows,
+            WritableByteChannel out) throws IOException {
+        try (Output o = new Output(out)) {
+            o.put(CONCEPT_HEADER);
+            o.newLine();
+            Iterator<ConceptRow> it = order(rows, CONCEPT_ORDER);
+            while(it.hasNext()) {
+                ConceptRow row = it.next();
+                o.put(row.getId());
+                o.tab();
+                o.put(row.getEffectiveTime());
+                o.tab();
+                o.put(row.getActive());
+                o.tab();
+                o.put(row.getModuleId());
+                o.tab();
+                o.put(row.getDefinitionStatusId());
+                o.newLine();
+            }
+        }
+    }
+
+    public void writeRelationships(Collection<RelationshipRow> rows,
+            File file) {
+        try (FileChannel fc = open(file)) {
+            writeRelationships(rows, fc);
+        } catch (IOException e) {
+            throw new ImportException("Problem writing file "+file, e);
+        }
+    }
+
+    /**
+     * Writes relationship rows to a channel, including the header. The
+     * channel is not closed.
+     *
+     * @param rows
+     * @param out
+     * @throws IOException
+     */
+    public void writeRelationships(Collection<RelationshipRow> rows,
+            WritableByteChannel out) throws IOException {
+        try (Output o = new Output(out)) {
+            o.put(RELATIONSHIP_HEADER);
+            o.newLine();
+            Iterator<RelationshipRow> it = order(rows, RELATIONSHIP_ORDER);
+            while(it.hasNext()) {
+                RelationshipRow row = it.next();
+                o.put(row.getId());
+                o.tab();
+                o.put(row.getEffectiveTime());
+                o.tab();
+                o.put(row.getActive());
+                o.tab();
+                o.put(row.getModuleId());
+                o.tab();
+                o.put(row.getSourceId());
+                o.tab();
+                o.put(row.getDestinationId());
+                o.tab();
+                o.put(row.getRelationshipGroup());
+                o.tab();
+                o.put(row.getTypeId());
+                o.tab();
+                o.put(row.getCharacteristicTypeId());
+                o.tab();
+                o.put(row.getModifierId());
+                o.newLine();
+            }
+        }
+    }
+
+    public void writeRefset(ColumnarRefset refset, File file) {
+        try (FileChannel fc = open(file)) {
+            writeRefset(refset, fc);
+        } catch (IOException e) {
+            throw new ImportException("Problem writing file "+file, e);
+        }
+    }
+
+    /**
+     * Writes the members of a reference set to a channel, including the
+     * header. The additional columns are written after the standard ones.
+     * The channel is not closed.
+     *
+     * @param refset
+     * @param out
+     * @throws IOException
+     */
+    public void writeRefset(final ColumnarRefset refset,
+            WritableByteChannel out) throws IOException {
+        List<Integer> rows = new ArrayList<>(refset.size());
+        for(int row = 0; row < refset.size(); row++) {
+            rows.add(row);
+        }
+
+        try (Output o = new Output(out)) {
+            o.put(REFSET_HEADER);
+            for(int col = 0; col < refset.getColumnCount(); col++) {
+                o.tab();
+                o.put(refset.getColumnName(col));
+            }
+            o.newLine();
+
+            Iterator<Integer> it = order(rows, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer r1, Integer r2) {
+                    int res = refset.compareMemberIds(r1, r2);
+                    if(res != 0) return res;
+                    return Integer.compare(refset.getEffectiveTime(r1),
+                            refset.getEffectiveTime(r2));
+                }
+            });
+            while(it.hasNext()) {
+                int row = it.next();
+                o.put(refset.getMemberId(row));
+                o.tab();
+                o.put(refset.getEffectiveTime(row));
+                o.tab();
+                o.put(refset.isActive(row) ? 1 : 0);
+                o.tab();
+                o.put(refset.getModuleId(row));
+                o.tab();
+                o.put(refset.getRefsetId());
+                o.tab();
+                o.put(refset.getReferencedComponentId(row));
+                for(int col = 0; col < refset.getColumnCount(); col++) {
+                    o.tab();
+                    switch(refset.getColumnType(col)) {
+                        case COMPONENT:
+                            o.put(refset.getComponent(row, col));
+                            break;
+                        case INTEGER:
+                            o.put(refset.getInteger(row, col));
+                            break;
+                        default:
+                            o.put(refset.getString(row, col));
+                    }
+                }
+                o.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the rows in the order they have to be written. Large tables are
+     * sorted in several runs in parallel and the runs are merged lazily.
+     *
+     * @param rows
+     * @param cmp
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Iterator<T> order(Collection<T> rows,
+            final Comparator<? super T> cmp) {
+        if(!sorted) {
+            return rows.iterator();
+        }
+
+        final T[] arr = (T[]) rows.toArray();
+        if(executor == null || arr.length < 2 * MIN_RUN_SIZE) {
+            Arrays.sort(arr, cmp);
+            return Arrays.asList(arr).iterator();
+        }
+
+        int numRuns = Math.min(arr.length / MIN_RUN_SIZE,
+                Runtime.getRuntime().availableProcessors() * 2);
+        final int runSize = (arr.length + numRuns - 1) / numRuns;
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for(int start = 0; start < arr.length; start += runSize) {
+            final int from = start;
+            final int to = Math.min(start + runSize, arr.length);
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    Arrays.sort(arr, from, to, cmp);
+                    return new int[] { from, to };
+                }
+            });
+        }
+        return new MergeIterator<>(arr,
+                ImportOrchestrator.runAll(executor, tasks), cmp);
+    }
+
+    /**
+     * Compares SNOMED CT ids numerically, assuming there are no leading
+     * zeros, without parsing them.
+     *
+     * @param id1
+     * @param id2
+     * @return
+     */
+    private static int compareIds(String id1, String id2) {
+        int res = Integer.compare(id1.length(), id2.length());
+        return (res != 0) ? res : id1.compareTo(id2);
+    }
+
+    static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Merges sorted runs of an array.
+     */
+    private static class MergeIterator<T> implements Iterator<T> {
+
+        private final T[] arr;
+        private final int[] pos;
+        private final int[] end;
+        private final PriorityQueue<Integer> heads;
+
+        public MergeIterator(T[] arr, List<int[]> runs,
+                final Comparator<? super T> cmp) {
+            this.arr = arr;
+            pos = new int[runs.size()];
+            end = new int[runs.size()];
+            heads = new PriorityQueue<>(runs.size(), new Comparator<Integer>() {
+                @Override
+                public int compare(Integer r1, Integer r2) {
+                    int res = cmp.compare(MergeIterator.this.arr[pos[r1]],
+                            MergeIterator.this.arr[pos[r2]]);
+                    // Keep the merge stable
+                    return (res != 0) ? res : Integer.compare(r1, r2);
+                }
+            });
+            for(int i = 0; i < runs.size(); i++) {
+                pos[i] = runs.get(i)[0];
+                end[i] = runs.get(i)[1];
+                if(pos[i] < end[i]) heads.add(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Integer run = heads.poll();
+            if(run == null) {
+                throw new NoSuchElementException();
+            }
+            T res = arr[pos[run]++];
+            if(pos[run] < end[run]) heads.add(run);
+            return res;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Encodes fields into a pooled buffer and writes the buffer to a channel
+     * when it is full. Lines end in CRLF, as in the SNOMED CT releases.
+     */
+    static class Output implements AutoCloseable {
+
+        private final WritableByteChannel out;
+        private final ByteBuffer buf;
+        private final byte[] digits = new byte[20];
+
+        public Output(WritableByteChannel out) {
+            this.out = out;
+            ByteBuffer b = pool.poll();
+            this.buf = (b != null) ? b : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        private void ensure(int n) throws IOException {
+            if(buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        public void tab() throws IOException {
+            ensure(1);
+            buf.put((byte) '\t');
+        }
+
+        public void newLine() throws IOException {
+            ensure(2);
+            buf.put((byte) '\r');
+            buf.put((byte) '\n');
+        }
+
+        public void put(byte[] bytes) throws IOException {
+            if(bytes.length > buf.capacity()) {
+                flush();
+                ByteBuffer bb = ByteBuffer.wrap(bytes);
+                while(bb.hasRemaining()) {
+                    out.write(bb);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buf.put(bytes);
+        }
+
+        public void put(String s) throws IOException {
+            if(s == null) return;
+            int len = s.length();
+            if(len > buf.capacity()) {
+                put(s.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            ensure(len);
+            for(int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if(c >= 0x80) {
+                    // Not ASCII - encode the rest of the string as UTF-8
+                    put(s.substring(i).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                buf.put((byte) c);
+            }
+        }
+
+        public void put(long value) throws IOException {
+            if(value < 0) {
+                put(String.valueOf(value));
+                return;
+            }
+            int i = digits.length;
+            do {
+                digits[--i] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while(value != 0);
+            ensure(digits.length - i);
+            buf.put(digits, i, digits.length - i);
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while(buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                buf.clear();
+                pool.offer(buf);
+            }
+        }
+    }
+
+}
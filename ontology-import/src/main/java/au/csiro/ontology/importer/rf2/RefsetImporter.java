@@ -4,19 +4,27 @@
  */
 package au.csiro.ontology.importer.rf2;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
 import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.snomed.refset.rf2.ColumnType;
+import au.csiro.ontology.snomed.refset.rf2.ColumnarRefset;
 import au.csiro.ontology.snomed.refset.rf2.IModuleDependencyRefset;
 import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyRefset;
 import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyRow;
+import au.csiro.ontology.snomed.refset.rf2.RefsetStore;
 
 /**
  * Imports RF2 reference sets.
@@ -28,6 +36,19 @@ public class RefsetImporter {
     
     // Logger
     private final static Logger log = Logger.getLogger(RefsetImporter.class);
+
+    /**
+     * Number of columns shared by all reference sets: id, effectiveTime,
+     * active, moduleId, refsetId and referencedComponentId.
+     */
+    private static final int NUM_STANDARD_COLUMNS = 6;
+
+    /**
+     * Matches the column type pattern in an RF2 reference set file name, e.g.
+     * der2_iissscRefset_ComplexMapFull_INT_20120131.txt.
+     */
+    private static final Pattern FILE_NAME_PATTERN =
+            Pattern.compile("_([cis]*)Refset_");
     
     /**
      * Imports a module dependency reference set from a {@link Set} of 
@@ -42,43 +63,221 @@ public class RefsetImporter {
         
         Set<ModuleDependencyRow> members = new HashSet<>();
         for(InputStream refsetFile : refsetFiles) {
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(refsetFile))){
-                String line = br.readLine();
-                
-                String[] cols = line.split("[\t]");
-                assert(cols.length >= 6);
-                
-                if(cols.length == 8) {
-                    // Test if it is a module dependency refset
-                    if(cols[6].equals("sourceEffectiveTime") && 
-                            cols[7].equals("targetEffectiveTime")) {
-
-                        while (null != (line = br.readLine())) {
-                            cols = line.split("[\t]");
-                            boolean active = cols[2].equals("1") ? true : false;
-                            ModuleDependencyRow m = 
-                                    new ModuleDependencyRow(cols[0], 
-                                            cols[1], active , cols[3], cols[4], 
-                                            cols[5], cols[6], cols[7]);
-                            members.add(m);
-                        }
-                    } else {
-                        throw new ImportException("Malformed module " +
-                        	"dependency reference set with columns "+
-                                Arrays.asList(cols));
+            members.addAll(readModuleDependencyRows(refsetFile));
+        }
+        
+        IModuleDependencyRefset res = new ModuleDependencyRefset(members);
+        return res;
+    }
+
+    /**
+     * Reads the rows of a single module dependency reference set file. Several
+     * files can be read concurrently and their rows combined into a
+     * {@link ModuleDependencyRefset}. This method closes the
+     * {@link InputStream}.
+     *
+     * @param refsetFile
+     * @return
+     */
+    public static List<ModuleDependencyRow> readModuleDependencyRows(
+            InputStream refsetFile) {
+        List<ModuleDependencyRow> members = new ArrayList<>();
+        try (RF2LineReader reader = new RF2LineReader(refsetFile)) {
+            if(!reader.next()) {
+                return members;
+            }
+
+            // Test if it is a module dependency refset
+            if(reader.getFieldCount() != 8 ||
+                    !reader.fieldEquals(6, "sourceEffectiveTime") ||
+                    !reader.fieldEquals(7, "targetEffectiveTime")) {
+                throw new ImportException("Malformed module dependency " +
+                        "reference set with columns "+reader.getLine());
+            }
+
+            while (reader.next()) {
+                ModuleDependencyRow m = new ModuleDependencyRow(
+                        reader.getString(0), reader.getString(1),
+                        reader.isOne(2), reader.getString(3),
+                        reader.getString(4), reader.getString(5),
+                        reader.getString(6), reader.getString(7));
+                members.add(m);
+            }
+        } catch (Exception e) {
+            log.error("Problem reading refset file "+refsetFile, e);
+            throw new ImportException("Problem reading refset file ", e);
+        }
+        return members;
+    }
+
+    /**
+     * Imports a collection of reference set files of any type into a
+     * {@link RefsetStore}. The keys of the map are the names of the files and
+     * are used to determine the types of the additional columns. This method
+     * closes the {@link InputStream}s after loading the reference sets.
+     *
+     * @param refsetFiles The input streams indexed by file name.
+     * @param latestOnly If true only the latest version of each member is
+     * kept.
+     * @return
+     */
+    public static RefsetStore importRefsets(
+            Map<String, InputStream> refsetFiles, boolean latestOnly) {
+        Map<Long, ColumnarRefset.Builder> builders = new HashMap<>();
+        for(String fileName : refsetFiles.keySet()) {
+            importRefset(fileName, refsetFiles.get(fileName), latestOnly,
+                    builders);
+        }
+        return buildStore(builders);
+    }
+
+    /**
+     * Builds a {@link RefsetStore} from the builders populated by
+     * {@link #importRefset(String, InputStream, boolean, Map)}.
+     *
+     * @param builders
+     * @return
+     */
+    public static RefsetStore buildStore(
+            Map<Long, ColumnarRefset.Builder> builders) {
+        List<ColumnarRefset> refsets = new ArrayList<>();
+        for(ColumnarRefset.Builder builder : builders.values()) {
+            refsets.add(builder.build());
+        }
+        return new RefsetStore(refsets);
+    }
+
+    /**
+     * Reads a single reference set file and adds its members to the builder of
+     * the corresponding reference set. A file may contain the members of
+     * several reference sets and the members of a reference set may be spread
+     * across several files. This method closes the {@link InputStream}.
+     *
+     * @param fileName The name of the file, used to infer the column types.
+     * @param in The contents of the file.
+     * @param latestOnly If true only the latest version of each member is
+     * kept.
+     * @param builders The builders, indexed by refset id.
+     */
+    public static void importRefset(String fileName, InputStream in,
+            boolean latestOnly, Map<Long, ColumnarRefset.Builder> builders) {
+        try (RF2LineReader reader = new RF2LineReader(in)) {
+            if(!reader.next()) {
+                return;
+            }
+
+            int numFields = reader.getFieldCount();
+            if(numFields < NUM_STANDARD_COLUMNS) {
+                throw new ImportException("Malformed reference set "+fileName+
+                        " with columns "+reader.getLine());
+            }
+
+            String[] names = new String[numFields - NUM_STANDARD_COLUMNS];
+            for(int i = 0; i < names.length; i++) {
+                names[i] = reader.getString(NUM_STANDARD_COLUMNS + i);
+            }
+            ColumnType[] types = getColumnTypes(fileName, names);
+
+            Map<String, String> pool = new HashMap<>();
+            ColumnarRefset.Builder builder = null;
+            while(reader.next()) {
+                if(reader.getFieldCount() != numFields) {
+                    throw new ImportException("Reference set "+fileName+
+                            ": Mis-formatted line, expected "+numFields+
+                            " tab-separated fields, got: "+reader.getLine());
+                }
+
+                long refsetId = reader.getLong(4);
+                if(builder == null || builder.getRefsetId() != refsetId) {
+                    builder = builders.get(refsetId);
+                    if(builder == null) {
+                        builder = new ColumnarRefset.Builder(refsetId, names,
+                                types, latestOnly);
+                        builders.put(refsetId, builder);
+                    } else if(!Arrays.equals(names, builder.getColumnNames())
+                            || !Arrays.equals(types,
+                                    builder.getColumnTypes())) {
+                        throw new ImportException("Reference set "+refsetId+
+                                " has inconsistent columns in file "+fileName);
                     }
+                }
+
+                long msb = 0;
+                long lsb;
+                if(reader.isUuid(0)) {
+                    msb = reader.getUuidMsb(0);
+                    lsb = reader.getUuidLsb(0);
                 } else {
-                    throw new ImportException("Malformed module dependency " +
-                    	"reference set with columns "+Arrays.asList(cols));
+                    lsb = reader.getLong(0);
+                }
+
+                int row = builder.addMember(msb, lsb, reader.getInt(1),
+                        reader.isOne(2), reader.getLong(3),
+                        reader.getLong(5));
+                if(row < 0) {
+                    continue;
+                }
+
+                for(int i = 0; i < types.length; i++) {
+                    int field = NUM_STANDARD_COLUMNS + i;
+                    switch(types[i]) {
+                        case COMPONENT:
+                            builder.setComponent(row, i,
+                                    reader.isEmpty(field) ? 0 :
+                                        reader.getLong(field));
+                            break;
+                        case INTEGER:
+                            builder.setInteger(row, i,
+                                    reader.isEmpty(field) ? 0 :
+                                        reader.getInt(field));
+                            break;
+                        default:
+                            String value = reader.getString(field);
+                            String pooled = pool.get(value);
+                            if(pooled == null) {
+                                pool.put(value, value);
+                                pooled = value;
+                            }
+                            builder.setString(row, i, pooled);
+                    }
                 }
-            } catch (Exception e) {
-                log.error("Problem reading refset file "+refsetFile, e);
-                throw new ImportException("Problem reading refset file ", e);
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.error("Problem reading refset file "+fileName, e);
+            throw new ImportException("Problem reading refset file "+fileName,
+                    e);
+        }
+    }
+
+    /**
+     * Determines the types of the additional columns of a reference set. The
+     * pattern in the file name is used if available. Otherwise the types are
+     * inferred from the column names in the header.
+     *
+     * @param fileName
+     * @param names
+     * @return
+     */
+    protected static ColumnType[] getColumnTypes(String fileName,
+            String[] names) {
+        ColumnType[] res = new ColumnType[names.length];
+        String pattern = null;
+        if(fileName != null) {
+            Matcher m = FILE_NAME_PATTERN.matcher(fileName);
+            if(m.find()) {
+                pattern = m.group(1);
+            }
+        }
+
+        if(pattern != null && pattern.length() == names.length) {
+            for(int i = 0; i < names.length; i++) {
+                res[i] = ColumnType.fromPatternChar(pattern.charAt(i));
+            }
+        } else {
+            for(int i = 0; i < names.length; i++) {
+                res[i] = ColumnType.fromColumnName(names[i]);
             }
         }
-        
-        IModuleDependencyRefset res = new ModuleDependencyRefset(members);
         return res;
     }
 
@@ -5,6 +5,7 @@
 package au.csiro.ontology.importer.rf2;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -53,8 +54,29 @@ public class VersionRows {
      * @param other
      */
     public void merge(VersionRows other) {
-        conceptRows.addAll(other.conceptRows);
-        relationshipRows.addAll(other.relationshipRows);
+        conceptRows.addAll(other.getConceptRows());
+        relationshipRows.addAll(other.getRelationshipRows());
+    }
+
+    /**
+     * Keeps only the rows at the specified positions of
+     * {@link #getConceptRows()} and {@link #getRelationshipRows()}.
+     *
+     * @param concepts
+     * @param relationships
+     */
+    public void retainRows(BitSet concepts, BitSet relationships) {
+        retain(conceptRows, concepts);
+        retain(relationshipRows, relationships);
+    }
+
+    private static <T> void retain(List<T> rows, BitSet keep) {
+        int j = 0;
+        for(int i = keep.nextSetBit(0); i >= 0 && i < rows.size();
+                i = keep.nextSetBit(i + 1)) {
+            rows.set(j++, rows.get(i));
+        }
+        rows.subList(j, rows.size()).clear();
     }
 
 }
@@ -0,0 +1,309 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.owl;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.RoleInclusion;
+import au.csiro.ontology.importer.IAxiomSink;
+import au.csiro.ontology.importer.IOntologySink;
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.DateLiteral;
+import au.csiro.ontology.model.Datatype;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.Feature;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.IntegerLiteral;
+import au.csiro.ontology.model.Operator;
+import au.csiro.ontology.model.Role;
+import au.csiro.ontology.util.NullProgressMonitor;
+import au.csiro.ontology.util.Progress;
+
+/**
+ * Unit tests for {@link FunctionalSyntaxImporter}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestFunctionalSyntaxImporter {
+
+    private static final String NS = "http://example.org/test#";
+
+    private static final String DOC =
+            "Prefix(:=<"+NS+">)\n" +
+            "Prefix(xsd:=<http://www.w3.org/2001/XMLSchema#>)\n" +
+            "# A comment\n" +
+            "Ontology(<http://example.org/test>\n" +
+            "  Annotation(rdfs:label \"Test (ontology)\"@en)\n" +
+            "  Declaration(Class(:A))\n" +
+            "  SubClassOf(Annotation(rdfs:comment \"x\") :A " +
+            "ObjectIntersectionOf(:B ObjectSomeValuesFrom(:r :C)))\n" +
+            "  EquivalentClasses(:D DataHasValue(:f \"5\"^^xsd:integer))\n" +
+            "  SubObjectPropertyOf(ObjectPropertyChain(:r :s) :r)\n" +
+            "  SubClassOf(:A ObjectUnionOf(:B :C))\n" +
+            "  TransitiveObjectProperty(<"+NS+"s>)\n" +
+            ")\n";
+
+    /**
+     * Tests that axioms are translated in document order and that unsupported
+     * axioms are skipped and reported.
+     */
+    @Test
+    public void testImportAxioms() {
+        FunctionalSyntaxImporter fsi = new FunctionalSyntaxImporter(
+                new ByteArrayInputStream(DOC.getBytes()));
+        final List<IAxiom> axioms = new ArrayList<>();
+        fsi.importAxioms(new IAxiomSink() {
+            @Override
+            public void accept(IAxiom axiom) {
+                axioms.add(axiom);
+            }
+        });
+
+        Assert.assertEquals("http://example.org/test", fsi.getOntologyIri());
+        Assert.assertEquals(1, fsi.getProblems().size());
+        Assert.assertEquals(6, axioms.size());
+
+        Concept<String> a = new Concept<>(NS+"A");
+        Role<String> r = new Role<>(NS+"r");
+        Role<String> s = new Role<>(NS+"s");
+
+        Assert.assertEquals(new ConceptInclusion(a, Concept.TOP),
+                axioms.get(0));
+        Assert.assertEquals(new ConceptInclusion(a, new Conjunction(
+                new IConcept[] { new Concept<>(NS+"B"),
+                        new Existential<>(r, new Concept<>(NS+"C")) })),
+                axioms.get(1));
+
+        Datatype<String> dt = new Datatype<>(new Feature<>(NS+"f"),
+                Operator.EQUALS, new IntegerLiteral(5));
+        Assert.assertEquals(new ConceptInclusion(new Concept<>(NS+"D"), dt),
+                axioms.get(2));
+        Assert.assertEquals(new ConceptInclusion(dt, new Concept<>(NS+"D")),
+                axioms.get(3));
+        Assert.assertEquals(new RoleInclusion(new IRole[] { r, s }, r),
+                axioms.get(4));
+        Assert.assertEquals(new RoleInclusion(new IRole[] { s, s }, s),
+                axioms.get(5));
+    }
+
+    /**
+     * Tests that axioms with unsupported literals or role expressions are
+     * skipped and reported instead of aborting the import.
+     */
+    @Test
+    public void testUnsupportedExpressions() {
+        String doc =
+                "Prefix(:=<"+NS+">)\n" +
+                "Ontology(<http://example.org/test>\n" +
+                "  SubClassOf(:A DataHasValue(:f \"x\"^^:custom))\n" +
+                "  SubClassOf(:A ObjectSomeValuesFrom(ObjectInverseOf(:r) " +
+                ":B))\n" +
+                "  SubObjectPropertyOf(ObjectInverseOf(:r) :s)\n" +
+                "  SubClassOf(:A :B)\n" +
+                ")\n";
+        FunctionalSyntaxImporter fsi = new FunctionalSyntaxImporter(
+                new ByteArrayInputStream(doc.getBytes()));
+        final List<IAxiom> axioms = new ArrayList<>();
+        fsi.importAxioms(new IAxiomSink() {
+            @Override
+            public void accept(IAxiom axiom) {
+                axioms.add(axiom);
+            }
+        });
+
+        Assert.assertEquals(3, fsi.getProblems().size());
+        Assert.assertEquals(1, axioms.size());
+        Assert.assertEquals(new ConceptInclusion(new Concept<>(NS+"A"),
+                new Concept<>(NS+"B")), axioms.get(0));
+    }
+
+    /**
+     * Tests that xsd:dateTime literals at midnight are translated to dates
+     * and that axioms with a time of day that cannot be kept are skipped and
+     * reported.
+     */
+    @Test
+    public void testDateTimeLiterals() {
+        String doc =
+                "Prefix(:=<"+NS+">)\n" +
+                "Prefix(xsd:=<http://www.w3.org/2001/XMLSchema#>)\n" +
+                "Ontology(<http://example.org/test>\n" +
+                "  SubClassOf(:A DataHasValue(:f " +
+                "\"2012-01-31T00:00:00+10:00\"^^xsd:dateTime))\n" +
+                "  SubClassOf(:B DataHasValue(:f " +
+                "\"2012-01-31T10:30:00Z\"^^xsd:dateTime))\n" +
+                ")\n";
+        FunctionalSyntaxImporter fsi = new FunctionalSyntaxImporter(
+                new ByteArrayInputStream(doc.getBytes()));
+        final List<IAxiom> axioms = new ArrayList<>();
+        fsi.importAxioms(new IAxiomSink() {
+            @Override
+            public void accept(IAxiom axiom) {
+                axioms.add(axiom);
+            }
+        });
+
+        Assert.assertEquals(1, fsi.getProblems().size());
+        Assert.assertTrue(fsi.getProblems().get(0).contains("Time of day"));
+        Assert.assertEquals(1, axioms.size());
+        Assert.assertEquals(new ConceptInclusion(new Concept<>(NS+"A"),
+                new Datatype<>(new Feature<>(NS+"f"), Operator.EQUALS,
+                        new DateLiteral(2012, 1, 31))), axioms.get(0));
+    }
+
+    /**
+     * Tests that the axioms are sent as a single version and that the
+     * version is only ended if all the axioms are supported.
+     */
+    @Test
+    public void testImportOntologyVersions() {
+        final List<String> events = new ArrayList<>();
+        IOntologySink sink = new IOntologySink() {
+            @Override
+            public void startOntology(String module, String version) {
+                events.add("start " + module);
+            }
+
+            @Override
+            public void accept(IAxiom axiom) {
+                events.add("axiom");
+            }
+
+            @Override
+            public void endOntology(String module, String version) {
+                events.add("end " + module);
+            }
+        };
+
+        String doc = DOC.replace("  SubClassOf(:A ObjectUnionOf(:B :C))\n",
+                "");
+        new FunctionalSyntaxImporter(new ByteArrayInputStream(
+                doc.getBytes())).importOntologyVersions(
+                        new NullProgressMonitor(), sink);
+        Assert.assertEquals(8, events.size());
+        Assert.assertEquals("start http://example.org/test", events.get(0));
+        Assert.assertEquals("axiom", events.get(6));
+        Assert.assertEquals("end http://example.org/test", events.get(7));
+
+        events.clear();
+        try {
+            new FunctionalSyntaxImporter(new ByteArrayInputStream(
+                    DOC.getBytes())).importOntologyVersions(
+                            new NullProgressMonitor(), sink);
+            Assert.fail();
+        } catch(ImportException e) {
+            // Expected
+        }
+        Assert.assertEquals(7, events.size());
+        Assert.assertEquals("axiom", events.get(6));
+    }
+
+    private static class TestMonitor extends NullProgressMonitor {
+        final List<Progress> reports = new ArrayList<>();
+        boolean cancelled;
+
+        @Override
+        public void progress(Progress progress) {
+            reports.add(progress);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static String createDocument(int classes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Prefix(:=<"+NS+">)\r\n");
+        sb.append("Ontology(<http://example.org/test>\r\n");
+        for(int i = 0; i < classes; i++) {
+            sb.append("  Declaration(Class(:C"+i+"))\r\n");
+            sb.append("  AnnotationAssertion(rdfs:label :C"+i+
+                    " \"Gr\u00f6\u00dfe "+i+"\"@de)\r\n");
+        }
+        sb.append(")\r\n");
+        return sb.toString();
+    }
+
+    /**
+     * Tests that the number of axioms and the number of bytes of a UTF-8
+     * document are reported when the import ends.
+     */
+    @Test
+    public void testProgress() throws UnsupportedEncodingException {
+        byte[] doc = createDocument(1000).getBytes("UTF-8");
+        TestMonitor monitor = new TestMonitor();
+        final int[] count = new int[1];
+        new FunctionalSyntaxImporter(new ByteArrayInputStream(doc))
+                .importOntologyVersions(monitor, new IOntologySink() {
+                    @Override
+                    public void startOntology(String module, String version) {
+                    }
+
+                    @Override
+                    public void accept(IAxiom axiom) {
+                        count[0]++;
+                    }
+
+                    @Override
+                    public void endOntology(String module, String version) {
+                    }
+                });
+        Assert.assertEquals(1000, count[0]);
+        Progress last = monitor.reports.get(monitor.reports.size() - 1);
+        Assert.assertEquals(2000, last.getRows());
+        Assert.assertEquals(doc.length, last.getBytes());
+    }
+
+    /**
+     * Tests that a cancelled import stops while parsing.
+     */
+    @Test
+    public void testCancel() throws UnsupportedEncodingException {
+        byte[] doc = createDocument(1000).getBytes("UTF-8");
+        TestMonitor monitor = new TestMonitor();
+        monitor.cancelled = true;
+        final int[] count = new int[1];
+        try {
+            new FunctionalSyntaxImporter(new ByteArrayInputStream(doc))
+                    .importOntologyVersions(monitor, new IOntologySink() {
+                        @Override
+                        public void startOntology(String module,
+                                String version) {
+                        }
+
+                        @Override
+                        public void accept(IAxiom axiom) {
+                            count[0]++;
+                        }
+
+                        @Override
+                        public void endOntology(String module,
+                                String version) {
+                        }
+                    });
+            Assert.fail();
+        } catch(CancellationException e) {
+            // Expected
+        }
+        Assert.assertTrue(count[0] < 1000);
+    }
+
+}
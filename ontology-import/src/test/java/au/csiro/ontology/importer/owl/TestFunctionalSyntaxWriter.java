@@ -0,0 +1,125 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.owl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.importer.IAxiomSink;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.Datatype;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.Feature;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.IntegerLiteral;
+import au.csiro.ontology.model.Operator;
+import au.csiro.ontology.model.Role;
+import au.csiro.ontology.model.StringLiteral;
+
+/**
+ * Unit tests for {@link FunctionalSyntaxWriter}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestFunctionalSyntaxWriter {
+
+    private static final String NS = "http://snomed.info/id/";
+
+    private byte[] write(FunctionalSyntaxWriter writer, List<IAxiom> axioms) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writer.write(axioms, "http://snomed.info/sct",
+                Channels.newChannel(bos));
+        return bos.toByteArray();
+    }
+
+    /**
+     * Tests that the written axioms are read back unchanged.
+     */
+    @Test
+    public void testRoundTrip() {
+        Role<String> r = new Role<>("363698007");
+        Feature<String> f = new Feature<>("http://example.org/f");
+        List<IAxiom> axioms = Arrays.asList(new IAxiom[] {
+            new ConceptInclusion(new Concept<>("22298006"), new Conjunction(
+                new IConcept[] { new Concept<>("414545008"),
+                    new Existential<>(r, new Concept<>("74281007")) })),
+            new ConceptInclusion(new Concept<>("1"), new Datatype<>(f,
+                    Operator.LESS_THAN, new IntegerLiteral(5))),
+            new ConceptInclusion(new Concept<>("2"), new Datatype<>(f,
+                    Operator.EQUALS, new StringLiteral("a \"b\" c"))),
+        });
+
+        byte[] bytes = write(new FunctionalSyntaxWriter(NS), axioms);
+
+        final Set<IAxiom> read = new HashSet<>();
+        FunctionalSyntaxImporter fsi = new FunctionalSyntaxImporter(
+                new ByteArrayInputStream(bytes));
+        fsi.importAxioms(new IAxiomSink() {
+            @Override
+            public void accept(IAxiom axiom) {
+                read.add(axiom);
+            }
+        });
+
+        Assert.assertTrue(fsi.getProblems().isEmpty());
+
+        // Five class declarations plus the three axioms
+        Assert.assertEquals(8, read.size());
+        Role<String> r2 = new Role<>(NS+"363698007");
+        Feature<String> f2 = new Feature<>("http://example.org/f");
+        Assert.assertTrue(read.contains(new ConceptInclusion(
+                new Concept<>(NS+"22298006"), new Conjunction(new IConcept[] {
+                    new Concept<>(NS+"414545008"),
+                    new Existential<>(r2, new Concept<>(NS+"74281007")) }))));
+        Assert.assertTrue(read.contains(new ConceptInclusion(
+                new Concept<>(NS+"1"), new Datatype<>(f2, Operator.LESS_THAN,
+                        new IntegerLiteral(5)))));
+        Assert.assertTrue(read.contains(new ConceptInclusion(
+                new Concept<>(NS+"2"), new Datatype<>(f2, Operator.EQUALS,
+                        new StringLiteral("a \"b\" c")))));
+        Assert.assertTrue(read.contains(new ConceptInclusion(
+                new Concept<>(NS+"1"), Concept.TOP)));
+    }
+
+    /**
+     * Tests that writing in parallel produces the same output as writing
+     * sequentially.
+     */
+    @Test
+    public void testParallel() {
+        List<IAxiom> axioms = new ArrayList<>();
+        for(int i = 0; i < 25000; i++) {
+            axioms.add(new ConceptInclusion(new Concept<>(String.valueOf(i)),
+                    new Concept<>(String.valueOf(i / 10))));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] seq = write(new FunctionalSyntaxWriter(NS), axioms);
+            byte[] par = write(new FunctionalSyntaxWriter(NS, executor),
+                    axioms);
+            Assert.assertTrue(Arrays.equals(seq, par));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,365 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.owl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDatatype;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.vocab.OWL2Datatype;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.importer.IOntologySink;
+import au.csiro.ontology.importer.ImportException;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.DateLiteral;
+import au.csiro.ontology.model.Datatype;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.Feature;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.IntegerLiteral;
+import au.csiro.ontology.model.Operator;
+import au.csiro.ontology.model.Role;
+import au.csiro.ontology.util.NullProgressMonitor;
+
+/**
+ * Unit tests for {@link OWLImporter}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestOWLImporter {
+
+    private static final String NS = "http://example.org/test#";
+
+    private final OWLDataFactory df = new OWLDataFactoryImpl();
+
+    private OWLClass cls(String name) {
+        return df.getOWLClass(IRI.create(NS+name));
+    }
+
+    private OWLObjectProperty prop(String name) {
+        return df.getOWLObjectProperty(IRI.create(NS+name));
+    }
+
+    private OWLDataProperty dataProp(String name) {
+        return df.getOWLDataProperty(IRI.create(NS+name));
+    }
+
+    /**
+     * Translates the axioms and returns the results in the order they were
+     * sent to the sink. The problems are left in the importer.
+     *
+     * @param importer
+     * @return
+     */
+    private List<IAxiom> importAxioms(OWLImporter importer) {
+        final List<IAxiom> res = new ArrayList<>();
+        try {
+            importer.importOntologyVersions(new NullProgressMonitor(),
+                    new IOntologySink() {
+                @Override
+                public void startOntology(String module, String version) {
+                    // Nothing to do
+                }
+
+                @Override
+                public void accept(IAxiom axiom) {
+                    res.add(axiom);
+                }
+
+                @Override
+                public void endOntology(String module, String version) {
+                    // Nothing to do
+                }
+            });
+        } catch(ImportException e) {
+            // Thrown when there are problems, after sending the axioms
+        }
+        return res;
+    }
+
+    /**
+     * Creates a list of axioms with supported and unsupported axioms spread
+     * over all the partitions. The data property range axiom is at the end,
+     * so the literals in the first partitions can only be checked against it
+     * if the index of ranges is shared by all the workers.
+     *
+     * @param n
+     * @return
+     */
+    private List<OWLAxiom> createAxioms(int n) {
+        OWLDataProperty f = dataProp("f");
+        List<OWLAxiom> axioms = new ArrayList<>();
+        for(int i = 0; i < n - 1; i++) {
+            OWLClass c = cls("C"+i);
+            switch(i % 7) {
+                case 0:
+                    axioms.add(df.getOWLDeclarationAxiom(c));
+                    break;
+                case 1:
+                    axioms.add(df.getOWLSubClassOfAxiom(c,
+                            df.getOWLObjectSomeValuesFrom(prop("r"),
+                                    cls("C"+(i / 2)))));
+                    break;
+                case 2:
+                    // Unsupported class expression
+                    axioms.add(df.getOWLSubClassOfAxiom(c,
+                            df.getOWLObjectUnionOf(cls("A"), cls("B"))));
+                    break;
+                case 3:
+                    axioms.add(df.getOWLEquivalentClassesAxiom(c,
+                            df.getOWLObjectIntersectionOf(cls("A"),
+                                    cls("C"+(i - 1)))));
+                    break;
+                case 4:
+                    // Inconsistent with the range of f
+                    axioms.add(df.getOWLSubClassOfAxiom(c,
+                            df.getOWLDataHasValue(f,
+                                    df.getOWLLiteral("x"+i))));
+                    break;
+                case 5:
+                    axioms.add(df.getOWLSubClassOfAxiom(c,
+                            df.getOWLDataHasValue(f, df.getOWLLiteral(i))));
+                    break;
+                default:
+                    axioms.add(df.getOWLSubObjectPropertyOfAxiom(
+                            prop("r"+i), prop("r")));
+            }
+        }
+        axioms.add(df.getOWLDataPropertyRangeAxiom(f,
+                df.getOWLDatatype(OWL2Datatype.XSD_INTEGER.getIRI())));
+        return axioms;
+    }
+
+    /**
+     * Tests that translating in parallel produces the same axioms and
+     * problems, in the same order, as translating sequentially. The sizes
+     * cover a single partition, the partition boundary and several
+     * partitions.
+     */
+    @Test
+    public void testTransformParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for(int n : new int[] { 1000, 1001, 2000, 2001, 4500 }) {
+                List<OWLAxiom> axioms = createAxioms(n);
+                OWLImporter seq = new OWLImporter(axioms);
+                List<IAxiom> expected = importAxioms(seq);
+                OWLImporter par = new OWLImporter(axioms, executor);
+                List<IAxiom> actual = importAxioms(par);
+
+                Assert.assertFalse(expected.isEmpty());
+                Assert.assertEquals(expected, actual);
+                Assert.assertEquals(seq.getProblems(), par.getProblems());
+
+                // One problem for each union and two for each string
+                // literal, which is inconsistent with the range of f and is
+                // not supported
+                int expectedProblems = 0;
+                for(int i = 0; i < n - 1; i++) {
+                    if(i % 7 == 2) expectedProblems++;
+                    if(i % 7 == 4) expectedProblems += 2;
+                }
+                List<String> problems = par.getProblems();
+                Assert.assertEquals(expectedProblems, problems.size());
+                Assert.assertTrue(problems.get(1).contains("inconsistent"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests the translation of nested class expressions, including one
+     * deeper than the initial size of the visitor's stack. The expected
+     * concepts are the ones the previous visitor, which used a new
+     * {@link java.util.Stack} for every expression, produced.
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testNestedExpressions() {
+        OWLClassExpression deep = cls("A");
+        IConcept expectedDeep = new Concept<>(NS+"A");
+        for(int i = 0; i < 40; i++) {
+            deep = df.getOWLObjectIntersectionOf(cls("B"+i),
+                    df.getOWLObjectSomeValuesFrom(prop("r"), deep));
+            expectedDeep = new Conjunction(new IConcept[] {
+                    new Concept<>(NS+"B"+i),
+                    new Existential<>(new Role<>(NS+"r"), expectedDeep) });
+        }
+
+        OWLClassExpression inner = df.getOWLObjectIntersectionOf(cls("C"),
+                df.getOWLObjectSomeValuesFrom(prop("s"),
+                        df.getOWLDataHasValue(dataProp("f"),
+                                df.getOWLLiteral(5))));
+        List<OWLAxiom> axioms = new ArrayList<>();
+        axioms.add(df.getOWLSubClassOfAxiom(cls("A"),
+                df.getOWLObjectIntersectionOf(cls("B"),
+                        df.getOWLObjectSomeValuesFrom(prop("r"), inner),
+                        df.getOWLObjectSomeValuesFrom(prop("s"),
+                                df.getOWLThing()))));
+        axioms.add(df.getOWLSubClassOfAxiom(deep, df.getOWLNothing()));
+        List<IAxiom> res = importAxioms(new OWLImporter(axioms));
+
+        Role<String> r = new Role<>(NS+"r");
+        Role<String> s = new Role<>(NS+"s");
+        IConcept expected = new Conjunction(new IConcept[] {
+                new Concept<>(NS+"B"),
+                new Existential<>(r, new Conjunction(new IConcept[] {
+                        new Concept<>(NS+"C"),
+                        new Existential<>(s, new Datatype<>(
+                                new Feature<>(NS+"f"), Operator.EQUALS,
+                                new IntegerLiteral(5))) })),
+                new Existential<>(s, Concept.TOP) });
+        Assert.assertEquals(Arrays.asList(
+                new ConceptInclusion(new Concept<>(NS+"A"), expected),
+                new ConceptInclusion(expectedDeep, Concept.BOTTOM)), res);
+
+        // The deprecated statistics are still recorded
+        Assert.assertTrue(au.csiro.ontology.util.Statistics.INSTANCE.getTime(
+                "owl loading") >= 0);
+    }
+
+    /**
+     * Tests that repeated IRIs give equal concepts and roles, shared between
+     * axioms, and that a failed translation leaves nothing on the visitor's
+     * stack for the next expression.
+     */
+    @Test
+    public void testRepeatedIris() {
+        List<OWLAxiom> axioms = new ArrayList<>();
+        axioms.add(df.getOWLSubClassOfAxiom(cls("A"),
+                df.getOWLObjectSomeValuesFrom(prop("r"), cls("A"))));
+        // Fails in the middle of an intersection
+        axioms.add(df.getOWLSubClassOfAxiom(cls("A"),
+                df.getOWLObjectIntersectionOf(cls("B"),
+                        df.getOWLObjectUnionOf(cls("A"), cls("C")))));
+        axioms.add(df.getOWLSubClassOfAxiom(
+                df.getOWLObjectSomeValuesFrom(prop("r"), cls("B")),
+                cls("A")));
+        OWLImporter importer = new OWLImporter(axioms);
+        List<IAxiom> res = importAxioms(importer);
+        Assert.assertEquals(1, importer.getProblems().size());
+
+        Concept<String> a = new Concept<>(NS+"A");
+        Role<String> r = new Role<>(NS+"r");
+        Assert.assertEquals(Arrays.asList(
+                new ConceptInclusion(a, new Existential<>(r, a)),
+                new ConceptInclusion(new Existential<>(r,
+                        new Concept<>(NS+"B")), a)), res);
+
+        ConceptInclusion ci1 = (ConceptInclusion) res.get(0);
+        ConceptInclusion ci2 = (ConceptInclusion) res.get(1);
+        Existential<?> e1 = (Existential<?>) ci1.rhs();
+        Existential<?> e2 = (Existential<?>) ci2.lhs();
+        Assert.assertSame(ci1.lhs(), e1.getConcept());
+        Assert.assertSame(ci1.lhs(), ci2.rhs());
+        Assert.assertSame(e1.getRole(), e2.getRole());
+    }
+
+    /**
+     * Imports an axiom with a value for a data property with the supplied
+     * range axioms and returns the problems.
+     *
+     * @param value
+     * @param ranges
+     * @return
+     */
+    private List<String> checkRange(OWLLiteral value, IRI... ranges) {
+        OWLDataProperty f = dataProp("f");
+        List<OWLAxiom> axioms = new ArrayList<>();
+        for(IRI range : ranges) {
+            axioms.add(df.getOWLDataPropertyRangeAxiom(f,
+                    df.getOWLDatatype(range)));
+        }
+        axioms.add(df.getOWLSubClassOfAxiom(cls("A"),
+                df.getOWLDataHasValue(f, value)));
+        OWLImporter importer = new OWLImporter(axioms);
+        Assert.assertEquals(1, importAxioms(importer).size());
+        return importer.getProblems();
+    }
+
+    /**
+     * Tests that literals are checked against the ranges of their data
+     * properties and that ranges with custom datatypes are not checked.
+     */
+    @Test
+    public void testDataPropertyRanges() {
+        IRI integer = OWL2Datatype.XSD_INTEGER.getIRI();
+        IRI decimal = OWL2Datatype.XSD_DECIMAL.getIRI();
+        IRI custom = IRI.create(NS+"code");
+        OWLLiteral five = df.getOWLLiteral(5);
+        OWLLiteral yes = df.getOWLLiteral(true);
+
+        // Compatible
+        Assert.assertTrue(checkRange(five, integer).isEmpty());
+        Assert.assertTrue(checkRange(five, integer, decimal).isEmpty());
+
+        // Incompatible
+        List<String> problems = checkRange(yes, integer, decimal);
+        Assert.assertEquals(2, problems.size());
+        Assert.assertTrue(problems.get(0).contains("inconsistent"));
+        Assert.assertTrue(problems.get(0).contains("integer"));
+        Assert.assertTrue(problems.get(1).contains("decimal"));
+
+        // Custom datatypes are unchecked
+        Assert.assertTrue(checkRange(five, custom).isEmpty());
+        Assert.assertTrue(checkRange(yes, custom).isEmpty());
+        Assert.assertTrue(checkRange(five, custom, integer).isEmpty());
+        problems = checkRange(yes, custom, integer);
+        Assert.assertEquals(1, problems.size());
+        Assert.assertTrue(problems.get(0).contains("integer"));
+    }
+
+    /**
+     * Tests that xsd:dateTime literals are translated to dates and that a
+     * time of day that cannot be kept is reported.
+     */
+    @Test
+    public void testDateTimeLiterals() {
+        OWLDatatype dateTime = df.getOWLDatatype(
+                OWL2Datatype.XSD_DATE_TIME.getIRI());
+        String[] values = { "2012-01-31T00:00:00+10:00",
+                "2012-01-31T10:30:00Z" };
+        for(String value : values) {
+            List<OWLAxiom> axioms = new ArrayList<>();
+            axioms.add(df.getOWLSubClassOfAxiom(cls("A"),
+                    df.getOWLDataHasValue(dataProp("f"),
+                            df.getOWLLiteral(value, dateTime))));
+            OWLImporter importer = new OWLImporter(axioms);
+            List<IAxiom> res = importAxioms(importer);
+            Assert.assertEquals(Arrays.asList(new ConceptInclusion(
+                    new Concept<>(NS+"A"), new Datatype<>(
+                            new Feature<>(NS+"f"), Operator.EQUALS,
+                            new DateLiteral(2012, 1, 31)))), res);
+            if(value.contains("T00:00:00")) {
+                Assert.assertTrue(importer.getProblems().isEmpty());
+            } else {
+                Assert.assertEquals(1, importer.getProblems().size());
+                Assert.assertTrue(importer.getProblems().get(0).contains(
+                        "Time of day"));
+            }
+        }
+    }
+
+}
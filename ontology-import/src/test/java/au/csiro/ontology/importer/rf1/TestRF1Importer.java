@@ -4,6 +4,8 @@
  */
 package au.csiro.ontology.importer.rf1;
 
+import java.io.ByteArrayInputStream;
+import java.util.Collection;
 import java.util.Map;
 
 import junit.framework.Assert;
@@ -11,6 +13,18 @@ import junit.framework.Assert;
 import org.junit.Test;
 
 import au.csiro.ontology.IOntology;
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.RoleInclusion;
+import au.csiro.ontology.importer.IdType;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.Conjunction;
+import au.csiro.ontology.model.Existential;
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.LongConcept;
+import au.csiro.ontology.model.LongRole;
+import au.csiro.ontology.model.Role;
 import au.csiro.ontology.util.NullProgressMonitor;
 
 
@@ -65,4 +79,121 @@ public class TestRF1Importer {
         }
     }
 
+    /**
+     * Creates an importer for a small set of rows. Concept 4 is a role
+     * because it is a child of the concept model attribute, and the
+     * relationship with characteristic type 1 is not defining.
+     */
+    private static RF1Importer createImporter() {
+        String concepts =
+                "CONCEPTID\tCONCEPTSTATUS\tFULLYSPECIFIEDNAME\tCTV3ID\t" +
+                "SNOMEDID\tISPRIMITIVE\r\n" +
+                "1\t0\tA\t\t\t1\r\n" +
+                "2\t0\tB\t\t\t1\r\n" +
+                "3\t0\tC\t\t\t0\r\n" +
+                "4\t0\tr\t\t\t1\r\n" +
+                "6\t1\tRetired\t\t\t1\r\n";
+        String rels =
+                "RELATIONSHIPID\tCONCEPTID1\tRELATIONSHIPTYPE\tCONCEPTID2\t" +
+                "CHARACTERISTICTYPE\tREFINABILITY\tRELATIONSHIPGROUP\r\n" +
+                "10\t2\t116680003\t1\t0\t0\t0\r\n" +
+                "11\t3\t116680003\t1\t0\t0\t0\r\n" +
+                "12\t3\t4\t5\t0\t0\t0\r\n" +
+                "13\t3\t4\t2\t1\t0\t0\r\n" +
+                "14\t4\t116680003\t410662002\t0\t0\t0\r\n" +
+                "15\t6\t116680003\t1\t0\t0\t0\r\n";
+
+        return new RF1Importer(
+                new ByteArrayInputStream(concepts.getBytes()),
+                new ByteArrayInputStream(rels.getBytes()), "20110731");
+    }
+
+    /**
+     * Tests the axioms built from a small set of rows.
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testTransform() {
+        Map<String, Map<String, IOntology<String>>> ovs = createImporter()
+                .getOntologyVersions(new NullProgressMonitor());
+        Collection<IAxiom> axioms =
+                ovs.get("snomed").get("20110731").getStatedAxioms();
+
+        IConcept conj = new Conjunction(new IConcept[] {
+            new Concept<>("1"),
+            new Existential<>(new Role<>("RoleGroup"),
+                    new Existential<>(new Role<>("4"), new Concept<>("5")))
+        });
+
+        Assert.assertEquals(3, axioms.size());
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(
+                new Concept<>("2"), new Concept<>("1"))));
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(
+                new Concept<>("3"), conj)));
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(conj,
+                new Concept<>("3"))));
+
+        // The deprecated statistics are still recorded
+        Assert.assertTrue(au.csiro.ontology.util.Statistics.INSTANCE.getTime(
+                "rf1 loading") >= 0);
+    }
+
+    /**
+     * Tests that the same axioms are built with numeric identifiers.
+     */
+    @Test
+    public void testTransformLong() {
+        Map<String, Map<String, IOntology<Long>>> ovs = createImporter()
+                .getOntologyVersions(new NullProgressMonitor(), IdType.LONG);
+        Collection<IAxiom> axioms =
+                ovs.get("snomed").get("20110731").getStatedAxioms();
+
+        IConcept conj = new Conjunction(new IConcept[] {
+            new LongConcept(1),
+            new Existential<>(new LongRole(LongRole.ROLE_GROUP_ID),
+                    new Existential<>(new LongRole(4), new LongConcept(5)))
+        });
+
+        Assert.assertEquals(3, axioms.size());
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(
+                new LongConcept(2), new LongConcept(1))));
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(
+                new LongConcept(3), conj)));
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(conj,
+                new LongConcept(3))));
+    }
+
+    /**
+     * Tests a role with a right identity whose target is not in the release
+     * files. The 20110731 meta-data has the right identity
+     * 363701004 o 127489000 [ 363701004.
+     */
+    @Test
+    public void testRightIdentityNotInFiles() {
+        String concepts =
+                "CONCEPTID\tCONCEPTSTATUS\tFULLYSPECIFIEDNAME\tCTV3ID\t" +
+                "SNOMEDID\tISPRIMITIVE\r\n" +
+                "1\t0\tA\t\t\t1\r\n" +
+                "2\t0\tB\t\t\t1\r\n" +
+                "363701004\t0\tDirect substance\t\t\t1\r\n";
+        String rels =
+                "RELATIONSHIPID\tCONCEPTID1\tRELATIONSHIPTYPE\tCONCEPTID2\t" +
+                "CHARACTERISTICTYPE\tREFINABILITY\tRELATIONSHIPGROUP\r\n" +
+                "10\t2\t116680003\t1\t0\t0\t0\r\n" +
+                "11\t363701004\t116680003\t410662002\t0\t0\t0\r\n";
+        RF1Importer rf1i = new RF1Importer(
+                new ByteArrayInputStream(concepts.getBytes()),
+                new ByteArrayInputStream(rels.getBytes()), "20110731");
+
+        Collection<IAxiom> axioms = rf1i.getOntologyVersions(
+                new NullProgressMonitor()).get("snomed").get("20110731")
+                .getStatedAxioms();
+        Role<String> r = new Role<>("363701004");
+        Assert.assertEquals(2, axioms.size());
+        Assert.assertTrue(axioms.contains(new ConceptInclusion(
+                new Concept<>("2"), new Concept<>("1"))));
+        Assert.assertTrue(axioms.contains(new RoleInclusion(
+                new IRole[] { r, new Role<>("127489000") }, r)));
+    }
+
 }
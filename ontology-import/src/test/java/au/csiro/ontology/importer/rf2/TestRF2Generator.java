@@ -0,0 +1,147 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import au.csiro.ontology.IOntology;
+import au.csiro.ontology.importer.input.Inputs;
+import au.csiro.ontology.importer.input.Inputs.ReleaseType;
+import au.csiro.ontology.util.NullProgressMonitor;
+
+/**
+ * Unit tests for {@link RF2Generator}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestRF2Generator {
+
+    private static File createDir() throws IOException {
+        return Files.createTempDirectory("rf2gen").toFile();
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                delete(child);
+            }
+        }
+        f.delete();
+    }
+
+    private static RF2Generator createGenerator() {
+        RF2Generator gen = new RF2Generator(42);
+        gen.setConcepts(2000);
+        gen.setVersions(3);
+        gen.setExtensionModules(2);
+        gen.setChangeRate(0.1);
+        return gen;
+    }
+
+    /**
+     * Tests the check digits of known SCTIDs.
+     */
+    @Test
+    public void testSctid() {
+        Assert.assertEquals(22298006L, RF2Generator.sctid(22298, "00"));
+        Assert.assertEquals(138875005L, RF2Generator.sctid(138875, "00"));
+        Assert.assertEquals(999000031000000106L,
+                RF2Generator.sctid(99900003, 1000000, "10"));
+    }
+
+    /**
+     * Tests that the same seed produces the same files.
+     */
+    @Test
+    public void testDeterministic() throws IOException {
+        File dir1 = createDir();
+        File dir2 = createDir();
+        try {
+            createGenerator().generate(dir1);
+            createGenerator().generate(dir2);
+            for(String type : new String[] { "Full", "Snapshot" }) {
+                File[] files = new File(dir1, type).listFiles();
+                Assert.assertEquals(3, files.length);
+                for(File f : files) {
+                    File other = new File(new File(dir2, type), f.getName());
+                    Assert.assertTrue(Arrays.equals(
+                            Files.readAllBytes(f.toPath()),
+                            Files.readAllBytes(other.toPath())));
+                }
+            }
+        } finally {
+            delete(dir1);
+            delete(dir2);
+        }
+    }
+
+    /**
+     * Tests that the full and snapshot releases can be imported and contain
+     * the expected modules and versions.
+     */
+    @Test
+    public void testImport() throws Exception {
+        File dir = createDir();
+        try {
+            RF2Generator gen = createGenerator();
+            Inputs full = gen.generate(dir);
+            List<String> modules = gen.getModuleIds();
+            List<String> versions = gen.getVersionIds();
+            Assert.assertEquals(3, modules.size());
+            Assert.assertEquals(Arrays.asList("20020131", "20020731",
+                    "20030131"), versions);
+
+            Map<String, Map<String, IOntology<String>>> res =
+                    new RF2Importer(full).getOntologyVersions(
+                            new NullProgressMonitor());
+            Assert.assertEquals(3, res.size());
+            for(String module : modules) {
+                Assert.assertEquals(3, res.get(module).size());
+                for(String version : versions) {
+                    Assert.assertFalse(res.get(module).get(version)
+                            .getStatedAxioms().isEmpty());
+                }
+            }
+
+            Inputs snapshot;
+            try (InputStream in = new FileInputStream(new File(dir,
+                    "config-snapshot.xml"))) {
+                snapshot = Inputs.load(in);
+            }
+            Assert.assertEquals(ReleaseType.SNAPSHOT,
+                    snapshot.getRf2Inputs().get(0).getReleaseType());
+            List<String> lines = Files.readAllLines(new File(snapshot
+                    .getRf2Inputs().get(0).getConceptsFile()).toPath(),
+                    StandardCharsets.US_ASCII);
+            // Header, 2000 concepts, the root and the model module concepts
+            Assert.assertEquals(1 + 2000 + 28, lines.size());
+
+            res = new RF2Importer(snapshot).getOntologyVersions(
+                    new NullProgressMonitor());
+            for(String module : modules) {
+                Assert.assertEquals(1, res.get(module).size());
+                IOntology<String> latest = res.get(module).get("20030131");
+                Assert.assertFalse(latest.getStatedAxioms().isEmpty());
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+}
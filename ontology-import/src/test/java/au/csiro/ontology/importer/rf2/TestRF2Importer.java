@@ -4,14 +4,39 @@
  */
 package au.csiro.ontology.importer.rf2;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.Assert;
 
 import org.junit.Test;
 
 import au.csiro.ontology.IOntology;
+import au.csiro.ontology.VersionedOntologyStore;
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.importer.IOntologySink;
+import au.csiro.ontology.importer.IdType;
+import au.csiro.ontology.importer.input.Inputs;
+import au.csiro.ontology.importer.input.RF2Input;
+import au.csiro.ontology.importer.input.Version;
+import au.csiro.ontology.model.LongConcept;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependency;
+import au.csiro.ontology.snomed.refset.rf2.ModuleDependencyGraph;
 import au.csiro.ontology.util.NullProgressMonitor;
+import au.csiro.ontology.util.Progress;
 
 
 /**
@@ -83,4 +108,380 @@ public class TestRF2Importer {
         }
     }
 
+    /**
+     * Tests that reading the input files concurrently produces the same
+     * versions as reading them sequentially.
+     */
+    @Test
+    public void testExtractVersionRowsConcurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RF2Importer rf2i = new RF2Importer(Inputs.load(
+                    this.getClass().getResourceAsStream(
+                            "/config-rf2-test.xml")), executor);
+            Map<String, Module> res = rf2i.extractModules();
+            Assert.assertEquals(1, res.size());
+
+            Map<String, VersionRows> vMap =
+                    res.get("900000000000207008").getVersions();
+            Assert.assertEquals(4, vMap.size());
+            Assert.assertEquals(2, vMap.get("20020131").getConceptRows()
+                    .size());
+            Assert.assertEquals(2, vMap.get("20030131").getRelationshipRows()
+                    .size());
+            Assert.assertEquals(1, vMap.get("20110731").getRelationshipRows()
+                    .size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that bundles include indirect dependencies and share the rows of
+     * their modules instead of copying them.
+     */
+    @Test
+    public void testGetBundles() {
+        RF2Importer rf2i = new RF2Importer(new Inputs());
+
+        Map<String, Module> modules = new HashMap<>();
+        String[] ids = { "A", "B", "C" };
+        for(String id : ids) {
+            Module m = new Module(id);
+            VersionRows vr = new VersionRows();
+            vr.getConceptRows().add(new ConceptRow(id, "20120131", "1", id,
+                    "900000000000074008"));
+            m.getVersions().put("20120131", vr);
+            modules.put(id, m);
+        }
+
+        // A depends on B, which depends on C
+        Map<String, Map<String, ModuleDependency>> deps = new HashMap<>();
+        for(String id : ids) {
+            Map<String, ModuleDependency> vMap = new HashMap<>();
+            vMap.put("20120131", new ModuleDependency(id, "20120131"));
+            deps.put(id, vMap);
+        }
+        deps.get("A").get("20120131").getDependencies().add(
+                new ModuleDependency("B", "20120131"));
+        deps.get("B").get("20120131").getDependencies().add(
+                new ModuleDependency("C", "20120131"));
+
+        Map<String, Set<Version>> toLoad = new HashMap<>();
+        toLoad.put("A", Collections.singleton(new Version("20120131")));
+        toLoad.put("B", Collections.singleton(new Version("20120131")));
+
+        Map<String, Map<String, ? extends VersionRows>> bundles =
+                rf2i.getBundles(toLoad, new ModuleDependencyGraph(deps),
+                        modules);
+        VersionRows a = bundles.get("A").get("20120131");
+        VersionRows b = bundles.get("B").get("20120131");
+        Assert.assertEquals(3, a.getConceptRows().size());
+        Assert.assertEquals(2, b.getConceptRows().size());
+        Assert.assertSame(modules.get("C").getVersions().get("20120131"),
+                ((BundleRows) a).getParts().get(2));
+
+        // Filtering must not modify the shared rows
+        rf2i.filterBundles(bundles);
+        Assert.assertEquals(3, a.getConceptRows().size());
+        Assert.assertEquals(1, modules.get("C").getVersions().get("20120131")
+                .getConceptRows().size());
+    }
+
+    /**
+     * Tests that filtering a bundle keeps the latest row of each component
+     * without modifying or copying the rows of its modules.
+     */
+    @Test
+    public void testFilterBundles() {
+        RF2Importer rf2i = new RF2Importer(new Inputs());
+
+        VersionRows m1 = new VersionRows();
+        m1.getConceptRows().add(new ConceptRow("1", "20110131", "1", "M1",
+                "900000000000074008"));
+        m1.getConceptRows().add(new ConceptRow("2", "20110131", "1", "M1",
+                "900000000000074008"));
+        m1.getRelationshipRows().add(new RelationshipRow("10", "20110131",
+                "1", "M1", "1", "2", "0", "116680003", "900000000000011006",
+                "900000000000451002"));
+        VersionRows m2 = new VersionRows();
+        ConceptRow latest = new ConceptRow("1", "20120131", "0", "M2",
+                "900000000000074008");
+        m2.getConceptRows().add(latest);
+        m2.getConceptRows().add(new ConceptRow("3", "20120131", "1", "M2",
+                "900000000000074008"));
+
+        BundleRows bundle = new BundleRows();
+        bundle.merge(m1);
+        bundle.merge(m2);
+        Map<String, BundleRows> vMap = new HashMap<>();
+        vMap.put("20120131", bundle);
+        Map<String, Map<String, ? extends VersionRows>> bundles =
+                new HashMap<>();
+        bundles.put("M2", vMap);
+
+        rf2i.filterBundles(bundles);
+        List<ConceptRow> crs = bundle.getConceptRows();
+        Assert.assertEquals(3, crs.size());
+        Set<String> ids = new HashSet<>();
+        for(ConceptRow cr : crs) {
+            ids.add(cr.getId());
+            if(cr.getId().equals("1")) {
+                Assert.assertSame(latest, cr);
+            }
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("1", "2", "3")), ids);
+        Assert.assertSame(crs.get(0), crs.iterator().next());
+        Assert.assertSame(crs.get(2), m2.getConceptRows().get(1));
+        Assert.assertEquals(1, bundle.getRelationshipRows().size());
+
+        // The rows are shared, not copied
+        Assert.assertEquals(2, m1.getConceptRows().size());
+        Assert.assertSame(m1, bundle.getParts().get(0));
+        Assert.assertSame(m2, bundle.getParts().get(1));
+    }
+
+    /**
+     * Tests that importing with numeric identifiers produces the same number
+     * of axioms, built from {@link LongConcept}s. Every concept inclusion has
+     * a named concept on one side.
+     */
+    @Test
+    public void testGetOntologyVersionsLong() throws IOException {
+        File dir = Files.createTempDirectory("rf2long").toFile();
+        try {
+            RF2Generator gen = new RF2Generator(7);
+            gen.setConcepts(500);
+            gen.setVersions(2);
+            Inputs inputs = gen.generate(dir);
+
+            Map<String, Map<String, IOntology<String>>> strs =
+                    new RF2Importer(inputs).getOntologyVersions(
+                            new NullProgressMonitor());
+            Map<String, Map<String, IOntology<Long>>> longs =
+                    new RF2Importer(inputs).getOntologyVersions(
+                            new NullProgressMonitor(), IdType.LONG);
+            Assert.assertEquals(strs.keySet(), longs.keySet());
+            for(String module : strs.keySet()) {
+                for(String version : strs.get(module).keySet()) {
+                    Collection<IAxiom> axioms = longs.get(module).get(version)
+                            .getStatedAxioms();
+                    Assert.assertEquals(strs.get(module).get(version)
+                            .getStatedAxioms().size(), axioms.size());
+                    for(IAxiom axiom : axioms) {
+                        if(axiom instanceof ConceptInclusion) {
+                            ConceptInclusion ci = (ConceptInclusion) axiom;
+                            Assert.assertTrue(ci.lhs() instanceof LongConcept
+                                    || ci.rhs() instanceof LongConcept);
+                        }
+                    }
+                }
+            }
+        } finally {
+            for(File f : new File(dir, "Full").listFiles()) f.delete();
+            for(File f : new File(dir, "Snapshot").listFiles()) f.delete();
+            for(File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Tests that the bytes reported while reading the files match their size
+     * when the lines end with CRLF.
+     */
+    @Test
+    public void testProgressBytes() throws IOException {
+        File dir = Files.createTempDirectory("rf2bytes").toFile();
+        try {
+            RF2Generator gen = new RF2Generator(5);
+            gen.setConcepts(500);
+            Inputs inputs = gen.generate(dir);
+            long size = 0;
+            for(RF2Input in : inputs.getRf2Inputs()) {
+                for(String name : Arrays.asList(in.getConceptsFile(),
+                        in.getStatedRelationshipsFile())) {
+                    File f = new File(name);
+                    String text = new String(Files.readAllBytes(f.toPath()),
+                            "UTF-8");
+                    byte[] crlf = text.replace("\n", "\r\n").getBytes(
+                            "UTF-8");
+                    Files.write(f.toPath(), crlf);
+                    size += crlf.length;
+                }
+            }
+
+            final List<Progress> reports = new ArrayList<>();
+            new RF2Importer(inputs).getOntologyVersions(
+                    new NullProgressMonitor() {
+                        @Override
+                        public void progress(Progress progress) {
+                            reports.add(progress);
+                        }
+                    });
+            Progress read = null;
+            for(Progress p : reports) {
+                if(p.getTotalBytes() != -1) read = p;
+            }
+            Assert.assertNotNull(read);
+            Assert.assertEquals(size, read.getTotalBytes());
+            Assert.assertEquals(size, read.getBytes());
+        } finally {
+            for(File f : new File(dir, "Full").listFiles()) f.delete();
+            for(File f : new File(dir, "Snapshot").listFiles()) f.delete();
+            for(File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Tests that the versions of a module share their common axioms when
+     * importing with {@link RF2Importer#setShareVersions(boolean)}.
+     */
+    @Test
+    public void testShareVersions() throws IOException {
+        File dir = Files.createTempDirectory("rf2share").toFile();
+        try {
+            RF2Generator gen = new RF2Generator(11);
+            gen.setConcepts(500);
+            gen.setVersions(3);
+            Inputs inputs = gen.generate(dir);
+
+            Map<String, Map<String, IOntology<String>>> plain =
+                    new RF2Importer(inputs).getOntologyVersions(
+                            new NullProgressMonitor());
+            RF2Importer imp = new RF2Importer(inputs);
+            imp.setShareVersions(true);
+            Map<String, Map<String, IOntology<String>>> shared =
+                    imp.getOntologyVersions(new NullProgressMonitor());
+            Assert.assertEquals(plain.keySet(), shared.keySet());
+            for(String module : plain.keySet()) {
+                Assert.assertTrue(shared.get(module) instanceof
+                        VersionedOntologyStore);
+                Assert.assertEquals(plain.get(module).keySet(),
+                        shared.get(module).keySet());
+                Map<IAxiom, IAxiom> previous = null;
+                for(String version : shared.get(module).keySet()) {
+                    Collection<IAxiom> axioms = shared.get(module).get(version)
+                            .getStatedAxioms();
+                    Assert.assertEquals(new HashSet<>(plain.get(module)
+                            .get(version).getStatedAxioms()), axioms);
+                    Map<IAxiom, IAxiom> current = new HashMap<>();
+                    for(IAxiom axiom : axioms) {
+                        current.put(axiom, axiom);
+                        if(previous != null && previous.containsKey(axiom)) {
+                            Assert.assertSame(previous.get(axiom), axiom);
+                        }
+                    }
+                    previous = current;
+                }
+            }
+        } finally {
+            for(File f : new File(dir, "Full").listFiles()) f.delete();
+            for(File f : new File(dir, "Snapshot").listFiles()) f.delete();
+            for(File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Tests that streaming the versions sends the same axioms as the ones in
+     * the imported ontologies, one version at a time.
+     */
+    @Test
+    public void testImportOntologyVersions() throws IOException {
+        File dir = Files.createTempDirectory("rf2stream").toFile();
+        try {
+            RF2Generator gen = new RF2Generator(13);
+            gen.setConcepts(300);
+            gen.setVersions(2);
+            Inputs inputs = gen.generate(dir);
+
+            final Map<String, Map<String, IOntology<String>>> expected =
+                    new RF2Importer(inputs).getOntologyVersions(
+                            new NullProgressMonitor());
+            final Set<String> ended = new HashSet<>();
+            new RF2Importer(inputs).importOntologyVersions(
+                    new NullProgressMonitor(), new IOntologySink() {
+                private String current;
+                private Set<IAxiom> axioms;
+
+                @Override
+                public void startOntology(String module, String version) {
+                    Assert.assertNull(current);
+                    current = module + "/" + version;
+                    axioms = new HashSet<>();
+                }
+
+                @Override
+                public void accept(IAxiom axiom) {
+                    Assert.assertNotNull(current);
+                    axioms.add(axiom);
+                }
+
+                @Override
+                public void endOntology(String module, String version) {
+                    Assert.assertEquals(module + "/" + version, current);
+                    Assert.assertEquals(new HashSet<>(expected.get(module)
+                            .get(version).getStatedAxioms()), axioms);
+                    ended.add(current);
+                    current = null;
+                }
+            });
+
+            int numVersions = 0;
+            for(String module : expected.keySet()) {
+                for(String version : expected.get(module).keySet()) {
+                    Assert.assertTrue(ended.contains(module + "/" + version));
+                    numVersions++;
+                }
+            }
+            Assert.assertEquals(numVersions, ended.size());
+        } finally {
+            for(File f : new File(dir, "Full").listFiles()) f.delete();
+            for(File f : new File(dir, "Snapshot").listFiles()) f.delete();
+            for(File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Tests that importing with a single thread does not deadlock when the
+     * module dependencies are loaded on the executor.
+     */
+    @Test(timeout = 60000)
+    public void testGetOntologyVersionsSingleThread() throws IOException {
+        File dir = Files.createTempDirectory("rf2single").toFile();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RF2Generator gen = new RF2Generator(17);
+            gen.setConcepts(200);
+            gen.setVersions(2);
+            Inputs inputs = gen.generate(dir);
+
+            Map<String, Map<String, IOntology<String>>> expected =
+                    new RF2Importer(inputs).getOntologyVersions(
+                            new NullProgressMonitor());
+            Map<String, Map<String, IOntology<String>>> actual =
+                    new RF2Importer(inputs, executor).getOntologyVersions(
+                            new NullProgressMonitor());
+            Assert.assertEquals(expected.keySet(), actual.keySet());
+            for(String module : expected.keySet()) {
+                Assert.assertEquals(expected.get(module).keySet(),
+                        actual.get(module).keySet());
+                for(String version : expected.get(module).keySet()) {
+                    Assert.assertEquals(new HashSet<>(expected.get(module)
+                            .get(version).getStatedAxioms()),
+                            new HashSet<>(actual.get(module).get(version)
+                                    .getStatedAxioms()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for(File f : new File(dir, "Full").listFiles()) f.delete();
+            for(File f : new File(dir, "Snapshot").listFiles()) f.delete();
+            for(File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
 }
@@ -0,0 +1,79 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RF2Writer}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestRF2Writer {
+
+    private byte[] writeConcepts(RF2Writer writer, List<ConceptRow> rows)
+            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writer.writeConcepts(rows, Channels.newChannel(bos));
+        return bos.toByteArray();
+    }
+
+    /**
+     * Tests that only the latest version of each concept is written, sorted
+     * numerically by id.
+     */
+    @Test
+    public void testWriteSnapshot() throws IOException {
+        List<ConceptRow> rows = Arrays.asList(new ConceptRow[] {
+            new ConceptRow("1000", "20120131", "1", "10", "900000000000074008"),
+            new ConceptRow("999", "20120131", "1", "10", "900000000000074008"),
+            new ConceptRow("1000", "20120731", "0", "10", "900000000000074008"),
+        });
+
+        String res = new String(writeConcepts(new RF2Writer(),
+                RF2Writer.latestConcepts(rows)), StandardCharsets.UTF_8);
+        Assert.assertEquals(
+                "id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId\r\n" +
+                "999\t20120131\t1\t10\t900000000000074008\r\n" +
+                "1000\t20120731\t0\t10\t900000000000074008\r\n", res);
+    }
+
+    /**
+     * Tests that sorting large tables in parallel runs produces the same
+     * output as sorting sequentially.
+     */
+    @Test
+    public void testParallelSort() throws IOException {
+        List<ConceptRow> rows = new ArrayList<>();
+        for(int i = 0; i < 250000; i++) {
+            String id = String.valueOf((i * 7919L) % 250000 + 100);
+            rows.add(new ConceptRow(id, "20120131", "1", "10",
+                    "900000000000074008"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] seq = writeConcepts(new RF2Writer(), rows);
+            byte[] par = writeConcepts(new RF2Writer(true, executor), rows);
+            Assert.assertTrue(Arrays.equals(seq, par));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.importer.rf2;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import au.csiro.ontology.snomed.refset.rf2.ColumnType;
+import au.csiro.ontology.snomed.refset.rf2.ColumnarRefset;
+import au.csiro.ontology.snomed.refset.rf2.RefsetMembership;
+import au.csiro.ontology.snomed.refset.rf2.RefsetStore;
+
+/**
+ * Unit tests for {@link RefsetImporter}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestRefsetImporter {
+
+    private static final String SIMPLE_MAP =
+            "/der2_sRefset_SimpleMapFull_test.txt";
+
+    private RefsetStore load(boolean latestOnly) {
+        Map<String, InputStream> files = new HashMap<>();
+        files.put(SIMPLE_MAP, this.getClass().getResourceAsStream(SIMPLE_MAP));
+        return RefsetImporter.importRefsets(files, latestOnly);
+    }
+
+    /**
+     * Tests that all the rows of a full release are loaded and indexed by
+     * refset id and referenced component id.
+     */
+    @Test
+    public void testImportFull() {
+        RefsetStore store = load(false);
+        Assert.assertEquals(2, store.getRefsetIds().size());
+
+        ColumnarRefset map = store.getRefset(447562003L);
+        Assert.assertEquals(4, map.size());
+        Assert.assertEquals(1, map.getColumnCount());
+        Assert.assertEquals("mapTarget", map.getColumnName(0));
+        Assert.assertEquals(ColumnType.STRING, map.getColumnType(0));
+
+        int[] rows = map.getMembers(1L);
+        Assert.assertEquals(2, rows.length);
+        Assert.assertEquals("A01.1", map.getString(rows[0], 0));
+        Assert.assertEquals("A01.2", map.getString(rows[1], 0));
+        Assert.assertEquals("00000001-0000-0000-0000-000000000001",
+                map.getMemberId(rows[0]));
+
+        rows = store.getMembers(447562003L, 3L);
+        Assert.assertEquals(1, rows.length);
+        Assert.assertFalse(map.isActive(rows[0]));
+        Assert.assertEquals(0, store.getMembers(447562003L, 4L).length);
+        Assert.assertEquals(1, store.getMembers(447563008L, 3L).length);
+    }
+
+    /**
+     * Tests that only the latest version of each member is kept when
+     * requested.
+     */
+    @Test
+    public void testImportLatestOnly() {
+        RefsetStore store = load(true);
+        ColumnarRefset map = store.getRefset(447562003L);
+        Assert.assertEquals(3, map.size());
+
+        int row = map.firstMember(1L);
+        Assert.assertEquals("A01.2", map.getString(row, 0));
+        Assert.assertEquals(20120131, map.getEffectiveTime(row));
+        Assert.assertEquals(-1, map.nextMember(row));
+    }
+
+    /**
+     * Tests that the latest version of each member is kept when there are
+     * enough members to grow the builder's index of member ids.
+     */
+    @Test
+    public void testLatestOnlyManyMembers() {
+        ColumnarRefset.Builder b = new ColumnarRefset.Builder(1L,
+                new String[0], new ColumnType[0], true);
+        int n = 5000;
+        for(int time = 20120131; time >= 20110131; time -= 10000) {
+            for(int i = 0; i < n; i++) {
+                // Numeric ids and UUIDs that only differ in the high bits
+                long msb = (i % 2 == 0) ? 0 : ((long) i) << 32;
+                b.addMember(msb, i, time, true, 1L, time + i);
+            }
+        }
+        for(int i = 0; i < n; i++) {
+            long msb = (i % 2 == 0) ? 0 : ((long) i) << 32;
+            Assert.assertEquals(-1, b.addMember(msb, i, 20110731, true, 1L,
+                    0L));
+        }
+        ColumnarRefset refset = b.build();
+        Assert.assertEquals(n, refset.size());
+        for(int i = 0; i < n; i++) {
+            int row = refset.firstMember(20120131L + i);
+            Assert.assertTrue(row >= 0);
+            Assert.assertEquals(20120131, refset.getEffectiveTime(row));
+        }
+    }
+
+    /**
+     * Tests the membership index built from a full release, where only the
+     * latest active versions count as members.
+     */
+    @Test
+    public void testMembership() {
+        RefsetMembership m = new RefsetMembership(load(false));
+        Assert.assertEquals(3, m.getComponentCount());
+        Assert.assertTrue(m.isMember(447562003L, 1L));
+        Assert.assertTrue(m.isMember(447562003L, 2L));
+        Assert.assertFalse(m.isMember(447562003L, 3L));
+        Assert.assertTrue(m.isMember(447563008L, 3L));
+        Assert.assertFalse(m.isMember(123L, 1L));
+
+        boolean[] res = m.areMembers(447562003L, new long[] { 3L, 2L, 9L, 1L });
+        Assert.assertFalse(res[0]);
+        Assert.assertTrue(res[1]);
+        Assert.assertFalse(res[2]);
+        Assert.assertTrue(res[3]);
+
+        long[] refsets = m.getRefsets(3L);
+        Assert.assertEquals(1, refsets.length);
+        Assert.assertEquals(447563008L, refsets[0]);
+        Assert.assertEquals(0, m.getRefsets(9L).length);
+
+        long[] members = m.getMembers(447562003L);
+        Assert.assertEquals(2, members.length);
+        Assert.assertEquals(1L, members[0]);
+        Assert.assertEquals(2L, members[1]);
+    }
+
+    /**
+     * Tests the inference of column types.
+     */
+    @Test
+    public void testGetColumnTypes() {
+        ColumnType[] types = RefsetImporter.getColumnTypes(
+                "der2_iissscRefset_ComplexMapFull_INT_20120131.txt",
+                new String[] { "mapGroup", "mapPriority", "mapRule",
+                        "mapAdvice", "mapTarget", "correlationId" });
+        Assert.assertEquals(ColumnType.INTEGER, types[0]);
+        Assert.assertEquals(ColumnType.STRING, types[4]);
+        Assert.assertEquals(ColumnType.COMPONENT, types[5]);
+
+        types = RefsetImporter.getColumnTypes("unknown.txt",
+                new String[] { "order", "linkedTo", "valueId", "query" });
+        Assert.assertEquals(ColumnType.INTEGER, types[0]);
+        Assert.assertEquals(ColumnType.COMPONENT, types[1]);
+        Assert.assertEquals(ColumnType.COMPONENT, types[2]);
+        Assert.assertEquals(ColumnType.STRING, types[3]);
+    }
+
+}
@@ -103,6 +103,28 @@ public class Factory<T extends Comparable<T>> implements IFactory<T> {
         return new DateLiteral(value);
     }
 
+    /**
+     * Creates a date literal.
+     * 
+     * @param year
+     * @param month The month, from 1 to 12.
+     * @param dayOfMonth
+     * @return
+     */
+    public ILiteral createDateLiteral(int year, int month, int dayOfMonth) {
+        return new DateLiteral(year, month, dayOfMonth);
+    }
+
+    /**
+     * Creates a date literal from the number of days since 1970-01-01.
+     * 
+     * @param epochDay
+     * @return
+     */
+    public ILiteral createDateLiteral(int epochDay) {
+        return new DateLiteral(epochDay);
+    }
+
     @Override
     public ILiteral createStringLiteral(String value) {
         return new StringLiteral(value);
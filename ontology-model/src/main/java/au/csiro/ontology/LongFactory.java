@@ -0,0 +1,51 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology;
+
+import au.csiro.ontology.model.IConcept;
+import au.csiro.ontology.model.INamedRole;
+import au.csiro.ontology.model.LongConcept;
+import au.csiro.ontology.model.LongRole;
+
+/**
+ * Factory for ontologies with numeric identifiers. Named concepts and roles
+ * are created as {@link LongConcept}s and {@link LongRole}s.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class LongFactory extends Factory<Long> {
+
+    @Override
+    public IConcept createConcept(Long id) {
+        return new LongConcept(id);
+    }
+
+    @Override
+    public INamedRole<Long> createRole(Long id) {
+        return new LongRole(id);
+    }
+
+    /**
+     * Creates a concept with the specified id without boxing it.
+     *
+     * @param id
+     * @return
+     */
+    public IConcept createConcept(long id) {
+        return new LongConcept(id);
+    }
+
+    /**
+     * Creates a role with the specified id without boxing it.
+     *
+     * @param id
+     * @return
+     */
+    public INamedRole<Long> createRole(long id) {
+        return new LongRole(id);
+    }
+
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.IRoleInclusion;
+import au.csiro.ontology.model.IRole;
+
+/**
+ * Index of the role inclusion axioms of an ontology. Every role that appears
+ * in a role inclusion gets a dense id, from zero, in order of appearance. The
+ * reflexive and transitive closure of the sub-role relation is stored as one
+ * bitset of super-roles and one of sub-roles per role, so checking if a role
+ * is a sub-role of another takes constant time. Role chains of length two
+ * are indexed by their first and by their second role. Longer chains are
+ * kept but not indexed.
+ *
+ * <p>The index is immutable and does not change if the axioms do.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class RoleHierarchy {
+
+    private final Map<IRole, Integer> ids = new HashMap<>();
+    private final List<IRole> roles = new ArrayList<>();
+
+    /**
+     * Number of longs in the bitset of each role.
+     */
+    private final int words;
+
+    /**
+     * The super-roles of each role. The bitset of role i is stored in words
+     * i * words to (i + 1) * words - 1.
+     */
+    private final long[] superRoles;
+
+    /**
+     * The sub-roles of each role, stored like {@link #superRoles}.
+     */
+    private final long[] subRoles;
+
+    private final BitSet reflexive = new BitSet();
+
+    private final List<List<IRoleInclusion>> chainsByFirst = new ArrayList<>();
+    private final List<List<IRoleInclusion>> chainsBySecond =
+            new ArrayList<>();
+    private final List<IRoleInclusion> longChains = new ArrayList<>();
+
+    /**
+     * Builds the index from the role inclusions in a collection of axioms.
+     * Other axioms are ignored.
+     *
+     * @param axioms
+     */
+    public RoleHierarchy(Iterable<? extends IAxiom> axioms) {
+        List<int[]> inclusions = new ArrayList<>();
+        for(IAxiom axiom : axioms) {
+            if(!(axiom instanceof IRoleInclusion)) continue;
+            IRoleInclusion ri = (IRoleInclusion) axiom;
+            IRole[] lhs = ri.lhs();
+            int sup = index(ri.rhs());
+            if(lhs.length == 0) {
+                reflexive.set(sup);
+            } else if(lhs.length == 1) {
+                inclusions.add(new int[] { index(lhs[0]), sup });
+            } else if(lhs.length == 2) {
+                chainsByFirst.get(index(lhs[0])).add(ri);
+                chainsBySecond.get(index(lhs[1])).add(ri);
+            } else {
+                for(IRole r : lhs) {
+                    index(r);
+                }
+                longChains.add(ri);
+            }
+        }
+
+        int n = roles.size();
+        words = (n + 63) >>> 6;
+        superRoles = new long[n * words];
+        subRoles = new long[n * words];
+
+        // Direct super-roles
+        int[] counts = new int[n];
+        for(int[] inc : inclusions) {
+            counts[inc[0]]++;
+        }
+        int[][] direct = new int[n][];
+        for(int i = 0; i < n; i++) {
+            direct[i] = new int[counts[i]];
+        }
+        for(int[] inc : inclusions) {
+            int sub = inc[0];
+            direct[sub][--counts[sub]] = inc[1];
+        }
+
+        // Depth first search from each role, which terminates on cycles
+        // because visited roles are already in the bitset
+        int[] stack = new int[n];
+        for(int i = 0; i < n; i++) {
+            int base = i * words;
+            int size = 0;
+            set(superRoles, base, i);
+            stack[size++] = i;
+            while(size > 0) {
+                int r = stack[--size];
+                for(int sup : direct[r]) {
+                    if(!get(superRoles, base, sup)) {
+                        set(superRoles, base, sup);
+                        stack[size++] = sup;
+                    }
+                }
+            }
+            for(int j = 0; j < n; j++) {
+                if(get(superRoles, base, j)) {
+                    set(subRoles, j * words, i);
+                }
+            }
+        }
+    }
+
+    private int index(IRole r) {
+        Integer id = ids.get(r);
+        if(id == null) {
+            id = roles.size();
+            ids.put(r, id);
+            roles.add(r);
+            chainsByFirst.add(new ArrayList<IRoleInclusion>(0));
+            chainsBySecond.add(new ArrayList<IRoleInclusion>(0));
+        }
+        return id;
+    }
+
+    private static void set(long[] bits, int base, int i) {
+        bits[base + (i >>> 6)] |= 1L << i;
+    }
+
+    private static boolean get(long[] bits, int base, int i) {
+        return (bits[base + (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns the number of roles in the index.
+     *
+     * @return
+     */
+    public int getNumRoles() {
+        return roles.size();
+    }
+
+    /**
+     * Returns the id of a role, or -1 if it does not appear in any role
+     * inclusion.
+     *
+     * @param r
+     * @return
+     */
+    public int getId(IRole r) {
+        Integer id = ids.get(r);
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Returns the role with the specified id.
+     *
+     * @param id
+     * @return
+     */
+    public IRole getRole(int id) {
+        return roles.get(id);
+    }
+
+    /**
+     * Returns true if role sub is role sup or one of its sub-roles.
+     *
+     * @param sub
+     * @param sup
+     * @return
+     */
+    public boolean isSubRoleOf(int sub, int sup) {
+        return get(superRoles, sub * words, sup);
+    }
+
+    /**
+     * Returns true if role sub is role sup or one of its sub-roles. Roles that
+     * are not in the index are only sub-roles of themselves.
+     *
+     * @param sub
+     * @param sup
+     * @return
+     */
+    public boolean isSubRoleOf(IRole sub, IRole sup) {
+        Integer i = ids.get(sub);
+        Integer j = ids.get(sup);
+        if(i == null || j == null) {
+            return sub.equals(sup);
+        }
+        return isSubRoleOf(i.intValue(), j.intValue());
+    }
+
+    /**
+     * Returns the ids of a role and all its super-roles. The bitset is a copy.
+     *
+     * @param id
+     * @return
+     */
+    public BitSet getSuperRoleIds(int id) {
+        return toBitSet(superRoles, id);
+    }
+
+    /**
+     * Returns the ids of a role and all its sub-roles. The bitset is a copy.
+     *
+     * @param id
+     * @return
+     */
+    public BitSet getSubRoleIds(int id) {
+        return toBitSet(subRoles, id);
+    }
+
+    private BitSet toBitSet(long[] bits, int id) {
+        long[] row = new long[words];
+        System.arraycopy(bits, id * words, row, 0, words);
+        return BitSet.valueOf(row);
+    }
+
+    /**
+     * Returns a role and all its super-roles.
+     *
+     * @param r
+     * @return
+     */
+    public Set<IRole> getSuperRoles(IRole r) {
+        return getRoles(superRoles, r);
+    }
+
+    /**
+     * Returns a role and all its sub-roles.
+     *
+     * @param r
+     * @return
+     */
+    public Set<IRole> getSubRoles(IRole r) {
+        return getRoles(subRoles, r);
+    }
+
+    private Set<IRole> getRoles(long[] bits, IRole r) {
+        Integer id = ids.get(r);
+        if(id == null) {
+            return Collections.singleton(r);
+        }
+        Set<IRole> res = new LinkedHashSet<>();
+        int base = id * words;
+        for(int j = 0; j < roles.size(); j++) {
+            if(get(bits, base, j)) {
+                res.add(roles.get(j));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns true if there is an axiom that states the role is reflexive.
+     *
+     * @param r
+     * @return
+     */
+    public boolean isReflexive(IRole r) {
+        Integer id = ids.get(r);
+        return id != null && reflexive.get(id);
+    }
+
+    /**
+     * Returns the role chains of length two whose first role is r.
+     *
+     * @param r
+     * @return
+     */
+    public List<IRoleInclusion> getChainsWithFirst(IRole r) {
+        return getChains(chainsByFirst, r);
+    }
+
+    /**
+     * Returns the role chains of length two whose second role is r.
+     *
+     * @param r
+     * @return
+     */
+    public List<IRoleInclusion> getChainsWithSecond(IRole r) {
+        return getChains(chainsBySecond, r);
+    }
+
+    private List<IRoleInclusion> getChains(List<List<IRoleInclusion>> index,
+            IRole r) {
+        Integer id = ids.get(r);
+        if(id == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(index.get(id));
+    }
+
+    /**
+     * Returns the role chains longer than two.
+     *
+     * @return
+     */
+    public List<IRoleInclusion> getLongChains() {
+        return Collections.unmodifiableList(longChains);
+    }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.util.PersistentHashSet;
+
+/**
+ * Stores the versions of an ontology. The stated axioms of each version are
+ * kept in a {@link PersistentHashSet} built from the axioms of the previous
+ * version, so the versions share the axioms they have in common, and the
+ * nodes of the set that hold them, instead of each having a copy. Versions
+ * should therefore be added in chronological order.
+ *
+ * <p>The store is a read-only map from version to {@link IOntology}, in the
+ * order the versions were added, and can be returned wherever a map of
+ * versions is expected. The stated axioms of the ontologies cannot be
+ * modified.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class VersionedOntologyStore<T extends Comparable<T>>
+        extends AbstractMap<String, IOntology<T>> {
+
+    private final Map<String, IOntology<T>> ontologies = new LinkedHashMap<>();
+
+    private final Map<String, PersistentHashSet<IAxiom>> axioms =
+            new HashMap<>();
+
+    /**
+     * The axioms of the last version added.
+     */
+    private PersistentHashSet<IAxiom> last = PersistentHashSet.empty();
+
+    /**
+     * Adds a version with the specified axioms. Axioms equal to ones in the
+     * previous version are replaced by the existing instances.
+     *
+     * @param version
+     * @param axioms
+     * @return The ontology for the new version.
+     */
+    public IOntology<T> addVersion(String version,
+            Collection<? extends IAxiom> axioms) {
+        Set<?> current = (axioms instanceof Set) ? (Set<?>) axioms :
+            new HashSet<IAxiom>(axioms);
+        PersistentHashSet<IAxiom> res = last;
+        for(IAxiom a : last) {
+            if(!current.contains(a)) {
+                res = res.minus(a);
+            }
+        }
+        return add(version, res.plusAll(axioms));
+    }
+
+    /**
+     * Adds a version that differs from the previous one by the specified
+     * axioms.
+     *
+     * @param version
+     * @param added
+     * @param removed
+     * @return The ontology for the new version.
+     */
+    public IOntology<T> addVersion(String version,
+            Collection<? extends IAxiom> added, Collection<?> removed) {
+        return add(version, last.minusAll(removed).plusAll(added));
+    }
+
+    private IOntology<T> add(String version, PersistentHashSet<IAxiom> set) {
+        if(ontologies.containsKey(version)) {
+            throw new IllegalArgumentException("Version " + version +
+                    " is already in the store.");
+        }
+        IOntology<T> ont = new Ontology<T>(set, null);
+        ontologies.put(version, ont);
+        axioms.put(version, set);
+        last = set;
+        return ont;
+    }
+
+    /**
+     * Returns the stated axioms of a version, or null if the version is not
+     * in the store.
+     *
+     * @param version
+     * @return
+     */
+    public PersistentHashSet<IAxiom> getAxioms(String version) {
+        return axioms.get(version);
+    }
+
+    @Override
+    public IOntology<T> get(Object version) {
+        return ontologies.get(version);
+    }
+
+    @Override
+    public boolean containsKey(Object version) {
+        return ontologies.containsKey(version);
+    }
+
+    @Override
+    public int size() {
+        return ontologies.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, IOntology<T>>> entrySet() {
+        return Collections.unmodifiableMap(ontologies).entrySet();
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.classification;
+
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Set;
+
+import au.csiro.ontology.IOntology;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.util.events.PhaseEvent;
+import au.csiro.ontology.util.events.PhaseEvents;
+
+/**
+ * Wraps an {@link IReasoner} and emits a classify {@link PhaseEvent} around
+ * each classification.
+ *
+ * @author Alejandro Metke
+ *
+ */
+@SuppressWarnings("deprecation")
+public class TracingReasoner<T extends Comparable<T>> implements IReasoner<T> {
+
+    private final IReasoner<T> reasoner;
+    private final String name;
+
+    /**
+     * Creates a new {@link TracingReasoner}.
+     *
+     * @param reasoner The reasoner to wrap.
+     * @param name The name used as the component of the events.
+     */
+    public TracingReasoner(IReasoner<T> reasoner, String name) {
+        this.reasoner = reasoner;
+        this.name = name;
+    }
+
+    @Override
+    public IReasoner<T> classify(Set<IAxiom> axioms) {
+        PhaseEvent event = PhaseEvents.begin(name, "classify");
+        try {
+            event.setAxioms(axioms.size());
+            reasoner.classify(axioms);
+            return this;
+        } finally {
+            event.end();
+        }
+    }
+
+    @Override
+    public IReasoner<T> classify(Iterator<IAxiom> axioms) {
+        PhaseEvent event = PhaseEvents.begin(name, "classify");
+        try {
+            reasoner.classify(axioms);
+            return this;
+        } finally {
+            event.end();
+        }
+    }
+
+    @Override
+    public IReasoner<T> classify(IOntology<T> ont) {
+        PhaseEvent event = PhaseEvents.begin(name, "classify");
+        try {
+            event.setAxioms(ont.getStatedAxioms().size());
+            reasoner.classify(ont);
+            return this;
+        } finally {
+            event.end();
+        }
+    }
+
+    @Override
+    public void prune() {
+        reasoner.prune();
+    }
+
+    @Override
+    public IOntology<T> getClassifiedOntology() {
+        return reasoner.getClassifiedOntology();
+    }
+
+    @Override
+    public void save(OutputStream out) {
+        reasoner.save(out);
+    }
+
+    @Override
+    public boolean isClassified() {
+        return reasoner.isClassified();
+    }
+
+    @Override
+    public au.csiro.ontology.Taxonomy<T> getTaxonomy() {
+        return reasoner.getTaxonomy();
+    }
+
+}
@@ -118,7 +118,7 @@ public class Concept<T extends Comparable<T>> implements INamedConcept<T> {
             Concept<T> other = (Concept<T>)o;
             return id.compareTo(other.id);
         } else {
-            return thisClass.toString().compareTo(otherClass.toString());
+            return ConceptComparator.compareTypes(this, o);
         }
     }
 
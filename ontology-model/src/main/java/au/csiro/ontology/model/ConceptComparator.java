@@ -0,0 +1,87 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Orders concepts of any type. Concepts of the same class are ordered by their
+ * {@link IConcept#compareTo(IConcept)} method and concepts of different
+ * classes by the name of their class. The classes in this package have a fixed
+ * type rank that follows the order of their names, so comparing them does not
+ * build any strings.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class ConceptComparator implements Comparator<IConcept>, Serializable {
+
+    /**
+     * Serialisation version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    public static final ConceptComparator INSTANCE = new ConceptComparator();
+
+    /**
+     * Type rank of classes that are not in this package.
+     */
+    public static final int UNRANKED = -1;
+
+    public static final int CONCEPT = 0;
+    public static final int CONJUNCTION = 1;
+    public static final int DATATYPE = 2;
+    public static final int EXISTENTIAL = 3;
+    public static final int LONG_CONCEPT = 4;
+
+    /**
+     * Returns the type rank of a concept, or {@link #UNRANKED} if its class
+     * is not one of the concept classes in this package. Subclasses are not
+     * ranked because their names may sort anywhere.
+     *
+     * @param c
+     * @return
+     */
+    public static int getTypeRank(IConcept c) {
+        Class<?> cls = c.getClass();
+        if(cls == Concept.class) return CONCEPT;
+        else if(cls == Existential.class) return EXISTENTIAL;
+        else if(cls == Conjunction.class) return CONJUNCTION;
+        else if(cls == LongConcept.class) return LONG_CONCEPT;
+        else if(cls == Datatype.class) return DATATYPE;
+        else return UNRANKED;
+    }
+
+    /**
+     * Compares the types of two concepts of different classes.
+     *
+     * @param c1
+     * @param c2
+     * @return
+     */
+    public static int compareTypes(IConcept c1, IConcept c2) {
+        int r1 = getTypeRank(c1);
+        int r2 = getTypeRank(c2);
+        if(r1 != UNRANKED && r2 != UNRANKED) {
+            return r1 - r2;
+        }
+        return c1.getClass().getName().compareTo(c2.getClass().getName());
+    }
+
+    @Override
+    public int compare(IConcept c1, IConcept c2) {
+        if(c1.getClass() == c2.getClass()) {
+            return c1.compareTo(c2);
+        } else {
+            return compareTypes(c1, c2);
+        }
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+}
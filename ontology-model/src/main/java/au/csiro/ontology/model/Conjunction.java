@@ -6,8 +6,6 @@ package au.csiro.ontology.model;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * This class represents a conjunction (also referred to as an
@@ -22,12 +20,8 @@ public class Conjunction implements IConjunction {
     final private int hashCode;
 
     public Conjunction(final IConcept[] concepts) {
-        final SortedSet<IConcept> sorted = new TreeSet<IConcept>();
-        for (IConcept concept : concepts) {
-            sorted.add(concept);
-        }
-        this.concepts = sorted.toArray(new IConcept[sorted.size()]);
-        hashCode = sorted.hashCode();
+        this.concepts = sort(concepts.clone());
+        hashCode = hash(this.concepts);
     }
 
     public Conjunction(final Collection<? extends IConcept> concepts) {
@@ -35,10 +29,35 @@ public class Conjunction implements IConjunction {
         // independent, i.e. conjunctions are reflexive (should also be
         // transitive, but Agile says STTCPW)
 
-        final SortedSet<IConcept> sorted = new TreeSet<>(
-                concepts);
-        this.concepts = sorted.toArray(new IConcept[sorted.size()]);
-        hashCode = sorted.hashCode();
+        this.concepts = sort(concepts.toArray(new IConcept[concepts.size()]));
+        hashCode = hash(this.concepts);
+    }
+
+    /**
+     * Sorts the concepts and removes the duplicates, like adding them to a
+     * sorted set would.
+     */
+    private static IConcept[] sort(IConcept[] cs) {
+        Arrays.sort(cs, ConceptComparator.INSTANCE);
+        int n = 0;
+        for (int i = 0; i < cs.length; i++) {
+            if (n == 0 || ConceptComparator.INSTANCE.compare(cs[n - 1],
+                    cs[i]) != 0) {
+                cs[n++] = cs[i];
+            }
+        }
+        return (n == cs.length) ? cs : Arrays.copyOf(cs, n);
+    }
+
+    /**
+     * Returns the same hash code as a set with the concepts.
+     */
+    private static int hash(IConcept[] cs) {
+        int res = 0;
+        for (IConcept c : cs) {
+            res += c.hashCode();
+        }
+        return res;
     }
 
     public IConcept[] getConcepts() {
@@ -92,21 +111,14 @@ public class Conjunction implements IConjunction {
             if(res != 0) return res;
             
             for(int i = 0; i < concepts.length; i++) {
-                try {
-                    res = concepts[i].compareTo(other.concepts[i]);
-                } catch(ClassCastException e) {
-                    // Need to catch this because elements in the conjunction 
-                    // might be of different types
-                    res = concepts[i].getClass().toString().compareTo(
-                            other.concepts[i].getClass().toString());
-                }
-                
+                // Elements of different types are ordered by their type
+                res = concepts[i].compareTo(other.concepts[i]);
                 if(res != 0) return res;
             }
     
             return 0;
         } else {
-            return thisClass.toString().compareTo(otherClass.toString());
+            return ConceptComparator.compareTypes(this, o);
         }
     }
 
@@ -10,9 +10,10 @@ package au.csiro.ontology.model;
  */
 public class Datatype<T extends Comparable<T>> implements IDatatype<T> {
     
-    private INamedFeature<T> feature;
-    private Operator operator;
-    private ILiteral literal;
+    private final INamedFeature<T> feature;
+    private final Operator operator;
+    private final ILiteral literal;
+    private final int hashCode;
 
     /**
      * 
@@ -25,6 +26,14 @@ public class Datatype<T extends Comparable<T>> implements IDatatype<T> {
         this.feature = feature;
         this.operator = operator;
         this.literal = literal;
+        
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((feature == null) ? 0 : feature.hashCode());
+        result = prime * result + ((literal == null) ? 0 : literal.hashCode());
+        result = prime * result
+                + ((operator == null) ? 0 : operator.hashCode());
+        hashCode = result;
     }
 
     public INamedFeature<T> getFeature() {
@@ -46,13 +55,7 @@ public class Datatype<T extends Comparable<T>> implements IDatatype<T> {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((feature == null) ? 0 : feature.hashCode());
-        result = prime * result + ((literal == null) ? 0 : literal.hashCode());
-        result = prime * result
-                + ((operator == null) ? 0 : operator.hashCode());
-        return result;
+        return hashCode;
     }
 
     @SuppressWarnings("rawtypes")
@@ -65,6 +68,8 @@ public class Datatype<T extends Comparable<T>> implements IDatatype<T> {
         if (getClass() != obj.getClass())
             return false;
         Datatype other = (Datatype) obj;
+        if (hashCode != other.hashCode)
+            return false;
         if (feature == null) {
             if (other.feature != null)
                 return false;
@@ -95,7 +100,7 @@ public class Datatype<T extends Comparable<T>> implements IDatatype<T> {
             res = literal.compareTo(other.literal);
             return res;
         } else {
-            return thisClass.toString().compareTo(otherClass.toString());
+            return ConceptComparator.compareTypes(this, o);
         }
     }
 
@@ -1,41 +1,112 @@
 /**
  * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
- * All rights reserved. Use is subject to license terms and conditions. 
+ * All rights reserved. Use is subject to license terms and conditions.
  */
 package au.csiro.ontology.model;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 /**
- * This class represents a date literal.
- * 
+ * This class represents a date literal. The date is stored as the number of
+ * days since 1970-01-01 in the proleptic Gregorian calendar, so literals are
+ * small immutable values that can be shared between threads. The time of day
+ * and the time zone of a {@link Calendar} are not kept.
+ *
  * @author Alejandro Metke
- * 
+ *
  */
 public class DateLiteral implements IDateLiteral {
 
-    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-    private final Calendar value;
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
 
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final int epochDay;
+
+    /**
+     * Creates a date literal with the date of a calendar, as seen in the
+     * calendar's time zone.
+     *
+     * @param value
+     */
     public DateLiteral(Calendar value) {
-        this.value = value;
+        int year = value.get(Calendar.YEAR);
+        if(value.get(Calendar.ERA) == GregorianCalendar.BC) {
+            year = 1 - year;
+        }
+        this.epochDay = toEpochDay(year, value.get(Calendar.MONTH) + 1,
+                value.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Creates a date literal.
+     *
+     * @param year
+     * @param month The month, from 1 to 12.
+     * @param dayOfMonth The day, from 1 to the length of the month.
+     * @throws IllegalArgumentException If the date does not exist.
+     */
+    public DateLiteral(int year, int month, int dayOfMonth) {
+        if(month < 1 || month > 12 || dayOfMonth < 1 ||
+                dayOfMonth > lengthOfMonth(year, month)) {
+            throw new IllegalArgumentException("Invalid date " + year + "-" +
+                    month + "-" + dayOfMonth);
+        }
+        this.epochDay = toEpochDay(year, month, dayOfMonth);
     }
 
     /**
+     * Creates a date literal.
+     *
+     * @param epochDay The number of days since 1970-01-01.
+     */
+    public DateLiteral(int epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    /**
+     * Returns a new calendar set to midnight UTC of this date. Changing the
+     * calendar does not change the literal.
+     *
      * @return the value
      */
     @Override
     public Calendar getValue() {
-        return value;
+        GregorianCalendar res = new GregorianCalendar(UTC);
+        res.setGregorianChange(new Date(Long.MIN_VALUE));
+        res.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+        return res;
+    }
+
+    /**
+     * Returns true if a calendar has a time of day other than midnight, which
+     * is lost when a literal is created from it.
+     *
+     * @param value
+     * @return
+     */
+    public static boolean hasTimeOfDay(Calendar value) {
+        return value.get(Calendar.HOUR_OF_DAY) != 0 ||
+                value.get(Calendar.MINUTE) != 0 ||
+                value.get(Calendar.SECOND) != 0 ||
+                value.get(Calendar.MILLISECOND) != 0;
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01.
+     *
+     * @return
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((value == null) ? 0 : value.hashCode());
-        return result;
+        return 31 + epochDay;
     }
 
     @Override
@@ -47,24 +118,104 @@ public class DateLiteral implements IDateLiteral {
         if (getClass() != obj.getClass())
             return false;
         DateLiteral other = (DateLiteral) obj;
-        if (value == null) {
-            if (other.value != null)
-                return false;
-        } else if (!value.equals(other.value))
-            return false;
-        return true;
+        return epochDay == other.epochDay;
     }
 
+    /**
+     * Returns the date in yyyy-MM-dd format.
+     */
     @Override
     public String toString() {
-        return sdf.format(value.getTime());
+        long[] ymd = fromEpochDay(epochDay);
+        StringBuilder sb = new StringBuilder(10);
+        long year = ymd[0];
+        if(year < 0) {
+            sb.append('-');
+            year = -year;
+        }
+        pad(sb, year, 4);
+        sb.append('-');
+        pad(sb, ymd[1], 2);
+        sb.append('-');
+        pad(sb, ymd[2], 2);
+        return sb.toString();
     }
 
     @Override
     public int compareTo(ILiteral o) {
         DateLiteral dl = (DateLiteral) o;
-        Calendar otherValue = dl.value;
-        return value.compareTo(otherValue);
+        return (epochDay < dl.epochDay) ? -1 :
+            ((epochDay == dl.epochDay) ? 0 : 1);
+    }
+
+    private static void pad(StringBuilder sb, long value, int width) {
+        String s = Long.toString(value);
+        for(int i = s.length(); i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(s);
+    }
+
+    /**
+     * Returns the number of days of a month in the proleptic Gregorian
+     * calendar.
+     *
+     * @param year
+     * @param month The month, from 1 to 12.
+     * @return
+     */
+    static int lengthOfMonth(long year, int month) {
+        switch(month) {
+            case 2:
+                boolean leap = (year % 4 == 0) &&
+                        (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01 of a date in the proleptic
+     * Gregorian calendar.
+     *
+     * @param year
+     * @param month The month, from 1 to 12.
+     * @param day
+     * @return
+     */
+    static int toEpochDay(long year, long month, long day) {
+        // Years start in March so the leap day is the last day of the year
+        if(month <= 2) year--;
+        long era = ((year >= 0) ? year : year - 399) / 400;
+        long yoe = year - era * 400;
+        long doy = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return (int) (era * 146097 + doe - 719468);
+    }
+
+    /**
+     * Returns the year, month and day of a number of days since 1970-01-01.
+     *
+     * @param epochDay
+     * @return
+     */
+    static long[] fromEpochDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = ((z >= 0) ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp + ((mp < 10) ? 3 : -9);
+        long year = yoe + era * 400 + ((month <= 2) ? 1 : 0);
+        return new long[] { year, month, day };
     }
 
 }
@@ -13,12 +13,19 @@ package au.csiro.ontology.model;
  */
 public class Existential<T extends Comparable<T>> implements IExistential<T> {
 
-    private INamedRole<T> role;
-    private IConcept concept;
+    private final INamedRole<T> role;
+    private final IConcept concept;
+    private final int hashCode;
 
     public Existential(INamedRole<T> role, IConcept concept) {
         this.role = role;
         this.concept = concept;
+        
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((concept == null) ? 0 : concept.hashCode());
+        result = prime * result + ((role == null) ? 0 : role.hashCode());
+        hashCode = result;
     }
 
     @Override
@@ -38,11 +45,7 @@ public class Existential<T extends Comparable<T>> implements IExistential<T> {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((concept == null) ? 0 : concept.hashCode());
-        result = prime * result + ((role == null) ? 0 : role.hashCode());
-        return result;
+        return hashCode;
     }
 
     @SuppressWarnings("rawtypes")
@@ -55,6 +58,8 @@ public class Existential<T extends Comparable<T>> implements IExistential<T> {
         if (getClass() != obj.getClass())
             return false;
         Existential other = (Existential) obj;
+        if (hashCode != other.hashCode)
+            return false;
         if (concept == null) {
             if (other.concept != null)
                 return false;
@@ -78,18 +83,11 @@ public class Existential<T extends Comparable<T>> implements IExistential<T> {
             int res = 0;
             res = role.getId().compareTo(other.role.getId());
             if(res != 0) return res;
-            try {
-                res = concept.compareTo(other.concept);
-            } catch(ClassCastException e) {
-                // Need to catch this because elements in the conjunction might
-                // be of different types
-                res = concept.getClass().toString().compareTo(
-                        other.concept.getClass().toString());
-            }
+            res = concept.compareTo(other.concept);
             if(res != 0) return res;
             return 0;
         } else {
-            return thisClass.toString().compareTo(otherClass.toString());
+            return ConceptComparator.compareTypes(this, o);
         }
     }
 
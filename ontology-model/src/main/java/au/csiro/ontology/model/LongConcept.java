@@ -0,0 +1,96 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+/**
+ * A named concept with a numeric identifier, such as a SNOMED CT concept id.
+ * The id is stored as a primitive and the hash code is computed once, so
+ * these concepts are cheaper to hash and compare than a {@link Concept} with
+ * a boxed id. The hash code is the same as that of a {@link Concept} with the
+ * same id, but the two are never equal.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class LongConcept implements INamedConcept<Long> {
+
+    /**
+     * Serialisation version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Identifier of this concept.
+     */
+    protected final long id;
+
+    /**
+     * Cached hash code.
+     */
+    private final int hash;
+
+    /**
+     * Creates a new LongConcept.
+     *
+     * @param id
+     *            The concept's identifier.
+     */
+    public LongConcept(long id) {
+        this.id = id;
+        hash = 31 + (int) (id ^ (id >>> 32));
+    }
+
+    /**
+     * Returns this concept's identifier.
+     *
+     * @return The identifier.
+     */
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Returns this concept's identifier without boxing it.
+     *
+     * @return The identifier.
+     */
+    public long getLongId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(id);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return id == ((LongConcept) obj).id;
+    }
+
+    @Override
+    public int compareTo(IConcept o) {
+        Class<?> thisClass = this.getClass();
+        Class<?> otherClass = o.getClass();
+        if(thisClass.equals(otherClass)) {
+            return Long.compare(id, ((LongConcept) o).id);
+        } else {
+            return ConceptComparator.compareTypes(this, o);
+        }
+    }
+
+}
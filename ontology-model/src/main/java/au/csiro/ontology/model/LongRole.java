@@ -0,0 +1,95 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+/**
+ * A named role with a numeric identifier, such as a SNOMED CT attribute id.
+ * The id is stored as a primitive and the hash code is computed once.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class LongRole implements INamedRole<Long> {
+
+    /**
+     * Identifier of the role used to group related expressions in SNOMED
+     * (609096000 |Role group (attribute)|).
+     */
+    public static final long ROLE_GROUP_ID = 609096000L;
+
+    /**
+     * Identifier of this role.
+     */
+    protected final long id;
+
+    /**
+     * Cached hash code.
+     */
+    private final int hash;
+
+    /**
+     * Creates a new LongRole.
+     *
+     * @param id
+     *            The role's identifier.
+     */
+    public LongRole(long id) {
+        this.id = id;
+        hash = 31 + (int) (id ^ (id >>> 32));
+    }
+
+    /**
+     * Returns this role's identifier.
+     *
+     * @return The identifier.
+     */
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Returns this role's identifier without boxing it.
+     *
+     * @return The identifier.
+     */
+    public long getLongId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(id);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return id == ((LongRole) obj).id;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int compareTo(IRole o) {
+        if(o instanceof LongRole) {
+            return Long.compare(id, ((LongRole) o).id);
+        } else if(!(o instanceof INamedRole)) {
+            return -1;
+        } else {
+            return getId().compareTo(((INamedRole<Long>) o).getId());
+        }
+    }
+
+}
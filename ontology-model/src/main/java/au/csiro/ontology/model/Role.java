@@ -22,11 +22,17 @@ public class Role<T extends Comparable<T>> implements INamedRole<T> {
      */
     protected final T id;
     
+    /**
+     * Cached hash code.
+     */
+    private final int hashCode;
+    
     /**
      * Private constructor.
      */
     private Role() {
         id = null;
+        hashCode = 31;
     }
     
     /**
@@ -38,6 +44,7 @@ public class Role<T extends Comparable<T>> implements INamedRole<T> {
     public Role(T id) {
         assert(id != null);
         this.id = id;
+        hashCode = 31 + ((id == null) ? 0 : id.hashCode());
     }
 
     /**
@@ -56,10 +63,7 @@ public class Role<T extends Comparable<T>> implements INamedRole<T> {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((id == null) ? 0 : id.hashCode());
-        return result;
+        return hashCode;
     }
 
     @SuppressWarnings("rawtypes")
@@ -72,6 +76,8 @@ public class Role<T extends Comparable<T>> implements INamedRole<T> {
         if (getClass() != obj.getClass())
             return false;
         Role other = (Role) obj;
+        if (hashCode != other.hashCode)
+            return false;
         if (id == null) {
             if (other.id != null)
                 return false;
@@ -0,0 +1,66 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.snomed.refset.rf2;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The types of the additional columns of an RF2 reference set. These
+ * correspond to the characters used in the reference set file name pattern
+ * (for example, <i>der2_iissscRefset_ComplexMap</i>).
+ *
+ * @author Alejandro Metke
+ *
+ */
+public enum ColumnType {
+    COMPONENT, INTEGER, STRING;
+
+    private static final Set<String> COMPONENT_NAMES = new HashSet<>(
+            Arrays.asList("linkedTo", "targetComponent", "descriptionFormat",
+                    "attributeDescription", "attributeType"));
+
+    private static final Set<String> INTEGER_NAMES = new HashSet<>(
+            Arrays.asList("order", "mapGroup", "mapPriority",
+                    "attributeOrder", "descriptionLength"));
+
+    /**
+     * Returns the type of a column in a reference set file name pattern: 'c'
+     * for components, 'i' for integers and 's' for strings.
+     *
+     * @param c
+     * @return
+     */
+    public static ColumnType fromPatternChar(char c) {
+        switch(c) {
+            case 'c': return COMPONENT;
+            case 'i': return INTEGER;
+            case 's': return STRING;
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown reference set column type "+c);
+        }
+    }
+
+    /**
+     * Infers the type of an additional column from its name in the header of
+     * a reference set file, following the naming conventions of the RF2
+     * specification.
+     *
+     * @param name
+     * @return
+     */
+    public static ColumnType fromColumnName(String name) {
+        if(INTEGER_NAMES.contains(name) || name.endsWith("EffectiveTime")) {
+            return INTEGER;
+        } else if(COMPONENT_NAMES.contains(name) || name.endsWith("Id")) {
+            return COMPONENT;
+        } else {
+            return STRING;
+        }
+    }
+
+}
@@ -0,0 +1,483 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.snomed.refset.rf2;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+import au.csiro.ontology.util.LongIntHashMap;
+
+/**
+ * A reference set whose members are stored column by column in primitive
+ * arrays. Members are indexed by referenced component id so looking up the
+ * members that refer to a component is a single hash probe.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class ColumnarRefset extends Refset {
+
+    protected final long refsetId;
+    protected final int size;
+
+    // Standard columns
+    protected final long[] idMsb;
+    protected final long[] idLsb;
+    protected final int[] effectiveTime;
+    protected final BitSet active;
+    protected final long[] moduleId;
+    protected final long[] referencedComponentId;
+
+    // Additional columns
+    protected final String[] columnNames;
+    protected final ColumnType[] columnTypes;
+    protected final Object[] columns;
+
+    /**
+     * Index of the first member for each referenced component.
+     */
+    protected final LongIntHashMap firstMember;
+
+    /**
+     * Next member with the same referenced component, or -1.
+     */
+    protected final int[] nextMember;
+
+    private ColumnarRefset(Builder b) {
+        this.refsetId = b.refsetId;
+        this.id = String.valueOf(b.refsetId);
+        this.size = b.size;
+        this.idMsb = Arrays.copyOf(b.idMsb, size);
+        this.idLsb = Arrays.copyOf(b.idLsb, size);
+        this.effectiveTime = Arrays.copyOf(b.effectiveTime, size);
+        this.active = b.active;
+        this.moduleId = Arrays.copyOf(b.moduleId, size);
+        this.referencedComponentId = Arrays.copyOf(b.referencedComponentId,
+                size);
+        this.columnNames = b.columnNames;
+        this.columnTypes = b.columnTypes;
+        this.columns = new Object[columnTypes.length];
+        for(int i = 0; i < columnTypes.length; i++) {
+            switch(columnTypes[i]) {
+                case COMPONENT:
+                    columns[i] = Arrays.copyOf((long[]) b.columns[i], size);
+                    break;
+                case INTEGER:
+                    columns[i] = Arrays.copyOf((int[]) b.columns[i], size);
+                    break;
+                default:
+                    columns[i] = Arrays.copyOf((String[]) b.columns[i], size);
+            }
+        }
+
+        // Chain members by referenced component, keeping file order
+        firstMember = new LongIntHashMap(size, -1);
+        nextMember = new int[size];
+        for(int row = size - 1; row >= 0; row--) {
+            nextMember[row] = firstMember.put(referencedComponentId[row], row);
+        }
+    }
+
+    /**
+     * @return the numeric id of this reference set
+     */
+    public long getRefsetId() {
+        return refsetId;
+    }
+
+    /**
+     * @return the number of members (rows) in this reference set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the member id of a row in its canonical UUID form.
+     *
+     * @param row
+     * @return
+     */
+    public String getMemberId(int row) {
+        if(idMsb[row] == 0) {
+            // Not a UUID - see Builder.addMember
+            return String.valueOf(idLsb[row]);
+        }
+        return new UUID(idMsb[row], idLsb[row]).toString();
+    }
+
+    /**
+     * Returns true if two rows are versions of the same member.
+     *
+     * @param row1
+     * @param row2
+     * @return
+     */
+    public boolean isSameMember(int row1, int row2) {
+        return idMsb[row1] == idMsb[row2] && idLsb[row1] == idLsb[row2];
+    }
+
+    /**
+     * Compares the member ids of two rows. UUIDs are ordered as their
+     * canonical string forms.
+     *
+     * @param row1
+     * @param row2
+     * @return
+     */
+    public int compareMemberIds(int row1, int row2) {
+        int res = compareUnsigned(idMsb[row1], idMsb[row2]);
+        return (res != 0) ? res : compareUnsigned(idLsb[row1], idLsb[row2]);
+    }
+
+    private static int compareUnsigned(long x, long y) {
+        return Long.compare(x + Long.MIN_VALUE, y + Long.MIN_VALUE);
+    }
+
+    public int getEffectiveTime(int row) {
+        return effectiveTime[row];
+    }
+
+    public boolean isActive(int row) {
+        return active.get(row);
+    }
+
+    public long getModuleId(int row) {
+        return moduleId[row];
+    }
+
+    public long getReferencedComponentId(int row) {
+        return referencedComponentId[row];
+    }
+
+    /**
+     * @return the number of additional columns
+     */
+    public int getColumnCount() {
+        return columnTypes.length;
+    }
+
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    public ColumnType getColumnType(int col) {
+        return columnTypes[col];
+    }
+
+    /**
+     * Returns the index of an additional column or -1 if there is no column
+     * with the given name.
+     *
+     * @param name
+     * @return
+     */
+    public int getColumnIndex(String name) {
+        for(int i = 0; i < columnNames.length; i++) {
+            if(columnNames[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    public long getComponent(int row, int col) {
+        return ((long[]) columns[col])[row];
+    }
+
+    public int getInteger(int row, int col) {
+        return ((int[]) columns[col])[row];
+    }
+
+    public String getString(int row, int col) {
+        return ((String[]) columns[col])[row];
+    }
+
+    /**
+     * Returns true if at least one member refers to a component.
+     *
+     * @param componentId
+     * @return
+     */
+    public boolean containsComponent(long componentId) {
+        return firstMember.containsKey(componentId);
+    }
+
+    /**
+     * Returns the first row that refers to a component or -1 if there is
+     * none. The remaining rows can be retrieved with {@link #nextMember(int)}.
+     *
+     * @param componentId
+     * @return
+     */
+    public int firstMember(long componentId) {
+        return firstMember.get(componentId);
+    }
+
+    /**
+     * Returns the next row that refers to the same component as the supplied
+     * row or -1 if there is none.
+     *
+     * @param row
+     * @return
+     */
+    public int nextMember(int row) {
+        return nextMember[row];
+    }
+
+    /**
+     * Returns all the rows that refer to a component.
+     *
+     * @param componentId
+     * @return
+     */
+    public int[] getMembers(long componentId) {
+        int count = 0;
+        for(int row = firstMember(componentId); row != -1;
+                row = nextMember[row]) {
+            count++;
+        }
+        int[] res = new int[count];
+        int i = 0;
+        for(int row = firstMember(componentId); row != -1;
+                row = nextMember[row]) {
+            res[i++] = row;
+        }
+        return res;
+    }
+
+    /**
+     * Returns all the distinct referenced component ids.
+     *
+     * @return
+     */
+    public long[] getReferencedComponentIds() {
+        return firstMember.keys();
+    }
+
+    /**
+     * Returns true if this reference set has the same additional columns as
+     * the supplied names and types.
+     *
+     * @param names
+     * @param types
+     * @return
+     */
+    public boolean hasLayout(String[] names, ColumnType[] types) {
+        return Arrays.equals(columnNames, names) &&
+                Arrays.equals(columnTypes, types);
+    }
+
+    /**
+     * Accumulates the members of a {@link ColumnarRefset}.
+     *
+     * @author Alejandro Metke
+     *
+     */
+    public static class Builder {
+
+        private final long refsetId;
+        private final String[] columnNames;
+        private final ColumnType[] columnTypes;
+        private final boolean latestOnly;
+
+        private int size;
+        private long[] idMsb;
+        private long[] idLsb;
+        private int[] effectiveTime;
+        private final BitSet active = new BitSet();
+        private long[] moduleId;
+        private long[] referencedComponentId;
+        private final Object[] columns;
+
+        /**
+         * Open addressing hash table with the row of each member id, plus
+         * one, so zero flags a free slot. The ids are compared against the
+         * id columns so no key objects are created. Only used when keeping
+         * the latest version of each member.
+         */
+        private int[] rowsById;
+        private int rowsMask;
+
+        /**
+         * Creates a new builder.
+         *
+         * @param refsetId
+         * @param columnNames The names of the additional columns.
+         * @param columnTypes The types of the additional columns.
+         * @param latestOnly If true only the row with the latest effective
+         * time of each member is kept, which turns a full release into a
+         * snapshot.
+         */
+        public Builder(long refsetId, String[] columnNames,
+                ColumnType[] columnTypes, boolean latestOnly) {
+            if(columnNames.length != columnTypes.length) {
+                throw new IllegalArgumentException("Expected "+
+                        columnNames.length+" column types but got "+
+                        columnTypes.length);
+            }
+            this.refsetId = refsetId;
+            this.columnNames = columnNames;
+            this.columnTypes = columnTypes;
+            this.latestOnly = latestOnly;
+
+            int capacity = 1024;
+            if(latestOnly) {
+                rowsById = new int[capacity << 1];
+                rowsMask = rowsById.length - 1;
+            }
+            idMsb = new long[capacity];
+            idLsb = new long[capacity];
+            effectiveTime = new int[capacity];
+            moduleId = new long[capacity];
+            referencedComponentId = new long[capacity];
+            columns = new Object[columnTypes.length];
+            for(int i = 0; i < columnTypes.length; i++) {
+                switch(columnTypes[i]) {
+                    case COMPONENT:
+                        columns[i] = new long[capacity];
+                        break;
+                    case INTEGER:
+                        columns[i] = new int[capacity];
+                        break;
+                    default:
+                        columns[i] = new String[capacity];
+                }
+            }
+        }
+
+        public long getRefsetId() {
+            return refsetId;
+        }
+
+        public String[] getColumnNames() {
+            return columnNames;
+        }
+
+        public ColumnType[] getColumnTypes() {
+            return columnTypes;
+        }
+
+        /**
+         * Adds a member and returns the row it was written to. The values of
+         * the additional columns must then be set with
+         * {@link #setComponent(int, int, long)},
+         * {@link #setInteger(int, int, int)} and
+         * {@link #setString(int, int, String)}. Member ids that are not UUIDs
+         * must be numeric and are passed with idMsb set to 0.
+         *
+         * @return the row or -1 if the member is older than a row already in
+         * the builder and only the latest rows are kept
+         */
+        public int addMember(long idMsb, long idLsb, int effectiveTime,
+                boolean active, long moduleId, long referencedComponentId) {
+            int row;
+            if(latestOnly) {
+                int pos = hash(idMsb, idLsb) & rowsMask;
+                int prev;
+                while((prev = rowsById[pos] - 1) >= 0) {
+                    if(this.idMsb[prev] == idMsb &&
+                            this.idLsb[prev] == idLsb) {
+                        break;
+                    }
+                    pos = (pos + 1) & rowsMask;
+                }
+                if(prev >= 0) {
+                    if(this.effectiveTime[prev] > effectiveTime) {
+                        return -1;
+                    }
+                    row = prev;
+                } else {
+                    row = newRow();
+                    rowsById[pos] = row + 1;
+                    if(size > (rowsById.length >>> 2) * 3) {
+                        // The id of the new row is needed to rehash it
+                        this.idMsb[row] = idMsb;
+                        this.idLsb[row] = idLsb;
+                        rehash();
+                    }
+                }
+            } else {
+                row = newRow();
+            }
+            this.idMsb[row] = idMsb;
+            this.idLsb[row] = idLsb;
+            this.effectiveTime[row] = effectiveTime;
+            this.active.set(row, active);
+            this.moduleId[row] = moduleId;
+            this.referencedComponentId[row] = referencedComponentId;
+            return row;
+        }
+
+        public void setComponent(int row, int col, long value) {
+            ((long[]) columns[col])[row] = value;
+        }
+
+        public void setInteger(int row, int col, int value) {
+            ((int[]) columns[col])[row] = value;
+        }
+
+        public void setString(int row, int col, String value) {
+            ((String[]) columns[col])[row] = value;
+        }
+
+        private static int hash(long msb, long lsb) {
+            long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void rehash() {
+            int[] old = rowsById;
+            rowsById = new int[old.length << 1];
+            rowsMask = rowsById.length - 1;
+            for(int entry : old) {
+                if(entry == 0) continue;
+                int row = entry - 1;
+                int pos = hash(idMsb[row], idLsb[row]) & rowsMask;
+                while(rowsById[pos] != 0) {
+                    pos = (pos + 1) & rowsMask;
+                }
+                rowsById[pos] = entry;
+            }
+        }
+
+        private int newRow() {
+            if(size == idMsb.length) {
+                int capacity = size << 1;
+                idMsb = Arrays.copyOf(idMsb, capacity);
+                idLsb = Arrays.copyOf(idLsb, capacity);
+                effectiveTime = Arrays.copyOf(effectiveTime, capacity);
+                moduleId = Arrays.copyOf(moduleId, capacity);
+                referencedComponentId = Arrays.copyOf(referencedComponentId,
+                        capacity);
+                for(int i = 0; i < columnTypes.length; i++) {
+                    switch(columnTypes[i]) {
+                        case COMPONENT:
+                            columns[i] = Arrays.copyOf((long[]) columns[i],
+                                    capacity);
+                            break;
+                        case INTEGER:
+                            columns[i] = Arrays.copyOf((int[]) columns[i],
+                                    capacity);
+                            break;
+                        default:
+                            columns[i] = Arrays.copyOf((String[]) columns[i],
+                                    capacity);
+                    }
+                }
+            }
+            return size++;
+        }
+
+        /**
+         * Builds the reference set and indexes it by referenced component.
+         *
+         * @return
+         */
+        public ColumnarRefset build() {
+            return new ColumnarRefset(this);
+        }
+    }
+
+}
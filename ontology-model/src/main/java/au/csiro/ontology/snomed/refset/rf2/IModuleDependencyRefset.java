@@ -22,4 +22,14 @@ public interface IModuleDependencyRefset extends IRefset {
      */
     public Map<String, Map<String, ModuleDependency>> getModuleDependencies();
     
+    /**
+     * Returns the immutable dependency graph of the modules in this reference
+     * set, with the transitive closure of every versioned module precomputed.
+     * The graph is built on the first call and cached.
+     * 
+     * @return
+     * @throws DependencyException If the module dependencies contain a cycle.
+     */
+    public ModuleDependencyGraph getDependencyGraph();
+    
 }
@@ -0,0 +1,379 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.snomed.refset.rf2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import au.csiro.ontology.util.LongIntHashMap;
+
+/**
+ * Immutable graph of versioned module dependencies. Each (module, version)
+ * pair is a node identified by a dense int. Modules and versions also have
+ * dense ids; version ids follow the order of the version strings, so for
+ * effective times they are chronological.
+ *
+ * <p>
+ * The transitive closure of every node and a topological order of all the
+ * nodes are computed when the graph is built. A {@link DependencyException}
+ * is thrown if the dependencies contain a cycle.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class ModuleDependencyGraph {
+
+    private final String[] moduleIds;
+    private final Map<String, Integer> moduleIndex = new HashMap<>();
+    private final String[] versions;
+    private final Map<String, Integer> versionIndex = new HashMap<>();
+
+    /**
+     * Maps (module, version) keys to node ids.
+     */
+    private final LongIntHashMap nodeIndex;
+
+    private final int[] nodeModule;
+    private final int[] nodeVersion;
+
+    /**
+     * Direct dependencies of each node.
+     */
+    private final int[][] dependencies;
+
+    /**
+     * Transitive closure of each node. The node itself is the first element,
+     * followed by its dependencies in reverse topological order.
+     */
+    private final int[][] closures;
+
+    /**
+     * All the nodes, each after all its dependencies.
+     */
+    private final int[] topologicalOrder;
+
+    /**
+     * Builds a graph from the module dependencies returned by
+     * {@link IModuleDependencyRefset#getModuleDependencies()}.
+     *
+     * @param deps
+     * @throws DependencyException If the dependencies contain a cycle.
+     */
+    public ModuleDependencyGraph(
+            Map<String, Map<String, ModuleDependency>> deps) {
+        // Assign dense module and version ids
+        TreeSet<String> allModules = new TreeSet<>();
+        TreeSet<String> allVersions = new TreeSet<>();
+        for(String id : deps.keySet()) {
+            for(ModuleDependency md : deps.get(id).values()) {
+                allModules.add(md.getId());
+                allVersions.add(md.getVersion());
+                for(ModuleDependency dep : md.getDependencies()) {
+                    allModules.add(dep.getId());
+                    allVersions.add(dep.getVersion());
+                }
+            }
+        }
+        moduleIds = allModules.toArray(new String[allModules.size()]);
+        for(int i = 0; i < moduleIds.length; i++) {
+            moduleIndex.put(moduleIds[i], i);
+        }
+        versions = allVersions.toArray(new String[allVersions.size()]);
+        for(int i = 0; i < versions.length; i++) {
+            versionIndex.put(versions[i], i);
+        }
+
+        // Assign node ids
+        nodeIndex = new LongIntHashMap(16, -1);
+        List<int[]> edges = new ArrayList<>();
+        for(String id : deps.keySet()) {
+            for(ModuleDependency md : deps.get(id).values()) {
+                int src = addNode(md);
+                for(ModuleDependency dep : md.getDependencies()) {
+                    edges.add(new int[] { src, addNode(dep) });
+                }
+            }
+        }
+
+        int numNodes = nodeIndex.size();
+        nodeModule = new int[numNodes];
+        nodeVersion = new int[numNodes];
+        for(long key : nodeIndex.keys()) {
+            int node = nodeIndex.get(key);
+            nodeModule[node] = (int) (key >>> 32);
+            nodeVersion[node] = (int) key;
+        }
+
+        // Build adjacency lists
+        int[] counts = new int[numNodes];
+        for(int[] edge : edges) {
+            counts[edge[0]]++;
+        }
+        dependencies = new int[numNodes][];
+        for(int i = 0; i < numNodes; i++) {
+            dependencies[i] = new int[counts[i]];
+        }
+        Arrays.fill(counts, 0);
+        for(int[] edge : edges) {
+            dependencies[edge[0]][counts[edge[0]]++] = edge[1];
+        }
+        for(int i = 0; i < numNodes; i++) {
+            int[] d = dependencies[i];
+            Arrays.sort(d);
+            // Remove duplicates
+            int n = 0;
+            for(int j = 0; j < d.length; j++) {
+                if(j == 0 || d[j] != d[j - 1]) d[n++] = d[j];
+            }
+            if(n < d.length) dependencies[i] = Arrays.copyOf(d, n);
+        }
+
+        topologicalOrder = computeTopologicalOrder();
+        closures = computeClosures();
+    }
+
+    private int addNode(ModuleDependency md) {
+        long key = ((long) moduleIndex.get(md.getId()) << 32) |
+                versionIndex.get(md.getVersion());
+        int node = nodeIndex.get(key);
+        if(node == -1) {
+            node = nodeIndex.size();
+            nodeIndex.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Orders the nodes so that every node comes after its dependencies.
+     */
+    private int[] computeTopologicalOrder() {
+        int numNodes = dependencies.length;
+
+        // Reverse edges: dependants of each node
+        int[] remaining = new int[numNodes];
+        int[] numDependants = new int[numNodes];
+        for(int i = 0; i < numNodes; i++) {
+            remaining[i] = dependencies[i].length;
+            for(int d : dependencies[i]) {
+                numDependants[d]++;
+            }
+        }
+        int[][] dependants = new int[numNodes][];
+        for(int i = 0; i < numNodes; i++) {
+            dependants[i] = new int[numDependants[i]];
+        }
+        Arrays.fill(numDependants, 0);
+        for(int i = 0; i < numNodes; i++) {
+            for(int d : dependencies[i]) {
+                dependants[d][numDependants[d]++] = i;
+            }
+        }
+
+        int[] res = new int[numNodes];
+        int head = 0;
+        int tail = 0;
+        for(int i = 0; i < numNodes; i++) {
+            if(remaining[i] == 0) res[tail++] = i;
+        }
+        while(head < tail) {
+            int node = res[head++];
+            for(int d : dependants[node]) {
+                if(--remaining[d] == 0) res[tail++] = d;
+            }
+        }
+
+        if(tail < numNodes) {
+            StringBuilder sb = new StringBuilder();
+            for(int i = 0; i < numNodes; i++) {
+                if(remaining[i] > 0) {
+                    if(sb.length() > 0) sb.append(", ");
+                    sb.append(getModuleId(i));
+                    sb.append(" (");
+                    sb.append(getVersion(i));
+                    sb.append(")");
+                }
+            }
+            throw new DependencyException("Cyclic module dependencies " +
+                    "involving: "+sb);
+        }
+        return res;
+    }
+
+    private int[][] computeClosures() {
+        int numNodes = dependencies.length;
+        int[] position = new int[numNodes];
+        for(int i = 0; i < numNodes; i++) {
+            position[topologicalOrder[i]] = i;
+        }
+
+        // Closures as bitsets over topological positions, dependencies first
+        BitSet[] sets = new BitSet[numNodes];
+        int[][] res = new int[numNodes][];
+        for(int node : topologicalOrder) {
+            BitSet bs = new BitSet(numNodes);
+            bs.set(position[node]);
+            for(int d : dependencies[node]) {
+                bs.or(sets[d]);
+            }
+            sets[node] = bs;
+
+            int[] closure = new int[bs.cardinality()];
+            int n = 0;
+            closure[n++] = node;
+            for(int p = bs.previousSetBit(position[node] - 1); p >= 0;
+                    p = bs.previousSetBit(p - 1)) {
+                closure[n++] = topologicalOrder[p];
+            }
+            res[node] = closure;
+        }
+        return res;
+    }
+
+    /**
+     * @return the number of (module, version) nodes
+     */
+    public int getNodeCount() {
+        return dependencies.length;
+    }
+
+    /**
+     * @return the number of distinct modules
+     */
+    public int getModuleCount() {
+        return moduleIds.length;
+    }
+
+    /**
+     * @return the number of distinct versions
+     */
+    public int getVersionCount() {
+        return versions.length;
+    }
+
+    /**
+     * Returns the node for a module and version or -1 if it is not in the
+     * graph.
+     *
+     * @param moduleId
+     * @param version
+     * @return
+     */
+    public int getNode(String moduleId, String version) {
+        Integer m = moduleIndex.get(moduleId);
+        Integer v = versionIndex.get(version);
+        if(m == null || v == null) return -1;
+        return nodeIndex.get(((long) m << 32) | v);
+    }
+
+    /**
+     * Returns the dense id of a module or -1 if it is not in the graph.
+     *
+     * @param moduleId
+     * @return
+     */
+    public int getModuleIndex(String moduleId) {
+        Integer m = moduleIndex.get(moduleId);
+        return (m == null) ? -1 : m;
+    }
+
+    /**
+     * Returns the dense id of a version or -1 if it is not in the graph.
+     *
+     * @param version
+     * @return
+     */
+    public int getVersionIndex(String version) {
+        Integer v = versionIndex.get(version);
+        return (v == null) ? -1 : v;
+    }
+
+    public String getModuleId(int node) {
+        return moduleIds[nodeModule[node]];
+    }
+
+    public String getVersion(int node) {
+        return versions[nodeVersion[node]];
+    }
+
+    public int getModuleIndex(int node) {
+        return nodeModule[node];
+    }
+
+    public int getVersionIndex(int node) {
+        return nodeVersion[node];
+    }
+
+    /**
+     * Returns the direct dependencies of a node.
+     *
+     * @param node
+     * @return
+     */
+    public int[] getDependencies(int node) {
+        return dependencies[node].clone();
+    }
+
+    /**
+     * Returns the transitive closure of a node, i.e. the node itself followed
+     * by all its direct and indirect dependencies.
+     *
+     * @param node
+     * @return
+     */
+    public int[] getClosure(int node) {
+        return closures[node].clone();
+    }
+
+    /**
+     * Returns the size of the transitive closure of a node.
+     *
+     * @param node
+     * @return
+     */
+    public int getClosureSize(int node) {
+        return closures[node].length;
+    }
+
+    /**
+     * Returns a node in the transitive closure of another node.
+     *
+     * @param node
+     * @param index
+     * @return
+     */
+    public int getClosureNode(int node, int index) {
+        return closures[node][index];
+    }
+
+    /**
+     * Returns all the nodes ordered so that every node comes after all its
+     * dependencies.
+     *
+     * @return
+     */
+    public int[] getTopologicalOrder() {
+        return topologicalOrder.clone();
+    }
+
+    /**
+     * Returns true if a node depends directly or indirectly on another.
+     *
+     * @param node
+     * @param dependency
+     * @return
+     */
+    public boolean dependsOn(int node, int dependency) {
+        for(int n : closures[node]) {
+            if(n == dependency) return true;
+        }
+        return false;
+    }
+
+}
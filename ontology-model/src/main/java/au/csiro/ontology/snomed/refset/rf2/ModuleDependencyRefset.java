@@ -19,6 +19,16 @@ public class ModuleDependencyRefset extends Refset implements
     protected final Map<String, Map<String, ModuleDependency>> dependencies = 
             new HashMap<>();
     
+    /**
+     * The dependency graph, built on first use.
+     */
+    private ModuleDependencyGraph graph;
+    
+    /**
+     * The exception thrown when building the graph, if any.
+     */
+    private DependencyException graphException;
+    
     /**
      * Creates a new module dependency reference set.
      * 
@@ -78,4 +88,20 @@ public class ModuleDependencyRefset extends Refset implements
         return dependencies;
     }
 
+    @Override
+    public synchronized ModuleDependencyGraph getDependencyGraph() {
+        if(graphException != null) {
+            throw graphException;
+        }
+        if(graph == null) {
+            try {
+                graph = new ModuleDependencyGraph(dependencies);
+            } catch(DependencyException e) {
+                graphException = e;
+                throw e;
+            }
+        }
+        return graph;
+    }
+
 }
@@ -27,6 +27,11 @@ public class ModuleDependencyRow {
     protected final String sourceEffectiveTime;
     
     protected final String targetEffectiveTime;
+    
+    /**
+     * Cached hash code. All the fields are final.
+     */
+    private final int hashCode;
 
     public ModuleDependencyRow(String id, String effectiveTime, boolean active,
             String moduleId, String refsetId, String referencedComponentId,
@@ -40,6 +45,7 @@ public class ModuleDependencyRow {
         this.referencedComponentId = referencedComponentId;
         this.sourceEffectiveTime = sourceEffectiveTime;
         this.targetEffectiveTime = targetEffectiveTime;
+        this.hashCode = computeHashCode();
     }
 
     /**
@@ -100,6 +106,10 @@ public class ModuleDependencyRow {
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + (active ? 1231 : 1237);
@@ -134,6 +144,8 @@ public class ModuleDependencyRow {
         if (getClass() != obj.getClass())
             return false;
         ModuleDependencyRow other = (ModuleDependencyRow) obj;
+        if (hashCode != other.hashCode)
+            return false;
         if (active != other.active)
             return false;
         if (effectiveTime == null) {
@@ -0,0 +1,314 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.snomed.refset.rf2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import au.csiro.ontology.util.CompressedBitSet;
+import au.csiro.ontology.util.LongIntHashMap;
+
+/**
+ * In-memory membership index for simple reference sets. Referenced components
+ * are mapped to dense ordinals and the members of each reference set are kept
+ * in a {@link CompressedBitSet} over those ordinals. A reverse table maps each
+ * component to the reference sets it belongs to.
+ *
+ * <p>
+ * A component is a member of a reference set if the latest version of at
+ * least one of its member rows is active, so this works both with full and
+ * snapshot releases.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class RefsetMembership {
+
+    /**
+     * Maps component ids to ordinals.
+     */
+    protected final LongIntHashMap ordinals;
+
+    /**
+     * Component ids indexed by ordinal, in ascending order.
+     */
+    protected final long[] componentIds;
+
+    /**
+     * Maps refset ids to refset indexes.
+     */
+    protected final LongIntHashMap refsetIndexes;
+
+    /**
+     * Refset ids indexed by refset index.
+     */
+    protected final long[] refsetIds;
+
+    /**
+     * Members of each refset, indexed by refset index.
+     */
+    protected final CompressedBitSet[] members;
+
+    /**
+     * Start of the refsets of each component in {@link #componentRefsets},
+     * indexed by ordinal. The last entry marks the end of the table.
+     */
+    protected final int[] componentRefsetsStart;
+
+    /**
+     * Refset indexes of all the components, grouped by ordinal.
+     */
+    protected final int[] componentRefsets;
+
+    /**
+     * Creates a new membership index from all the reference sets in a store.
+     *
+     * @param store
+     */
+    public RefsetMembership(RefsetStore store) {
+        this(store.getRefsets());
+    }
+
+    /**
+     * Creates a new membership index from a collection of reference sets.
+     *
+     * @param refsets
+     */
+    public RefsetMembership(Collection<ColumnarRefset> refsets) {
+        int numRefsets = refsets.size();
+        refsetIds = new long[numRefsets];
+        refsetIndexes = new LongIntHashMap(numRefsets, -1);
+
+        // Find current members of each refset
+        List<long[]> current = new ArrayList<>(numRefsets);
+        LongIntHashMap all = new LongIntHashMap();
+        int idx = 0;
+        for(ColumnarRefset refset : refsets) {
+            refsetIds[idx] = refset.getRefsetId();
+            refsetIndexes.put(refset.getRefsetId(), idx);
+            long[] ids = getCurrentMembers(refset);
+            for(long id : ids) {
+                all.put(id, 0);
+            }
+            current.add(ids);
+            idx++;
+        }
+
+        // Assign ordinals in ascending id order
+        componentIds = all.keys();
+        Arrays.sort(componentIds);
+        ordinals = new LongIntHashMap(componentIds.length, -1);
+        for(int i = 0; i < componentIds.length; i++) {
+            ordinals.put(componentIds[i], i);
+        }
+
+        // Build bitsets and count refsets per component
+        members = new CompressedBitSet[numRefsets];
+        componentRefsetsStart = new int[componentIds.length + 1];
+        for(int r = 0; r < numRefsets; r++) {
+            long[] ids = current.get(r);
+            int[] ords = new int[ids.length];
+            for(int i = 0; i < ids.length; i++) {
+                ords[i] = ordinals.get(ids[i]);
+                componentRefsetsStart[ords[i] + 1]++;
+            }
+            Arrays.sort(ords);
+            members[r] = CompressedBitSet.fromSorted(ords, ords.length);
+        }
+
+        // Fill reverse table
+        for(int i = 0; i < componentIds.length; i++) {
+            componentRefsetsStart[i + 1] += componentRefsetsStart[i];
+        }
+        componentRefsets = new int[componentRefsetsStart[componentIds.length]];
+        int[] fill = Arrays.copyOf(componentRefsetsStart, componentIds.length);
+        for(int r = 0; r < numRefsets; r++) {
+            for(int ord : members[r].toArray()) {
+                componentRefsets[fill[ord]++] = r;
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the components that are currently members of a
+     * reference set.
+     *
+     * @param refset
+     * @return
+     */
+    private static long[] getCurrentMembers(ColumnarRefset refset) {
+        long[] ids = refset.getReferencedComponentIds();
+        int n = 0;
+        for(long id : ids) {
+            if(isCurrentMember(refset, id)) {
+                ids[n++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * Returns true if the latest version of any member row that refers to a
+     * component is active.
+     *
+     * @param refset
+     * @param componentId
+     * @return
+     */
+    private static boolean isCurrentMember(ColumnarRefset refset,
+            long componentId) {
+        for(int row = refset.firstMember(componentId); row != -1;
+                row = refset.nextMember(row)) {
+            if(!refset.isActive(row)) continue;
+            boolean latest = true;
+            for(int other = refset.firstMember(componentId); other != -1;
+                    other = refset.nextMember(other)) {
+                if(other != row && refset.isSameMember(row, other) &&
+                        refset.getEffectiveTime(other) >
+                        refset.getEffectiveTime(row)) {
+                    latest = false;
+                    break;
+                }
+            }
+            if(latest) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the ids of the indexed reference sets
+     */
+    public long[] getRefsetIds() {
+        return refsetIds.clone();
+    }
+
+    /**
+     * @return the number of distinct components that belong to at least one
+     * reference set
+     */
+    public int getComponentCount() {
+        return componentIds.length;
+    }
+
+    /**
+     * Returns the dense ordinal of a component or -1 if the component is not a
+     * member of any reference set.
+     *
+     * @param componentId
+     * @return
+     */
+    public int getOrdinal(long componentId) {
+        return ordinals.get(componentId);
+    }
+
+    /**
+     * Returns the component id for an ordinal.
+     *
+     * @param ordinal
+     * @return
+     */
+    public long getComponentId(int ordinal) {
+        return componentIds[ordinal];
+    }
+
+    /**
+     * Returns the members of a reference set as a bitset over component
+     * ordinals or null if the reference set has not been indexed.
+     *
+     * @param refsetId
+     * @return
+     */
+    public CompressedBitSet getMemberBitSet(long refsetId) {
+        int r = refsetIndexes.get(refsetId);
+        return (r == -1) ? null : members[r];
+    }
+
+    /**
+     * Returns the ids of the components that are members of a reference set,
+     * in ascending order.
+     *
+     * @param refsetId
+     * @return
+     */
+    public long[] getMembers(long refsetId) {
+        int r = refsetIndexes.get(refsetId);
+        if(r == -1) return new long[0];
+        int[] ords = members[r].toArray();
+        long[] res = new long[ords.length];
+        for(int i = 0; i < ords.length; i++) {
+            res[i] = componentIds[ords[i]];
+        }
+        return res;
+    }
+
+    /**
+     * Returns true if a component is a member of a reference set.
+     *
+     * @param refsetId
+     * @param componentId
+     * @return
+     */
+    public boolean isMember(long refsetId, long componentId) {
+        int r = refsetIndexes.get(refsetId);
+        if(r == -1) return false;
+        int ord = ordinals.get(componentId);
+        return ord != -1 && members[r].contains(ord);
+    }
+
+    /**
+     * Checks the membership of several components in a reference set. The
+     * result has one entry per component id, in the same order.
+     *
+     * @param refsetId
+     * @param componentIds
+     * @return
+     */
+    public boolean[] areMembers(long refsetId, long[] componentIds) {
+        boolean[] res = new boolean[componentIds.length];
+        int r = refsetIndexes.get(refsetId);
+        if(r == -1) return res;
+        CompressedBitSet bs = members[r];
+        for(int i = 0; i < componentIds.length; i++) {
+            int ord = ordinals.get(componentIds[i]);
+            res[i] = ord != -1 && bs.contains(ord);
+        }
+        return res;
+    }
+
+    /**
+     * Returns the ids of the reference sets a component is a member of.
+     *
+     * @param componentId
+     * @return
+     */
+    public long[] getRefsets(long componentId) {
+        int ord = ordinals.get(componentId);
+        if(ord == -1) return new long[0];
+        int start = componentRefsetsStart[ord];
+        int end = componentRefsetsStart[ord + 1];
+        long[] res = new long[end - start];
+        for(int i = start; i < end; i++) {
+            res[i - start] = refsetIds[componentRefsets[i]];
+        }
+        return res;
+    }
+
+    /**
+     * Returns the indexes of the reference sets a component is a member of.
+     * The indexes refer to the array returned by {@link #getRefsetIds()}.
+     *
+     * @param componentId
+     * @return
+     */
+    public int[] getRefsetIndexes(long componentId) {
+        int ord = ordinals.get(componentId);
+        if(ord == -1) return new int[0];
+        return Arrays.copyOfRange(componentRefsets, componentRefsetsStart[ord],
+                componentRefsetsStart[ord + 1]);
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.snomed.refset.rf2;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds a collection of {@link ColumnarRefset}s indexed by refset id.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class RefsetStore {
+
+    protected final Map<Long, ColumnarRefset> refsets = new HashMap<>();
+
+    /**
+     * Creates a new store.
+     *
+     * @param refsets
+     */
+    public RefsetStore(Collection<ColumnarRefset> refsets) {
+        for(ColumnarRefset refset : refsets) {
+            this.refsets.put(refset.getRefsetId(), refset);
+        }
+    }
+
+    /**
+     * Returns the reference set with the given id or null if it has not been
+     * loaded.
+     *
+     * @param refsetId
+     * @return
+     */
+    public ColumnarRefset getRefset(long refsetId) {
+        return refsets.get(refsetId);
+    }
+
+    /**
+     * @return the ids of all the loaded reference sets
+     */
+    public Set<Long> getRefsetIds() {
+        return Collections.unmodifiableSet(refsets.keySet());
+    }
+
+    /**
+     * @return all the loaded reference sets
+     */
+    public Collection<ColumnarRefset> getRefsets() {
+        return Collections.unmodifiableCollection(refsets.values());
+    }
+
+    /**
+     * Returns the rows of a reference set that refer to a component. Returns
+     * an empty array if the reference set has not been loaded or there are no
+     * members for the component.
+     *
+     * @param refsetId
+     * @param componentId
+     * @return
+     */
+    public int[] getMembers(long refsetId, long componentId) {
+        ColumnarRefset refset = refsets.get(refsetId);
+        if(refset == null) {
+            return new int[0];
+        }
+        return refset.getMembers(componentId);
+    }
+
+}
@@ -21,6 +21,8 @@ import au.csiro.ontology.model.Existential;
 import au.csiro.ontology.model.IConcept;
 import au.csiro.ontology.model.INamedRole;
 import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.LongConcept;
+import au.csiro.ontology.model.LongRole;
 import au.csiro.ontology.model.Role;
 
 /**
@@ -89,6 +91,10 @@ public class AxiomUtils {
                 sb.append(id.toString());
                 sb.append("\"");
             }
+        } else if(c instanceof LongConcept) {
+            sb.append("java.lang.Long,\"");
+            sb.append(c.toString());
+            sb.append("\"");
         } else if(c instanceof Conjunction) {
             Conjunction con = (Conjunction)c;
             IConcept[] ics = con.getConcepts();
@@ -208,6 +214,11 @@ public class AxiomUtils {
                 throw new RuntimeException(
                         "Unsupported parametrised type "+type);
             }
+        } else if("LongConcept".equals(conceptType)) {
+            int openingIndex = s.indexOf('"', start);
+            int closingIndex = s.indexOf('"', openingIndex + 1);
+            return new LongConcept(Long.parseLong(
+                    s.substring(openingIndex+1, closingIndex)));
         } else if("Conjunction".equals(conceptType)) {
             List<IConcept> conjuncts = new ArrayList<>();
             
@@ -260,6 +271,11 @@ public class AxiomUtils {
                 throw new RuntimeException(
                         "Unsupported parametrised type "+type);
             }
+        } else if("LongRole".equals(roleType)) {
+            int openingIndex = s.indexOf('"', start);
+            int closingIndex = s.indexOf('"', openingIndex + 1);
+            return new LongRole(Long.parseLong(
+                    s.substring(openingIndex+1, closingIndex)));
         } else {
             throw new RuntimeException(
                     "Malformed role string: unknown concept type "+
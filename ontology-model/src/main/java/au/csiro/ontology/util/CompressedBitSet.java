@@ -0,0 +1,199 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed set of non-negative ints. The values are split in
+ * blocks of 65536 by their 16 high bits. Sparse blocks are stored as sorted
+ * arrays of their 16 low bits and dense blocks as plain bitmaps, so a set uses
+ * at most two bytes per value and never more than a bitmap.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class CompressedBitSet {
+
+    /**
+     * Blocks with more values than this are stored as bitmaps.
+     */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    /**
+     * The 16 high bits of each block, sorted.
+     */
+    private final int[] keys;
+
+    /**
+     * Each block is either a char[] or a long[].
+     */
+    private final Object[] blocks;
+
+    private final int cardinality;
+
+    private CompressedBitSet(int[] keys, Object[] blocks, int cardinality) {
+        this.keys = keys;
+        this.blocks = blocks;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Builds a set from an array of values sorted in ascending order.
+     * Duplicate values are ignored.
+     *
+     * @param values
+     * @param length The number of values to read from the array.
+     * @return
+     */
+    public static CompressedBitSet fromSorted(int[] values, int length) {
+        int[] keys = new int[8];
+        Object[] blocks = new Object[8];
+        int numBlocks = 0;
+        int cardinality = 0;
+
+        int i = 0;
+        while(i < length) {
+            int key = values[i] >>> 16;
+            int j = i;
+            while(j < length && (values[j] >>> 16) == key) {
+                j++;
+            }
+
+            // Count distinct values in [i, j)
+            int count = 0;
+            for(int k = i; k < j; k++) {
+                if(k == i || values[k] != values[k - 1]) count++;
+            }
+
+            Object block;
+            if(count > MAX_ARRAY_SIZE) {
+                long[] bitmap = new long[BITMAP_WORDS];
+                for(int k = i; k < j; k++) {
+                    int low = values[k] & 0xFFFF;
+                    bitmap[low >>> 6] |= 1L << low;
+                }
+                block = bitmap;
+            } else {
+                char[] array = new char[count];
+                int n = 0;
+                for(int k = i; k < j; k++) {
+                    if(k == i || values[k] != values[k - 1]) {
+                        array[n++] = (char) (values[k] & 0xFFFF);
+                    }
+                }
+                block = array;
+            }
+
+            if(numBlocks == keys.length) {
+                keys = Arrays.copyOf(keys, numBlocks << 1);
+                blocks = Arrays.copyOf(blocks, numBlocks << 1);
+            }
+            keys[numBlocks] = key;
+            blocks[numBlocks] = block;
+            numBlocks++;
+            cardinality += count;
+            i = j;
+        }
+
+        return new CompressedBitSet(Arrays.copyOf(keys, numBlocks),
+                Arrays.copyOf(blocks, numBlocks), cardinality);
+    }
+
+    /**
+     * Builds a set from an array of values in any order.
+     *
+     * @param values
+     * @return
+     */
+    public static CompressedBitSet of(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return fromSorted(sorted, sorted.length);
+    }
+
+    /**
+     * Returns true if the set contains a value.
+     *
+     * @param value
+     * @return
+     */
+    public boolean contains(int value) {
+        if(value < 0) return false;
+        int idx = Arrays.binarySearch(keys, value >>> 16);
+        if(idx < 0) return false;
+        int low = value & 0xFFFF;
+        Object block = blocks[idx];
+        if(block instanceof char[]) {
+            return Arrays.binarySearch((char[]) block, (char) low) >= 0;
+        } else {
+            return (((long[]) block)[low >>> 6] & (1L << low)) != 0;
+        }
+    }
+
+    /**
+     * @return the number of values in the set
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return true if the set has no values
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Returns all the values in the set in ascending order.
+     *
+     * @return
+     */
+    public int[] toArray() {
+        int[] res = new int[cardinality];
+        int n = 0;
+        for(int b = 0; b < keys.length; b++) {
+            int high = keys[b] << 16;
+            Object block = blocks[b];
+            if(block instanceof char[]) {
+                for(char low : (char[]) block) {
+                    res[n++] = high | low;
+                }
+            } else {
+                long[] bitmap = (long[]) block;
+                for(int w = 0; w < bitmap.length; w++) {
+                    long word = bitmap[w];
+                    while(word != 0) {
+                        int bit = Long.numberOfTrailingZeros(word);
+                        res[n++] = high | (w << 6) | bit;
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the values, in bytes.
+     *
+     * @return
+     */
+    public long getSizeInBytes() {
+        long res = keys.length * 4L;
+        for(Object block : blocks) {
+            if(block instanceof char[]) {
+                res += ((char[]) block).length * 2L;
+            } else {
+                res += BITMAP_WORDS * 8L;
+            }
+        }
+        return res;
+    }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+/**
+ * An {@link IProgressMonitor} that also receives detailed progress reports
+ * and can ask for the current task to be abandoned. Importers check for this
+ * interface, so monitors that only implement {@link IProgressMonitor} keep
+ * working unchanged.
+ * 
+ * @author Alejandro Metke
+ *
+ */
+public interface ICancellableProgressMonitor extends IProgressMonitor {
+    
+    /**
+     * Reports the rows and bytes processed so far in the current task, with
+     * the throughput and an estimate of the remaining time. Importers report
+     * through a {@link ProgressTracker}, so this is called at most once per
+     * reporting interval, possibly from a worker thread.
+     * 
+     * @param progress
+     */
+    void progress(Progress progress);
+    
+    /**
+     * Indicates if the current task should be abandoned. Importers check this
+     * regularly while they run and throw a 
+     * {@link java.util.concurrent.CancellationException} when it returns 
+     * true. Implementations should return quickly, e.g. by reading a 
+     * volatile flag.
+     * 
+     * @return
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive longs to primitive ints. Used to
+ * index SNOMED identifiers without boxing them into {@link Long}s.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    /**
+     * Zero is used to flag free slots so it is stored separately.
+     */
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * Value returned when a key is not found.
+     */
+    private final int missingValue;
+
+    /**
+     * Creates a new map.
+     *
+     * @param expectedSize
+     * @param missingValue The value returned by {@link #get(long)} when the
+     * key is not in the map.
+     */
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        int capacity = 16;
+        while(capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        this.missingValue = missingValue;
+        allocate(capacity);
+    }
+
+    /**
+     * Creates a new map that returns -1 for missing keys.
+     */
+    public LongIntHashMap() {
+        this(16, -1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = capacity * 3 / 4;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the value associated to a key or the missing value if the key is
+     * not in the map.
+     *
+     * @param key
+     * @return
+     */
+    public int get(long key) {
+        if(key == EMPTY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int pos = hash(key) & mask;
+        while(true) {
+            long k = keys[pos];
+            if(k == key) {
+                return values[pos];
+            } else if(k == EMPTY) {
+                return missingValue;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns true if the key is in the map.
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(long key) {
+        if(key == EMPTY) {
+            return hasZeroKey;
+        }
+        int pos = hash(key) & mask;
+        while(true) {
+            long k = keys[pos];
+            if(k == key) {
+                return true;
+            } else if(k == EMPTY) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Associates a value with a key. Returns the previous value or the missing
+     * value if the key was not present.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public int put(long key, int value) {
+        if(key == EMPTY) {
+            int prev = hasZeroKey ? zeroValue : missingValue;
+            if(!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return prev;
+        }
+        int pos = hash(key) & mask;
+        while(true) {
+            long k = keys[pos];
+            if(k == key) {
+                int prev = values[pos];
+                values[pos] = value;
+                return prev;
+            } else if(k == EMPTY) {
+                keys[pos] = key;
+                values[pos] = value;
+                if(++size > threshold) {
+                    rehash();
+                }
+                return missingValue;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for(int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if(k != EMPTY) {
+                int pos = hash(k) & mask;
+                while(keys[pos] != EMPTY) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = k;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value returned when a key is not found.
+     *
+     * @return
+     */
+    public int getMissingValue() {
+        return missingValue;
+    }
+
+    /**
+     * Returns a new array with all the keys in the map, in no particular
+     * order.
+     *
+     * @return
+     */
+    public long[] keys() {
+        long[] res = new long[size];
+        int j = 0;
+        if(hasZeroKey) {
+            res[j++] = EMPTY;
+        }
+        for(int i = 0; i < keys.length; i++) {
+            if(keys[i] != EMPTY) {
+                res[j++] = keys[i];
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Removes all the entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+}
@@ -6,12 +6,13 @@ package au.csiro.ontology.util;
 
 
 /**
- * Implementation of {@link IProgressMonitor} that does nothing.
+ * Implementation of {@link ICancellableProgressMonitor} that does nothing
+ * and is never cancelled.
  * 
  * @author Alejandro Metke
  *
  */
-public class NullProgressMonitor implements IProgressMonitor {
+public class NullProgressMonitor implements ICancellableProgressMonitor {
 
     @Override
     public void taskStarted(String taskName) {
@@ -33,4 +34,14 @@ public class NullProgressMonitor implements IProgressMonitor {
         
     }
 
+    @Override
+    public void progress(Progress progress) {
+        
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
 }
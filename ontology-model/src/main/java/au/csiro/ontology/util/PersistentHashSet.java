@@ -0,0 +1,428 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash set implemented as a hash array mapped trie. Adding or
+ * removing an element returns a new set that shares all the unchanged nodes
+ * of the trie with the original one, so many similar sets, such as the
+ * axioms of consecutive versions of an ontology, can be kept in memory at
+ * the cost of their differences. The {@link Collection} mutators throw an
+ * {@link UnsupportedOperationException}. Null elements are not allowed.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Maximum depth of the trie: seven levels of bitmap nodes consume the 32
+     * bits of the hash and elements with the same hash go in a collision
+     * node below them.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final PersistentHashSet<Object> EMPTY =
+            new PersistentHashSet<>(new BitmapNode(0, new Object[0]), 0);
+
+    private final BitmapNode root;
+    private final int size;
+
+    private PersistentHashSet(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty set.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * Returns a set with the elements of a collection.
+     *
+     * @param c
+     * @return
+     */
+    public static <E> PersistentHashSet<E> of(Collection<? extends E> c) {
+        PersistentHashSet<E> res = empty();
+        return res.plusAll(c);
+    }
+
+    /**
+     * Returns a set with the elements of this set and the specified element,
+     * or this set if it already contains an equal element. In that case the
+     * element already in the set is kept.
+     *
+     * @param e
+     * @return
+     */
+    public PersistentHashSet<E> plus(E e) {
+        if(e == null) throw new NullPointerException();
+        Node n = root.plus(e, spread(e.hashCode()), 0);
+        return (n == root) ? this :
+            new PersistentHashSet<E>((BitmapNode) n, size + 1);
+    }
+
+    /**
+     * Returns a set with the elements of this set and the elements of a
+     * collection.
+     *
+     * @param c
+     * @return
+     */
+    public PersistentHashSet<E> plusAll(Collection<? extends E> c) {
+        PersistentHashSet<E> res = this;
+        for(E e : c) {
+            res = res.plus(e);
+        }
+        return res;
+    }
+
+    /**
+     * Returns a set with the elements of this set except the specified
+     * element, or this set if it does not contain the element.
+     *
+     * @param o
+     * @return
+     */
+    public PersistentHashSet<E> minus(Object o) {
+        if(o == null) return this;
+        Object n = root.minus(o, spread(o.hashCode()), 0);
+        if(n == root) {
+            return this;
+        } else if(n == null) {
+            return empty();
+        } else if(n instanceof BitmapNode) {
+            return new PersistentHashSet<E>((BitmapNode) n, size - 1);
+        } else {
+            // A single element or a collision node was pulled up to the root
+            Object[] slots = new Object[] { n };
+            int h = (n instanceof CollisionNode) ? ((CollisionNode) n).hash :
+                spread(n.hashCode());
+            return new PersistentHashSet<E>(
+                    new BitmapNode(1 << (h & MASK), slots), size - 1);
+        }
+    }
+
+    /**
+     * Returns a set with the elements of this set except the elements of a
+     * collection.
+     *
+     * @param c
+     * @return
+     */
+    public PersistentHashSet<E> minusAll(Collection<?> c) {
+        PersistentHashSet<E> res = this;
+        for(Object o : c) {
+            res = res.minus(o);
+        }
+        return res;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if(o == null) return false;
+        return root.contains(o, spread(o.hashCode()), 0);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new TrieIterator();
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the index of a hash in a bitmap node at the specified shift.
+     */
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] insert(Object[] a, int idx, Object o) {
+        Object[] res = new Object[a.length + 1];
+        System.arraycopy(a, 0, res, 0, idx);
+        res[idx] = o;
+        System.arraycopy(a, idx, res, idx + 1, a.length - idx);
+        return res;
+    }
+
+    private static Object[] remove(Object[] a, int idx) {
+        Object[] res = new Object[a.length - 1];
+        System.arraycopy(a, 0, res, 0, idx);
+        System.arraycopy(a, idx + 1, res, idx, a.length - idx - 1);
+        return res;
+    }
+
+    private static Object[] replace(Object[] a, int idx, Object o) {
+        Object[] res = a.clone();
+        res[idx] = o;
+        return res;
+    }
+
+    /**
+     * A node of the trie. The slots of a node hold either elements or child
+     * nodes.
+     */
+    private static abstract class Node {
+
+        abstract Object[] slots();
+
+        abstract boolean contains(Object o, int hash, int shift);
+
+        /**
+         * Returns a node with the element added, or this node if it already
+         * contains it.
+         */
+        abstract Node plus(Object o, int hash, int shift);
+
+        /**
+         * Returns this node if it does not contain the element, null if
+         * removing the element leaves the node empty, a single element if
+         * only one is left and otherwise a node without the element.
+         */
+        abstract Object minus(Object o, int hash, int shift);
+
+    }
+
+    /**
+     * Node with up to 32 slots, one for each value of the next five bits of
+     * the hash. Only the slots that are used are stored and the bitmap
+     * records which ones they are.
+     */
+    private static final class BitmapNode extends Node {
+
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        boolean contains(Object o, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if((bitmap & bit) == 0) return false;
+            Object slot = slots[index(bit)];
+            if(slot instanceof Node) {
+                return ((Node) slot).contains(o, hash, shift + BITS);
+            }
+            return o.equals(slot);
+        }
+
+        @Override
+        Node plus(Object o, int hash, int shift) {
+            int bit = bit(hash, shift);
+            int idx = index(bit);
+            if((bitmap & bit) == 0) {
+                return new BitmapNode(bitmap | bit, insert(slots, idx, o));
+            }
+            Object slot = slots[idx];
+            Object child;
+            if(slot instanceof Node) {
+                child = ((Node) slot).plus(o, hash, shift + BITS);
+                if(child == slot) return this;
+            } else if(o.equals(slot)) {
+                return this;
+            } else {
+                int h = spread(slot.hashCode());
+                child = (h == hash) ?
+                        new CollisionNode(hash, new Object[] { slot, o }) :
+                            pair(slot, h, o, hash, shift + BITS);
+            }
+            return new BitmapNode(bitmap, replace(slots, idx, child));
+        }
+
+        @Override
+        Object minus(Object o, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if((bitmap & bit) == 0) return this;
+            int idx = index(bit);
+            Object slot = slots[idx];
+            if(slot instanceof Node) {
+                Object child = ((Node) slot).minus(o, hash, shift + BITS);
+                if(child == slot) return this;
+                if(child != null) {
+                    if(slots.length == 1 && !(child instanceof BitmapNode)) {
+                        return child;
+                    }
+                    return new BitmapNode(bitmap, replace(slots, idx, child));
+                }
+            } else if(!o.equals(slot)) {
+                return this;
+            }
+
+            // Remove the slot
+            if(slots.length == 1) {
+                return null;
+            } else if(slots.length == 2 && !(slots[1 - idx] instanceof Node)) {
+                return slots[1 - idx];
+            }
+            return new BitmapNode(bitmap & ~bit, remove(slots, idx));
+        }
+
+        /**
+         * Returns a node with two elements with different hashes.
+         */
+        private static BitmapNode pair(Object o1, int h1, Object o2, int h2,
+                int shift) {
+            int b1 = bit(h1, shift);
+            int b2 = bit(h2, shift);
+            if(b1 == b2) {
+                return new BitmapNode(b1,
+                        new Object[] { pair(o1, h1, o2, h2, shift + BITS) });
+            } else if((b1 & (b2 - 1)) == 0) {
+                return new BitmapNode(b1 | b2, new Object[] { o2, o1 });
+            } else {
+                return new BitmapNode(b1 | b2, new Object[] { o1, o2 });
+            }
+        }
+
+    }
+
+    /**
+     * Node with elements that have the same hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+        final Object[] slots;
+
+        CollisionNode(int hash, Object[] slots) {
+            this.hash = hash;
+            this.slots = slots;
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        private int indexOf(Object o) {
+            for(int i = 0; i < slots.length; i++) {
+                if(o.equals(slots[i])) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        boolean contains(Object o, int hash, int shift) {
+            return hash == this.hash && indexOf(o) >= 0;
+        }
+
+        @Override
+        Node plus(Object o, int hash, int shift) {
+            if(hash != this.hash) {
+                // Push this node down a level of its own
+                return new BitmapNode(bit(this.hash, shift),
+                        new Object[] { this }).plus(o, hash, shift);
+            } else if(indexOf(o) >= 0) {
+                return this;
+            }
+            return new CollisionNode(hash, insert(slots, slots.length, o));
+        }
+
+        @Override
+        Object minus(Object o, int hash, int shift) {
+            if(hash != this.hash) return this;
+            int idx = indexOf(o);
+            if(idx < 0) {
+                return this;
+            } else if(slots.length == 2) {
+                return slots[1 - idx];
+            }
+            return new CollisionNode(hash, remove(slots, idx));
+        }
+
+    }
+
+    /**
+     * Depth first iterator over the trie.
+     */
+    private final class TrieIterator implements Iterator<E> {
+
+        private final Object[][] stack = new Object[MAX_DEPTH + 1][];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth = 0;
+        private Object next;
+
+        TrieIterator() {
+            stack[0] = root.slots;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while(depth >= 0) {
+                Object[] slots = stack[depth];
+                if(positions[depth] == slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object o = slots[positions[depth]++];
+                if(o instanceof Node) {
+                    depth++;
+                    stack[depth] = ((Node) o).slots();
+                    positions[depth] = 0;
+                } else {
+                    next = o;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E next() {
+            if(next == null) throw new NoSuchElementException();
+            E res = (E) next;
+            advance();
+            return res;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+/**
+ * The amount of work done in a task at some point in time, reported to an
+ * {@link IProgressMonitor}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class Progress {
+
+    private final long rows;
+    private final long bytes;
+    private final long totalRows;
+    private final long totalBytes;
+    private final long elapsedMillis;
+
+    /**
+     * Creates a new {@link Progress}.
+     *
+     * @param rows
+     * @param bytes
+     * @param totalRows The expected number of rows or -1 if unknown.
+     * @param totalBytes The expected number of bytes or -1 if unknown.
+     * @param elapsedMillis
+     */
+    public Progress(long rows, long bytes, long totalRows, long totalBytes,
+            long elapsedMillis) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.totalRows = totalRows;
+        this.totalBytes = totalBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the number of rows, or axioms, processed so far
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of bytes processed so far
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the expected number of rows or -1 if unknown
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * @return the expected number of bytes or -1 if unknown
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the time since the task started, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return (elapsedMillis == 0) ? 0 : rows * 1000.0 / elapsedMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return (elapsedMillis == 0) ? 0 : bytes * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Returns the fraction of the task that is done, based on bytes if their
+     * total is known and otherwise on rows, or -1 if neither total is known.
+     *
+     * @return
+     */
+    public double getFractionDone() {
+        if(totalBytes > 0) {
+            return Math.min(1.0, (double) bytes / totalBytes);
+        } else if(totalRows > 0) {
+            return Math.min(1.0, (double) rows / totalRows);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the estimated time left in milliseconds, assuming the current
+     * throughput is maintained, or -1 if it cannot be estimated.
+     *
+     * @return
+     */
+    public long getEtaMillis() {
+        double done = getFractionDone();
+        if(done <= 0) return -1;
+        return Math.round(elapsedMillis * (1 - done) / done);
+    }
+
+    @Override
+    public String toString() {
+        return rows + " rows, " + bytes + " bytes, " +
+                Math.round(getRowsPerSecond()) + " rows/s, eta " +
+                getEtaMillis() + " ms";
+    }
+
+}
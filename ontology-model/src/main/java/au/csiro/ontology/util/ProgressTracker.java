@@ -0,0 +1,162 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import au.csiro.ontology.util.metrics.Counter;
+
+/**
+ * Counts the work done in a task and reports it to an
+ * {@link IProgressMonitor} without slowing down the loops that do the work.
+ * {@link #worked(long, long)} can be called for every row from several
+ * threads: the totals are kept in striped counters, and only one call in
+ * {@link #SAMPLE_RATE} looks at the clock and the cancellation flag. The
+ * monitor receives at most one
+ * {@link ICancellableProgressMonitor#progress(Progress)} call per interval
+ * and, optionally, one {@link IProgressMonitor#step(int, int)} call with the
+ * fraction done. Monitors that do not implement
+ * {@link ICancellableProgressMonitor} only receive the steps and are never
+ * cancelled.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class ProgressTracker {
+
+    /**
+     * Default time between reports, in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = 200;
+
+    private static final int SAMPLE_RATE = 256;
+
+    private final IProgressMonitor monitor;
+    
+    /**
+     * The monitor, if it can receive reports and cancel tasks, or null.
+     */
+    private final ICancellableProgressMonitor cancellable;
+    private final long totalRows;
+    private final long totalBytes;
+    private final long intervalNanos;
+    private final long start = System.nanoTime();
+    private final boolean reportSteps;
+
+    private final Counter rows = new Counter();
+    private final Counter bytes = new Counter();
+    private final AtomicLong nextReport;
+
+    /**
+     * Number of calls to {@link #worked(long, long)}. Updates are not atomic
+     * because it is only used to sample.
+     */
+    private int calls;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new tracker that reports every {@link #DEFAULT_INTERVAL}
+     * milliseconds.
+     *
+     * @param monitor
+     * @param totalRows The expected number of rows or -1 if unknown.
+     * @param totalBytes The expected number of bytes or -1 if unknown.
+     */
+    public ProgressTracker(IProgressMonitor monitor, long totalRows,
+            long totalBytes) {
+        this(monitor, totalRows, totalBytes, DEFAULT_INTERVAL, false);
+    }
+
+    /**
+     * Creates a new tracker.
+     *
+     * @param monitor
+     * @param totalRows The expected number of rows or -1 if unknown.
+     * @param totalBytes The expected number of bytes or -1 if unknown.
+     * @param intervalMillis The minimum time between reports.
+     * @param reportSteps If true the fraction done is also reported as 
+     * steps out of 1000, for monitors that only implement 
+     * {@link IProgressMonitor#step(int, int)}.
+     */
+    public ProgressTracker(IProgressMonitor monitor, long totalRows,
+            long totalBytes, long intervalMillis, boolean reportSteps) {
+        this.monitor = monitor;
+        this.cancellable = (monitor instanceof ICancellableProgressMonitor) ?
+                (ICancellableProgressMonitor) monitor : null;
+        this.reportSteps = reportSteps;
+        this.totalRows = totalRows;
+        this.totalBytes = totalBytes;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.nextReport = new AtomicLong(start + intervalNanos);
+    }
+
+    /**
+     * Records some work. Throws a {@link CancellationException} if the
+     * monitor has asked for the task to be cancelled.
+     *
+     * @param rows
+     * @param bytes
+     */
+    public void worked(long rows, long bytes) {
+        this.rows.add(rows);
+        if(bytes != 0) this.bytes.add(bytes);
+        if((++calls & (SAMPLE_RATE - 1)) == 0) {
+            sample();
+        }
+    }
+
+    /**
+     * Throws a {@link CancellationException} if the monitor has asked for the
+     * task to be cancelled. Used by loops that do not report rows.
+     */
+    public void checkCancelled() {
+        if(cancelled || (cancellable != null && cancellable.isCancelled())) {
+            cancelled = true;
+            throw new CancellationException("Task cancelled.");
+        }
+    }
+
+    /**
+     * Reports the final totals, regardless of the interval.
+     */
+    public void done() {
+        report(System.nanoTime());
+    }
+
+    /**
+     * @return a snapshot of the work done so far
+     */
+    public Progress getProgress() {
+        return getProgress(System.nanoTime());
+    }
+
+    private Progress getProgress(long now) {
+        return new Progress(rows.sum(), bytes.sum(), totalRows, totalBytes,
+                TimeUnit.NANOSECONDS.toMillis(now - start));
+    }
+
+    private void sample() {
+        checkCancelled();
+        long now = System.nanoTime();
+        long next = nextReport.get();
+        if(now - next >= 0 &&
+                nextReport.compareAndSet(next, now + intervalNanos)) {
+            report(now);
+        }
+    }
+
+    private void report(long now) {
+        Progress p = getProgress(now);
+        if(cancellable != null) cancellable.progress(p);
+        double done = p.getFractionDone();
+        if(reportSteps && done >= 0) {
+            monitor.step((int) Math.round(done * 1000), 1000);
+        }
+    }
+
+}
@@ -34,6 +34,12 @@ public class SnomedMetadata {
 
     protected Map<String, Map<String, String>> rightIdentities = new HashMap<>();
 
+    /**
+     * The parsed meta-data of each version.
+     */
+    protected Map<String, SnomedVersionMetadata> versionMetadata = 
+            new HashMap<>();
+
     /**
      * Constructor.
      */
@@ -97,11 +103,52 @@ public class SnomedMetadata {
                     rightIdentities.put(equiv, rightIdents);
                 }
             }
+
+            for (String version : metadata.keySet()) {
+                if (hasVersionMetadata(version)) {
+                    versionMetadata.put(version, compile(version));
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException("Unable to load metadata!", e);
         }
     }
 
+    private SnomedVersionMetadata compile(String version) {
+        Map<String, String> md = new HashMap<>(metadata.get(version));
+        StringBuilder sb = new StringBuilder();
+        for (String id : neverGroupedIds.get(version)) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(id);
+        }
+        md.put(SnomedVersionMetadata.NEVER_GROUPED_IDS, sb.toString());
+        sb.setLength(0);
+        for (Map.Entry<String, String> entry : 
+            rightIdentities.get(version).entrySet()) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(entry.getKey()).append(',').append(entry.getValue());
+        }
+        md.put(SnomedVersionMetadata.RIGHT_IDENTITY_IDS, sb.toString());
+        try {
+            return SnomedVersionMetadata.parse(md);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid metadata for version " + 
+                    version, e);
+        }
+    }
+
+    /**
+     * Returns the parsed meta-data of a version, or null if there is no meta
+     * data available for the version.
+     * 
+     * @param version
+     *            The SNOMED version.
+     * @return
+     */
+    public SnomedVersionMetadata getVersionMetadata(String version) {
+        return versionMetadata.get(version);
+    }
+
     /**
      * Returns true if there is meta data available for a particular version.
      * 
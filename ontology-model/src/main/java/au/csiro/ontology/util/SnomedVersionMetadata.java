@@ -0,0 +1,224 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The meta-data of a single SNOMED version, parsed once so that importers can
+ * check roles without scanning strings for every row. Ids are resolved to
+ * longs and the never grouped roles and right identities are available both
+ * by long id and by exact string id.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class SnomedVersionMetadata {
+
+    public static final String CONCEPT_MODEL_ATT_ID = "conceptModelAttId";
+    public static final String IS_A_ID = "isAId";
+    public static final String SOME_ID = "someId";
+    public static final String CONCEPT_DEFINED_ID = "conceptDefinedId";
+    public static final String NEVER_GROUPED_IDS = "neverGroupedIds";
+    public static final String RIGHT_IDENTITY_IDS = "rightIdentityIds";
+    public static final String ROLE_GROUP_ID = "roleGroupId";
+
+    private final long conceptModelAttId;
+    private final long isAId;
+    private final long someId;
+    private final long conceptDefinedId;
+    private final String roleGroupId;
+
+    /**
+     * Sorted ids of the roles that are never grouped.
+     */
+    private final long[] neverGrouped;
+    private final Set<String> neverGroupedIds;
+
+    /**
+     * Right identities as sorted parallel arrays, keyed by the first role of
+     * the chain.
+     */
+    private final long[] rightIdentityKeys;
+    private final long[] rightIdentityValues;
+    private final Map<String, String> rightIdentities;
+
+    /**
+     * Creates a new {@link SnomedVersionMetadata}.
+     *
+     * @param conceptModelAttId
+     * @param isAId
+     * @param someId
+     * @param conceptDefinedId
+     * @param roleGroupId
+     * @param neverGroupedIds
+     * @param rightIdentities The right identities r o s [ r, with r as key and
+     * s as value.
+     */
+    public SnomedVersionMetadata(long conceptModelAttId, long isAId,
+            long someId, long conceptDefinedId, String roleGroupId,
+            long[] neverGroupedIds, Map<Long, Long> rightIdentities) {
+        this.conceptModelAttId = conceptModelAttId;
+        this.isAId = isAId;
+        this.someId = someId;
+        this.conceptDefinedId = conceptDefinedId;
+        this.roleGroupId = roleGroupId;
+
+        neverGrouped = neverGroupedIds.clone();
+        Arrays.sort(neverGrouped);
+        Set<String> ngs = new HashSet<>();
+        for(long id : neverGrouped) {
+            ngs.add(Long.toString(id));
+        }
+        this.neverGroupedIds = Collections.unmodifiableSet(ngs);
+
+        rightIdentityKeys = new long[rightIdentities.size()];
+        rightIdentityValues = new long[rightIdentities.size()];
+        int i = 0;
+        for(Long key : new TreeSet<>(rightIdentities.keySet())) {
+            rightIdentityKeys[i] = key;
+            rightIdentityValues[i++] = rightIdentities.get(key);
+        }
+        Map<String, String> ris = new HashMap<>();
+        for(Map.Entry<Long, Long> entry : rightIdentities.entrySet()) {
+            ris.put(entry.getKey().toString(), entry.getValue().toString());
+        }
+        this.rightIdentities = Collections.unmodifiableMap(ris);
+    }
+
+    /**
+     * Parses the meta-data of a version in the format used by the importer
+     * configuration. Never grouped ids are comma separated, and right
+     * identities are comma separated pairs of role ids.
+     *
+     * @param metadata
+     * @return
+     * @throws IllegalArgumentException If a required entry is missing or an id
+     * is not a number.
+     */
+    public static SnomedVersionMetadata parse(Map<String, String> metadata) {
+        long[] neverGrouped = parseIds(metadata, NEVER_GROUPED_IDS);
+        long[] ri = parseIds(metadata, RIGHT_IDENTITY_IDS);
+        if(ri.length % 2 != 0) {
+            throw new IllegalArgumentException("Right identities must be " +
+                    "pairs of role ids: "+metadata.get(RIGHT_IDENTITY_IDS));
+        }
+        Map<Long, Long> rightIdentities = new HashMap<>();
+        for(int i = 0; i < ri.length; i += 2) {
+            rightIdentities.put(ri[i], ri[i + 1]);
+        }
+        String roleGroupId = metadata.get(ROLE_GROUP_ID);
+        return new SnomedVersionMetadata(
+                parseId(metadata, CONCEPT_MODEL_ATT_ID),
+                parseId(metadata, IS_A_ID),
+                parseId(metadata, SOME_ID),
+                parseId(metadata, CONCEPT_DEFINED_ID),
+                (roleGroupId != null) ? roleGroupId : "roleGroup",
+                neverGrouped, rightIdentities);
+    }
+
+    private static long parseId(Map<String, String> metadata, String key) {
+        String value = metadata.get(key);
+        if(value == null) {
+            throw new IllegalArgumentException("Missing meta-data "+key);
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid id in meta-data "+
+                    key+": "+value, e);
+        }
+    }
+
+    private static long[] parseIds(Map<String, String> metadata, String key) {
+        String value = metadata.get(key);
+        if(value == null || value.trim().isEmpty()) {
+            return new long[0];
+        }
+        String[] parts = value.split(",");
+        long[] res = new long[parts.length];
+        for(int i = 0; i < parts.length; i++) {
+            try {
+                res[i] = Long.parseLong(parts[i].trim());
+            } catch(NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid id in meta-data "+
+                        key+": "+value, e);
+            }
+        }
+        return res;
+    }
+
+    public long getConceptModelAttId() {
+        return conceptModelAttId;
+    }
+
+    public long getIsAId() {
+        return isAId;
+    }
+
+    public long getSomeId() {
+        return someId;
+    }
+
+    public long getConceptDefinedId() {
+        return conceptDefinedId;
+    }
+
+    public String getRoleGroupId() {
+        return roleGroupId;
+    }
+
+    /**
+     * @return the sorted ids of the roles that are never grouped
+     */
+    public long[] getNeverGroupedIds() {
+        return neverGrouped.clone();
+    }
+
+    public boolean isNeverGrouped(long roleId) {
+        return Arrays.binarySearch(neverGrouped, roleId) >= 0;
+    }
+
+    public boolean isNeverGrouped(String roleId) {
+        return neverGroupedIds.contains(roleId);
+    }
+
+    /**
+     * Returns the second role of the right identity r o s [ r, where r is the
+     * supplied role, or -1 if there is none.
+     *
+     * @param roleId
+     * @return
+     */
+    public long getRightIdentity(long roleId) {
+        int i = Arrays.binarySearch(rightIdentityKeys, roleId);
+        return (i >= 0) ? rightIdentityValues[i] : -1;
+    }
+
+    /**
+     * Returns the second role of the right identity r o s [ r, where r is the
+     * supplied role, or null if there is none.
+     *
+     * @param roleId
+     * @return
+     */
+    public String getRightIdentity(String roleId) {
+        return rightIdentities.get(roleId);
+    }
+
+    /**
+     * @return the right identities, with the first role of each chain as key
+     */
+    public Map<String, String> getRightIdentities() {
+        return rightIdentities;
+    }
+
+}
@@ -4,16 +4,21 @@
  */
 package au.csiro.ontology.util;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Generic class used to collect performance statistics.
  * 
  * @author Alejandro Metke
+ * @deprecated The importers record their timings in
+ * {@link au.csiro.ontology.util.metrics.MetricsRegistry}, which also keeps
+ * distributions and tags. The total loading times are still recorded here
+ * until this class is removed.
  *
  */
+@Deprecated
 public class Statistics {
     
     /**
@@ -22,9 +27,9 @@ public class Statistics {
     public static final Statistics INSTANCE = new Statistics();
     
     /**
-     * Map with performance values.
+     * Map with performance values. Importers may record values concurrently.
      */
-    private final Map<String, Long> stats = new HashMap<>();
+    private final Map<String, Long> stats = new ConcurrentHashMap<>();
     
     /**
      * Private constructor.
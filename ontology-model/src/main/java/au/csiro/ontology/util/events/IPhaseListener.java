@@ -0,0 +1,32 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.events;
+
+/**
+ * Receives the import and classification phase events. Listeners are called
+ * on the thread that runs the phase and should return quickly, e.g. by
+ * committing an event to a profiler or a log.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public interface IPhaseListener {
+
+    /**
+     * Indicates that a phase has started. The counts in the event are not yet
+     * set.
+     *
+     * @param event
+     */
+    public void phaseStarted(PhaseEvent event);
+
+    /**
+     * Indicates that a phase has ended.
+     *
+     * @param event
+     */
+    public void phaseEnded(PhaseEvent event);
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.events;
+
+/**
+ * Describes one run of an import or classification phase. Events are
+ * created by {@link PhaseEvents#begin(String, String)}, filled in while the
+ * phase runs and delivered to the listeners when {@link #end()} is called.
+ * When no listeners are registered a shared disabled event is returned and
+ * all its setters do nothing.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class PhaseEvent {
+
+    /**
+     * Shared event returned when nobody is listening.
+     */
+    static final PhaseEvent DISABLED = new PhaseEvent(null, null, null);
+
+    private final IPhaseListener[] listeners;
+    private final String component;
+    private final String phase;
+    private final String thread;
+    private final long startTime;
+    private final long startNanos;
+
+    private String module;
+    private String version;
+    private long rows = -1;
+    private long axioms = -1;
+    private long bytesRead = -1;
+    private long duration = -1;
+
+    PhaseEvent(IPhaseListener[] listeners, String component, String phase) {
+        this.listeners = listeners;
+        this.component = component;
+        this.phase = phase;
+        if(listeners != null) {
+            thread = Thread.currentThread().getName();
+            startTime = System.currentTimeMillis();
+            startNanos = System.nanoTime();
+        } else {
+            thread = null;
+            startTime = 0;
+            startNanos = 0;
+        }
+    }
+
+    /**
+     * @return true if this event will be delivered to a listener
+     */
+    public boolean isEnabled() {
+        return listeners != null;
+    }
+
+    /**
+     * Ends the phase and delivers the event to the listeners. Only the first
+     * call has any effect.
+     */
+    public void end() {
+        if(listeners == null || duration >= 0) return;
+        duration = System.nanoTime() - startNanos;
+        for(IPhaseListener l : listeners) {
+            l.phaseEnded(this);
+        }
+    }
+
+    public void setModule(String module) {
+        if(listeners != null) this.module = module;
+    }
+
+    public void setVersion(String version) {
+        if(listeners != null) this.version = version;
+    }
+
+    public void setRows(long rows) {
+        if(listeners != null) this.rows = rows;
+    }
+
+    public void setAxioms(long axioms) {
+        if(listeners != null) this.axioms = axioms;
+    }
+
+    public void setBytesRead(long bytesRead) {
+        if(listeners != null) this.bytesRead = bytesRead;
+    }
+
+    /**
+     * @return the importer or reasoner that emitted the event, e.g. rf2
+     */
+    public String getComponent() {
+        return component;
+    }
+
+    /**
+     * @return the name of the phase, e.g. extractModules
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return the name of the thread that started the phase
+     */
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * @return the time the phase started, in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the duration of the phase in nanoseconds, or -1 if it has not
+     * ended
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the module id or null if the phase is not specific to a module
+     */
+    public String getModule() {
+        return module;
+    }
+
+    /**
+     * @return the version or null if the phase is not specific to a version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of rows processed, or -1 if unknown
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of axioms processed, or -1 if unknown
+     */
+    public long getAxioms() {
+        return axioms;
+    }
+
+    /**
+     * @return the number of bytes read, or -1 if unknown
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public String toString() {
+        return component + "." + phase + " module=" + module + " version=" +
+                version + " rows=" + rows + " axioms=" + axioms +
+                " bytesRead=" + bytesRead + " duration=" + duration;
+    }
+
+}
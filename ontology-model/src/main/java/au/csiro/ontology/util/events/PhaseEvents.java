@@ -0,0 +1,73 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.events;
+
+import java.util.Arrays;
+
+/**
+ * Emits {@link PhaseEvent}s for the import and classification phases. With
+ * no listeners registered, {@link #begin(String, String)} only reads a
+ * volatile field and returns a shared disabled event, so phases can be
+ * instrumented permanently. Register a listener to forward the events to a
+ * profiler such as Java Flight Recorder and correlate them with garbage
+ * collection and allocation.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class PhaseEvents {
+
+    private static final IPhaseListener[] NONE = new IPhaseListener[0];
+
+    private static volatile IPhaseListener[] listeners = NONE;
+
+    private PhaseEvents() {
+
+    }
+
+    /**
+     * Starts a phase.
+     *
+     * @param component The importer or reasoner, e.g. rf2.
+     * @param phase The name of the phase, e.g. extractModules.
+     * @return
+     */
+    public static PhaseEvent begin(String component, String phase) {
+        IPhaseListener[] ls = listeners;
+        if(ls.length == 0) return PhaseEvent.DISABLED;
+        PhaseEvent res = new PhaseEvent(ls, component, phase);
+        for(IPhaseListener l : ls) {
+            l.phaseStarted(res);
+        }
+        return res;
+    }
+
+    /**
+     * @return true if at least one listener is registered
+     */
+    public static boolean isEnabled() {
+        return listeners.length > 0;
+    }
+
+    public static synchronized void addListener(IPhaseListener listener) {
+        IPhaseListener[] res = Arrays.copyOf(listeners, listeners.length + 1);
+        res[listeners.length] = listener;
+        listeners = res;
+    }
+
+    public static synchronized void removeListener(IPhaseListener listener) {
+        IPhaseListener[] ls = listeners;
+        for(int i = 0; i < ls.length; i++) {
+            if(ls[i] == listener) {
+                IPhaseListener[] res = new IPhaseListener[ls.length - 1];
+                System.arraycopy(ls, 0, res, 0, i);
+                System.arraycopy(ls, i + 1, res, i, ls.length - i - 1);
+                listeners = res;
+                return;
+            }
+        }
+    }
+
+}
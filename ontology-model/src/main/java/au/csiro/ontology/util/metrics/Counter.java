@@ -0,0 +1,88 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that can be incremented concurrently without locks. Updates are
+ * spread over several cells, chosen by thread, so that threads rarely
+ * contend on the same value. Each cell is padded to its own cache line. The
+ * total is only computed when the counter is read.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class Counter {
+
+    /**
+     * Number of longs in a cache line.
+     */
+    private static final int PAD = 8;
+
+    private static final int MAX_CELLS = 64;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /**
+     * Creates a new counter with enough cells for the available processors.
+     */
+    public Counter() {
+        int n = 1;
+        int target = Runtime.getRuntime().availableProcessors() * 2;
+        while(n < target && n < MAX_CELLS) {
+            n <<= 1;
+        }
+        cells = new AtomicLongArray(n * PAD);
+        mask = n - 1;
+    }
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Adds a value to the counter.
+     *
+     * @param value
+     */
+    public void add(long value) {
+        cells.addAndGet(cell() * PAD, value);
+    }
+
+    /**
+     * Returns the current total. Concurrent updates may or may not be
+     * included.
+     *
+     * @return
+     */
+    public long sum() {
+        long res = 0;
+        for(int i = 0; i <= mask; i++) {
+            res += cells.get(i * PAD);
+        }
+        return res;
+    }
+
+    /**
+     * Sets the counter back to zero.
+     */
+    public void reset() {
+        for(int i = 0; i <= mask; i++) {
+            cells.set(i * PAD, 0);
+        }
+    }
+
+    private int cell() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+}
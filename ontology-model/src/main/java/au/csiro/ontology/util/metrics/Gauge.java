@@ -0,0 +1,33 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A gauge that holds the last value set, such as a number of rows.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class Gauge implements IGauge {
+
+    private final AtomicLong value = new AtomicLong();
+
+    /**
+     * Sets the value of the gauge.
+     *
+     * @param value
+     */
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    @Override
+    public long getValue() {
+        return value.get();
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the distribution of non-negative values without locks. Values are
+ * counted in log-linear buckets: every power of two is split into
+ * {@link #SUB_BUCKETS} equal buckets, so any recorded value can be recovered
+ * with a relative error of at most about 3% over the whole range of longs,
+ * using a fixed amount of memory.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final Counter sum = new Counter();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if(value < 0) value = 0;
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+
+        long m = min.get();
+        while(value < m && !min.compareAndSet(m, value)) {
+            m = min.get();
+        }
+        m = max.get();
+        while(value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Returns a consistent copy of the recorded values.
+     *
+     * @return
+     */
+    public HistogramSnapshot snapshot() {
+        long[] res = new long[NUM_BUCKETS];
+        for(int i = 0; i < NUM_BUCKETS; i++) {
+            res[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(res, sum.sum(), min.get(), max.get());
+    }
+
+    /**
+     * Clears all the recorded values.
+     */
+    public void reset() {
+        for(int i = 0; i < NUM_BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns the bucket of a value.
+     */
+    static int bucket(long value) {
+        if(value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS +
+                (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     */
+    static long highestValue(int bucket) {
+        if(bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long res = ((sub + 1) << shift) - 1;
+        // The last bucket ends at the largest long
+        return (res < 0) ? Long.MAX_VALUE : res;
+    }
+
+}
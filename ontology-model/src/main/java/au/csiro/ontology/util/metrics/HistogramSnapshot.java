@@ -0,0 +1,89 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+/**
+ * An immutable copy of the values recorded by a {@link Histogram}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long min, long max) {
+        this.counts = counts;
+        long c = 0;
+        for(long n : counts) {
+            c += n;
+        }
+        this.count = c;
+        this.sum = sum;
+        this.min = (c == 0) ? 0 : min;
+        this.max = (c == 0) ? 0 : max;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the recorded values
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the value below which the specified percentage of the recorded
+     * values fall. The result is the upper bound of the bucket that contains
+     * the percentile, limited to the largest recorded value.
+     *
+     * @param percentile A value between 0 and 100.
+     * @return
+     */
+    public long getValueAtPercentile(double percentile) {
+        if(count == 0) return 0;
+        long target = (long) Math.ceil(percentile / 100.0 * count);
+        if(target < 1) target = 1;
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return Math.min(Histogram.highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " min=" + min + " mean=" +
+                Math.round(getMean()) + " p50=" + getValueAtPercentile(50) +
+                " p90=" + getValueAtPercentile(90) + " p99=" +
+                getValueAtPercentile(99) + " max=" + max;
+    }
+
+}
@@ -0,0 +1,20 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+/**
+ * A metric whose current value is read when a snapshot is taken.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public interface IGauge {
+
+    /**
+     * @return the current value
+     */
+    public long getValue();
+
+}
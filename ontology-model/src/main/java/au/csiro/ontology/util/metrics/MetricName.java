@@ -0,0 +1,138 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The name of a metric together with a set of tags, such as the importer,
+ * module and version it refers to. Names are immutable and tags are kept
+ * sorted by key so that the same tags always produce the same name.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class MetricName implements Comparable<MetricName> {
+
+    private final String name;
+
+    /**
+     * Alternating keys and values, sorted by key.
+     */
+    private final String[] tags;
+
+    private final String text;
+
+    /**
+     * Creates a new metric name.
+     *
+     * @param name
+     * @param tags Alternating tag keys and values.
+     */
+    public MetricName(String name, String... tags) {
+        if(tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be key-value " +
+                    "pairs: " + name);
+        }
+        Map<String, String> sorted = new TreeMap<>();
+        for(int i = 0; i < tags.length; i += 2) {
+            sorted.put(tags[i], tags[i + 1]);
+        }
+        this.name = name;
+        this.tags = new String[sorted.size() * 2];
+        int i = 0;
+        for(Map.Entry<String, String> e : sorted.entrySet()) {
+            this.tags[i++] = e.getKey();
+            this.tags[i++] = e.getValue();
+        }
+        this.text = format();
+    }
+
+    /**
+     * Returns a new name with an additional tag. If the tag already exists
+     * its value is replaced.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public MetricName tag(String key, String value) {
+        String[] res = new String[tags.length + 2];
+        System.arraycopy(tags, 0, res, 0, tags.length);
+        res[tags.length] = key;
+        res[tags.length + 1] = value;
+        return new MetricName(name, res);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value of a tag or null if the tag is not set.
+     *
+     * @param key
+     * @return
+     */
+    public String getTag(String key) {
+        for(int i = 0; i < tags.length; i += 2) {
+            if(tags[i].equals(key)) return tags[i + 1];
+        }
+        return null;
+    }
+
+    /**
+     * @return the tags sorted by key
+     */
+    public Map<String, String> getTags() {
+        Map<String, String> res = new TreeMap<>();
+        for(int i = 0; i < tags.length; i += 2) {
+            res.put(tags[i], tags[i + 1]);
+        }
+        return res;
+    }
+
+    private String format() {
+        if(tags.length == 0) return name;
+        StringBuilder sb = new StringBuilder(name);
+        sb.append('{');
+        for(int i = 0; i < tags.length; i += 2) {
+            if(i > 0) sb.append(',');
+            sb.append(tags[i]);
+            sb.append('=');
+            sb.append(tags[i + 1]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public int compareTo(MetricName o) {
+        return text.compareTo(o.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return text.equals(((MetricName) obj).text);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
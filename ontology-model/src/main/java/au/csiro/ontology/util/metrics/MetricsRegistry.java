@@ -0,0 +1,161 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the counters, timers and gauges recorded during import and
+ * classification. Metrics are created on first use and can be updated from
+ * any thread without locking. Use {@link #snapshot()} to read all the
+ * current values at once.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class MetricsRegistry {
+
+    /**
+     * Registry shared by the importers and reasoners. It includes the
+     * jvm.heap.used and jvm.heap.max gauges.
+     */
+    public static final MetricsRegistry INSTANCE = createDefault();
+
+    private final ConcurrentMap<MetricName, Object> metrics =
+            new ConcurrentHashMap<>();
+
+    private static MetricsRegistry createDefault() {
+        MetricsRegistry res = new MetricsRegistry();
+        res.register(new MetricName("jvm.heap.used"), new IGauge() {
+            @Override
+            public long getValue() {
+                Runtime rt = Runtime.getRuntime();
+                return rt.totalMemory() - rt.freeMemory();
+            }
+        });
+        res.register(new MetricName("jvm.heap.max"), new IGauge() {
+            @Override
+            public long getValue() {
+                return Runtime.getRuntime().maxMemory();
+            }
+        });
+        return res;
+    }
+
+    /**
+     * Returns the counter with the specified name, creating it if required.
+     *
+     * @param name
+     * @return
+     */
+    public Counter counter(MetricName name) {
+        Object m = metrics.get(name);
+        if(m == null) {
+            m = add(name, new Counter());
+        }
+        return cast(name, m, Counter.class);
+    }
+
+    /**
+     * Returns the timer with the specified name, creating it if required.
+     *
+     * @param name
+     * @return
+     */
+    public Timer timer(MetricName name) {
+        Object m = metrics.get(name);
+        if(m == null) {
+            m = add(name, new Timer());
+        }
+        return cast(name, m, Timer.class);
+    }
+
+    /**
+     * Returns the settable gauge with the specified name, creating it if
+     * required.
+     *
+     * @param name
+     * @return
+     */
+    public Gauge gauge(MetricName name) {
+        Object m = metrics.get(name);
+        if(m == null) {
+            m = add(name, new Gauge());
+        }
+        return cast(name, m, Gauge.class);
+    }
+
+    /**
+     * Registers a gauge that computes its own value, replacing any gauge with
+     * the same name.
+     *
+     * @param name
+     * @param gauge
+     */
+    public void register(MetricName name, IGauge gauge) {
+        Object prev = metrics.putIfAbsent(name, gauge);
+        if(prev != null) {
+            cast(name, prev, IGauge.class);
+            metrics.replace(name, prev, gauge);
+        }
+    }
+
+    /**
+     * Removes a metric.
+     *
+     * @param name
+     */
+    public void remove(MetricName name) {
+        metrics.remove(name);
+    }
+
+    /**
+     * Removes all the metrics.
+     */
+    public void clear() {
+        metrics.clear();
+    }
+
+    /**
+     * Returns the current value of every metric.
+     *
+     * @return
+     */
+    public MetricsSnapshot snapshot() {
+        Map<MetricName, Long> counters = new TreeMap<>();
+        Map<MetricName, Long> gauges = new TreeMap<>();
+        Map<MetricName, HistogramSnapshot> timers = new TreeMap<>();
+        for(Map.Entry<MetricName, Object> e : metrics.entrySet()) {
+            Object m = e.getValue();
+            if(m instanceof Counter) {
+                counters.put(e.getKey(), ((Counter) m).sum());
+            } else if(m instanceof Timer) {
+                timers.put(e.getKey(), ((Timer) m).snapshot());
+            } else {
+                gauges.put(e.getKey(), ((IGauge) m).getValue());
+            }
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), counters,
+                gauges, timers);
+    }
+
+    private Object add(MetricName name, Object metric) {
+        Object prev = metrics.putIfAbsent(name, metric);
+        return (prev != null) ? prev : metric;
+    }
+
+    private static <T> T cast(MetricName name, Object metric, Class<T> type) {
+        if(!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " +
+                    metric.getClass().getSimpleName() + ", not a " +
+                    type.getSimpleName() + ".");
+        }
+        return type.cast(metric);
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The values of all the metrics in a {@link MetricsRegistry} at a point in
+ * time. Metrics are sorted by name and timer values are in nanoseconds.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class MetricsSnapshot {
+
+    private final long timestamp;
+    private final Map<MetricName, Long> counters;
+    private final Map<MetricName, Long> gauges;
+    private final Map<MetricName, HistogramSnapshot> timers;
+
+    MetricsSnapshot(long timestamp, Map<MetricName, Long> counters,
+            Map<MetricName, Long> gauges,
+            Map<MetricName, HistogramSnapshot> timers) {
+        this.timestamp = timestamp;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.timers = Collections.unmodifiableMap(timers);
+    }
+
+    /**
+     * @return the time the snapshot was taken, in milliseconds since the
+     * epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<MetricName, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<MetricName, Long> getGauges() {
+        return gauges;
+    }
+
+    public Map<MetricName, HistogramSnapshot> getTimers() {
+        return timers;
+    }
+
+    /**
+     * Returns the value of a counter or 0 if it does not exist.
+     *
+     * @param name
+     * @return
+     */
+    public long getCounter(MetricName name) {
+        Long res = counters.get(name);
+        return (res == null) ? 0 : res.longValue();
+    }
+
+    /**
+     * Returns the value of a gauge or -1 if it does not exist.
+     *
+     * @param name
+     * @return
+     */
+    public long getGauge(MetricName name) {
+        Long res = gauges.get(name);
+        return (res == null) ? -1 : res.longValue();
+    }
+
+    /**
+     * Returns the durations recorded by a timer or null if it does not
+     * exist.
+     *
+     * @param name
+     * @return
+     */
+    public HistogramSnapshot getTimer(MetricName name) {
+        return timers.get(name);
+    }
+
+    /**
+     * Returns one line per metric, in the form <code>type name value</code>.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for(Map.Entry<MetricName, Long> e : counters.entrySet()) {
+            sb.append("counter ").append(e.getKey()).append(' ')
+                .append(e.getValue()).append('\n');
+        }
+        for(Map.Entry<MetricName, Long> e : gauges.entrySet()) {
+            sb.append("gauge ").append(e.getKey()).append(' ')
+                .append(e.getValue()).append('\n');
+        }
+        for(Map.Entry<MetricName, HistogramSnapshot> e : timers.entrySet()) {
+            sb.append("timer ").append(e.getKey()).append(' ')
+                .append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+}
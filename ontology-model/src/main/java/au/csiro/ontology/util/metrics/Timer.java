@@ -0,0 +1,90 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the distribution of the durations of an operation, in nanoseconds.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class Timer {
+
+    private final Histogram histogram = new Histogram();
+
+    /**
+     * Starts timing an operation. The duration is recorded when the returned
+     * context is stopped or closed, so it can be used in a try-with-resources
+     * statement.
+     *
+     * @return
+     */
+    public Context time() {
+        return new Context(this);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param duration
+     * @param unit
+     */
+    public void update(long duration, TimeUnit unit) {
+        histogram.record(unit.toNanos(duration));
+    }
+
+    /**
+     * @return a copy of the recorded durations, in nanoseconds
+     */
+    public HistogramSnapshot snapshot() {
+        return histogram.snapshot();
+    }
+
+    public void reset() {
+        histogram.reset();
+    }
+
+    /**
+     * A running measurement.
+     *
+     * @author Alejandro Metke
+     *
+     */
+    public static class Context implements AutoCloseable {
+
+        private final Timer timer;
+        private final long start;
+        private boolean stopped;
+
+        private Context(Timer timer) {
+            this.timer = timer;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Records the time elapsed since the context was created. Only the
+         * first call has any effect.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long stop() {
+            long elapsed = System.nanoTime() - start;
+            if(!stopped) {
+                stopped = true;
+                timer.histogram.record(elapsed);
+            }
+            return elapsed;
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+
+    }
+
+}
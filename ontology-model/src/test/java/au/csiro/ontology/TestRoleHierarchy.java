@@ -0,0 +1,140 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.axioms.RoleInclusion;
+import au.csiro.ontology.model.Concept;
+import au.csiro.ontology.model.IRole;
+import au.csiro.ontology.model.Role;
+
+/**
+ * Unit tests for {@link RoleHierarchy}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestRoleHierarchy {
+
+    private final Role<String> r = new Role<>("r");
+    private final Role<String> s = new Role<>("s");
+    private final Role<String> t = new Role<>("t");
+    private final Role<String> u = new Role<>("u");
+    private final Role<String> v = new Role<>("v");
+
+    private RoleHierarchy createHierarchy() {
+        List<IAxiom> axioms = new ArrayList<>();
+        axioms.add(new ConceptInclusion(new Concept<>("A"), Concept.TOP));
+        // r < s < t, with s and u equivalent
+        axioms.add(new RoleInclusion(r, s));
+        axioms.add(new RoleInclusion(s, t));
+        axioms.add(new RoleInclusion(s, u));
+        axioms.add(new RoleInclusion(u, s));
+        // Transitive t and a chain
+        axioms.add(new RoleInclusion(new IRole[] { t, t }, t));
+        axioms.add(new RoleInclusion(new IRole[] { r, v }, r));
+        axioms.add(new RoleInclusion(new IRole[] { r, s, v }, t));
+        axioms.add(new RoleInclusion(new IRole[] {}, v));
+        return new RoleHierarchy(axioms);
+    }
+
+    /**
+     * Tests the reflexive and transitive closure of the sub-role relation.
+     */
+    @Test
+    public void testClosure() {
+        RoleHierarchy rh = createHierarchy();
+        Assert.assertEquals(5, rh.getNumRoles());
+
+        Assert.assertTrue(rh.isSubRoleOf(r, r));
+        Assert.assertTrue(rh.isSubRoleOf(r, s));
+        Assert.assertTrue(rh.isSubRoleOf(r, t));
+        Assert.assertTrue(rh.isSubRoleOf(r, u));
+        Assert.assertTrue(rh.isSubRoleOf(u, s));
+        Assert.assertTrue(rh.isSubRoleOf(u, t));
+        Assert.assertFalse(rh.isSubRoleOf(t, s));
+        Assert.assertFalse(rh.isSubRoleOf(s, r));
+        Assert.assertFalse(rh.isSubRoleOf(v, t));
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(r, s, t, u)),
+                rh.getSuperRoles(r));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(r, s, u)),
+                rh.getSubRoles(s));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(r, s, t, u)),
+                rh.getSubRoles(t));
+
+        int id = rh.getId(s);
+        Assert.assertEquals(s, rh.getRole(id));
+        BitSet supers = rh.getSuperRoleIds(id);
+        Assert.assertEquals(3, supers.cardinality());
+        Assert.assertTrue(supers.get(rh.getId(t)));
+        Assert.assertTrue(rh.isSubRoleOf(id, rh.getId(t)));
+        Assert.assertEquals(4, rh.getSubRoleIds(rh.getId(t)).cardinality());
+
+        // Roles not in the index
+        Role<String> w = new Role<>("w");
+        Assert.assertEquals(-1, rh.getId(w));
+        Assert.assertTrue(rh.isSubRoleOf(w, new Role<>("w")));
+        Assert.assertFalse(rh.isSubRoleOf(w, t));
+        Assert.assertEquals(1, rh.getSuperRoles(w).size());
+    }
+
+    /**
+     * Tests the chain indexes and reflexive roles.
+     */
+    @Test
+    public void testChains() {
+        RoleHierarchy rh = createHierarchy();
+        Assert.assertEquals(Arrays.asList(
+                new RoleInclusion(new IRole[] { r, v }, r)),
+                rh.getChainsWithFirst(r));
+        Assert.assertEquals(Arrays.asList(
+                new RoleInclusion(new IRole[] { r, v }, r)),
+                rh.getChainsWithSecond(v));
+        Assert.assertEquals(1, rh.getChainsWithFirst(t).size());
+        Assert.assertEquals(1, rh.getChainsWithSecond(t).size());
+        Assert.assertTrue(rh.getChainsWithFirst(v).isEmpty());
+        Assert.assertTrue(rh.getChainsWithFirst(new Role<>("w")).isEmpty());
+        Assert.assertEquals(1, rh.getLongChains().size());
+
+        Assert.assertTrue(rh.isReflexive(v));
+        Assert.assertFalse(rh.isReflexive(r));
+    }
+
+    /**
+     * Tests a hierarchy with more roles than fit in one long.
+     */
+    @Test
+    public void testManyRoles() {
+        List<IAxiom> axioms = new ArrayList<>();
+        List<Role<String>> rs = new ArrayList<>();
+        for(int i = 0; i < 150; i++) {
+            rs.add(new Role<>("r" + i));
+        }
+        for(int i = 1; i < 150; i++) {
+            axioms.add(new RoleInclusion(rs.get(i), rs.get(i - 1)));
+        }
+        RoleHierarchy rh = new RoleHierarchy(axioms);
+        Assert.assertTrue(rh.isSubRoleOf(rs.get(149), rs.get(0)));
+        Assert.assertTrue(rh.isSubRoleOf(rs.get(100), rs.get(70)));
+        Assert.assertFalse(rh.isSubRoleOf(rs.get(70), rs.get(100)));
+        Assert.assertEquals(150, rh.getSuperRoles(rs.get(149)).size());
+        Assert.assertEquals(150, rh.getSubRoles(rs.get(0)).size());
+        Assert.assertEquals(80, rh.getSubRoleIds(rh.getId(rs.get(70)))
+                .cardinality());
+    }
+
+}
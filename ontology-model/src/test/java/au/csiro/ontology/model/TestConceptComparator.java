@@ -0,0 +1,87 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConceptComparator}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestConceptComparator {
+
+    private static IConcept[] createConcepts() {
+        Role<String> r = new Role<>("r");
+        Feature<String> f = new Feature<>("f");
+        return new IConcept[] {
+            new Existential<>(r, new Concept<>("b")),
+            new LongConcept(3),
+            new Concept<>("b"),
+            new Datatype<>(f, Operator.EQUALS, new IntegerLiteral(1)),
+            new Conjunction(new IConcept[] { new Concept<>("a"),
+                    new Concept<>("c") }),
+            new Concept<>("a"),
+            new Existential<>(r, new Concept<>("a")),
+        };
+    }
+
+    /**
+     * Tests that the type ranks give the same order as the class names.
+     */
+    @Test
+    public void testClassNameOrder() {
+        IConcept[] expected = createConcepts();
+        Arrays.sort(expected, new Comparator<IConcept>() {
+            @Override
+            public int compare(IConcept c1, IConcept c2) {
+                if(c1.getClass() == c2.getClass()) return c1.compareTo(c2);
+                return c1.getClass().toString().compareTo(
+                        c2.getClass().toString());
+            }
+        });
+
+        IConcept[] actual = createConcepts();
+        Arrays.sort(actual, ConceptComparator.INSTANCE);
+        Assert.assertTrue(Arrays.equals(expected, actual));
+        Assert.assertEquals(new Concept<>("a"), actual[0]);
+        Assert.assertTrue(actual[6] instanceof LongConcept);
+
+        for(IConcept c1 : actual) {
+            for(IConcept c2 : actual) {
+                Assert.assertEquals(Integer.signum(
+                        ConceptComparator.INSTANCE.compare(c1, c2)),
+                        Integer.signum(c1.compareTo(c2)));
+            }
+        }
+    }
+
+    /**
+     * Tests that conjunctions are order independent and drop duplicates.
+     */
+    @Test
+    public void testConjunction() {
+        IConcept[] cs = createConcepts();
+        IConcept[] reversed = new IConcept[cs.length + 1];
+        for(int i = 0; i < cs.length; i++) {
+            reversed[cs.length - 1 - i] = cs[i];
+        }
+        reversed[cs.length] = new Concept<>("a");
+
+        Conjunction c1 = new Conjunction(cs);
+        Conjunction c2 = new Conjunction(Arrays.asList(reversed));
+        Assert.assertEquals(c1, c2);
+        Assert.assertEquals(c1.hashCode(), c2.hashCode());
+        Assert.assertEquals(cs.length, c2.getConcepts().length);
+        Assert.assertEquals(0, c1.compareTo(c2));
+    }
+
+}
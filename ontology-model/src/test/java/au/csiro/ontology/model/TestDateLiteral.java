@@ -0,0 +1,120 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DateLiteral}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestDateLiteral {
+
+    /**
+     * Tests the conversion between dates and days since 1970-01-01 against
+     * {@link GregorianCalendar}.
+     */
+    @Test
+    public void testEpochDay() {
+        Assert.assertEquals(0, DateLiteral.toEpochDay(1970, 1, 1));
+        Assert.assertEquals(15370, DateLiteral.toEpochDay(2012, 1, 31));
+        Assert.assertEquals(-1, DateLiteral.toEpochDay(1969, 12, 31));
+
+        GregorianCalendar cal = new GregorianCalendar(
+                TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(1900, Calendar.JANUARY, 1);
+        for(int i = 0; i < 200 * 366; i++) {
+            int epochDay = (int) (cal.getTimeInMillis() / 86400000L);
+            DateLiteral dl = new DateLiteral(cal);
+            Assert.assertEquals(epochDay, dl.getEpochDay());
+            long[] ymd = DateLiteral.fromEpochDay(epochDay);
+            Assert.assertEquals(cal.get(Calendar.YEAR), ymd[0]);
+            Assert.assertEquals(cal.get(Calendar.MONTH) + 1, ymd[1]);
+            Assert.assertEquals(cal.get(Calendar.DAY_OF_MONTH), ymd[2]);
+            Assert.assertEquals(epochDay, dl.getValue().getTimeInMillis() /
+                    86400000L);
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    /**
+     * Tests that the date is taken in the calendar's time zone and that
+     * equal dates are equal literals.
+     */
+    @Test
+    public void testValue() {
+        Calendar cal = new GregorianCalendar(
+                TimeZone.getTimeZone("GMT-05:00"));
+        cal.clear();
+        cal.set(2012, Calendar.JANUARY, 31, 23, 30);
+        DateLiteral dl = new DateLiteral(cal);
+        Assert.assertEquals("2012-01-31", dl.toString());
+        Assert.assertEquals(new DateLiteral(2012, 2, 1).getEpochDay() - 1,
+                dl.getEpochDay());
+        Assert.assertEquals(new DateLiteral(2012, 1, 31), dl);
+        Assert.assertEquals(new DateLiteral(2012, 1, 31).hashCode(),
+                dl.hashCode());
+        Assert.assertTrue(dl.compareTo(new DateLiteral(2012, 2, 1)) < 0);
+        Assert.assertEquals("0999-03-01",
+                new DateLiteral(999, 3, 1).toString());
+    }
+
+    /**
+     * Tests that dates that do not exist are rejected.
+     */
+    @Test
+    public void testInvalidDates() {
+        Assert.assertEquals("2012-02-29",
+                new DateLiteral(2012, 2, 29).toString());
+        Assert.assertEquals("2000-02-29",
+                new DateLiteral(2000, 2, 29).toString());
+        Assert.assertEquals("2013-04-30",
+                new DateLiteral(2013, 4, 30).toString());
+        Assert.assertEquals("-0004-02-29",
+                new DateLiteral(-4, 2, 29).toString());
+
+        int[][] invalid = {
+            { 2013, 2, 31 }, { 2013, 2, 29 }, { 1900, 2, 29 },
+            { 2013, 4, 31 }, { 2013, 11, 31 }, { 2013, 1, 32 },
+            { 2013, 1, 0 }, { 2013, 0, 1 }, { 2013, 13, 1 }
+        };
+        for(int[] d : invalid) {
+            try {
+                new DateLiteral(d[0], d[1], d[2]);
+                Assert.fail("Accepted "+d[0]+"-"+d[1]+"-"+d[2]);
+            } catch(IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Tests the detection of calendars whose time of day would be dropped.
+     */
+    @Test
+    public void testHasTimeOfDay() {
+        Calendar cal = new GregorianCalendar(
+                TimeZone.getTimeZone("GMT+10:00"));
+        cal.clear();
+        cal.set(2012, Calendar.JANUARY, 31);
+        Assert.assertFalse(DateLiteral.hasTimeOfDay(cal));
+        cal.set(Calendar.MILLISECOND, 1);
+        Assert.assertTrue(DateLiteral.hasTimeOfDay(cal));
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.set(Calendar.HOUR_OF_DAY, 12);
+        Assert.assertTrue(DateLiteral.hasTimeOfDay(cal));
+        Assert.assertEquals("2012-01-31", new DateLiteral(cal).toString());
+    }
+
+}
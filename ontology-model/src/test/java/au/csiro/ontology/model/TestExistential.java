@@ -0,0 +1,135 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the cached hash codes of {@link Existential},
+ * {@link Datatype} and {@link Role}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestExistential {
+
+    /**
+     * Creates a role group nested to the specified depth, with a datatype at
+     * the bottom.
+     *
+     * @param depth
+     * @param value
+     * @return
+     */
+    private static IConcept createNested(int depth, int value) {
+        IConcept res = new Datatype<>(new Feature<>("f"), Operator.EQUALS,
+                new IntegerLiteral(value));
+        for(int i = 0; i < depth; i++) {
+            res = new Existential<>(new Role<>("RoleGroup"), new Conjunction(
+                    new IConcept[] { new Concept<>("C" + i),
+                        new Existential<>(new Role<>("r" + i), res) }));
+        }
+        return res;
+    }
+
+    /**
+     * Tests that the cached hash codes have the same values as the ones
+     * computed from the fields.
+     */
+    @Test
+    public void testHashValues() {
+        Role<String> r = new Role<>("r");
+        Assert.assertEquals(31 + "r".hashCode(), r.hashCode());
+        Assert.assertEquals(31, Role.ROLE_GROUP.hashCode());
+
+        Concept<String> c = new Concept<>("C");
+        Existential<String> e = new Existential<>(r, c);
+        Assert.assertEquals(31 * (31 + c.hashCode()) + r.hashCode(),
+                e.hashCode());
+        Assert.assertEquals(31 * 31 + r.hashCode(),
+                new Existential<>(r, null).hashCode());
+
+        Feature<String> f = new Feature<>("f");
+        IntegerLiteral five = new IntegerLiteral(5);
+        Datatype<String> d = new Datatype<>(f, Operator.EQUALS, five);
+        Assert.assertEquals(31 * (31 * (31 + f.hashCode()) + five.hashCode())
+                + Operator.EQUALS.hashCode(), d.hashCode());
+    }
+
+    /**
+     * Tests that nested expressions built separately are equal, have the
+     * same hash code and are found in hash sets, and that expressions that
+     * only differ in their innermost value are not equal.
+     */
+    @Test
+    public void testNestedEquality() {
+        for(int depth = 0; depth < 8; depth++) {
+            IConcept a = createNested(depth, 5);
+            IConcept copy = createNested(depth, 5);
+            IConcept other = createNested(depth, 6);
+            Assert.assertNotSame(a, copy);
+            Assert.assertEquals(a, copy);
+            Assert.assertEquals(a.hashCode(), copy.hashCode());
+            Assert.assertFalse(a.equals(other));
+            Assert.assertFalse(other.equals(a));
+
+            Set<IConcept> set = new HashSet<>();
+            set.add(a);
+            Assert.assertTrue(set.contains(copy));
+            Assert.assertFalse(set.contains(other));
+        }
+    }
+
+    /**
+     * Tests that values with the same hash code are still compared by their
+     * contents. "Aa" and "BB" have the same hash code.
+     */
+    @Test
+    public void testHashCollisions() {
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+        Role<String> aa = new Role<>("Aa");
+        Role<String> bb = new Role<>("BB");
+        Assert.assertEquals(aa.hashCode(), bb.hashCode());
+        Assert.assertFalse(aa.equals(bb));
+
+        Concept<String> c = new Concept<>("C");
+        Existential<String> e1 = new Existential<>(aa, c);
+        Existential<String> e2 = new Existential<>(bb, c);
+        Assert.assertEquals(e1.hashCode(), e2.hashCode());
+        Assert.assertFalse(e1.equals(e2));
+
+        Datatype<String> d1 = new Datatype<>(new Feature<>("Aa"),
+                Operator.EQUALS, new IntegerLiteral(1));
+        Datatype<String> d2 = new Datatype<>(new Feature<>("BB"),
+                Operator.EQUALS, new IntegerLiteral(1));
+        Assert.assertEquals(d1.hashCode(), d2.hashCode());
+        Assert.assertFalse(d1.equals(d2));
+    }
+
+    /**
+     * Tests that null fields are compared as values.
+     */
+    @Test
+    public void testNullFields() {
+        Role<String> r = new Role<>("r");
+        Assert.assertEquals(new Existential<>(r, null),
+                new Existential<>(r, null));
+        Assert.assertFalse(new Existential<>(r, null).equals(
+                new Existential<>(r, new Concept<>("C"))));
+        Assert.assertEquals(new Datatype<>(new Feature<>("f"),
+                Operator.EQUALS, null), new Datatype<>(new Feature<>("f"),
+                        Operator.EQUALS, null));
+        Assert.assertFalse(new Datatype<>(new Feature<>("f"),
+                Operator.EQUALS, new IntegerLiteral(1)).equals(
+                        new Datatype<>(new Feature<>("f"),
+                                Operator.LESS_THAN, new IntegerLiteral(1))));
+    }
+
+}
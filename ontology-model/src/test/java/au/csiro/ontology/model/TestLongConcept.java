@@ -0,0 +1,56 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.model;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import au.csiro.ontology.axioms.ConceptInclusion;
+import au.csiro.ontology.axioms.IAxiom;
+import au.csiro.ontology.util.AxiomUtils;
+
+/**
+ * Unit tests for {@link LongConcept} and {@link LongRole}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestLongConcept {
+
+    /**
+     * Tests equality, hashing and ordering.
+     */
+    @Test
+    public void testEqualsAndCompare() {
+        LongConcept a = new LongConcept(900000000000441003L);
+        Assert.assertEquals(a, new LongConcept(900000000000441003L));
+        Assert.assertEquals(a.hashCode(),
+                new Concept<>(900000000000441003L).hashCode());
+        Assert.assertFalse(a.equals(new Concept<>(900000000000441003L)));
+        Assert.assertTrue(new LongConcept(5).compareTo(
+                new LongConcept(10)) < 0);
+        Assert.assertTrue(new LongConcept(-1).compareTo(
+                new LongConcept(Long.MAX_VALUE)) < 0);
+
+        LongRole r = new LongRole(116680003L);
+        Assert.assertEquals(r, new LongRole(116680003L));
+        Assert.assertEquals(0, r.compareTo(new Role<>(116680003L)));
+        Assert.assertTrue(r.compareTo(new LongRole(116680004L)) < 0);
+    }
+
+    /**
+     * Tests that axioms with numeric ids can be serialised and deserialised.
+     */
+    @Test
+    public void testSerialise() {
+        IAxiom axiom = new ConceptInclusion(new LongConcept(2),
+                new Conjunction(new IConcept[] { new LongConcept(1),
+                    new Existential<>(new LongRole(4), new LongConcept(5)) }));
+        Assert.assertEquals(axiom,
+                AxiomUtils.deserialise(AxiomUtils.serialise(axiom)));
+    }
+
+}
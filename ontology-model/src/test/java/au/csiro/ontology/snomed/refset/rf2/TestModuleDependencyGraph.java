@@ -0,0 +1,89 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.snomed.refset.rf2;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ModuleDependencyGraph}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestModuleDependencyGraph {
+
+    private ModuleDependencyRow row(String source, String sourceTime,
+            String target, String targetTime) {
+        return new ModuleDependencyRow(source+target+sourceTime, sourceTime,
+                true, source, "900000000000534007", target, sourceTime,
+                targetTime);
+    }
+
+    /**
+     * Tests the closures and topological order of an extension that depends
+     * on a national edition, which depends on the core.
+     */
+    @Test
+    public void testClosure() {
+        Set<ModuleDependencyRow> rows = new HashSet<>();
+        rows.add(row("ext", "20121001", "nat", "20120930"));
+        rows.add(row("nat", "20120930", "core", "20120731"));
+        rows.add(row("nat", "20120930", "model", "20120731"));
+        rows.add(row("core", "20120731", "model", "20120731"));
+
+        ModuleDependencyGraph g =
+                new ModuleDependencyRefset(rows).getDependencyGraph();
+        Assert.assertEquals(4, g.getNodeCount());
+        Assert.assertEquals(4, g.getModuleCount());
+        Assert.assertEquals(3, g.getVersionCount());
+
+        int ext = g.getNode("ext", "20121001");
+        int nat = g.getNode("nat", "20120930");
+        int core = g.getNode("core", "20120731");
+        int model = g.getNode("model", "20120731");
+        Assert.assertEquals(-1, g.getNode("ext", "20120731"));
+
+        int[] closure = g.getClosure(ext);
+        Assert.assertEquals(4, closure.length);
+        Assert.assertEquals(ext, closure[0]);
+        Assert.assertTrue(g.dependsOn(ext, model));
+        Assert.assertTrue(g.dependsOn(core, model));
+        Assert.assertFalse(g.dependsOn(core, nat));
+        Assert.assertEquals(1, g.getClosureSize(model));
+
+        int[] order = g.getTopologicalOrder();
+        int[] position = new int[order.length];
+        for(int i = 0; i < order.length; i++) {
+            position[order[i]] = i;
+        }
+        Assert.assertTrue(position[model] < position[core]);
+        Assert.assertTrue(position[core] < position[nat]);
+        Assert.assertTrue(position[nat] < position[ext]);
+    }
+
+    /**
+     * Tests that cyclic dependencies are detected when the graph is built.
+     */
+    @Test
+    public void testCycle() {
+        Set<ModuleDependencyRow> rows = new HashSet<>();
+        rows.add(row("a", "20120731", "b", "20120731"));
+        rows.add(row("b", "20120731", "a", "20120731"));
+
+        ModuleDependencyRefset refset = new ModuleDependencyRefset(rows);
+        try {
+            refset.getDependencyGraph();
+            Assert.fail("Expected a DependencyException");
+        } catch(DependencyException e) {
+            // Expected
+        }
+    }
+
+}
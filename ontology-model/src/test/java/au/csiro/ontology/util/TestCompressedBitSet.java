@@ -0,0 +1,48 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompressedBitSet}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestCompressedBitSet {
+
+    /**
+     * Tests a set with a sparse block and a dense block.
+     */
+    @Test
+    public void testSparseAndDense() {
+        int[] values = new int[5002];
+        values[0] = 3;
+        values[1] = 3;
+        for(int i = 2; i < values.length; i++) {
+            values[i] = 65536 + (i - 2) * 2;
+        }
+        CompressedBitSet bs = CompressedBitSet.of(values);
+
+        Assert.assertEquals(5001, bs.cardinality());
+        Assert.assertTrue(bs.contains(3));
+        Assert.assertFalse(bs.contains(4));
+        Assert.assertTrue(bs.contains(65536));
+        Assert.assertFalse(bs.contains(65537));
+        Assert.assertTrue(bs.contains(65536 + 9998));
+        Assert.assertFalse(bs.contains(-1));
+        Assert.assertFalse(bs.contains(3 << 16));
+
+        int[] arr = bs.toArray();
+        Assert.assertEquals(5001, arr.length);
+        Assert.assertEquals(3, arr[0]);
+        Assert.assertEquals(65536, arr[1]);
+        Assert.assertEquals(65536 + 9998, arr[5000]);
+    }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PersistentHashSet}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestPersistentHashSet {
+
+    /**
+     * Key with a configurable hash code, used to force collisions.
+     */
+    private static class Key {
+        final int id;
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+    }
+
+    /**
+     * Tests random additions and removals against a {@link HashSet}.
+     */
+    @Test
+    public void testRandom() {
+        Random rnd = new Random(7);
+        Set<Integer> expected = new HashSet<>();
+        PersistentHashSet<Integer> set = PersistentHashSet.empty();
+        for(int i = 0; i < 20000; i++) {
+            Integer n = rnd.nextInt(5000) * 1024;
+            if(rnd.nextInt(3) == 0) {
+                expected.remove(n);
+                set = set.minus(n);
+            } else {
+                expected.add(n);
+                set = set.plus(n);
+            }
+            Assert.assertEquals(expected.size(), set.size());
+        }
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(set, expected);
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+        for(int i = 0; i < 5000; i++) {
+            Integer n = i * 1024;
+            Assert.assertEquals(expected.contains(n), set.contains(n));
+        }
+
+        for(Integer n : expected) {
+            set = set.minus(n);
+        }
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.iterator().hasNext());
+    }
+
+    /**
+     * Tests elements with the same hash code and with hash codes that only
+     * differ in the highest bits.
+     */
+    @Test
+    public void testCollisions() {
+        List<Key> keys = new ArrayList<>();
+        for(int i = 0; i < 40; i++) {
+            keys.add(new Key(i, (i % 4) << 28));
+        }
+        PersistentHashSet<Key> set = PersistentHashSet.of(keys);
+        Assert.assertEquals(40, set.size());
+        Assert.assertEquals(new HashSet<>(keys), set);
+        Assert.assertFalse(set.contains(new Key(40, 0)));
+
+        for(int i = 0; i < 40; i += 2) {
+            set = set.minus(keys.get(i));
+        }
+        Assert.assertEquals(20, set.size());
+        for(int i = 0; i < 40; i++) {
+            Assert.assertEquals(i % 2 == 1, set.contains(keys.get(i)));
+        }
+        for(int i = 1; i < 39; i += 2) {
+            set = set.minus(keys.get(i));
+        }
+        Assert.assertEquals(1, set.size());
+        Assert.assertEquals(keys.get(39), set.iterator().next());
+        Assert.assertTrue(set.minus(keys.get(39)).isEmpty());
+    }
+
+    /**
+     * Tests that sets are not modified by the sets derived from them and
+     * that equal elements are not replaced.
+     */
+    @Test
+    public void testPersistence() {
+        PersistentHashSet<String> s1 = PersistentHashSet.empty();
+        s1 = s1.plus("a").plus("b");
+        PersistentHashSet<String> s2 = s1.plus("c").minus("a");
+        Assert.assertEquals(2, s1.size());
+        Assert.assertTrue(s1.contains("a"));
+        Assert.assertFalse(s1.contains("c"));
+        Assert.assertEquals(2, s2.size());
+        Assert.assertFalse(s2.contains("a"));
+        Assert.assertTrue(s2.contains("c"));
+
+        Assert.assertSame(s1, s1.plus("a"));
+        Assert.assertSame(s1, s1.minus("c"));
+        String b = new String("b");
+        Assert.assertSame(s1, s1.plus(b));
+
+        try {
+            s1.add("d");
+            Assert.fail();
+        } catch(UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+}
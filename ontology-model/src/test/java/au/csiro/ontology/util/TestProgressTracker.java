@@ -0,0 +1,119 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ProgressTracker}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestProgressTracker {
+
+    private static class TestMonitor extends NullProgressMonitor {
+        final List<Progress> reports = new ArrayList<>();
+        volatile boolean cancelled;
+
+        @Override
+        public void progress(Progress progress) {
+            reports.add(progress);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Tests that reports are limited to one per interval and that the final
+     * report has the totals.
+     */
+    @Test
+    public void testRateLimit() {
+        TestMonitor monitor = new TestMonitor();
+        ProgressTracker pt = new ProgressTracker(monitor, 100000, 400000,
+                60000, false);
+        for(int i = 0; i < 100000; i++) {
+            pt.worked(1, 4);
+        }
+        Assert.assertTrue(monitor.reports.isEmpty());
+
+        pt.done();
+        Assert.assertEquals(1, monitor.reports.size());
+        Progress p = monitor.reports.get(0);
+        Assert.assertEquals(100000, p.getRows());
+        Assert.assertEquals(400000, p.getBytes());
+        Assert.assertEquals(1.0, p.getFractionDone());
+        Assert.assertEquals(0, p.getEtaMillis());
+    }
+
+    /**
+     * Tests that a cancelled task stops within one sampling period.
+     */
+    @Test
+    public void testCancel() {
+        TestMonitor monitor = new TestMonitor();
+        ProgressTracker pt = new ProgressTracker(monitor, -1, -1);
+        pt.checkCancelled();
+        monitor.cancelled = true;
+        int done = 0;
+        try {
+            for(int i = 0; i < 100000; i++) {
+                pt.worked(1, 0);
+                done++;
+            }
+            Assert.fail();
+        } catch(CancellationException e) {
+            // Expected
+        }
+        Assert.assertTrue(done < 256);
+    }
+
+    /**
+     * Tests that a monitor that only implements {@link IProgressMonitor} 
+     * still receives the steps and is never cancelled.
+     */
+    @Test
+    public void testPlainMonitor() {
+        final List<Integer> steps = new ArrayList<>();
+        IProgressMonitor monitor = new IProgressMonitor() {
+            @Override
+            public void taskStarted(String taskName) {
+            }
+
+            @Override
+            public void taskEnded() {
+            }
+
+            @Override
+            public void step(int value, int max) {
+                Assert.assertEquals(1000, max);
+                steps.add(value);
+            }
+
+            @Override
+            public void taskBusy() {
+            }
+        };
+        ProgressTracker pt = new ProgressTracker(monitor, 1000, -1, 0, true);
+        for(int i = 0; i < 1000; i++) {
+            pt.worked(1, 0);
+        }
+        pt.checkCancelled();
+        pt.done();
+        Assert.assertFalse(steps.isEmpty());
+        Assert.assertEquals(1000, (int) steps.get(steps.size() - 1));
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SnomedVersionMetadata}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestSnomedVersionMetadata {
+
+    private static Map<String, String> createMetadata() {
+        Map<String, String> res = new HashMap<>();
+        res.put("conceptModelAttId", "410662002");
+        res.put("isAId", "116680003");
+        res.put("someId", "900000000000451002");
+        res.put("conceptDefinedId", "900000000000073002");
+        res.put("neverGroupedIds", "123005000,272741003,127489000,411116001");
+        res.put("rightIdentityIds", "363701004,127489000");
+        return res;
+    }
+
+    /**
+     * Tests that the ids are parsed and that never grouped roles are matched
+     * by id and not by substring.
+     */
+    @Test
+    public void testParse() {
+        SnomedVersionMetadata md = SnomedVersionMetadata.parse(
+                createMetadata());
+        Assert.assertEquals(410662002L, md.getConceptModelAttId());
+        Assert.assertEquals(116680003L, md.getIsAId());
+        Assert.assertEquals(900000000000451002L, md.getSomeId());
+        Assert.assertEquals(900000000000073002L, md.getConceptDefinedId());
+        Assert.assertEquals("roleGroup", md.getRoleGroupId());
+
+        Assert.assertTrue(md.isNeverGrouped(272741003L));
+        Assert.assertTrue(md.isNeverGrouped("272741003"));
+        Assert.assertFalse(md.isNeverGrouped("12300500"));
+        Assert.assertFalse(md.isNeverGrouped("5000"));
+        Assert.assertFalse(md.isNeverGrouped(12300500L));
+        Assert.assertEquals(4, md.getNeverGroupedIds().length);
+    }
+
+    /**
+     * Tests the lookup of right identities.
+     */
+    @Test
+    public void testRightIdentities() {
+        SnomedVersionMetadata md = SnomedVersionMetadata.parse(
+                createMetadata());
+        Assert.assertEquals(127489000L, md.getRightIdentity(363701004L));
+        Assert.assertEquals(-1L, md.getRightIdentity(127489000L));
+        Assert.assertEquals("127489000", md.getRightIdentity("363701004"));
+        Assert.assertNull(md.getRightIdentity("36370100"));
+
+        Map<String, String> metadata = createMetadata();
+        metadata.remove("rightIdentityIds");
+        md = SnomedVersionMetadata.parse(metadata);
+        Assert.assertTrue(md.getRightIdentities().isEmpty());
+    }
+
+    /**
+     * Tests that missing or malformed entries are rejected.
+     */
+    @Test
+    public void testInvalid() {
+        Map<String, String> metadata = createMetadata();
+        metadata.remove("isAId");
+        try {
+            SnomedVersionMetadata.parse(metadata);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch(IllegalArgumentException e) {
+            // Expected
+        }
+
+        metadata = createMetadata();
+        metadata.put("rightIdentityIds", "363701004");
+        try {
+            SnomedVersionMetadata.parse(metadata);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch(IllegalArgumentException e) {
+            // Expected
+        }
+
+        metadata = createMetadata();
+        metadata.put("neverGroupedIds", "123005000,abc");
+        try {
+            SnomedVersionMetadata.parse(metadata);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch(IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+}
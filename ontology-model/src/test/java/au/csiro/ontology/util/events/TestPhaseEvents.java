@@ -0,0 +1,70 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PhaseEvents}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestPhaseEvents {
+
+    /**
+     * Tests that events are only created and delivered while a listener is
+     * registered.
+     */
+    @Test
+    public void testListener() {
+        final List<PhaseEvent> ended = new ArrayList<>();
+        IPhaseListener listener = new IPhaseListener() {
+            @Override
+            public void phaseStarted(PhaseEvent event) {
+                Assert.assertEquals(-1, event.getDuration());
+            }
+
+            @Override
+            public void phaseEnded(PhaseEvent event) {
+                ended.add(event);
+            }
+        };
+
+        PhaseEvent disabled = PhaseEvents.begin("rf2", "transform");
+        Assert.assertFalse(disabled.isEnabled());
+        disabled.setRows(10);
+        Assert.assertEquals(-1, disabled.getRows());
+
+        PhaseEvents.addListener(listener);
+        try {
+            PhaseEvent event = PhaseEvents.begin("rf2", "transform");
+            event.setModule("900000000000207008");
+            event.setVersion("20120131");
+            event.setRows(10);
+            event.setAxioms(5);
+            event.end();
+            event.end();
+        } finally {
+            PhaseEvents.removeListener(listener);
+        }
+        Assert.assertFalse(PhaseEvents.isEnabled());
+
+        Assert.assertEquals(1, ended.size());
+        PhaseEvent event = ended.get(0);
+        Assert.assertEquals("transform", event.getPhase());
+        Assert.assertEquals("900000000000207008", event.getModule());
+        Assert.assertEquals(10, event.getRows());
+        Assert.assertEquals(5, event.getAxioms());
+        Assert.assertEquals(-1, event.getBytesRead());
+        Assert.assertTrue(event.getDuration() >= 0);
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright CSIRO Australian e-Health Research Centre (http://aehrc.com).
+ * All rights reserved. Use is subject to license terms and conditions.
+ */
+package au.csiro.ontology.util.metrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MetricsRegistry}.
+ *
+ * @author Alejandro Metke
+ *
+ */
+public class TestMetricsRegistry {
+
+    /**
+     * Tests that tags are order independent.
+     */
+    @Test
+    public void testNames() {
+        MetricName n1 = new MetricName("rows", "module", "a", "importer", "rf2");
+        MetricName n2 = new MetricName("rows", "importer", "rf2").tag(
+                "module", "a");
+        Assert.assertEquals(n1, n2);
+        Assert.assertEquals("rows{importer=rf2,module=a}", n1.toString());
+        Assert.assertEquals("a", n1.getTag("module"));
+    }
+
+    /**
+     * Tests that increments from several threads are not lost.
+     */
+    @Test
+    public void testConcurrentCounter() throws InterruptedException {
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final MetricName name = new MetricName("count");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for(int i = 0; i < 4; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for(int j = 0; j < 100000; j++) {
+                        metrics.counter(name).increment();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        Assert.assertEquals(400000, metrics.snapshot().getCounter(name));
+    }
+
+    /**
+     * Tests that percentiles are within the precision of the histogram.
+     */
+    @Test
+    public void testTimerPercentiles() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        MetricName name = new MetricName("time");
+        Timer t = metrics.timer(name);
+        for(int i = 1; i <= 1000; i++) {
+            t.update(i, TimeUnit.MILLISECONDS);
+        }
+
+        HistogramSnapshot hs = metrics.snapshot().getTimer(name);
+        Assert.assertEquals(1000, hs.getCount());
+        Assert.assertEquals(1000000, hs.getMin());
+        Assert.assertEquals(1000000000, hs.getMax());
+        assertClose(500000000, hs.getValueAtPercentile(50));
+        assertClose(990000000, hs.getValueAtPercentile(99));
+        Assert.assertEquals(1000000000, hs.getValueAtPercentile(100));
+    }
+
+    /**
+     * Tests that a name cannot be reused for a different kind of metric.
+     */
+    @Test
+    public void testTypeMismatch() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        MetricName name = new MetricName("rows");
+        metrics.gauge(name).set(5);
+        try {
+            metrics.counter(name);
+            Assert.fail();
+        } catch(IllegalArgumentException e) {
+            // Expected
+        }
+        Assert.assertEquals(5, metrics.snapshot().getGauge(name));
+    }
+
+    private void assertClose(long expected, long actual) {
+        Assert.assertTrue(actual + " is not close to " + expected,
+                Math.abs(actual - expected) <= expected / 32);
+    }
+
+}